@@ -0,0 +1,47 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记实体开启二级缓存（进程内近缓存 + Redis）
+ *
+ * 开启后 BaseServiceImpl.getById / getByIds 以及通过 EntityCacheManager 的查询会先读缓存；
+ * 通过 Mapper 执行的 INSERT / UPDATE / DELETE 由 EntityCacheInvalidationInterceptor 自动清除对应的缓存。
+ *
+ * <pre>
+ * {@code
+ * @TableName("b_user")
+ * @CachedEntity(uniqueKeys = {"account"})
+ * public class UserEntity { ... }
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CachedEntity {
+
+    /**
+     * Redis 缓存有效期（秒）
+     */
+    long redisTtlSeconds() default 600;
+
+    /**
+     * 进程内近缓存有效期（秒），其他节点修改数据后本节点最多在这个时间内读到旧数据
+     */
+    long nearTtlSeconds() default 30;
+
+    /**
+     * 查询结果为空时的缓存有效期（秒），0 表示不缓存空结果
+     */
+    long negativeTtlSeconds() default 60;
+
+    /**
+     * 唯一键属性名（如 account），用于按唯一键查询缓存；写入时清除这些属性值对应的缓存索引
+     */
+    String[] uniqueKeys() default {};
+}
@@ -0,0 +1,45 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记 Mapper 查询开启结果缓存
+ *
+ * 标注在 Mapper 方法上只缓存该方法；标注在 Mapper 接口上缓存该接口的所有查询（包括从 BaseMapper 继承的
+ * selectByWrapper、countByWrapper 等）。缓存 key 为语句 ID + 实际执行的 SQL + 参数值，
+ * 任何写语句修改了查询涉及的表后，该表上的所有缓存结果立即失效（按表版本号判断，不逐条清除）。
+ *
+ * <pre>
+ * {@code
+ * @CachedQuery(ttlSeconds = 30)
+ * @Select("SELECT * FROM department")
+ * List<DepartmentEntity> selectAll();
+ * }
+ * </pre>
+ *
+ * 适合管理后台中反复执行的列表、统计查询；写入频繁的表命中率很低，不建议开启。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface CachedQuery {
+
+    /**
+     * 缓存有效期（秒）
+     */
+    long ttlSeconds() default 60;
+
+    /**
+     * 结果行数超过该值时不缓存
+     */
+    int maxRows() default 1000;
+
+    /**
+     * 查询涉及的表，为空时从 SQL 的 FROM / JOIN 子句中解析；SQL 通过视图、存储过程等间接读表时需要手动指定
+     */
+    String[] tables() default {};
+}
@@ -0,0 +1,30 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记实体使用预先生成的行映射器
+ *
+ * 结果类型为该实体、且没有显式 @Results / resultMap 映射的查询，由 CompiledRowMappingInterceptor
+ * 按列下标和字段类型直接读取结果集并通过 MethodHandle 写入字段，不再逐行经过 MyBatis 的反射自动映射。
+ * 映射规则与 MyBatis 自动映射一致（列名忽略大小写匹配属性名，开启 mapUnderscoreToCamelCase 时忽略下划线）。
+ *
+ * <pre>
+ * {@code
+ * @TableName("b_user")
+ * @CompiledRowMapping
+ * public class UserEntity { ... }
+ * }
+ * </pre>
+ *
+ * 实体字段使用自定义 TypeHandler 时不要标注，否则自定义的转换不会生效
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CompiledRowMapping {
+}
@@ -0,0 +1,32 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记实体字段的写入规则，供 BaseSqlProvider 生成批量 INSERT / UPDATE 时使用
+ *
+ * 例如由数据库维护的 create_time、update_time 字段：
+ * <pre>
+ * {@code
+ * @TableField(insertable = false, updatable = false)
+ * private Date createTime;
+ * }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface TableField {
+
+    /**
+     * 是否出现在生成的 INSERT 列中
+     */
+    boolean insertable() default true;
+
+    /**
+     * 是否出现在生成的 UPDATE SET 子句中
+     */
+    boolean updatable() default true;
+}
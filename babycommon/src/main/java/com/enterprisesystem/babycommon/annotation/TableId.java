@@ -0,0 +1,19 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记实体类的主键字段，未标记时默认使用名为 id 的字段
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface TableId {
+
+    /**
+     * 是否为数据库自增主键，自增主键不出现在生成的批量 INSERT 列中
+     */
+    boolean autoIncrement() default false;
+}
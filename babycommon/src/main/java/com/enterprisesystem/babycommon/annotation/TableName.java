@@ -0,0 +1,19 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记实体类对应的数据库表名，供 EntityMetadataRegistry 解析实体元数据
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface TableName {
+
+    /**
+     * 数据库表名
+     */
+    String value();
+}
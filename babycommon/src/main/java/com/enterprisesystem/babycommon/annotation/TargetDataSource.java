@@ -0,0 +1,35 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import com.enterprisesystem.babycommon.datasource.DataSourceType;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 指定方法（或类中所有方法）使用的数据源，优先于读写分离的自动判断
+ *
+ * 【使用场景】
+ * - PRIMARY：刚写入就要读取、对一致性要求高的查询（如登录、余额），强制读主库
+ * - REPLICA：允许读到稍旧数据的只读事务或报表查询，强制读从库
+ *
+ * 【使用方法】
+ * <pre>
+ * {@code
+ * @TargetDataSource(DataSourceType.PRIMARY)
+ * public UserEntity getForLogin(String account) { ... }
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface TargetDataSource {
+
+    /**
+     * 数据源类型
+     */
+    DataSourceType value();
+}
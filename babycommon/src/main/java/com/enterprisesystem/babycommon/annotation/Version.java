@@ -0,0 +1,16 @@
+package com.enterprisesystem.babycommon.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记实体类的乐观锁版本号字段（Integer / Long），未标记时默认使用名为 revision 的字段
+ *
+ * BaseMapper.updateColumnsWithVersion 生成的 UPDATE 按该字段比较并交换：SET ..., revision = revision + 1 WHERE id = ? AND revision = ?
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Version {
+}
@@ -0,0 +1,65 @@
+package com.enterprisesystem.babycommon.aspect;
+
+import com.enterprisesystem.babycommon.annotation.TargetDataSource;
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+
+import java.lang.reflect.Method;
+
+/**
+ * 数据源路由切面
+ *
+ * 【作用】
+ * 拦截带有 @TargetDataSource 注解的方法（或类），在方法执行期间强制使用指定的数据源。
+ *
+ * 优先级最高，保证在 @Transactional 开启事务（获取连接）之前设置好路由，
+ * 因此 @TargetDataSource(REPLICA) + @Transactional(readOnly = true) 的事务会在从库上执行。
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DataSourceRoutingAspect {
+
+    @Around("@annotation(com.enterprisesystem.babycommon.annotation.TargetDataSource) "
+            + "|| @within(com.enterprisesystem.babycommon.annotation.TargetDataSource)")
+    public Object around(ProceedingJoinPoint pjp) throws Throwable {
+        TargetDataSource target = findAnnotation(pjp);
+        if (target == null) {
+            return pjp.proceed();
+        }
+        DataSourceContextHolder.pushForced(target.value());
+        try {
+            return pjp.proceed();
+        } finally {
+            DataSourceContextHolder.popForced();
+        }
+    }
+
+    /**
+     * 方法上的注解优先于类上的注解
+     *
+     * JDK 动态代理时签名中的方法是接口方法，先换成目标类上的实现方法，实现类方法上的注解才能生效
+     */
+    private TargetDataSource findAnnotation(ProceedingJoinPoint pjp) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Class<?> targetClass = AopUtils.getTargetClass(pjp.getTarget());
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        TargetDataSource annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, TargetDataSource.class);
+        if (annotation == null && specificMethod != method) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method, TargetDataSource.class);
+        }
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, TargetDataSource.class);
+        }
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), TargetDataSource.class);
+        }
+        return annotation;
+    }
+}
@@ -0,0 +1,316 @@
+package com.enterprisesystem.babycommon.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 集群缓存失效总线
+ *
+ * 【作用】
+ * 各节点都有进程内缓存（实体近缓存、RefreshingCache），一个节点写入数据后只能清除自己的进程内缓存和 Redis，
+ * 其他节点在近缓存过期前仍会读到旧数据。本类通过扇形交换机 exchange.fanout.notification 广播失效消息，
+ * 每个节点用自己的临时队列（auto-delete，节点断开后自动删除）接收并清除本节点的进程内缓存。
+ *
+ * 【合并发送】
+ * publish 只把 key 放入待发送集合，第一个 key 到达后 flushIntervalMillis（默认 5 毫秒）内的失效合并为一条消息，
+ * 同一区域的 key 去重；单个区域超过 maxKeysPerRegion 个 key 时改为整体清除该区域。
+ *
+ * 【版本戳和丢失】
+ * - 每条消息带发送节点 ID 和连续递增的序号，接收方发现序号跳跃（消息丢失或过期）时清除全部进程内缓存
+ * - 与本节点失效相同，远程失效也会在近缓存中留下版本墓碑，晚于失效完成的旧查询结果不会被回填
+ * - 重新连接 RabbitMQ 后（断开期间的临时队列已被删除，期间的消息全部错过）清除全部进程内缓存
+ *
+ * 【其他队列】
+ * 同一交换机上绑定的 queue.notification 也会收到失效消息，消息设置了过期时间（默认 60 秒）并以
+ * type = cache.invalidation 标识，其他消费者可以按 type 忽略。
+ */
+public class CacheInvalidationBus implements CacheInvalidationPublisher, MessageListener, ConnectionListener {
+
+    /**
+     * 消息类型（MessageProperties.type）
+     */
+    public static final String MESSAGE_TYPE = "cache.invalidation";
+
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String exchange;
+    private final long flushIntervalMillis;
+    private final int maxKeysPerRegion;
+    private final long messageTtlMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<CacheInvalidationHandler> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 其他节点 ID -> 已收到的最大序号
+     */
+    private final Map<String, Long> lastSequences = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private Map<String, Set<String>> pendingKeys = new LinkedHashMap<>();
+    private Set<String> pendingFull = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    /**
+     * 只在发送线程中读写
+     */
+    private long sequence;
+
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder sequenceGaps = new LongAdder();
+    private final LongAdder outOfOrder = new LongAdder();
+    private final LongAdder fullFlushes = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param rabbitTemplate      RabbitTemplate
+     * @param exchange            扇形交换机
+     * @param flushIntervalMillis 合并发送的时间窗口（毫秒）
+     * @param maxKeysPerRegion    单个区域最多合并的 key 数，超过后整体清除该区域
+     * @param messageTtlMillis    消息过期时间（毫秒）
+     */
+    public CacheInvalidationBus(RabbitTemplate rabbitTemplate, String exchange, long flushIntervalMillis,
+                                int maxKeysPerRegion, long messageTtlMillis) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.exchange = exchange;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxKeysPerRegion = maxKeysPerRegion;
+        this.messageTtlMillis = messageTtlMillis;
+    }
+
+    /**
+     * 注册处理器
+     *
+     * @param handler 处理器
+     */
+    public void addHandler(CacheInvalidationHandler handler) {
+        handlers.add(handler);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // ==================== 发送 ====================
+
+    @Override
+    public void publish(String region, Collection<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        published.increment();
+        synchronized (lock) {
+            if (!pendingFull.contains(region)) {
+                Set<String> regionKeys = pendingKeys.computeIfAbsent(region, r -> new LinkedHashSet<>());
+                regionKeys.addAll(keys);
+                if (regionKeys.size() > maxKeysPerRegion) {
+                    pendingKeys.remove(region);
+                    pendingFull.add(region);
+                }
+            }
+            scheduleFlush(flushIntervalMillis);
+        }
+    }
+
+    @Override
+    public void publishAll(String region) {
+        published.increment();
+        synchronized (lock) {
+            pendingKeys.remove(region);
+            pendingFull.add(region);
+            scheduleFlush(flushIntervalMillis);
+        }
+    }
+
+    /**
+     * 必须在持有 lock 时调用
+     */
+    private void scheduleFlush(long delayMillis) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        InvalidationMessage message = new InvalidationMessage();
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pendingKeys.isEmpty() && pendingFull.isEmpty()) {
+                return;
+            }
+            message.setKeys(pendingKeys);
+            message.setFullRegions(pendingFull);
+            pendingKeys = new LinkedHashMap<>();
+            pendingFull = new LinkedHashSet<>();
+        }
+        message.setNodeId(nodeId);
+        message.setSequence(sequence + 1);
+        message.setSentAt(System.currentTimeMillis());
+        try {
+            send(message);
+            sequence++;
+            messagesSent.increment();
+        } catch (RuntimeException | IOException e) {
+            sendFailures.increment();
+            System.out.println("发送缓存失效消息失败，" + RETRY_DELAY_MILLIS + " 毫秒后重试：" + e.getMessage());
+            requeue(message);
+        }
+    }
+
+    private void send(InvalidationMessage message) throws IOException {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setType(MESSAGE_TYPE);
+        properties.setExpiration(String.valueOf(messageTtlMillis));
+        properties.setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT);
+        rabbitTemplate.send(exchange, "", new Message(OBJECT_MAPPER.writeValueAsBytes(message), properties));
+    }
+
+    /**
+     * 发送失败的失效放回待发送集合，与之后的失效一起重试
+     */
+    private void requeue(InvalidationMessage message) {
+        synchronized (lock) {
+            for (String region : message.getFullRegions()) {
+                pendingKeys.remove(region);
+                pendingFull.add(region);
+            }
+            for (Map.Entry<String, Set<String>> entry : message.getKeys().entrySet()) {
+                if (pendingFull.contains(entry.getKey())) {
+                    continue;
+                }
+                Set<String> regionKeys = pendingKeys.computeIfAbsent(entry.getKey(), r -> new LinkedHashSet<>());
+                regionKeys.addAll(entry.getValue());
+                if (regionKeys.size() > maxKeysPerRegion) {
+                    pendingKeys.remove(entry.getKey());
+                    pendingFull.add(entry.getKey());
+                }
+            }
+            scheduleFlush(RETRY_DELAY_MILLIS);
+        }
+    }
+
+    // ==================== 接收 ====================
+
+    @Override
+    public void onMessage(Message amqpMessage) {
+        if (!MESSAGE_TYPE.equals(amqpMessage.getMessageProperties().getType())) {
+            // 同一交换机上的其他广播
+            return;
+        }
+        InvalidationMessage message;
+        try {
+            message = OBJECT_MAPPER.readValue(amqpMessage.getBody(), InvalidationMessage.class);
+        } catch (IOException e) {
+            System.out.println("缓存失效消息无法解析：" + e.getMessage());
+            return;
+        }
+        if (nodeId.equals(message.getNodeId())) {
+            return;
+        }
+        messagesReceived.increment();
+
+        Long last = lastSequences.get(message.getNodeId());
+        if (last != null && message.getSequence() > last + 1) {
+            sequenceGaps.increment();
+            flushLocal("节点 " + message.getNodeId() + " 的失效消息丢失（序号 " + (last + 1) + " ~ "
+                    + (message.getSequence() - 1) + "）");
+        }
+        if (last == null || message.getSequence() > last) {
+            lastSequences.put(message.getNodeId(), message.getSequence());
+        } else {
+            // 重复或乱序到达的旧消息：清除是幂等的，照常处理
+            outOfOrder.increment();
+        }
+
+        for (String region : message.getFullRegions()) {
+            for (CacheInvalidationHandler handler : handlers) {
+                handler.onInvalidateAll(region);
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : message.getKeys().entrySet()) {
+            for (CacheInvalidationHandler handler : handlers) {
+                handler.onInvalidate(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * RabbitMQ 连接建立：首次连接不处理，之后每次重新连接都清除全部进程内缓存
+     */
+    @Override
+    public void onCreate(Connection connection) {
+        if (!connected.compareAndSet(false, true)) {
+            flushLocal("RabbitMQ 重新连接，断开期间的失效消息已丢失");
+        }
+    }
+
+    private void flushLocal(String reason) {
+        fullFlushes.increment();
+        System.out.println("清除全部进程内缓存：" + reason);
+        for (CacheInvalidationHandler handler : handlers) {
+            handler.onFlush();
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return published：调用 publish 的次数；messagesSent：发送的消息数（合并后）；sendFailures：发送失败次数；
+     * messagesReceived：收到其他节点的消息数；sequenceGaps：发现丢失消息的次数；outOfOrder：重复或乱序的消息数；
+     * fullFlushes：清除全部进程内缓存的次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("published", published.sum());
+        stats.put("messagesSent", messagesSent.sum());
+        stats.put("sendFailures", sendFailures.sum());
+        stats.put("messagesReceived", messagesReceived.sum());
+        stats.put("sequenceGaps", sequenceGaps.sum());
+        stats.put("outOfOrder", outOfOrder.sum());
+        stats.put("fullFlushes", fullFlushes.sum());
+        return stats;
+    }
+}
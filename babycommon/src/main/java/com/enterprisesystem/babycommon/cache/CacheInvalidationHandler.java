@@ -0,0 +1,31 @@
+package com.enterprisesystem.babycommon.cache;
+
+import java.util.Collection;
+
+/**
+ * 处理其他节点广播的缓存失效
+ *
+ * 每条消息会交给所有处理器，处理器只处理自己的区域，只清除进程内缓存（Redis 已由发起方清除）
+ */
+public interface CacheInvalidationHandler {
+
+    /**
+     * 清除指定 key
+     *
+     * @param region 缓存区域
+     * @param keys   区域内的 key
+     */
+    void onInvalidate(String region, Collection<String> keys);
+
+    /**
+     * 清除整个区域
+     *
+     * @param region 缓存区域
+     */
+    void onInvalidateAll(String region);
+
+    /**
+     * 清除全部进程内缓存（重新连接或发现丢失消息后，无法确定错过了哪些失效）
+     */
+    void onFlush();
+}
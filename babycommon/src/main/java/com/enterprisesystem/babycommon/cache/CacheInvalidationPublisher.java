@@ -0,0 +1,26 @@
+package com.enterprisesystem.babycommon.cache;
+
+import java.util.Collection;
+
+/**
+ * 缓存失效广播
+ *
+ * 本节点清除缓存后调用，通知其他节点清除各自的进程内缓存
+ */
+public interface CacheInvalidationPublisher {
+
+    /**
+     * 广播清除指定 key
+     *
+     * @param region 缓存区域，如 ec:b_user、rc:department-tree
+     * @param keys   区域内的 key
+     */
+    void publish(String region, Collection<String> keys);
+
+    /**
+     * 广播清除整个区域
+     *
+     * @param region 缓存区域
+     */
+    void publishAll(String region);
+}
@@ -0,0 +1,28 @@
+package com.enterprisesystem.babycommon.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * 实体缓存 actuator 端点
+ *
+ * GET /actuator/entitycache：命中 / 未命中 / 淘汰 / 失效次数等统计，以及近缓存当前条目数
+ */
+@Endpoint(id = "entitycache")
+public class EntityCacheEndpoint {
+
+    private final EntityCacheManager cacheManager;
+
+    public EntityCacheEndpoint(EntityCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> result = cacheManager.getStats().toMap();
+        result.put("nearSize", cacheManager.getNearCache().size());
+        return result;
+    }
+}
@@ -0,0 +1,682 @@
+package com.enterprisesystem.babycommon.cache;
+
+import com.enterprisesystem.babycommon.annotation.CachedEntity;
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 实体二级缓存
+ *
+ * 【结构】
+ * 读取顺序：进程内近缓存 -> Redis -> 数据库，下层命中后回填上层。
+ * - 按主键：Redis 中每个实体一个 Hash（ec:表名:主键），字段为视图名（full 为整行，其他为投影，如 auth），
+ *   删除这一个 key 就清除了该实体的所有视图
+ * - 按唯一键：ec:表名:uk:属性名:属性值 -> 主键，再按主键读取；读到的实体唯一键值与查询值不一致时
+ *   （唯一键被修改过）视为未命中，重新从数据库查询
+ * - 空结果：按 @CachedEntity.negativeTtlSeconds 缓存，避免不存在的 ID / 账号反复穿透到数据库
+ *
+ * 【失效】
+ * 由 EntityCacheInvalidationInterceptor 在 Mapper 执行写操作后调用 evict 系列方法，事务提交后再清除一次
+ * （避免事务提交前被其他线程读到旧值并回填）。配置了 CacheInvalidationBus 时清除操作会广播到其他节点，
+ * 其他节点只清除近缓存；未配置时近缓存有效期较短（默认 30 秒），其他节点修改数据后本节点最多在这个时间内读到旧数据。
+ * 回填近缓存时带上查询前的版本号，查询期间被清除过的 key 不回填。
+ *
+ * 【可用性】
+ * Redis 读写失败时只记录错误次数并退化为直接查询数据库，不影响业务。
+ */
+public class EntityCacheManager implements CacheInvalidationHandler {
+
+    /**
+     * 整行视图
+     */
+    public static final String FULL_VIEW = "full";
+
+    private static final String KEY_PREFIX = "ec:";
+    private static final String NEGATIVE = "~";
+    private static final String UNIQUE_KEY_PREFIX = "uk:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final EntityCodec codec;
+    private final NearCache nearCache;
+    private final EntityCacheStats stats = new EntityCacheStats();
+    private final Map<Class<?>, Region> regions = new ConcurrentHashMap<>();
+    private volatile CacheInvalidationPublisher invalidationPublisher;
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate Redis 模板，为 null 时只使用近缓存
+     * @param codec         实体序列化
+     * @param nearMaxSize   近缓存最大条目数
+     */
+    public EntityCacheManager(StringRedisTemplate redisTemplate, EntityCodec codec, int nearMaxSize) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.nearCache = new NearCache(nearMaxSize, stats);
+    }
+
+    /**
+     * 设置失效广播，清除缓存时通知其他节点
+     *
+     * @param invalidationPublisher 失效广播
+     */
+    public void setInvalidationPublisher(CacheInvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    /**
+     * 实体是否开启了缓存（标注了 @CachedEntity）
+     *
+     * @param type 实体类型
+     * @return true-已开启
+     */
+    public boolean isCacheable(Class<?> type) {
+        return type != null && type.isAnnotationPresent(CachedEntity.class);
+    }
+
+    /**
+     * 实体是否声明了唯一键缓存（@CachedEntity.uniqueKeys）
+     *
+     * 唯一键索引只能通过实体当前的唯一键值清除，只知道主键的写操作需要清除该实体类型的全部缓存
+     *
+     * @param type 实体类型
+     * @return true-声明了唯一键
+     */
+    public boolean hasUniqueKeys(Class<?> type) {
+        return !region(type).uniqueKeys.isEmpty();
+    }
+
+    /**
+     * 按主键查询整行
+     *
+     * @param type   实体类型
+     * @param id     主键
+     * @param loader 未命中时的查询，如 () -> mapper.selectById(id)
+     * @param <T>    实体类型
+     * @return 实体，不存在时返回 null
+     */
+    public <T> T getById(Class<T> type, Object id, Supplier<T> loader) {
+        return getById(type, FULL_VIEW, id, loader);
+    }
+
+    /**
+     * 按主键查询指定视图
+     *
+     * @param type   实体类型
+     * @param view   视图名，同一实体的不同投影使用不同的视图名
+     * @param id     主键
+     * @param loader 未命中时的查询
+     * @param <T>    实体类型
+     * @return 实体，不存在时返回 null
+     */
+    public <T> T getById(Class<T> type, String view, Object id, Supplier<T> loader) {
+        if (id == null) {
+            return null;
+        }
+        Region region = region(type);
+        String idKey = String.valueOf(id);
+        long version = nearCache.currentVersion();
+        String cached = lookup(region, view, idKey, version);
+        if (cached != null) {
+            return NEGATIVE.equals(cached) ? null : codec.decode(cached, type);
+        }
+        stats.miss();
+        T entity = loader.get();
+        stats.load(entity == null ? 0 : 1);
+        store(region, view, idKey, entity, version);
+        return entity;
+    }
+
+    /**
+     * 按主键批量查询整行
+     *
+     * 先读近缓存，剩余的通过一次 Redis 管道读取，仍未命中的再一次性交给 loader 查询
+     *
+     * @param type   实体类型
+     * @param ids    主键列表
+     * @param loader 未命中时的批量查询，如 missing -> mapper.selectByIds(missing)
+     * @param <T>    实体类型
+     * @param <ID>   主键类型
+     * @return 实体列表，按 ids 的顺序排列，不存在的主键跳过
+     */
+    public <T, ID> List<T> getByIds(Class<T> type, Collection<ID> ids, Function<List<ID>, List<T>> loader) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Region region = region(type);
+        long version = nearCache.currentVersion();
+        List<ID> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, String> found = new HashMap<>(distinctIds.size() * 2);
+
+        List<ID> remaining = new ArrayList<>();
+        for (ID id : distinctIds) {
+            String value = nearCache.get(region.nearKey(FULL_VIEW, String.valueOf(id)));
+            if (value != null) {
+                hit(value, true);
+                found.put(String.valueOf(id), value);
+            } else {
+                remaining.add(id);
+            }
+        }
+
+        if (!remaining.isEmpty() && redisTemplate != null) {
+            List<Object> values = redisPipelineGet(region, remaining);
+            List<ID> stillMissing = new ArrayList<>();
+            for (int i = 0; i < remaining.size(); i++) {
+                String idKey = String.valueOf(remaining.get(i));
+                String value = values == null ? null : checkNegative((String) values.get(i));
+                if (value != null) {
+                    hit(value, false);
+                    nearCache.put(region.nearKey(FULL_VIEW, idKey), value, nearTtl(region, value), version);
+                    found.put(idKey, value);
+                } else {
+                    stillMissing.add(remaining.get(i));
+                }
+            }
+            remaining = stillMissing;
+        }
+
+        Map<String, T> loaded = new HashMap<>();
+        if (!remaining.isEmpty()) {
+            for (int i = 0; i < remaining.size(); i++) {
+                stats.miss();
+            }
+            List<T> entities = loader.apply(remaining);
+            stats.load(entities == null ? 0 : entities.size());
+            if (entities != null) {
+                for (T entity : entities) {
+                    loaded.put(String.valueOf(region.metadata.getIdValue(entity)), entity);
+                }
+            }
+            storeAll(region, remaining, loaded, version);
+        }
+
+        List<T> result = new ArrayList<>(distinctIds.size());
+        for (ID id : distinctIds) {
+            String idKey = String.valueOf(id);
+            T entity = loaded.get(idKey);
+            if (entity == null) {
+                String value = found.get(idKey);
+                if (value != null && !NEGATIVE.equals(value)) {
+                    entity = codec.decode(value, type);
+                }
+            }
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按唯一键查询
+     *
+     * @param type     实体类型
+     * @param view     视图名
+     * @param property 唯一键属性名，需要在 @CachedEntity.uniqueKeys 中声明
+     * @param value    唯一键值
+     * @param loader   未命中时的查询，如 () -> userMapper.selectByAccount(account)
+     * @param <T>      实体类型
+     * @return 实体，不存在时返回 null
+     */
+    public <T> T getByUniqueKey(Class<T> type, String view, String property, Object value, Supplier<T> loader) {
+        if (value == null) {
+            return null;
+        }
+        Region region = region(type);
+        if (!region.uniqueKeys.contains(property)) {
+            throw new IllegalArgumentException(type.getSimpleName() + " 未在 @CachedEntity.uniqueKeys 中声明唯一键：" + property);
+        }
+        String indexKey = region.uniqueKey(property, value);
+        long version = nearCache.currentVersion();
+        String idKey = lookupIndex(region, indexKey, version);
+        if (NEGATIVE.equals(idKey)) {
+            stats.negativeHit();
+            return null;
+        }
+        if (idKey != null) {
+            String cached = lookup(region, view, idKey, version);
+            if (cached != null && !NEGATIVE.equals(cached)) {
+                T entity = codec.decode(cached, type);
+                if (Objects.equals(String.valueOf(region.metadata.getValue(entity, property)), String.valueOf(value))) {
+                    return entity;
+                }
+            }
+        }
+
+        stats.miss();
+        T entity = loader.get();
+        stats.load(entity == null ? 0 : 1);
+        if (entity == null) {
+            storeIndex(region, indexKey, NEGATIVE, region.negativeTtlMillis, version);
+            return null;
+        }
+        String id = String.valueOf(region.metadata.getIdValue(entity));
+        storeIndex(region, indexKey, id, region.redisTtlMillis, version);
+        store(region, view, id, entity, version);
+        return entity;
+    }
+
+    /**
+     * 清除实体的缓存（所有视图）
+     *
+     * @param type 实体类型
+     * @param ids  主键
+     */
+    public void evictByIds(Class<?> type, Collection<?> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Region region = region(type);
+        List<String> idKeys = new ArrayList<>(ids.size());
+        List<String> redisKeys = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            String idKey = String.valueOf(id);
+            evictNear(region, idKey);
+            idKeys.add(idKey);
+            redisKeys.add(region.redisKey(idKey));
+            stats.invalidation();
+        }
+        redisDelete(redisKeys);
+        CacheInvalidationPublisher publisher = invalidationPublisher;
+        if (publisher != null) {
+            publisher.publish(region.name, idKeys);
+        }
+    }
+
+    /**
+     * 清除实体的缓存：主键对应的所有视图，以及实体当前唯一键值对应的索引
+     *
+     * @param type     实体类型
+     * @param entities 实体
+     */
+    public void evictEntities(Class<?> type, Collection<?> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return;
+        }
+        Region region = region(type);
+        List<Object> ids = new ArrayList<>(entities.size());
+        List<String> indexKeys = new ArrayList<>();
+        List<String> relativeIndexKeys = new ArrayList<>();
+        for (Object entity : entities) {
+            Object id = region.metadata.getIdValue(entity);
+            if (id != null) {
+                ids.add(id);
+            }
+            for (String property : region.uniqueKeys) {
+                Object value = region.metadata.getValue(entity, property);
+                if (value != null) {
+                    String indexKey = region.uniqueKey(property, value);
+                    nearCache.remove(indexKey);
+                    indexKeys.add(indexKey);
+                    relativeIndexKeys.add(indexKey.substring(region.prefix.length()));
+                }
+            }
+        }
+        redisDelete(indexKeys);
+        CacheInvalidationPublisher publisher = invalidationPublisher;
+        if (publisher != null) {
+            publisher.publish(region.name, relativeIndexKeys);
+        }
+        evictByIds(type, ids);
+    }
+
+    /**
+     * 清除某个实体类型的全部缓存（无法确定影响哪些行的写操作，如按条件删除）
+     *
+     * @param type 实体类型
+     */
+    public void evictAll(Class<?> type) {
+        Region region = region(type);
+        String prefix = region.prefix;
+        nearCache.removeIf(key -> key.startsWith(prefix));
+        stats.invalidation();
+        CacheInvalidationPublisher publisher = invalidationPublisher;
+        if (publisher != null) {
+            publisher.publishAll(region.name);
+        }
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            List<String> keys = new ArrayList<>();
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(prefix + "*").count(500).build())) {
+                    while (cursor.hasNext()) {
+                        keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+                    }
+                }
+                return null;
+            });
+            redisDelete(keys);
+        } catch (RuntimeException e) {
+            stats.redisError();
+            System.out.println("清除实体缓存【" + type.getSimpleName() + "】失败：" + e.getMessage());
+        }
+    }
+
+    // ==================== 其他节点的失效 ====================
+
+    /**
+     * 其他节点清除了缓存：只清除本节点的近缓存
+     *
+     * @param region 缓存区域（ec:表名）
+     * @param keys   主键，或 uk:属性名:属性值 形式的唯一键索引
+     */
+    @Override
+    public void onInvalidate(String region, Collection<String> keys) {
+        Region target = regionByName(region);
+        if (target == null) {
+            return;
+        }
+        for (String key : keys) {
+            if (key.startsWith(UNIQUE_KEY_PREFIX)) {
+                nearCache.remove(target.prefix + key);
+            } else {
+                evictNear(target, key);
+            }
+            stats.remoteInvalidation();
+        }
+    }
+
+    @Override
+    public void onInvalidateAll(String region) {
+        Region target = regionByName(region);
+        if (target == null) {
+            return;
+        }
+        nearCache.removeIf(key -> key.startsWith(target.prefix));
+        stats.remoteInvalidation();
+    }
+
+    @Override
+    public void onFlush() {
+        nearCache.removeIf(key -> true);
+        stats.remoteInvalidation();
+    }
+
+    public EntityCacheStats getStats() {
+        return stats;
+    }
+
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    // ==================== 内部方法 ====================
+
+    Region region(Class<?> type) {
+        Region region = regions.get(type);
+        if (region == null) {
+            region = regions.computeIfAbsent(type, Region::new);
+        }
+        return region;
+    }
+
+    /**
+     * 本节点没有用过的实体类型不会有近缓存，返回 null
+     */
+    private Region regionByName(String name) {
+        for (Region region : regions.values()) {
+            if (region.name.equals(name)) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    private void evictNear(Region region, String idKey) {
+        for (String view : region.views) {
+            nearCache.remove(region.nearKey(view, idKey));
+        }
+    }
+
+    /**
+     * 依次读取近缓存和 Redis
+     *
+     * @param version 查询前的近缓存版本号
+     * @return 序列化后的实体或 NEGATIVE，未命中时返回 null
+     */
+    private String lookup(Region region, String view, String idKey, long version) {
+        region.views.add(view);
+        String nearKey = region.nearKey(view, idKey);
+        String value = nearCache.get(nearKey);
+        if (value != null) {
+            hit(value, true);
+            return value;
+        }
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            Object redisValue = redisTemplate.opsForHash().get(region.redisKey(idKey), view);
+            value = checkNegative((String) redisValue);
+        } catch (RuntimeException e) {
+            stats.redisError();
+            return null;
+        }
+        if (value != null) {
+            hit(value, false);
+            nearCache.put(nearKey, value, nearTtl(region, value), version);
+        }
+        return value;
+    }
+
+    private String lookupIndex(Region region, String indexKey, long version) {
+        String value = nearCache.get(indexKey);
+        if (value != null || redisTemplate == null) {
+            return value;
+        }
+        try {
+            value = redisTemplate.opsForValue().get(indexKey);
+        } catch (RuntimeException e) {
+            stats.redisError();
+            return null;
+        }
+        if (value != null) {
+            nearCache.put(indexKey, value, NEGATIVE.equals(value)
+                    ? Math.min(region.nearTtlMillis, region.negativeTtlMillis) : region.nearTtlMillis, version);
+        }
+        return value;
+    }
+
+    private void hit(String value, boolean near) {
+        if (NEGATIVE.equals(value)) {
+            stats.negativeHit();
+        } else if (near) {
+            stats.nearHit();
+        } else {
+            stats.redisHit();
+        }
+    }
+
+    /**
+     * Redis Hash 中的空结果保存为 "~过期时间戳"（Hash 字段不能单独设置过期时间），过期后视为未命中
+     */
+    private static String checkNegative(String value) {
+        if (value == null || !value.startsWith(NEGATIVE)) {
+            return value;
+        }
+        try {
+            return Long.parseLong(value.substring(1)) > System.currentTimeMillis() ? NEGATIVE : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void store(Region region, String view, String idKey, Object entity, long version) {
+        if (entity == null && region.negativeTtlMillis <= 0) {
+            return;
+        }
+        String value = entity == null ? NEGATIVE : codec.encode(entity);
+        nearCache.put(region.nearKey(view, idKey), value, nearTtl(region, value), version);
+        if (redisTemplate == null) {
+            return;
+        }
+        String redisValue = entity == null ? NEGATIVE + (System.currentTimeMillis() + region.negativeTtlMillis) : value;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                stringConnection.hSet(region.redisKey(idKey), view, redisValue);
+                stringConnection.pExpire(region.redisKey(idKey), region.redisTtlMillis);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            stats.redisError();
+        }
+    }
+
+    private <ID> void storeAll(Region region, List<ID> ids, Map<String, ?> loaded, long version) {
+        Map<String, String> values = new HashMap<>(ids.size() * 2);
+        for (ID id : ids) {
+            String idKey = String.valueOf(id);
+            Object entity = loaded.get(idKey);
+            if (entity == null && region.negativeTtlMillis <= 0) {
+                continue;
+            }
+            String value = entity == null ? NEGATIVE : codec.encode(entity);
+            nearCache.put(region.nearKey(FULL_VIEW, idKey), value, nearTtl(region, value), version);
+            values.put(idKey, entity == null ? NEGATIVE + (System.currentTimeMillis() + region.negativeTtlMillis) : value);
+        }
+        if (redisTemplate == null || values.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (Map.Entry<String, String> entry : values.entrySet()) {
+                    stringConnection.hSet(region.redisKey(entry.getKey()), FULL_VIEW, entry.getValue());
+                    stringConnection.pExpire(region.redisKey(entry.getKey()), region.redisTtlMillis);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            stats.redisError();
+        }
+    }
+
+    private void storeIndex(Region region, String indexKey, String value, long ttlMillis, long version) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        nearCache.put(indexKey, value, Math.min(region.nearTtlMillis, ttlMillis), version);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(indexKey, value, ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            stats.redisError();
+        }
+    }
+
+    private <ID> List<Object> redisPipelineGet(Region region, List<ID> ids) {
+        try {
+            return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (ID id : ids) {
+                    stringConnection.hGet(region.redisKey(String.valueOf(id)), FULL_VIEW);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            stats.redisError();
+            return null;
+        }
+    }
+
+    private void redisDelete(List<String> keys) {
+        if (redisTemplate == null || keys.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(keys);
+        } catch (RuntimeException e) {
+            stats.redisError();
+            System.out.println("删除实体缓存失败，缓存将在过期后失效：" + e.getMessage());
+        }
+    }
+
+    private static long nearTtl(Region region, String value) {
+        return NEGATIVE.equals(value) ? Math.min(region.nearTtlMillis, region.negativeTtlMillis) : region.nearTtlMillis;
+    }
+
+    /**
+     * 单个实体类型的缓存配置和 key 规则
+     */
+    static final class Region {
+
+        private final EntityMetadata metadata;
+
+        /**
+         * 区域名（ec:表名），用于失效广播
+         */
+        private final String name;
+        private final String prefix;
+        private final long redisTtlMillis;
+        private final long nearTtlMillis;
+        private final long negativeTtlMillis;
+        private final List<String> uniqueKeys;
+
+        /**
+         * 本节点使用过的视图（清除近缓存时需要逐个删除）
+         */
+        private final Set<String> views = ConcurrentHashMap.newKeySet();
+
+        private Region(Class<?> type) {
+            CachedEntity cached = type.getAnnotation(CachedEntity.class);
+            if (cached == null) {
+                throw new IllegalArgumentException(type.getName() + " 未标注 @CachedEntity，不能使用实体缓存");
+            }
+            this.metadata = EntityMetadataRegistry.get(type);
+            this.name = KEY_PREFIX + metadata.getTableName();
+            this.prefix = name + ":";
+            this.redisTtlMillis = TimeUnit.SECONDS.toMillis(cached.redisTtlSeconds());
+            this.nearTtlMillis = TimeUnit.SECONDS.toMillis(cached.nearTtlSeconds());
+            this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(cached.negativeTtlSeconds());
+            this.uniqueKeys = Collections.unmodifiableList(Arrays.asList(cached.uniqueKeys()));
+            this.views.add(FULL_VIEW);
+        }
+
+        String redisKey(String idKey) {
+            return prefix + idKey;
+        }
+
+        String nearKey(String view, String idKey) {
+            return prefix + idKey + "#" + view;
+        }
+
+        String uniqueKey(String property, Object value) {
+            return prefix + UNIQUE_KEY_PREFIX + property + ":" + value;
+        }
+
+        String getPrefix() {
+            return prefix;
+        }
+
+        List<String> getUniqueKeys() {
+            return uniqueKeys;
+        }
+    }
+}
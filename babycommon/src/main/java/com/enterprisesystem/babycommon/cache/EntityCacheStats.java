@@ -0,0 +1,100 @@
+package com.enterprisesystem.babycommon.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 实体缓存统计
+ */
+public class EntityCacheStats {
+
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder nearEvictions = new LongAdder();
+    private final LongAdder nearExpirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final LongAdder remoteInvalidations = new LongAdder();
+    private final LongAdder staleFillsRejected = new LongAdder();
+
+    void nearHit() {
+        nearHits.increment();
+    }
+
+    void redisHit() {
+        redisHits.increment();
+    }
+
+    void negativeHit() {
+        negativeHits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void load(int rows) {
+        loads.add(rows);
+    }
+
+    void nearEviction() {
+        nearEvictions.increment();
+    }
+
+    void nearExpiration() {
+        nearExpirations.increment();
+    }
+
+    void invalidation() {
+        invalidations.increment();
+    }
+
+    void redisError() {
+        redisErrors.increment();
+    }
+
+    void remoteInvalidation() {
+        remoteInvalidations.increment();
+    }
+
+    void staleFillRejected() {
+        staleFillsRejected.increment();
+    }
+
+    /**
+     * 命中率（近缓存、Redis 和空结果命中都算命中）
+     *
+     * @return 命中率，0 ~ 1
+     */
+    public double getHitRate() {
+        long hits = nearHits.sum() + redisHits.sum() + negativeHits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0D : (double) hits / total;
+    }
+
+    /**
+     * 转换为便于输出的 Map
+     *
+     * @return 统计数据
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("nearHits", nearHits.sum());
+        result.put("redisHits", redisHits.sum());
+        result.put("negativeHits", negativeHits.sum());
+        result.put("misses", misses.sum());
+        result.put("hitRate", Math.round(getHitRate() * 10000D) / 10000D);
+        result.put("loadedRows", loads.sum());
+        result.put("nearEvictions", nearEvictions.sum());
+        result.put("nearExpirations", nearExpirations.sum());
+        result.put("invalidations", invalidations.sum());
+        result.put("redisErrors", redisErrors.sum());
+        result.put("remoteInvalidations", remoteInvalidations.sum());
+        result.put("staleFillsRejected", staleFillsRejected.sum());
+        return result;
+    }
+}
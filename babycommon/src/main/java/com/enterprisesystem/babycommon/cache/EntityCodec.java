@@ -0,0 +1,25 @@
+package com.enterprisesystem.babycommon.cache;
+
+/**
+ * 实体序列化（缓存中保存的是字符串）
+ */
+public interface EntityCodec {
+
+    /**
+     * 序列化
+     *
+     * @param entity 实体
+     * @return 字符串
+     */
+    String encode(Object entity);
+
+    /**
+     * 反序列化
+     *
+     * @param value 字符串
+     * @param type  实体类型
+     * @param <T>   实体类型
+     * @return 实体
+     */
+    <T> T decode(String value, Class<T> type);
+}
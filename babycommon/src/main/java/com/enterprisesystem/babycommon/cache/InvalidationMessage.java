@@ -0,0 +1,40 @@
+package com.enterprisesystem.babycommon.cache;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缓存失效消息（JSON）
+ */
+@Data
+public class InvalidationMessage {
+
+    /**
+     * 发送节点 ID，节点每次启动重新生成
+     */
+    private String nodeId;
+
+    /**
+     * 发送节点内从 1 开始连续递增的序号，接收方据此发现丢失的消息
+     */
+    private long sequence;
+
+    /**
+     * 发送时间（毫秒）
+     */
+    private long sentAt;
+
+    /**
+     * 区域 -> 需要清除的 key
+     */
+    private Map<String, Set<String>> keys = new LinkedHashMap<>();
+
+    /**
+     * 需要整体清除的区域
+     */
+    private Set<String> fullRegions = new LinkedHashSet<>();
+}
@@ -0,0 +1,48 @@
+package com.enterprisesystem.babycommon.cache;
+
+import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 基于 Jackson 的实体序列化
+ *
+ * 直接读写字段（不经过 getter/setter），cStatus 这类 Lombok 生成 getCStatus() 的字段也能原样还原；
+ * 空字段不输出，未知字段忽略，实体增删字段后旧缓存仍可读取。
+ */
+public class JacksonEntityCodec implements EntityCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonEntityCodec() {
+        this.objectMapper = new ObjectMapper()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+    }
+
+    @Override
+    public String encode(Object entity) {
+        try {
+            return objectMapper.writeValueAsString(entity);
+        } catch (JsonProcessingException e) {
+            throw new SystemRuntimeException("实体序列化失败：" + e.getMessage());
+        }
+    }
+
+    @Override
+    public <T> T decode(String value, Class<T> type) {
+        try {
+            return objectMapper.readValue(value, type);
+        } catch (JsonProcessingException e) {
+            throw new SystemRuntimeException("实体反序列化失败：" + e.getMessage());
+        }
+    }
+}
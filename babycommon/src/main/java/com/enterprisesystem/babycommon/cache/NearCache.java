@@ -0,0 +1,241 @@
+package com.enterprisesystem.babycommon.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 进程内近缓存
+ *
+ * 按 key 的哈希分为若干段，每段是一个按访问顺序排列的 LinkedHashMap（LRU），
+ * 容量超过上限时淘汰最久未访问的条目，读取时检查过期时间，过期的条目当作未命中并删除。
+ * 分段加锁，不同段的读写互不阻塞。
+ *
+ * 值只保存序列化后的字符串，每次命中都反序列化出新对象，调用方修改返回的实体不会影响缓存。
+ *
+ * 【版本戳】
+ * 每次删除都分配一个递增的版本号并为该 key 记录墓碑。读取方在查询 Redis / 数据库之前通过 currentVersion() 取得版本号，
+ * 回填时带上这个版本号：查询期间该 key 被删除过（墓碑版本更大）时不回填，
+ * 避免查询开始后才到达的失效（本节点写入或其他节点广播）被一次慢查询的旧结果覆盖。
+ */
+public class NearCache {
+
+    private static final int SEGMENTS = 16;
+
+    /**
+     * 墓碑保留时间，应大于一次查询的最长耗时
+     */
+    private static final long TOMBSTONE_TTL_MILLIS = 60_000;
+
+    /**
+     * 不检查版本（直接写入）
+     */
+    public static final long UNVERSIONED = Long.MAX_VALUE;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final EntityCacheStats stats;
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 最近一次批量删除（removeIf）的版本号，早于它开始的查询都不回填
+     */
+    private volatile long flushedVersion;
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 最大条目数
+     * @param stats   统计
+     */
+    public NearCache(int maxSize, EntityCacheStats stats) {
+        this.stats = stats;
+        int segmentSize = Math.max(1, maxSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * 读取
+     *
+     * @param key 缓存 key
+     * @return 值，不存在或已过期时返回 null
+     */
+    public String get(String key) {
+        return segmentFor(key).get(key, System.currentTimeMillis());
+    }
+
+    /**
+     * 当前版本号，在查询 Redis / 数据库之前获取，回填时传给 put
+     *
+     * @return 版本号
+     */
+    public long currentVersion() {
+        return version.get();
+    }
+
+    /**
+     * 写入（不检查版本）
+     *
+     * @param key       缓存 key
+     * @param value     值
+     * @param ttlMillis 有效期（毫秒），小于等于 0 时不写入
+     */
+    public void put(String key, String value, long ttlMillis) {
+        put(key, value, ttlMillis, UNVERSIONED);
+    }
+
+    /**
+     * 回填：查询开始后该 key 被删除过时不写入
+     *
+     * @param key         缓存 key
+     * @param value       值
+     * @param ttlMillis   有效期（毫秒），小于等于 0 时不写入
+     * @param loadVersion 查询开始前通过 currentVersion() 取得的版本号
+     */
+    public void put(String key, String value, long ttlMillis, long loadVersion) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        if (loadVersion < flushedVersion) {
+            stats.staleFillRejected();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        segmentFor(key).put(key, new Entry(value, now + ttlMillis), loadVersion, now);
+    }
+
+    /**
+     * 删除
+     *
+     * @param key 缓存 key
+     */
+    public void remove(String key) {
+        segmentFor(key).remove(key, version.incrementAndGet(), System.currentTimeMillis());
+    }
+
+    /**
+     * 删除 key 满足条件的所有条目
+     *
+     * @param predicate 条件
+     */
+    public void removeIf(Predicate<String> predicate) {
+        flushedVersion = version.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.removeIf(predicate);
+        }
+    }
+
+    /**
+     * 当前条目数（包含尚未清理的过期条目）
+     *
+     * @return 条目数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expireAt;
+
+        private Entry(String value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class Tombstone {
+        private final long version;
+        private final long createdAt;
+
+        private Tombstone(long version, long createdAt) {
+            this.version = version;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final class Segment {
+
+        private final LinkedHashMap<String, Entry> map;
+
+        /**
+         * 按删除时间排列的墓碑，超过 TOMBSTONE_TTL_MILLIS 的从头部清理
+         */
+        private final LinkedHashMap<String, Tombstone> tombstones = new LinkedHashMap<>();
+
+        private Segment(int maxSize) {
+            this.map = new LinkedHashMap<String, Entry>(16, 0.75F, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > maxSize) {
+                        stats.nearEviction();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized String get(String key, long now) {
+            Entry entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt <= now) {
+                map.remove(key);
+                stats.nearExpiration();
+                return null;
+            }
+            return entry.value;
+        }
+
+        private synchronized void put(String key, Entry entry, long loadVersion, long now) {
+            purgeTombstones(now);
+            Tombstone tombstone = tombstones.get(key);
+            if (tombstone != null && tombstone.version > loadVersion) {
+                stats.staleFillRejected();
+                return;
+            }
+            map.put(key, entry);
+        }
+
+        private synchronized void remove(String key, long removeVersion, long now) {
+            purgeTombstones(now);
+            tombstones.remove(key);
+            tombstones.put(key, new Tombstone(removeVersion, now));
+            map.remove(key);
+        }
+
+        private void purgeTombstones(long now) {
+            Iterator<Tombstone> iterator = tombstones.values().iterator();
+            while (iterator.hasNext() && now - iterator.next().createdAt > TOMBSTONE_TTL_MILLIS) {
+                iterator.remove();
+            }
+        }
+
+        private synchronized void removeIf(Predicate<String> predicate) {
+            Iterator<String> iterator = map.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (predicate.test(iterator.next())) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private synchronized int size() {
+            return map.size();
+        }
+    }
+}
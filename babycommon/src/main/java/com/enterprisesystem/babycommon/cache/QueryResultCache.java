@@ -0,0 +1,256 @@
+package com.enterprisesystem.babycommon.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 查询结果缓存（按表版本号失效）
+ *
+ * 【失效方式】
+ * 每张表维护一个递增的版本号，任何写语句执行后把它修改的表版本号加一（见 QueryResultCacheInterceptor）。
+ * 缓存条目记录查询开始前所读各表的版本号，读取时只要有一张表的版本号变了就视为未命中，
+ * 不需要知道写入影响了哪些查询，也不需要逐条删除。
+ *
+ * 【集群】
+ * 接入 CacheInvalidationBus 后，本节点的版本号递增会广播到其他节点（区域 qc，key 为表名），
+ * 其他节点收到后递增各自的版本号；重新连接或发现丢失消息时递增全局纪元，所有条目失效。
+ *
+ * 【存储】
+ * 结果按行序列化后保存在进程内（按访问顺序淘汰的 LRU），每次命中都反序列化出新对象，调用方修改返回结果不会影响缓存。
+ */
+public class QueryResultCache implements CacheInvalidationHandler {
+
+    /**
+     * 广播区域
+     */
+    public static final String REGION = "qc";
+
+    private final EntityCodec codec;
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+    private final Map<String, Entry> entries;
+    private volatile CacheInvalidationPublisher invalidationPublisher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleMisses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder discardedPuts = new LongAdder();
+    private final LongAdder tableBumps = new LongAdder();
+    private final LongAdder remoteBumps = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param codec   结果序列化方式
+     * @param maxSize 最大条目数
+     */
+    public QueryResultCache(EntityCodec codec, int maxSize) {
+        this.codec = codec;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * 接入集群失效广播
+     *
+     * @param invalidationPublisher 广播器
+     */
+    public void setInvalidationPublisher(CacheInvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    /**
+     * 取得查询所读各表的当前版本号，必须在查询数据库之前调用
+     *
+     * @param tables 表名
+     * @return 版本快照
+     */
+    public Snapshot snapshot(Collection<String> tables) {
+        String[] names = tables.toArray(new String[0]);
+        long[] versions = new long[names.length];
+        long currentEpoch = epoch.get();
+        for (int i = 0; i < names.length; i++) {
+            versions[i] = version(names[i]).get();
+        }
+        return new Snapshot(names, versions, currentEpoch);
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key  缓存 key
+     * @param type 行类型
+     * @return 结果（每次返回新对象），未命中时返回 null
+     */
+    public List<Object> get(String key, Class<?> type) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis() || !isCurrent(entry.snapshot)) {
+            entries.remove(key, entry);
+            staleMisses.increment();
+            return null;
+        }
+        List<Object> rows = new ArrayList<>(entry.rows.size());
+        for (String row : entry.rows) {
+            rows.add(row == null ? null : codec.decode(row, type));
+        }
+        hits.increment();
+        return rows;
+    }
+
+    /**
+     * 写入缓存；查询期间所读的表被修改过时丢弃
+     *
+     * @param key       缓存 key
+     * @param snapshot  查询前取得的版本快照
+     * @param rows      查询结果
+     * @param ttlMillis 有效期（毫秒）
+     */
+    public void put(String key, Snapshot snapshot, List<?> rows, long ttlMillis) {
+        if (!isCurrent(snapshot)) {
+            discardedPuts.increment();
+            return;
+        }
+        List<String> encoded = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            encoded.add(row == null ? null : codec.encode(row));
+        }
+        entries.put(key, new Entry(snapshot, encoded, System.currentTimeMillis() + ttlMillis));
+        puts.increment();
+    }
+
+    /**
+     * 表被修改后调用：递增版本号并广播到其他节点
+     *
+     * @param tables 表名
+     */
+    public void bumpTables(Collection<String> tables) {
+        if (tables.isEmpty()) {
+            return;
+        }
+        for (String table : tables) {
+            version(table).incrementAndGet();
+            tableBumps.increment();
+        }
+        CacheInvalidationPublisher publisher = invalidationPublisher;
+        if (publisher != null) {
+            publisher.publish(REGION, tables);
+        }
+    }
+
+    /**
+     * 清除全部缓存（只影响本节点）
+     */
+    public void clear() {
+        epoch.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public void onInvalidate(String region, Collection<String> keys) {
+        if (!REGION.equals(region)) {
+            return;
+        }
+        for (String table : keys) {
+            version(table).incrementAndGet();
+            remoteBumps.increment();
+        }
+    }
+
+    @Override
+    public void onInvalidateAll(String region) {
+        if (REGION.equals(region)) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onFlush() {
+        clear();
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) entries.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("staleMisses", staleMisses.sum());
+        stats.put("puts", puts.sum());
+        stats.put("discardedPuts", discardedPuts.sum());
+        stats.put("tableBumps", tableBumps.sum());
+        stats.put("remoteBumps", remoteBumps.sum());
+        stats.put("epoch", epoch.get());
+        return stats;
+    }
+
+    /**
+     * 快照中各表的版本号是否都没有变化
+     *
+     * @param snapshot 版本快照
+     * @return true-没有变化
+     */
+    public boolean isCurrent(Snapshot snapshot) {
+        if (snapshot.epoch != epoch.get()) {
+            return false;
+        }
+        for (int i = 0; i < snapshot.tables.length; i++) {
+            if (version(snapshot.tables[i]).get() != snapshot.versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AtomicLong version(String table) {
+        return tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    /**
+     * 查询开始前各表的版本号
+     */
+    public static final class Snapshot {
+
+        private final String[] tables;
+        private final long[] versions;
+        private final long epoch;
+
+        private Snapshot(String[] tables, long[] versions, long epoch) {
+            this.tables = tables;
+            this.versions = versions;
+            this.epoch = epoch;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Snapshot snapshot;
+        private final List<String> rows;
+        private final long expireAt;
+
+        private Entry(Snapshot snapshot, List<String> rows, long expireAt) {
+            this.snapshot = snapshot;
+            this.rows = rows;
+            this.expireAt = expireAt;
+        }
+    }
+}
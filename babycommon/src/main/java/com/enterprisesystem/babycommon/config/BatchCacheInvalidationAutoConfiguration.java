@@ -0,0 +1,91 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.cache.CacheInvalidationBus;
+import com.enterprisesystem.babycommon.cache.EntityCacheManager;
+import com.enterprisesystem.babycommon.cache.QueryResultCache;
+import com.enterprisesystem.babycommon.loader.RefreshingCacheFactory;
+import com.enterprisesystem.babycommon.mq.config.RabbitMQConfig;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 集群缓存失效广播配置
+ *
+ * 每个节点声明一个临时队列（cache.invalidation.xxx，非持久、独占、断开后自动删除）绑定到
+ * exchange.fanout.notification，接收其他节点的失效消息；实体缓存、RefreshingCache 和查询结果缓存自动接入。
+ *
+ * 配置项：
+ * babycommon.cache.invalidation.enabled               是否开启，默认 true
+ * babycommon.cache.invalidation.flush-interval-millis 合并发送的时间窗口，默认 5 毫秒
+ * babycommon.cache.invalidation.max-keys-per-region   单条消息中一个区域最多的 key 数，超过后整体清除，默认 1000
+ * babycommon.cache.invalidation.message-ttl-millis    消息过期时间，默认 60000
+ */
+@Configuration
+@ConditionalOnClass(value = {RabbitTemplate.class})
+@ConditionalOnProperty(prefix = "babycommon.cache.invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BatchCacheInvalidationAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheInvalidationBus cacheInvalidationBus(RabbitTemplate rabbitTemplate, ConnectionFactory connectionFactory,
+                                                     ObjectProvider<EntityCacheManager> entityCacheManager,
+                                                     ObjectProvider<RefreshingCacheFactory> refreshingCacheFactory,
+                                                     ObjectProvider<QueryResultCache> queryResultCache,
+                                                     @Value("${babycommon.cache.invalidation.flush-interval-millis:5}") long flushIntervalMillis,
+                                                     @Value("${babycommon.cache.invalidation.max-keys-per-region:1000}") int maxKeysPerRegion,
+                                                     @Value("${babycommon.cache.invalidation.message-ttl-millis:60000}") long messageTtlMillis) {
+        CacheInvalidationBus bus = new CacheInvalidationBus(rabbitTemplate, RabbitMQConfig.EXCHANGE_FANOUT,
+                flushIntervalMillis, maxKeysPerRegion, messageTtlMillis);
+        connectionFactory.addConnectionListener(bus);
+        entityCacheManager.ifAvailable(manager -> {
+            manager.setInvalidationPublisher(bus);
+            bus.addHandler(manager);
+        });
+        refreshingCacheFactory.ifAvailable(factory -> factory.setInvalidationBus(bus));
+        queryResultCache.ifAvailable(cache -> {
+            cache.setInvalidationPublisher(bus);
+            bus.addHandler(cache);
+        });
+        return bus;
+    }
+
+    /**
+     * 本节点的临时队列，RabbitAdmin 在每次（重新）连接时声明
+     */
+    @Bean
+    public AnonymousQueue cacheInvalidationQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("cache.invalidation."));
+    }
+
+    @Bean
+    public Binding cacheInvalidationBinding() {
+        return new Binding(cacheInvalidationQueue().getName(), Binding.DestinationType.QUEUE,
+                RabbitMQConfig.EXCHANGE_FANOUT, "", null);
+    }
+
+    /**
+     * 失效消息只清除进程内缓存，处理失败也不需要重新投递，使用自动确认
+     */
+    @Bean
+    public SimpleMessageListenerContainer cacheInvalidationListenerContainer(ConnectionFactory connectionFactory,
+                                                                             CacheInvalidationBus cacheInvalidationBus) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(cacheInvalidationQueue());
+        container.setMessageListener(cacheInvalidationBus);
+        container.setAcknowledgeMode(AcknowledgeMode.NONE);
+        container.setMissingQueuesFatal(false);
+        return container;
+    }
+}
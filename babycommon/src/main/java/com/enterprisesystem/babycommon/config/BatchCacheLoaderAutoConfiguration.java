@@ -0,0 +1,23 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.loader.RefreshingCacheFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 单飞 + 后台刷新缓存配置
+ *
+ * 容器中有 StringRedisTemplate 时，创建的缓存默认使用 Redis 共享层和分布式加载锁
+ */
+@Configuration
+public class BatchCacheLoaderAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RefreshingCacheFactory refreshingCacheFactory(ObjectProvider<StringRedisTemplate> redisTemplate) {
+        return new RefreshingCacheFactory(redisTemplate.getIfAvailable());
+    }
+}
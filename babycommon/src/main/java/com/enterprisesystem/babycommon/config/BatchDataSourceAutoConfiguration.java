@@ -0,0 +1,91 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.aspect.DataSourceRoutingAspect;
+import com.enterprisesystem.babycommon.datasource.MySqlReplicaLagProbe;
+import com.enterprisesystem.babycommon.datasource.ReadWriteRoutingDataSource;
+import com.enterprisesystem.babycommon.datasource.ReadWriteRoutingProperties;
+import com.enterprisesystem.babycommon.datasource.ReplicaLagMonitor;
+import com.enterprisesystem.babycommon.datasource.ReplicaLagProbe;
+import com.enterprisesystem.babycommon.mybatis.ReadWriteRoutingInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置
+ *
+ * babycommon.datasource.routing.enabled=true 时生效：主库使用 spring.datasource 配置，
+ * 从库使用 babycommon.datasource.routing.replicas 配置，对外暴露一个 @Primary 的路由数据源，
+ * MyBatis 和事务管理器都使用这个数据源。配置项见 ReadWriteRoutingProperties。
+ */
+@Configuration
+@ConditionalOnClass(value = {AbstractRoutingDataSource.class})
+@ConditionalOnProperty(prefix = "babycommon.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReadWriteRoutingProperties.class)
+public class BatchDataSourceAutoConfiguration {
+
+    private final List<DataSource> replicas = new ArrayList<>();
+    private final List<String> replicaNames = new ArrayList<>();
+
+    public BatchDataSourceAutoConfiguration(ReadWriteRoutingProperties properties, DataSourceProperties primary) {
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReadWriteRoutingProperties.Replica replica = properties.getReplicas().get(i);
+            replicas.add(DataSourceBuilder.create()
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .driverClassName(StringUtils.hasText(replica.getDriverClassName())
+                            ? replica.getDriverClassName() : primary.determineDriverClassName())
+                    .build());
+            replicaNames.add(ReadWriteRoutingDataSource.REPLICA_KEY_PREFIX + i);
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReplicaLagProbe replicaLagProbe() {
+        return new MySqlReplicaLagProbe();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnMissingBean
+    public ReplicaLagMonitor replicaLagMonitor(ReadWriteRoutingProperties properties, ReplicaLagProbe probe) {
+        return new ReplicaLagMonitor(replicaNames, replicas, probe,
+                properties.getMaxLagMillis(), properties.getLagCheckIntervalMillis());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primary, ReplicaLagMonitor replicaLagMonitor) {
+        DataSource primaryDataSource = primary.initializeDataSourceBuilder().build();
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, replicaLagMonitor);
+    }
+
+    /**
+     * mybatis-spring-boot-starter 会自动把容器中的 Interceptor 注册到 SqlSessionFactory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ReadWriteRoutingInterceptor readWriteRoutingInterceptor() {
+        return new ReadWriteRoutingInterceptor();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DataSourceRoutingAspect dataSourceRoutingAspect() {
+        return new DataSourceRoutingAspect();
+    }
+}
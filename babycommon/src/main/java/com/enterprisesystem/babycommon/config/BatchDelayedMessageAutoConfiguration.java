@@ -0,0 +1,110 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.mq.config.RabbitMQConfig;
+import com.enterprisesystem.babycommon.mq.delay.DelayedMessageScheduler;
+import com.enterprisesystem.babycommon.mq.producer.MessageProducer;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 延迟消息配置
+ *
+ * 不依赖 rabbitmq_delayed_message_exchange 插件，声明以下队列：
+ * - queue.delay.{n}ms：每个分级一个 TTL 队列，没有消费者，过期后死信到 exchange.direct.system / delay.return
+ * - queue.delay.return：接收过期的消息，由 DelayedMessageScheduler 按剩余延迟继续路由
+ * 有 StringRedisTemplate 时用 Redis 保存进入时间轮的消息，重启后由其他节点补发。
+ *
+ * 配置项：
+ * babycommon.mq.delay.enabled                 是否开启，默认 true
+ * babycommon.mq.delay.tiers-millis            TTL 分级，默认 4000,16000,64000,256000,1024000,4096000,16384000,65536000
+ *                                             修改已有分级需要先删除旧队列（队列参数不能修改）
+ * babycommon.mq.delay.tick-millis             时间轮精度，默认 10
+ * babycommon.mq.delay.wheel-horizon-millis    剩余延迟不超过该值时放入时间轮，默认 5000，不小于最小分级
+ * babycommon.mq.delay.recovery-grace-millis   到期超过该时间仍未发布的消息由其他节点补发，默认 30000
+ * babycommon.mq.delay.max-fire-attempts       到期后最多发布次数，默认 10，用完后移入 Redis dm:dead，0 表示不限制
+ * babycommon.mq.delay.concurrency             delay.return 队列的消费者数，默认 2
+ * babycommon.mq.delay.fire-threads            到期发布线程数，默认 4
+ * babycommon.mq.delay.fire-queue-capacity     到期发布线程池的队列长度，默认 10000
+ */
+@Configuration
+@ConditionalOnClass(value = {RabbitTemplate.class})
+@ConditionalOnProperty(prefix = "babycommon.mq.delay", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BatchDelayedMessageAutoConfiguration {
+
+    public static final String QUEUE_DELAY_RETURN = "queue.delay.return";
+
+    public static final String ROUTING_KEY_DELAY_RETURN = "delay.return";
+
+    @Bean
+    public Declarables delayedMessageDeclarables(
+            @Value("${babycommon.mq.delay.tiers-millis:4000,16000,64000,256000,1024000,4096000,16384000,65536000}")
+                    long[] tiersMillis) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (long tier : tiersMillis) {
+            declarables.add(QueueBuilder.durable(DelayedMessageScheduler.tierQueueName(tier))
+                    .ttl((int) tier)
+                    .deadLetterExchange(RabbitMQConfig.EXCHANGE_DIRECT)
+                    .deadLetterRoutingKey(ROUTING_KEY_DELAY_RETURN)
+                    .build());
+        }
+        Queue returnQueue = QueueBuilder.durable(QUEUE_DELAY_RETURN).build();
+        declarables.add(returnQueue);
+        Binding binding = BindingBuilder.bind(returnQueue)
+                .to(new DirectExchange(RabbitMQConfig.EXCHANGE_DIRECT, true, false))
+                .with(ROUTING_KEY_DELAY_RETURN);
+        declarables.add(binding);
+        return new Declarables(declarables);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnMissingBean
+    public DelayedMessageScheduler delayedMessageScheduler(
+            MessageProducer messageProducer, RabbitTemplate rabbitTemplate,
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            @Value("${babycommon.mq.delay.tick-millis:10}") long tickMillis,
+            @Value("${babycommon.mq.delay.wheel-horizon-millis:5000}") long wheelHorizonMillis,
+            @Value("${babycommon.mq.delay.tiers-millis:4000,16000,64000,256000,1024000,4096000,16384000,65536000}")
+                    long[] tiersMillis,
+            @Value("${babycommon.mq.delay.recovery-grace-millis:30000}") long recoveryGraceMillis,
+            @Value("${babycommon.mq.delay.max-fire-attempts:10}") int maxFireAttempts,
+            @Value("${babycommon.mq.delay.fire-threads:4}") int fireThreads,
+            @Value("${babycommon.mq.delay.fire-queue-capacity:10000}") int fireQueueCapacity) {
+        return new DelayedMessageScheduler(messageProducer, rabbitTemplate, redisTemplate.getIfAvailable(),
+                tickMillis, wheelHorizonMillis, tiersMillis, recoveryGraceMillis, maxFireAttempts,
+                fireThreads, fireQueueCapacity);
+    }
+
+    @Bean
+    public SimpleMessageListenerContainer delayedMessageReturnContainer(
+            ConnectionFactory connectionFactory, DelayedMessageScheduler delayedMessageScheduler,
+            @Value("${babycommon.mq.delay.concurrency:2}") int concurrency) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(QUEUE_DELAY_RETURN);
+        container.setMessageListener(delayedMessageScheduler);
+        // 下一跳确认后才 ack，路由失败时重新入队
+        container.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        container.setDefaultRequeueRejected(true);
+        container.setConcurrentConsumers(concurrency);
+        return container;
+    }
+}
@@ -0,0 +1,66 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.cache.EntityCacheEndpoint;
+import com.enterprisesystem.babycommon.cache.EntityCacheManager;
+import com.enterprisesystem.babycommon.cache.EntityCodec;
+import com.enterprisesystem.babycommon.cache.JacksonEntityCodec;
+import com.enterprisesystem.babycommon.mybatis.EntityCacheInvalidationInterceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 实体二级缓存配置
+ *
+ * 配置项：
+ * babycommon.cache.entity.enabled        是否开启，默认 true（只对标注了 @CachedEntity 的实体生效）
+ * babycommon.cache.entity.near-max-size  进程内近缓存最大条目数，默认 10000
+ */
+@Configuration
+@ConditionalOnClass(value = {StringRedisTemplate.class, SqlSessionFactory.class})
+@ConditionalOnProperty(prefix = "babycommon.cache.entity", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BatchEntityCacheAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EntityCodec entityCodec() {
+        return new JacksonEntityCodec();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EntityCacheManager entityCacheManager(ObjectProvider<StringRedisTemplate> redisTemplate, EntityCodec entityCodec,
+                                                 @Value("${babycommon.cache.entity.near-max-size:10000}") int nearMaxSize) {
+        return new EntityCacheManager(redisTemplate.getIfAvailable(), entityCodec, nearMaxSize);
+    }
+
+    /**
+     * mybatis-spring-boot-starter 会自动把容器中的 Interceptor 注册到 SqlSessionFactory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public EntityCacheInvalidationInterceptor entityCacheInvalidationInterceptor(EntityCacheManager entityCacheManager) {
+        return new EntityCacheInvalidationInterceptor(entityCacheManager);
+    }
+
+    /**
+     * 引入 actuator 时注册 /actuator/entitycache 端点
+     */
+    @Configuration
+    @ConditionalOnClass(value = {Endpoint.class})
+    static class EntityCacheEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public EntityCacheEndpoint entityCacheEndpoint(EntityCacheManager entityCacheManager) {
+            return new EntityCacheEndpoint(entityCacheManager);
+        }
+    }
+}
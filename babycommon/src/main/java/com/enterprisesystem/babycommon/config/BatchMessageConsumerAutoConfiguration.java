@@ -0,0 +1,88 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.mq.consumer.BaseBatchMessageConsumer;
+import com.enterprisesystem.babycommon.mq.consumer.MessageDeduplicator;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 消费者配置（批量消费、幂等去重）
+ *
+ * 提供名为 batchRabbitListenerContainerFactory 的监听容器工厂，配合 BaseBatchMessageConsumer 使用：
+ * 消费者线程最多攒 batch-size 条消息交给监听方法，等待下一条消息超过 receive-timeout-millis 时提交已收到的部分；
+ * 预取数量为 batch-size × prefetch-batches，处理当前批次时下一批已经在本地，不用等待网络往返。
+ * 先应用 spring.rabbitmq.listener.simple.* 的通用配置，再覆盖下面的批量配置。
+ *
+ * 配置项：
+ * babycommon.mq.consumer.batch-size                 每批最多消息数，默认 100
+ * babycommon.mq.consumer.receive-timeout-millis     等待下一条消息的最长时间，默认 200
+ * babycommon.mq.consumer.prefetch-batches           预取几个批次的消息，默认 2
+ * babycommon.mq.consumer.concurrency                每个队列的消费者数，默认 1
+ *
+ * 提供 MessageDeduplicator，BaseMessageConsumer.consumeOnce 和 BaseBatchMessageConsumer 按 messageId 去重，
+ * 有 StringRedisTemplate 时跨节点去重，否则只对本节点处理过的消息去重。
+ *
+ * 配置项：
+ * babycommon.mq.dedup.enabled                       是否开启，默认 true
+ * babycommon.mq.dedup.window-millis                 去重窗口，默认 3600000（1 小时）
+ * babycommon.mq.dedup.processing-ttl-millis         处理中占用的过期时间，默认 60000，应大于单条消息的最长处理时间
+ * babycommon.mq.dedup.expected-per-window           一个窗口内预计的消息数，默认 1000000（布隆过滤器约 3 MB）
+ * babycommon.mq.dedup.fpp                           布隆过滤器误判率，默认 0.001
+ * babycommon.mq.dedup.generations                   布隆过滤器代数，默认 4
+ */
+@Configuration
+@ConditionalOnClass(value = {RabbitTemplate.class})
+public class BatchMessageConsumerAutoConfiguration {
+
+    @Bean(name = BaseBatchMessageConsumer.CONTAINER_FACTORY)
+    @ConditionalOnMissingBean(name = BaseBatchMessageConsumer.CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            ObjectProvider<SimpleRabbitListenerContainerFactoryConfigurer> configurer,
+            @Value("${babycommon.mq.consumer.batch-size:100}") int batchSize,
+            @Value("${babycommon.mq.consumer.receive-timeout-millis:200}") long receiveTimeoutMillis,
+            @Value("${babycommon.mq.consumer.prefetch-batches:2}") int prefetchBatches,
+            @Value("${babycommon.mq.consumer.concurrency:1}") int concurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        SimpleRabbitListenerContainerFactoryConfigurer bootConfigurer = configurer.getIfAvailable();
+        if (bootConfigurer != null) {
+            bootConfigurer.configure(factory, connectionFactory);
+        } else {
+            factory.setConnectionFactory(connectionFactory);
+        }
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMillis);
+        factory.setPrefetchCount(batchSize * Math.max(1, prefetchBatches));
+        factory.setConcurrentConsumers(concurrency);
+        // 由 BaseBatchMessageConsumer 批量确认
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "babycommon.mq.dedup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public MessageDeduplicator messageDeduplicator(
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            @Value("${babycommon.mq.dedup.window-millis:3600000}") long windowMillis,
+            @Value("${babycommon.mq.dedup.processing-ttl-millis:60000}") long processingTtlMillis,
+            @Value("${babycommon.mq.dedup.expected-per-window:1000000}") long expectedPerWindow,
+            @Value("${babycommon.mq.dedup.fpp:0.001}") double fpp,
+            @Value("${babycommon.mq.dedup.generations:4}") int generations) {
+        return new MessageDeduplicator(redisTemplate.getIfAvailable(), windowMillis, processingTtlMillis,
+                expectedPerWindow, fpp, generations);
+    }
+}
@@ -0,0 +1,163 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.cache.QueryResultCache;
+import com.enterprisesystem.babycommon.datasource.RewriteBatchedStatementsPostProcessor;
+import com.enterprisesystem.babycommon.mybatis.BatchWriteExecutor;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlExecutor;
+import com.enterprisesystem.babycommon.mybatis.CompiledRowMapperFactory;
+import com.enterprisesystem.babycommon.mybatis.CompiledRowMappingInterceptor;
+import com.enterprisesystem.babycommon.mybatis.EntityChangeTracker;
+import com.enterprisesystem.babycommon.mybatis.OptimisticUpdateEndpoint;
+import com.enterprisesystem.babycommon.mybatis.OptimisticUpdateExecutor;
+import com.enterprisesystem.babycommon.mybatis.PageQueryExecutor;
+import com.enterprisesystem.babycommon.mybatis.StatementMetricsEndpoint;
+import com.enterprisesystem.babycommon.mybatis.StatementMetricsInterceptor;
+import com.enterprisesystem.babycommon.mybatis.StatementMetricsRegistry;
+import com.enterprisesystem.babycommon.mybatis.StreamingFetchSizeInterceptor;
+import com.enterprisesystem.babycommon.mybatis.StreamingQueryExecutor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * MyBatis 扩展配置
+ *
+ * 配置项：
+ * babycommon.mybatis.stream-fetch-size  流式查询的 fetchSize，默认 Integer.MIN_VALUE（MySQL 逐行流式读取）
+ * babycommon.mybatis.batch-chunk-size   批量写入默认每批行数，默认 1000
+ * babycommon.mybatis.rewrite-batched-statements  为 MySQL 数据源连接串追加 rewriteBatchedStatements=true，默认 true
+ * babycommon.mybatis.slow-query-millis  慢查询日志阈值（毫秒），默认 500，0 表示不打印
+ * babycommon.mybatis.max-shapes-per-statement  selectByWrapper 等语句按 WHERE 形状细分统计的最大形状数，默认 64
+ * babycommon.mybatis.page-count-threads  分页时并行执行 COUNT 的最大线程数，默认 8
+ * babycommon.mybatis.page-count-cache-ttl-millis  分页 COUNT 结果缓存时间（毫秒），默认 5000，0 表示不缓存
+ * babycommon.mybatis.page-count-cache-max-size  分页 COUNT 结果缓存最大条目数，默认 1000
+ * babycommon.mybatis.compiled-row-mapping  标注 @CompiledRowMapping 的实体是否使用预生成的行映射器，默认 true
+ */
+@Configuration
+@ConditionalOnClass(value = {SqlSessionFactory.class})
+public class BatchMybatisAutoConfiguration {
+
+    /**
+     * mybatis-spring-boot-starter 会自动把容器中的 Interceptor 注册到 SqlSessionFactory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public StreamingFetchSizeInterceptor streamingFetchSizeInterceptor(
+            @Value("${babycommon.mybatis.stream-fetch-size:" + Integer.MIN_VALUE + "}") int fetchSize) {
+        return new StreamingFetchSizeInterceptor(fetchSize);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CompiledRowMapperFactory compiledRowMapperFactory() {
+        return new CompiledRowMapperFactory();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "babycommon.mybatis.compiled-row-mapping", havingValue = "true", matchIfMissing = true)
+    public CompiledRowMappingInterceptor compiledRowMappingInterceptor(CompiledRowMapperFactory compiledRowMapperFactory) {
+        return new CompiledRowMappingInterceptor(compiledRowMapperFactory);
+    }
+
+    /**
+     * BeanPostProcessor 使用 static 方法注册，不会提前初始化本配置类
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(name = "org.springframework.boot.autoconfigure.jdbc.DataSourceProperties")
+    @ConditionalOnProperty(name = "babycommon.mybatis.rewrite-batched-statements", havingValue = "true", matchIfMissing = true)
+    public static RewriteBatchedStatementsPostProcessor rewriteBatchedStatementsPostProcessor() {
+        return new RewriteBatchedStatementsPostProcessor();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StreamingQueryExecutor streamingQueryExecutor(PlatformTransactionManager transactionManager) {
+        return new StreamingQueryExecutor(transactionManager);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BatchWriteExecutor batchWriteExecutor(SqlSessionFactory sqlSessionFactory,
+                                                 PlatformTransactionManager transactionManager,
+                                                 @Value("${babycommon.mybatis.batch-chunk-size:1000}") int chunkSize) {
+        return new BatchWriteExecutor(sqlSessionFactory, transactionManager, chunkSize);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OptimisticUpdateExecutor optimisticUpdateExecutor(PlatformTransactionManager transactionManager) {
+        return new OptimisticUpdateExecutor(transactionManager);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ChunkedDmlExecutor chunkedDmlExecutor(PlatformTransactionManager transactionManager) {
+        return new ChunkedDmlExecutor(transactionManager);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public EntityChangeTracker entityChangeTracker() {
+        return new EntityChangeTracker();
+    }
+
+    /**
+     * 存在 QueryResultCache 时，分页 COUNT 缓存随表写入失效
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public PageQueryExecutor pageQueryExecutor(DataSource dataSource, ObjectProvider<QueryResultCache> queryResultCache,
+                                               @Value("${babycommon.mybatis.page-count-threads:8}") int threads,
+                                               @Value("${babycommon.mybatis.page-count-cache-ttl-millis:5000}") long cacheTtlMillis,
+                                               @Value("${babycommon.mybatis.page-count-cache-max-size:1000}") int cacheMaxSize) {
+        PageQueryExecutor executor = new PageQueryExecutor(dataSource, threads, cacheTtlMillis, cacheMaxSize);
+        queryResultCache.ifAvailable(executor::setQueryResultCache);
+        return executor;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StatementMetricsRegistry statementMetricsRegistry(
+            @Value("${babycommon.mybatis.max-shapes-per-statement:64}") int maxShapesPerStatement) {
+        return new StatementMetricsRegistry(maxShapesPerStatement);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StatementMetricsInterceptor statementMetricsInterceptor(
+            StatementMetricsRegistry registry,
+            @Value("${babycommon.mybatis.slow-query-millis:500}") long slowQueryMillis) {
+        return new StatementMetricsInterceptor(registry, slowQueryMillis);
+    }
+
+    /**
+     * 引入 actuator 时注册 /actuator/mybatis 和 /actuator/optimisticlock 端点
+     */
+    @Configuration
+    @ConditionalOnClass(value = {Endpoint.class})
+    static class StatementMetricsEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public StatementMetricsEndpoint statementMetricsEndpoint(StatementMetricsRegistry registry) {
+            return new StatementMetricsEndpoint(registry);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public OptimisticUpdateEndpoint optimisticUpdateEndpoint(OptimisticUpdateExecutor optimisticUpdateExecutor) {
+            return new OptimisticUpdateEndpoint(optimisticUpdateExecutor);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.mq.outbox.OutboxPublisher;
+import com.enterprisesystem.babycommon.mq.outbox.OutboxRelay;
+import com.enterprisesystem.babycommon.mq.producer.MessageProducer;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * 事务发件箱配置
+ *
+ * babycommon.mq.outbox.enabled=true 时生效（需要先建表，表结构见 OutboxRelay），
+ * 每个节点启动一个发送线程，多个节点通过 SKIP LOCKED 分担同一张表。
+ *
+ * 配置项：
+ * babycommon.mq.outbox.table                    发件箱表名，默认 mq_outbox
+ * babycommon.mq.outbox.batch-size               每批认领的行数，默认 500
+ * babycommon.mq.outbox.poll-interval-millis     没有新消息时的轮询间隔，默认 500
+ * babycommon.mq.outbox.lease-millis             认领租约，默认 30000，应大于发送确认（含重试）的最长时间
+ * babycommon.mq.outbox.delete-published         发送成功后删除行，默认 true；false 时标记 published_time
+ * babycommon.mq.outbox.backlog-interval-millis  统计积压的间隔，默认 5000，0 表示不统计
+ * babycommon.mq.outbox.max-attempts             最多发送次数，默认 10，用完后标记 failed_time（死信），0 表示不限制
+ */
+@Configuration
+@ConditionalOnClass(value = {RabbitTemplate.class})
+@ConditionalOnProperty(prefix = "babycommon.mq.outbox", name = "enabled", havingValue = "true")
+public class BatchOutboxAutoConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnMissingBean
+    public OutboxRelay outboxRelay(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                   MessageProducer messageProducer,
+                                   @Value("${babycommon.mq.outbox.table:mq_outbox}") String table,
+                                   @Value("${babycommon.mq.outbox.batch-size:500}") int batchSize,
+                                   @Value("${babycommon.mq.outbox.poll-interval-millis:500}") long pollIntervalMillis,
+                                   @Value("${babycommon.mq.outbox.lease-millis:30000}") long leaseMillis,
+                                   @Value("${babycommon.mq.outbox.delete-published:true}") boolean deletePublished,
+                                   @Value("${babycommon.mq.outbox.backlog-interval-millis:5000}") long backlogIntervalMillis,
+                                   @Value("${babycommon.mq.outbox.max-attempts:10}") int maxAttempts) {
+        return new OutboxRelay(dataSource, transactionManager, messageProducer, table, batchSize, pollIntervalMillis,
+                leaseMillis, deletePublished, backlogIntervalMillis, maxAttempts);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxPublisher outboxPublisher(DataSource dataSource, OutboxRelay outboxRelay, RabbitTemplate rabbitTemplate,
+                                           @Value("${babycommon.mq.outbox.table:mq_outbox}") String table) {
+        OutboxPublisher publisher = new OutboxPublisher(dataSource, rabbitTemplate.getMessageConverter(), table);
+        publisher.setRelay(outboxRelay);
+        return publisher;
+    }
+}
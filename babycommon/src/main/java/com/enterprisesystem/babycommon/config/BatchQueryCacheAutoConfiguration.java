@@ -0,0 +1,43 @@
+package com.enterprisesystem.babycommon.config;
+
+import com.enterprisesystem.babycommon.cache.EntityCodec;
+import com.enterprisesystem.babycommon.cache.JacksonEntityCodec;
+import com.enterprisesystem.babycommon.cache.QueryResultCache;
+import com.enterprisesystem.babycommon.mybatis.QueryResultCacheInterceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 查询结果缓存配置
+ *
+ * 配置项：
+ * babycommon.cache.query.enabled   是否开启，默认 true（只对标注了 @CachedQuery 的查询生效）
+ * babycommon.cache.query.max-size  最大缓存条目数，默认 2000
+ */
+@Configuration
+@ConditionalOnClass(value = {SqlSessionFactory.class})
+@ConditionalOnProperty(prefix = "babycommon.cache.query", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BatchQueryCacheAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public QueryResultCache queryResultCache(ObjectProvider<EntityCodec> entityCodec,
+                                             @Value("${babycommon.cache.query.max-size:2000}") int maxSize) {
+        return new QueryResultCache(entityCodec.getIfAvailable(JacksonEntityCodec::new), maxSize);
+    }
+
+    /**
+     * mybatis-spring-boot-starter 会自动把容器中的 Interceptor 注册到 SqlSessionFactory
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public QueryResultCacheInterceptor queryResultCacheInterceptor(QueryResultCache queryResultCache) {
+        return new QueryResultCacheInterceptor(queryResultCache);
+    }
+}
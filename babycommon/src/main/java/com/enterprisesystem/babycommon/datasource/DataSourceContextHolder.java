@@ -0,0 +1,235 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 数据源路由上下文（线程级）
+ *
+ * 【内容】
+ * - 强制路由：@TargetDataSource 指定的数据源，支持嵌套，内层优先
+ * - 语句类型：当前正在执行的 SQL 是读还是写，由 ReadWriteRoutingInterceptor 设置
+ * - 主库粘滞：当前作用域中执行过写操作后，后续读取都走主库，保证读到自己刚写入的数据
+ *
+ * 【作用域】
+ * 主库粘滞只在 openScope() 打开的作用域中记录，作用域关闭时恢复打开前的上下文：
+ * Web 请求（babysecure 的 DataSourceRoutingFilter）、BaseMessageConsumer 处理的每条 / 每批消息各是一个作用域。
+ * 不在作用域中的线程（MQ 监听线程、定时任务、线程池）写入后不记录粘滞，
+ * 避免线程复用时被永久固定到主库；这些线程中需要读到刚写入的数据时自行 openScope() 或使用事务。
+ * <pre>
+ * {@code
+ * try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+ *     userMapper.insert(user);
+ *     userMapper.selectById(user.getId());   // 走主库
+ * }
+ * }
+ * </pre>
+ */
+public class DataSourceContextHolder {
+
+    private static final ThreadLocal<Deque<DataSourceType>> FORCED = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final ThreadLocal<DataSourceType> STATEMENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_STICKY = new ThreadLocal<>();
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+    private DataSourceContextHolder() {
+    }
+
+    /**
+     * 进入强制路由
+     *
+     * @param type 数据源类型
+     */
+    public static void pushForced(DataSourceType type) {
+        FORCED.get().push(type);
+    }
+
+    /**
+     * 退出强制路由
+     */
+    public static void popForced() {
+        Deque<DataSourceType> deque = FORCED.get();
+        deque.poll();
+        if (deque.isEmpty()) {
+            FORCED.remove();
+        }
+    }
+
+    /**
+     * 当前的强制路由
+     *
+     * @return 数据源类型，没有强制路由时返回 null
+     */
+    public static DataSourceType getForced() {
+        return FORCED.get().peek();
+    }
+
+    /**
+     * 设置当前执行的语句类型
+     *
+     * @param type 语句类型，null 表示清除
+     * @return 之前的语句类型，用于恢复
+     */
+    public static DataSourceType setStatementType(DataSourceType type) {
+        DataSourceType previous = STATEMENT.get();
+        if (type == null) {
+            STATEMENT.remove();
+        } else {
+            STATEMENT.set(type);
+        }
+        return previous;
+    }
+
+    /**
+     * 当前执行的语句类型
+     *
+     * @return 语句类型，不在 MyBatis 语句执行过程中时返回 null
+     */
+    public static DataSourceType getStatementType() {
+        return STATEMENT.get();
+    }
+
+    /**
+     * 标记当前作用域已写入主库，之后的读取都走主库；不在作用域中时不记录
+     */
+    public static void markPrimarySticky() {
+        if (SCOPE.get() != null) {
+            PRIMARY_STICKY.set(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 当前作用域是否已写入主库
+     *
+     * @return true-已写入
+     */
+    public static boolean isPrimarySticky() {
+        return Boolean.TRUE.equals(PRIMARY_STICKY.get());
+    }
+
+    /**
+     * 清除当前线程的路由上下文（包括打开的作用域）
+     */
+    public static void clear() {
+        FORCED.remove();
+        STATEMENT.remove();
+        PRIMARY_STICKY.remove();
+        SCOPE.remove();
+    }
+
+    /**
+     * 打开一个空的路由作用域
+     *
+     * @return 作用域，关闭时恢复打开前的上下文
+     */
+    public static Scope openScope() {
+        return openScope(null);
+    }
+
+    /**
+     * 打开一个路由作用域并带入其他线程的上下文（如把调用线程的强制路由和主库粘滞带到线程池）
+     *
+     * @param inherited capture() 得到的上下文，null 表示空上下文
+     * @return 作用域，关闭时恢复打开前的上下文
+     */
+    public static Scope openScope(Snapshot inherited) {
+        Scope scope = new Scope(capture(), SCOPE.get());
+        FORCED.remove();
+        STATEMENT.remove();
+        PRIMARY_STICKY.remove();
+        SCOPE.set(scope);
+        if (inherited != null) {
+            for (DataSourceType type : inherited.forced) {
+                FORCED.get().addLast(type);
+            }
+            if (inherited.primarySticky) {
+                PRIMARY_STICKY.set(Boolean.TRUE);
+            }
+        }
+        return scope;
+    }
+
+    /**
+     * 记录当前线程的强制路由和主库粘滞
+     *
+     * @return 上下文快照
+     */
+    public static Snapshot capture() {
+        return new Snapshot(new ArrayDeque<>(FORCED.get()), isPrimarySticky(), STATEMENT.get());
+    }
+
+    private static void restore(Snapshot snapshot, Scope scope) {
+        FORCED.remove();
+        if (!snapshot.forced.isEmpty()) {
+            FORCED.get().addAll(snapshot.forced);
+        }
+        if (snapshot.statement == null) {
+            STATEMENT.remove();
+        } else {
+            STATEMENT.set(snapshot.statement);
+        }
+        if (snapshot.primarySticky) {
+            PRIMARY_STICKY.set(Boolean.TRUE);
+        } else {
+            PRIMARY_STICKY.remove();
+        }
+        if (scope == null) {
+            SCOPE.remove();
+        } else {
+            SCOPE.set(scope);
+        }
+    }
+
+    /**
+     * 路由上下文快照
+     */
+    public static final class Snapshot {
+
+        private final Deque<DataSourceType> forced;
+        private final boolean primarySticky;
+        private final DataSourceType statement;
+
+        private Snapshot(Deque<DataSourceType> forced, boolean primarySticky, DataSourceType statement) {
+            this.forced = forced;
+            this.primarySticky = primarySticky;
+            this.statement = statement;
+        }
+
+        public boolean isPrimarySticky() {
+            return primarySticky;
+        }
+
+        /**
+         * 快照时的强制路由
+         *
+         * @return 数据源类型，没有强制路由时返回 null
+         */
+        public DataSourceType getForced() {
+            return forced.peek();
+        }
+    }
+
+    /**
+     * 路由作用域，在打开它的线程中关闭
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Snapshot previous;
+        private final Scope parent;
+        private boolean closed;
+
+        private Scope(Snapshot previous, Scope parent) {
+            this.previous = previous;
+            this.parent = parent;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            restore(previous, parent);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * MySQL 从库延迟探测
+ *
+ * 通过 SHOW SLAVE STATUS 的 Seconds_Behind_Master 获取延迟（需要 REPLICATION CLIENT 权限）：
+ * - 没有返回行：不是从库（如开发环境主从指向同一个库），视为无延迟
+ * - Seconds_Behind_Master 为 NULL：复制线程已停止，返回 -1
+ */
+public class MySqlReplicaLagProbe implements ReplicaLagProbe {
+
+    private static final String SQL = "SHOW SLAVE STATUS";
+    private static final String LAG_COLUMN = "Seconds_Behind_Master";
+
+    @Override
+    public long lagMillis(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SQL)) {
+            if (!resultSet.next()) {
+                return 0L;
+            }
+            long seconds = resultSet.getLong(LAG_COLUMN);
+            return resultSet.wasNull() ? -1L : seconds * 1000L;
+        }
+    }
+}
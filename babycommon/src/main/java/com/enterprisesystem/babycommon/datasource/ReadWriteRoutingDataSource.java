@@ -0,0 +1,129 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离路由数据源
+ *
+ * 【路由规则】（按优先级）
+ * 1. @TargetDataSource 强制路由：PRIMARY 走主库，REPLICA 走从库
+ * 2. 事务中：走主库（事务开始时就要获取连接，此时还不知道后续是读还是写）
+ * 3. 当前请求已经写过主库（主库粘滞）：走主库，保证读到自己刚写入的数据
+ * 4. 查询语句（由 ReadWriteRoutingInterceptor 标记）：轮询选择延迟在阈值内的从库
+ * 5. 其他情况（写语句、非 MyBatis 的 JDBC 访问）：走主库
+ *
+ * 所有从库都不可用（延迟超阈值、复制中断、探测失败）时读请求回到主库
+ *
+ * 主库和从库的连接池由本类持有（不是单独的 Bean），容器关闭时在 destroy() 中先停止延迟探测再逐个关闭
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY_KEY = "primary";
+    public static final String REPLICA_KEY_PREFIX = "replica-";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final List<DataSource> owned = new ArrayList<>();
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final LongAdder fallbackRoutes = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param primary    主库
+     * @param replicas   从库（顺序与 lagMonitor 中一致）
+     * @param lagMonitor 从库延迟监控
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA_KEY_PREFIX + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        owned.add(primary);
+        owned.addAll(replicas);
+    }
+
+    /**
+     * 关闭主库和从库的连接池（HikariDataSource 等实现了 AutoCloseable 的数据源）
+     */
+    @Override
+    public void destroy() {
+        lagMonitor.stop();
+        for (DataSource dataSource : owned) {
+            if (dataSource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) dataSource).close();
+                } catch (Exception e) {
+                    System.out.println("关闭数据源失败：" + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceType forced = DataSourceContextHolder.getForced();
+        if (forced == DataSourceType.PRIMARY) {
+            return routePrimary();
+        }
+        if (forced == DataSourceType.REPLICA) {
+            return routeReplica();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || DataSourceContextHolder.isPrimarySticky()
+                || DataSourceContextHolder.getStatementType() != DataSourceType.REPLICA) {
+            return routePrimary();
+        }
+        return routeReplica();
+    }
+
+    private Object routePrimary() {
+        primaryRoutes.increment();
+        return PRIMARY_KEY;
+    }
+
+    private Object routeReplica() {
+        List<Integer> healthy = lagMonitor.getHealthyReplicas();
+        if (healthy.isEmpty()) {
+            fallbackRoutes.increment();
+            return PRIMARY_KEY;
+        }
+        replicaRoutes.increment();
+        int index = healthy.get((counter.getAndIncrement() & Integer.MAX_VALUE) % healthy.size());
+        return REPLICA_KEY_PREFIX + index;
+    }
+
+    /**
+     * 路由统计
+     *
+     * @return primary：路由到主库的次数；replica：路由到从库的次数；fallback：应读从库但没有可用从库、回到主库的次数
+     */
+    public Map<String, Long> getRouteStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("primary", primaryRoutes.sum());
+        stats.put("replica", replicaRoutes.sum());
+        stats.put("fallback", fallbackRoutes.sum());
+        return stats;
+    }
+
+    public ReplicaLagMonitor getLagMonitor() {
+        return lagMonitor;
+    }
+}
@@ -0,0 +1,65 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置
+ *
+ * <pre>
+ * babycommon:
+ *   datasource:
+ *     routing:
+ *       enabled: true
+ *       max-lag-millis: 1000
+ *       lag-check-interval-millis: 5000
+ *       replicas:
+ *         - url: jdbc:mysql://replica1:3306/enterprise
+ *           username: reader
+ *           password: xxx
+ * </pre>
+ *
+ * 主库使用 spring.datasource 的配置
+ */
+@Data
+@ConfigurationProperties(prefix = "babycommon.datasource.routing")
+public class ReadWriteRoutingProperties {
+
+    /**
+     * 是否开启读写分离
+     */
+    private boolean enabled = false;
+
+    /**
+     * 从库最大允许延迟（毫秒），超过后暂时不参与读路由
+     */
+    private long maxLagMillis = 1000L;
+
+    /**
+     * 从库延迟探测间隔（毫秒）
+     */
+    private long lagCheckIntervalMillis = 5000L;
+
+    /**
+     * 从库列表
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * 为空时与主库相同
+         */
+        private String driverClassName;
+    }
+}
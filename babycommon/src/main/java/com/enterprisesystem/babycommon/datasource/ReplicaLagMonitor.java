@@ -0,0 +1,139 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从库延迟监控
+ *
+ * 按固定间隔探测每个从库的复制延迟，延迟超过阈值、复制中断或探测失败的从库暂时不参与读路由，
+ * 恢复后自动重新加入。所有从库都不可用时读请求回到主库。
+ */
+public class ReplicaLagMonitor {
+
+    private final List<String> names;
+    private final List<DataSource> replicas;
+    private final ReplicaLagProbe probe;
+    private final long maxLagMillis;
+    private final long intervalMillis;
+
+    /**
+     * 每个从库最近一次探测到的延迟，-1 表示不可用
+     */
+    private final long[] lagMillis;
+    private volatile List<Integer> healthy;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 构造函数
+     *
+     * @param names          从库名称（与 replicas 一一对应，用于日志和监控）
+     * @param replicas       从库数据源
+     * @param probe          延迟探测
+     * @param maxLagMillis   最大允许延迟（毫秒）
+     * @param intervalMillis 探测间隔（毫秒）
+     */
+    public ReplicaLagMonitor(List<String> names, List<DataSource> replicas, ReplicaLagProbe probe,
+                             long maxLagMillis, long intervalMillis) {
+        if (names.size() != replicas.size()) {
+            throw new IllegalArgumentException("从库名称与数据源数量不一致");
+        }
+        this.names = new ArrayList<>(names);
+        this.replicas = new ArrayList<>(replicas);
+        this.probe = probe;
+        this.maxLagMillis = maxLagMillis;
+        this.intervalMillis = intervalMillis;
+        this.lagMillis = new long[replicas.size()];
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            all.add(i);
+        }
+        // 首次探测完成之前默认所有从库可用
+        this.healthy = Collections.unmodifiableList(all);
+    }
+
+    /**
+     * 启动定时探测
+     */
+    public synchronized void start() {
+        if (scheduler != null || replicas.isEmpty()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定时探测
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 立即探测一次所有从库
+     */
+    public void check() {
+        List<Integer> available = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag;
+            try {
+                lag = probe.lagMillis(replicas.get(i));
+            } catch (Exception e) {
+                lag = -1L;
+                System.out.println("从库【" + names.get(i) + "】延迟探测失败：" + e.getMessage());
+            }
+            boolean wasHealthy = healthy.contains(i);
+            boolean isHealthy = lag >= 0 && lag <= maxLagMillis;
+            if (wasHealthy != isHealthy) {
+                System.out.println("从库【" + names.get(i) + "】" + (isHealthy ? "恢复读路由" : "移出读路由")
+                        + "，当前延迟：" + lag + " ms，阈值：" + maxLagMillis + " ms");
+            }
+            lagMillis[i] = lag;
+            if (isHealthy) {
+                available.add(i);
+            }
+        }
+        healthy = Collections.unmodifiableList(available);
+    }
+
+    /**
+     * 当前可用的从库下标
+     *
+     * @return 从库下标列表
+     */
+    public List<Integer> getHealthyReplicas() {
+        return healthy;
+    }
+
+    /**
+     * 每个从库最近一次探测到的延迟
+     *
+     * @return 从库名称 -> 延迟毫秒数（-1 表示不可用）
+     */
+    public Map<String, Long> getLagMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            result.put(names.get(i), lagMillis[i]);
+        }
+        return result;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+}
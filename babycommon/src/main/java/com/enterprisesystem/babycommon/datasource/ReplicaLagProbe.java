@@ -0,0 +1,22 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * 从库延迟探测
+ *
+ * 默认实现为 MySqlReplicaLagProbe；测试时可以用两个嵌入式数据库配合自定义探测（如读取心跳表）模拟延迟
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+
+    /**
+     * 探测从库延迟
+     *
+     * @param replica 从库数据源
+     * @return 延迟毫秒数，复制已中断时返回负数
+     * @throws SQLException 探测失败
+     */
+    long lagMillis(DataSource replica) throws SQLException;
+}
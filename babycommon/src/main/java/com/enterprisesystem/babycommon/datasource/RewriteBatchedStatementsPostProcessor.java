@@ -0,0 +1,49 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+/**
+ * 为 MySQL 数据源开启 rewriteBatchedStatements
+ *
+ * 【作用】
+ * spring.datasource.url 绑定完成后、数据源创建之前，为 jdbc:mysql: 连接串追加 rewriteBatchedStatements=true，
+ * MySQL 驱动会把 BatchWriteExecutor 的一批 INSERT 改写为一条多值 INSERT，只需要一次网络往返。
+ * 连接串中已经写了 rewriteBatchedStatements（无论 true 还是 false）时保持不变。
+ *
+ * 只处理 DataSourceProperties（Spring Boot 默认数据源和 BatchDataSourceAutoConfiguration 的主库），
+ * 自行创建的 DataSource 需要在连接串中配置。
+ */
+public class RewriteBatchedStatementsPostProcessor implements BeanPostProcessor {
+
+    static final String PARAMETER = "rewriteBatchedStatements";
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSourceProperties) {
+            DataSourceProperties properties = (DataSourceProperties) bean;
+            String url = properties.getUrl();
+            String rewritten = enable(url);
+            if (rewritten != null && !rewritten.equals(url)) {
+                properties.setUrl(rewritten);
+                System.out.println("数据源已开启 " + PARAMETER + "=true");
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * 为 MySQL 连接串追加 rewriteBatchedStatements=true
+     *
+     * @param url JDBC 连接串
+     * @return 追加后的连接串，非 MySQL 或已配置该参数时原样返回
+     */
+    public static String enable(String url) {
+        if (url == null || !url.regionMatches(true, 0, "jdbc:mysql:", 0, "jdbc:mysql:".length())
+                || url.toLowerCase().contains(PARAMETER.toLowerCase() + "=")) {
+            return url;
+        }
+        String separator = url.indexOf('?') < 0 ? "?" : url.endsWith("?") || url.endsWith("&") ? "" : "&";
+        return url + separator + PARAMETER + "=true";
+    }
+}
@@ -0,0 +1,56 @@
+package com.enterprisesystem.babycommon.exception;
+
+import com.enterprisesystem.babycommon.mybatis.BatchWriteResult;
+
+/**
+ * 批量写入失败（continueOnError 为 false 时遇到第一个失败的批次即停止）
+ *
+ * 携带截至失败时的执行结果：每批单独提交时，result 中成功的批次已经提交，失败的批次已回滚；
+ * 所有批次在同一个事务中时全部回滚，result 中只记录失败的批次
+ */
+public class BatchWriteException extends SystemRuntimeException {
+
+    private final transient BatchWriteResult result;
+    private final int failedChunkIndex;
+
+    public BatchWriteException(BatchWriteResult result, int failedChunkIndex, boolean committedChunks, Throwable cause) {
+        super(summary(result, failedChunkIndex, committedChunks, cause));
+        this.result = result;
+        this.failedChunkIndex = failedChunkIndex;
+        initCause(cause);
+    }
+
+    /**
+     * 截至失败时的执行结果
+     *
+     * @return 执行结果
+     */
+    public BatchWriteResult getResult() {
+        return result;
+    }
+
+    /**
+     * 失败批次的序号（从 0 开始）
+     *
+     * @return 批次序号
+     */
+    public int getFailedChunkIndex() {
+        return failedChunkIndex;
+    }
+
+    private static String summary(BatchWriteResult result, int failedChunkIndex, boolean committedChunks,
+                                  Throwable cause) {
+        int committed = 0;
+        int committedRows = 0;
+        if (committedChunks) {
+            for (BatchWriteResult.ChunkResult chunk : result.getChunks()) {
+                if (chunk.isSuccess()) {
+                    committed++;
+                    committedRows += chunk.getRows();
+                }
+            }
+        }
+        return "批量写入第 " + failedChunkIndex + " 批失败（共 " + result.getTotalRows() + " 行），已提交 "
+                + committed + " 批 " + committedRows + " 行：" + cause.getMessage();
+    }
+}
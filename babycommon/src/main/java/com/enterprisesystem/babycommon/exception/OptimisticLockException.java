@@ -0,0 +1,26 @@
+package com.enterprisesystem.babycommon.exception;
+
+/**
+ * 乐观锁重试次数用完仍然冲突
+ *
+ * 说明该记录正在被频繁修改，调用方可以提示用户稍后重试
+ */
+public class OptimisticLockException extends SystemRuntimeException {
+
+    private final String entityName;
+    private final int attempts;
+
+    public OptimisticLockException(String entityName, int attempts) {
+        super(entityName + " 并发修改冲突，已重试 " + attempts + " 次，请稍后再试");
+        this.entityName = entityName;
+        this.attempts = attempts;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,352 @@
+package com.enterprisesystem.babycommon.loader;
+
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
+import com.enterprisesystem.babycommon.datasource.DataSourceType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 合并请求的批量加载器（DataLoader 模式）
+ *
+ * 【作用】
+ * 渲染列表时每一行都按 ID 查询关联数据（如用户所在部门），高并发下同一毫秒内会有大量 selectById。
+ * 本类把一个时间窗口内（默认 2 毫秒）或凑满 maxBatchSize 个的请求合并成一次批量查询（如 selectByIds 的 IN 查询），
+ * 查询完成后分别完成每个调用方的 Future：
+ * <pre>
+ * {@code
+ * BatchLoader<Integer, DepartmentEntity> loader = new BatchLoader<>(
+ *         ids -> departmentMapper.selectByIds(ids), DepartmentEntity::getId);
+ *
+ * List<CompletableFuture<DepartmentEntity>> futures = new ArrayList<>();
+ * for (UserEntity user : users) {
+ *     futures.add(loader.load(user.getDepartmentId()));
+ * }
+ * // 以上请求只会产生一次（或几次）IN 查询
+ * }
+ * </pre>
+ *
+ * 【去重】
+ * 同一个 key 已经在等待或正在查询时，直接返回同一个 Future，不重复查询。
+ *
+ * 【数据源路由】
+ * 批量查询带上发起批次的调用线程的路由上下文（@TargetDataSource、主库粘滞），查询结束后恢复加载线程的上下文；
+ * 批次中有调用方需要读主库（强制 PRIMARY 或刚写入过）时整批读主库。
+ *
+ * 【注意】
+ * 批量查询在加载线程中执行，不在调用方的事务中；需要读到当前事务中未提交数据的场景请直接查询。
+ * 查询线程池已满时拒绝新的批次，该批次的 Future 以 RejectedExecutionException 失败，
+ * 不会在定时线程或调用线程中执行查询。
+ *
+ * @param <K> key 类型（通常为主键）
+ * @param <V> 值类型
+ */
+public class BatchLoader<K, V> {
+
+    public static final long DEFAULT_WINDOW_MICROS = 2_000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /**
+     * 所有加载器共用的定时线程，只负责在时间窗口结束时提交批次
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            daemonThreadFactory("batch-loader-timer"));
+
+    private static final int DEFAULT_THREADS = 16;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * 默认的查询线程池：最多 16 个线程，空闲 60 秒后回收；排队的批次超过 1024 个时拒绝
+     */
+    private static final Executor DEFAULT_EXECUTOR = newDefaultExecutor();
+
+    /**
+     * 默认的查询线程池
+     *
+     * @return 线程池
+     */
+    public static Executor defaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    private final Function<List<K>, List<V>> batchFunction;
+    private final Function<V, ?> keyExtractor;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final Executor executor;
+
+    /**
+     * 等待中或查询中的 key（按 key 的字符串形式去重，Integer / Long 主键视为同一个 key）
+     */
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+    private Batch<K> pending = new Batch<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 使用默认时间窗口和批次大小创建加载器
+     *
+     * @param batchFunction 批量查询，返回的结果不要求与 keys 顺序一致，不存在的 key 可以不返回
+     * @param keyExtractor  从查询结果中取出 key
+     */
+    public BatchLoader(Function<List<K>, List<V>> batchFunction, Function<V, ?> keyExtractor) {
+        this(batchFunction, keyExtractor, DEFAULT_WINDOW_MICROS, DEFAULT_MAX_BATCH_SIZE, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param batchFunction 批量查询
+     * @param keyExtractor  从查询结果中取出 key
+     * @param windowMicros  时间窗口（微秒），第一个请求到达后等待这么久再提交批次
+     * @param maxBatchSize  每批最多的 key 数，凑满后立即提交
+     * @param executor      执行批量查询的线程池，满时应抛出 RejectedExecutionException（不要使用 CallerRunsPolicy，
+     *                      否则查询可能在共用的定时线程中执行）
+     */
+    public BatchLoader(Function<List<K>, List<V>> batchFunction, Function<V, ?> keyExtractor,
+                       long windowMicros, int maxBatchSize, Executor executor) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize 必须大于 0");
+        }
+        this.batchFunction = batchFunction;
+        this.keyExtractor = keyExtractor;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * 加载单个 key
+     *
+     * @param key key
+     * @return 结果 Future，key 不存在时结果为 null
+     */
+    public CompletableFuture<V> load(K key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        requests.increment();
+        String keyString = String.valueOf(key);
+        CompletableFuture<V> future = inFlight.get(keyString);
+        if (future != null) {
+            deduplicated.increment();
+            return future;
+        }
+
+        DataSourceContextHolder.Snapshot routing = DataSourceContextHolder.capture();
+        Batch<K> batchToDispatch = null;
+        synchronized (lock) {
+            future = inFlight.get(keyString);
+            if (future != null) {
+                deduplicated.increment();
+                return future;
+            }
+            future = new CompletableFuture<>();
+            inFlight.put(keyString, future);
+            pending.keys.put(keyString, key);
+            if (pending.routing == null || (!readsPrimary(pending.routing) && readsPrimary(routing))) {
+                pending.routing = routing;
+            }
+            if (pending.keys.size() >= maxBatchSize) {
+                batchToDispatch = pending;
+                pending = new Batch<>();
+            } else if (pending.keys.size() == 1) {
+                Batch<K> batch = pending;
+                TIMER.schedule(() -> dispatchIfCurrent(batch), windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (batchToDispatch != null) {
+            dispatch(batchToDispatch);
+        }
+        return future;
+    }
+
+    /**
+     * 加载多个 key
+     *
+     * @param keyList key 列表
+     * @return 结果 Future，完成后为 key -> 值（不存在的 key 不包含在内）
+     */
+    public CompletableFuture<Map<K, V>> loadMany(Collection<K> keyList) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (K key : keyList) {
+            futures.put(key, load(key));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<K, V> result = new LinkedHashMap<>();
+            for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+                V value = entry.getValue().join();
+                if (value != null) {
+                    result.put(entry.getKey(), value);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 立即提交当前等待中的批次（不等时间窗口结束）
+     */
+    public void flush() {
+        Batch<K> batch;
+        synchronized (lock) {
+            if (pending.keys.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new Batch<>();
+        }
+        dispatch(batch);
+    }
+
+    /**
+     * 时间窗口结束：批次还没有因为凑满而提前提交时才提交
+     */
+    private void dispatchIfCurrent(Batch<K> batch) {
+        synchronized (lock) {
+            if (pending != batch || batch.keys.isEmpty()) {
+                return;
+            }
+            pending = new Batch<>();
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K> batch) {
+        batches.increment();
+        keys.add(batch.keys.size());
+        try {
+            executor.execute(() -> execute(batch));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            fail(batch, e);
+        }
+    }
+
+    private void execute(Batch<K> batch) {
+        Map<String, V> results = new LinkedHashMap<>();
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope(batch.routing)) {
+            List<V> values = batchFunction.apply(new ArrayList<>(batch.keys.values()));
+            if (values != null) {
+                for (V value : values) {
+                    if (value != null) {
+                        results.put(String.valueOf(keyExtractor.apply(value)), value);
+                    }
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            fail(batch, e);
+            return;
+        }
+        for (String key : batch.keys.keySet()) {
+            CompletableFuture<V> future = inFlight.remove(key);
+            if (future != null) {
+                future.complete(results.get(key));
+            }
+        }
+    }
+
+    private void fail(Batch<K> batch, Throwable e) {
+        for (String key : batch.keys.keySet()) {
+            CompletableFuture<V> future = inFlight.remove(key);
+            if (future != null) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 调用方是否需要读主库
+     */
+    private static boolean readsPrimary(DataSourceContextHolder.Snapshot routing) {
+        DataSourceType forced = routing.getForced();
+        return forced == DataSourceType.PRIMARY || (forced == null && routing.isPrimarySticky());
+    }
+
+    /**
+     * 同步加载单个 key（等待所在批次完成）
+     *
+     * @param key key
+     * @return 值，不存在时返回 null
+     */
+    public V get(K key) {
+        try {
+            return load(key).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return requests：请求次数；deduplicated：合并到已有请求的次数；batches：批量查询次数；keys：查询的 key 总数；
+     * rejected：线程池已满被拒绝的批次数
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        stats.put("batches", batches.sum());
+        stats.put("keys", keys.sum());
+        stats.put("rejected", rejected.sum());
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private static Executor newDefaultExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(DEFAULT_QUEUE_CAPACITY), daemonThreadFactory("batch-loader"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 等待提交的批次
+     */
+    private static final class Batch<K> {
+
+        private final Map<String, K> keys = new LinkedHashMap<>();
+
+        /**
+         * 发起批次的调用方的路由上下文；有调用方需要读主库时替换为该调用方的上下文
+         */
+        private DataSourceContextHolder.Snapshot routing;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
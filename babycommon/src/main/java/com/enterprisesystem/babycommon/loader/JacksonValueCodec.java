@@ -0,0 +1,62 @@
+package com.enterprisesystem.babycommon.loader;
+
+import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 基于 Jackson 的缓存值序列化
+ *
+ * 与 JacksonEntityCodec 一样直接读写字段；泛型值（如 List&lt;DepartmentDto&gt;）通过 TypeReference 指定类型：
+ * <pre>
+ * {@code
+ * new JacksonValueCodec<>(new TypeReference<List<DepartmentDto>>() {});
+ * }
+ * </pre>
+ *
+ * @param <V> 值类型
+ */
+public class JacksonValueCodec<V> implements ValueCodec<V> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+    private final JavaType type;
+
+    public JacksonValueCodec(Class<V> type) {
+        this.type = OBJECT_MAPPER.constructType(type);
+    }
+
+    public JacksonValueCodec(TypeReference<V> type) {
+        this.type = OBJECT_MAPPER.getTypeFactory().constructType(type);
+    }
+
+    @Override
+    public String encode(V value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new SystemRuntimeException("缓存值序列化失败：" + e.getMessage());
+        }
+    }
+
+    @Override
+    public V decode(String text) {
+        try {
+            return OBJECT_MAPPER.readValue(text, type);
+        } catch (JsonProcessingException e) {
+            throw new SystemRuntimeException("缓存值反序列化失败：" + e.getMessage());
+        }
+    }
+}
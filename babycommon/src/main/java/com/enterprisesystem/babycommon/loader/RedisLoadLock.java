@@ -0,0 +1,59 @@
+package com.enterprisesystem.babycommon.loader;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis SET NX PX 的加载锁
+ *
+ * 多个节点同时发现同一个 key 需要重新加载时，只有拿到锁的节点查询数据库并写回 Redis，
+ * 其他节点继续使用旧值或等待新值写入。锁带过期时间，持有锁的节点宕机后自动释放；
+ * 释放时校验锁的值，只删除自己持有的锁。
+ */
+public class RedisLoadLock {
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisLoadLock(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 尝试加锁（不等待）
+     *
+     * @param lockKey   锁的 key
+     * @param ttlMillis 锁的过期时间（毫秒），应大于一次加载的最长耗时
+     * @return 锁的值（释放时使用），未拿到锁时返回 null
+     */
+    public String tryLock(String lockKey, long ttlMillis) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, token, ttlMillis, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param lockKey 锁的 key
+     * @param token   加锁时返回的值
+     */
+    public void unlock(String lockKey, String token) {
+        if (token == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lockKey), token);
+        } catch (RuntimeException e) {
+            // 释放失败时等待锁自动过期
+            System.out.println("释放加载锁失败：" + lockKey + "，" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package com.enterprisesystem.babycommon.loader;
+
+import com.enterprisesystem.babycommon.cache.CacheInvalidationHandler;
+import com.enterprisesystem.babycommon.cache.CacheInvalidationPublisher;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 单飞加载 + 过期后先返回旧值再后台刷新（stale-while-revalidate）的缓存
+ *
+ * 【作用】
+ * 部门树、用户资料这类读多写少、加载较慢的数据，缓存过期的瞬间所有并发请求都会同时查询数据库（缓存击穿）。
+ * 本类按以下规则读取：
+ * - 新鲜期内：直接返回缓存值
+ * - 新鲜期已过、保留期内：直接返回旧值，同时在后台刷新（同一个 key 同时只有一个刷新任务）
+ * - 没有缓存或超过保留期：同步加载，同一个 key 的并发请求只加载一次，其余请求等待并共享结果
+ * - 提前过期：按 XFetch 算法在过期前随机提前触发后台刷新，分散刷新时间
+ *
+ * 【Redis 共享层】
+ * 传入 StringRedisTemplate 时，加载结果同时写入 Redis（rc:{name}:{key}），本节点没有可用值时先读 Redis；
+ * 需要查询数据库时先抢 Redis 加载锁（SET NX PX），整个集群同一个 key 同时只有一个节点查询数据库，
+ * 其他节点返回旧值或等待新值写入 Redis。Redis 不可用时退化为只使用进程内缓存。
+ *
+ * 【集群失效】
+ * 配置了 CacheInvalidationBus 时 invalidate 会广播到其他节点（区域名 rc:{name}），其他节点清除各自的进程内缓存。
+ *
+ * <pre>
+ * {@code
+ * RefreshingCache<String, List<DepartmentDto>> treeCache = refreshingCacheFactory.create(
+ *         "department-tree", key -> buildTree(), RefreshingCacheOptions.of(60_000, 600_000),
+ *         new JacksonValueCodec<>(new TypeReference<List<DepartmentDto>>() {}));
+ *
+ * List<DepartmentDto> tree = treeCache.get("all");
+ * treeCache.invalidate("all");   // 数据变更后清除
+ * }
+ * </pre>
+ *
+ * 【注意】
+ * - 返回的是缓存中的同一个对象，调用方不要修改
+ * - 加载结果为 null 时不缓存
+ *
+ * @param <K> key 类型
+ * @param <V> 值类型
+ */
+public class RefreshingCache<K, V> implements CacheInvalidationHandler {
+
+    private static final String KEY_PREFIX = "rc:";
+    private static final String LOCK_SUFFIX = ":lock";
+    private static final long POLL_INTERVAL_MILLIS = 20;
+
+    private final String name;
+    private final String region;
+    private final Function<K, V> loader;
+    private final RefreshingCacheOptions options;
+    private final StringRedisTemplate redisTemplate;
+    private final ValueCodec<V> codec;
+    private final RedisLoadLock loadLock;
+    private final Executor executor;
+
+    private final SingleFlight<K, V> singleFlight = new SingleFlight<>();
+    private final Map<K, Entry<V>> local;
+
+    /**
+     * 每次清除缓存加 1；加载开始后缓存被清除过时，加载结果可能是旧数据，不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile CacheInvalidationPublisher invalidationPublisher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder sourceLoads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder lockContended = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    /**
+     * 只使用进程内缓存
+     *
+     * @param name    缓存名称
+     * @param loader  加载函数
+     * @param options 选项
+     */
+    public RefreshingCache(String name, Function<K, V> loader, RefreshingCacheOptions options) {
+        this(name, loader, options, null, null, BatchLoader.defaultExecutor());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param name          缓存名称，用于 Redis key 前缀，各缓存之间不能重复
+     * @param loader        加载函数
+     * @param options       选项
+     * @param redisTemplate Redis，为 null 时只使用进程内缓存
+     * @param codec         值序列化方式，使用 Redis 时必须提供
+     * @param executor      执行后台刷新的线程池
+     */
+    public RefreshingCache(String name, Function<K, V> loader, RefreshingCacheOptions options,
+                           StringRedisTemplate redisTemplate, ValueCodec<V> codec, Executor executor) {
+        if (options.getStaleTtlMillis() < options.getFreshTtlMillis()) {
+            throw new IllegalArgumentException("staleTtlMillis 不能小于 freshTtlMillis");
+        }
+        if (options.getMaxSize() < 1) {
+            throw new IllegalArgumentException("maxSize 必须大于 0");
+        }
+        this.name = name;
+        this.region = KEY_PREFIX + name;
+        this.loader = loader;
+        this.options = options;
+        this.redisTemplate = options.isRedisEnabled() && codec != null ? redisTemplate : null;
+        this.codec = codec;
+        this.loadLock = this.redisTemplate == null ? null : new RedisLoadLock(this.redisTemplate);
+        this.executor = executor;
+        int maxSize = options.getMaxSize();
+        this.local = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 读取
+     *
+     * @param key key
+     * @return 值，加载结果为 null 时返回 null
+     */
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        Entry<V> entry = getLocal(key);
+        if (entry != null && now < entry.staleUntil) {
+            if (!shouldRefresh(entry, now)) {
+                hits.increment();
+                return entry.value;
+            }
+            if (now < entry.freshUntil) {
+                earlyRefreshes.increment();
+            } else {
+                staleHits.increment();
+            }
+            refreshAsync(key);
+            return entry.value;
+        }
+        misses.increment();
+        return singleFlight.execute(key, () -> load(key));
+    }
+
+    /**
+     * 在后台重新加载（同一个 key 正在加载时返回其 Future）
+     *
+     * @param key key
+     * @return 加载结果 Future
+     */
+    public CompletableFuture<V> refresh(K key) {
+        return singleFlight.executeAsync(key, () -> load(key), executor);
+    }
+
+    /**
+     * 清除一个 key（进程内和 Redis）
+     *
+     * 在事务中调用时，事务结束后再清除一次，防止事务提交前其他线程把旧数据加载回缓存
+     *
+     * @param key key
+     */
+    public void invalidate(K key) {
+        runNowAndAfterCompletion(() -> {
+            evict(key);
+            CacheInvalidationPublisher publisher = invalidationPublisher;
+            if (publisher != null) {
+                publisher.publish(region, Collections.singletonList(String.valueOf(key)));
+            }
+        });
+    }
+
+    /**
+     * 清除全部 key（进程内和 Redis）
+     */
+    public void invalidateAll() {
+        runNowAndAfterCompletion(() -> {
+            evictAll();
+            CacheInvalidationPublisher publisher = invalidationPublisher;
+            if (publisher != null) {
+                publisher.publishAll(region);
+            }
+        });
+    }
+
+    /**
+     * 设置失效广播
+     *
+     * @param invalidationPublisher 失效广播
+     */
+    public void setInvalidationPublisher(CacheInvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // ==================== 其他节点的失效（只清除进程内缓存） ====================
+
+    @Override
+    public void onInvalidate(String region, Collection<String> keys) {
+        if (!this.region.equals(region)) {
+            return;
+        }
+        synchronized (local) {
+            generation.incrementAndGet();
+            local.keySet().removeIf(key -> keys.contains(String.valueOf(key)));
+        }
+    }
+
+    @Override
+    public void onInvalidateAll(String region) {
+        if (this.region.equals(region)) {
+            onFlush();
+        }
+    }
+
+    @Override
+    public void onFlush() {
+        synchronized (local) {
+            generation.incrementAndGet();
+            local.clear();
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return hits：新鲜命中；earlyRefreshes：提前刷新；staleHits：返回旧值并后台刷新；misses：同步加载；
+     * redisHits：从 Redis 读到可用值；sourceLoads：调用加载函数的次数；loadFailures：加载失败；
+     * lockContended：加载锁被其他节点持有；redisErrors：Redis 读写失败；
+     * loadExecutions / loadShared：单飞执行次数 / 共享结果次数；size：进程内 key 数
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("earlyRefreshes", earlyRefreshes.sum());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("redisHits", redisHits.sum());
+        stats.put("sourceLoads", sourceLoads.sum());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("lockContended", lockContended.sum());
+        stats.put("redisErrors", redisErrors.sum());
+        Map<String, Long> flightStats = singleFlight.getStats();
+        stats.put("loadExecutions", flightStats.get("executions"));
+        stats.put("loadShared", flightStats.get("shared"));
+        synchronized (local) {
+            stats.put("size", (long) local.size());
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    // ==================== 加载 ====================
+
+    private void refreshAsync(K key) {
+        if (singleFlight.isInFlight(key)) {
+            return;
+        }
+        refresh(key).whenComplete((value, e) -> {
+            if (e != null) {
+                System.out.println("缓存【" + name + "】后台刷新失败，继续使用旧值：" + key + "，" + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 加载一个 key：先读 Redis，需要查询时抢加载锁，没抢到则使用旧值或等待其他节点写入
+     */
+    private V load(K key) {
+        long gen = generation.get();
+        if (redisTemplate == null) {
+            return loadFromSource(key, gen);
+        }
+        String redisKey = redisKey(key);
+        long now = System.currentTimeMillis();
+        Entry<V> remote = readRemote(redisKey, now);
+        if (remote != null && !shouldRefresh(remote, now)) {
+            redisHits.increment();
+            putLocal(key, remote, gen);
+            return remote.value;
+        }
+
+        String lockKey = redisKey + LOCK_SUFFIX;
+        String token;
+        try {
+            token = loadLock.tryLock(lockKey, options.getLockTtlMillis());
+        } catch (RuntimeException e) {
+            redisError("加锁", e);
+            return loadFromSource(key, gen);
+        }
+        if (token != null) {
+            try {
+                return loadFromSource(key, gen);
+            } finally {
+                loadLock.unlock(lockKey, token);
+            }
+        }
+
+        lockContended.increment();
+        if (remote != null) {
+            // 其他节点正在刷新：先使用旧值，lockWaitMillis 后再检查 Redis
+            long recheckAt = Math.min(now + options.getLockWaitMillis(), remote.staleUntil);
+            putLocal(key, new Entry<>(remote.value, 0, recheckAt, remote.staleUntil), gen);
+            return remote.value;
+        }
+        Entry<V> awaited = awaitRemote(redisKey, now + options.getLockWaitMillis());
+        if (awaited != null) {
+            redisHits.increment();
+            putLocal(key, awaited, gen);
+            return awaited.value;
+        }
+        System.out.println("等待缓存【" + name + "】其他节点加载超时，直接加载：" + key);
+        return loadFromSource(key, gen);
+    }
+
+    private V loadFromSource(K key, long gen) {
+        long start = System.currentTimeMillis();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            throw e;
+        }
+        sourceLoads.increment();
+        if (value == null) {
+            return null;
+        }
+        long end = System.currentTimeMillis();
+        Entry<V> entry = new Entry<>(value, end - start,
+                end + options.getFreshTtlMillis(), end + options.getStaleTtlMillis());
+        if (putLocal(key, entry, gen) && redisTemplate != null) {
+            writeRemote(redisKey(key), entry, end);
+        }
+        return value;
+    }
+
+    /**
+     * XFetch：当前时间 + 加载耗时 × beta × -ln(随机数) 超过新鲜期时刷新
+     */
+    private boolean shouldRefresh(Entry<V> entry, long now) {
+        if (now >= entry.freshUntil) {
+            return true;
+        }
+        double beta = options.getEarlyExpirationBeta();
+        if (beta <= 0 || entry.computeMillis <= 0) {
+            return false;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return now - entry.computeMillis * beta * Math.log(random) >= entry.freshUntil;
+    }
+
+    // ==================== 进程内 ====================
+
+    private Entry<V> getLocal(K key) {
+        synchronized (local) {
+            return local.get(key);
+        }
+    }
+
+    /**
+     * 写入进程内缓存
+     *
+     * @return 加载期间缓存没有被清除、已写入时返回 true
+     */
+    private boolean putLocal(K key, Entry<V> entry, long gen) {
+        synchronized (local) {
+            if (generation.get() != gen) {
+                return false;
+            }
+            local.put(key, entry);
+            return true;
+        }
+    }
+
+    private void evict(K key) {
+        synchronized (local) {
+            generation.incrementAndGet();
+            local.remove(key);
+        }
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.delete(redisKey(key));
+            } catch (RuntimeException e) {
+                redisError("清除", e);
+            }
+        }
+    }
+
+    private void evictAll() {
+        synchronized (local) {
+            generation.incrementAndGet();
+            local.clear();
+        }
+        if (redisTemplate == null) {
+            return;
+        }
+        String pattern = region + ":*";
+        try {
+            List<String> keys = new ArrayList<>();
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                scan(connection, pattern, keys);
+                return null;
+            });
+            if (!keys.isEmpty()) {
+                redisTemplate.delete(keys);
+            }
+        } catch (RuntimeException e) {
+            redisError("清除", e);
+        }
+    }
+
+    private static void scan(RedisConnection connection, String pattern, List<String> keys) {
+        try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(500).build())) {
+            while (cursor.hasNext()) {
+                String key = new String(cursor.next(), StandardCharsets.UTF_8);
+                if (!key.endsWith(LOCK_SUFFIX)) {
+                    keys.add(key);
+                }
+            }
+        }
+    }
+
+    private static void runNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    // ==================== Redis ====================
+
+    private String redisKey(K key) {
+        return region + ":" + key;
+    }
+
+    /**
+     * Redis 中的值格式：freshUntil:staleUntil:computeMillis:序列化后的值，过期时间为 staleUntil
+     */
+    private void writeRemote(String redisKey, Entry<V> entry, long now) {
+        try {
+            String text = entry.freshUntil + ":" + entry.staleUntil + ":" + entry.computeMillis + ":"
+                    + codec.encode(entry.value);
+            redisTemplate.opsForValue().set(redisKey, text, entry.staleUntil - now, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            redisError("写入", e);
+        }
+    }
+
+    private Entry<V> readRemote(String redisKey, long now) {
+        String text;
+        try {
+            text = redisTemplate.opsForValue().get(redisKey);
+        } catch (RuntimeException e) {
+            redisError("读取", e);
+            return null;
+        }
+        if (text == null) {
+            return null;
+        }
+        try {
+            int first = text.indexOf(':');
+            int second = text.indexOf(':', first + 1);
+            int third = text.indexOf(':', second + 1);
+            long freshUntil = Long.parseLong(text.substring(0, first));
+            long staleUntil = Long.parseLong(text.substring(first + 1, second));
+            long computeMillis = Long.parseLong(text.substring(second + 1, third));
+            if (now >= staleUntil) {
+                return null;
+            }
+            return new Entry<>(codec.decode(text.substring(third + 1)), computeMillis, freshUntil, staleUntil);
+        } catch (RuntimeException e) {
+            // 格式不对或类型已变更，当作不存在，加载后覆盖
+            System.out.println("缓存【" + name + "】Redis 值无法解析：" + redisKey + "，" + e.getMessage());
+            return null;
+        }
+    }
+
+    private Entry<V> awaitRemote(String redisKey, long deadline) {
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Entry<V> entry = readRemote(redisKey, System.currentTimeMillis());
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void redisError(String action, RuntimeException e) {
+        redisErrors.increment();
+        System.out.println("缓存【" + name + "】Redis " + action + "失败：" + e.getMessage());
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long computeMillis;
+        private final long freshUntil;
+        private final long staleUntil;
+
+        private Entry(V value, long computeMillis, long freshUntil, long staleUntil) {
+            this.value = value;
+            this.computeMillis = computeMillis;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.enterprisesystem.babycommon.loader;
+
+import com.enterprisesystem.babycommon.cache.CacheInvalidationBus;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * RefreshingCache 工厂
+ *
+ * 持有容器中的 StringRedisTemplate（可能为空），业务代码通过它创建缓存，不需要自己注入 Redis；
+ * 同时登记所有创建的缓存，便于查看统计和接入集群失效广播。
+ */
+public class RefreshingCacheFactory {
+
+    private final StringRedisTemplate redisTemplate;
+    private final Executor executor;
+    private final Map<String, RefreshingCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private volatile CacheInvalidationBus invalidationBus;
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate Redis，为 null 时创建的缓存只使用进程内缓存
+     */
+    public RefreshingCacheFactory(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, BatchLoader.defaultExecutor());
+    }
+
+    public RefreshingCacheFactory(StringRedisTemplate redisTemplate, Executor executor) {
+        this.redisTemplate = redisTemplate;
+        this.executor = executor;
+    }
+
+    /**
+     * 创建缓存（有 Redis 且 options.redisEnabled 为 true 时使用 Redis 共享层）
+     *
+     * @param name    缓存名称，不能重复
+     * @param loader  加载函数
+     * @param options 选项
+     * @param codec   值序列化方式
+     * @param <K>     key 类型
+     * @param <V>     值类型
+     * @return 缓存
+     */
+    public <K, V> RefreshingCache<K, V> create(String name, Function<K, V> loader, RefreshingCacheOptions options,
+                                               ValueCodec<V> codec) {
+        return register(new RefreshingCache<>(name, loader, options, redisTemplate, codec, executor));
+    }
+
+    /**
+     * 创建只使用进程内缓存的缓存
+     *
+     * @param name    缓存名称，不能重复
+     * @param loader  加载函数
+     * @param options 选项
+     * @param <K>     key 类型
+     * @param <V>     值类型
+     * @return 缓存
+     */
+    public <K, V> RefreshingCache<K, V> createLocal(String name, Function<K, V> loader, RefreshingCacheOptions options) {
+        return register(new RefreshingCache<>(name, loader, options, null, null, executor));
+    }
+
+    /**
+     * 接入集群失效广播：已创建和之后创建的缓存都会广播自己的失效并处理其他节点的失效
+     *
+     * @param invalidationBus 失效总线
+     */
+    public synchronized void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        for (RefreshingCache<?, ?> cache : caches.values()) {
+            attach(cache, invalidationBus);
+        }
+    }
+
+    /**
+     * 按名称查找缓存
+     *
+     * @param name 缓存名称
+     * @return 缓存，不存在时返回 null
+     */
+    public RefreshingCache<?, ?> getCache(String name) {
+        return caches.get(name);
+    }
+
+    /**
+     * 所有缓存的统计
+     *
+     * @return 缓存名称 -> 统计
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, RefreshingCache<?, ?>> entry : caches.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    private synchronized <K, V> RefreshingCache<K, V> register(RefreshingCache<K, V> cache) {
+        if (caches.putIfAbsent(cache.getName(), cache) != null) {
+            throw new IllegalArgumentException("缓存名称重复：" + cache.getName());
+        }
+        if (invalidationBus != null) {
+            attach(cache, invalidationBus);
+        }
+        return cache;
+    }
+
+    private static void attach(RefreshingCache<?, ?> cache, CacheInvalidationBus invalidationBus) {
+        cache.setInvalidationPublisher(invalidationBus);
+        invalidationBus.addHandler(cache);
+    }
+}
@@ -0,0 +1,63 @@
+package com.enterprisesystem.babycommon.loader;
+
+import lombok.Data;
+
+/**
+ * RefreshingCache 选项
+ */
+@Data
+public class RefreshingCacheOptions {
+
+    /**
+     * 新鲜期（毫秒）：加载后这段时间内直接返回缓存值
+     */
+    private long freshTtlMillis = 60_000;
+
+    /**
+     * 最长保留时间（毫秒，从加载时算起，应不小于 freshTtlMillis）：
+     * 过了新鲜期但还在保留时间内的值仍然直接返回，同时在后台重新加载一次；超过保留时间后同步加载
+     */
+    private long staleTtlMillis = 600_000;
+
+    /**
+     * 提前过期系数（XFetch 算法的 beta），0 表示不提前
+     *
+     * 每次读取时以 加载耗时 × beta × -ln(随机数) 的概率提前触发后台刷新，加载越慢、越接近过期越容易提前，
+     * 使大量节点 / 线程的刷新时间分散开，而不是在同一时刻一起过期
+     */
+    private double earlyExpirationBeta = 1.0;
+
+    /**
+     * 进程内最多缓存的 key 数，超过时淘汰最久未访问的
+     */
+    private int maxSize = 1000;
+
+    /**
+     * 是否使用 Redis 共享层（容器中没有 StringRedisTemplate 时忽略）
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * 分布式加载锁的过期时间（毫秒），应大于一次加载的最长耗时
+     */
+    private long lockTtlMillis = 10_000;
+
+    /**
+     * 没有拿到加载锁且没有可用旧值时，等待其他节点写入新值的最长时间（毫秒），超时后自行加载
+     */
+    private long lockWaitMillis = 1_000;
+
+    /**
+     * 静态工厂方法
+     *
+     * @param freshTtlMillis 新鲜期（毫秒）
+     * @param staleTtlMillis 最长保留时间（毫秒）
+     * @return 选项
+     */
+    public static RefreshingCacheOptions of(long freshTtlMillis, long staleTtlMillis) {
+        RefreshingCacheOptions options = new RefreshingCacheOptions();
+        options.setFreshTtlMillis(freshTtlMillis);
+        options.setStaleTtlMillis(staleTtlMillis);
+        return options;
+    }
+}
@@ -0,0 +1,132 @@
+package com.enterprisesystem.babycommon.loader;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 单飞（single-flight）加载
+ *
+ * 【作用】
+ * 同一个 key 同一时刻只执行一次加载：第一个调用方执行加载，加载期间到达的其他调用方等待并共享同一个结果，
+ * 加载完成后立即移除，下一次调用重新加载。用于防止热点 key 过期瞬间大量请求同时穿透到数据库。
+ *
+ * <pre>
+ * {@code
+ * SingleFlight<Integer, UserDto> flight = new SingleFlight<>();
+ * UserDto user = flight.execute(id, () -> loadFromDb(id));
+ * }
+ * </pre>
+ *
+ * @param <K> key 类型
+ * @param <V> 值类型
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * 在当前线程中加载，同一个 key 正在加载时等待其结果
+     *
+     * @param key    key
+     * @param loader 加载函数
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, future);
+        if (existing != null) {
+            shared.increment();
+            return join(existing);
+        }
+        run(key, future, loader);
+        return join(future);
+    }
+
+    /**
+     * 在线程池中加载，同一个 key 正在加载时直接返回其 Future
+     *
+     * @param key      key
+     * @param loader   加载函数
+     * @param executor 执行加载的线程池
+     * @return 加载结果 Future
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<V> loader, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, future);
+        if (existing != null) {
+            shared.increment();
+            return existing;
+        }
+        try {
+            executor.execute(() -> run(key, future, loader));
+        } catch (RuntimeException e) {
+            calls.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * key 是否正在加载
+     *
+     * @param key key
+     * @return 是否正在加载
+     */
+    public boolean isInFlight(K key) {
+        return calls.containsKey(key);
+    }
+
+    /**
+     * 统计
+     *
+     * @return executions：实际执行加载的次数；shared：共享其他调用方加载结果的次数；inFlight：正在加载的 key 数
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("shared", shared.sum());
+        stats.put("inFlight", (long) calls.size());
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * 先移除再完成 Future：调用方拿到结果后立即发起的下一次调用（如缓存失效后重新加载）不会再共享到这次的旧结果
+     */
+    private void run(K key, CompletableFuture<V> future, Supplier<V> loader) {
+        executions.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            calls.remove(key, future);
+            future.completeExceptionally(e);
+            return;
+        }
+        calls.remove(key, future);
+        future.complete(value);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.enterprisesystem.babycommon.loader;
+
+/**
+ * 缓存值与 Redis 字符串之间的转换
+ *
+ * @param <V> 值类型
+ */
+public interface ValueCodec<V> {
+
+    /**
+     * 序列化
+     *
+     * @param value 值（不为 null）
+     * @return 字符串
+     */
+    String encode(V value);
+
+    /**
+     * 反序列化
+     *
+     * @param text 字符串
+     * @return 值
+     */
+    V decode(String text);
+}
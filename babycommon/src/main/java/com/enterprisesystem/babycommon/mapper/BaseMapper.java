@@ -1,6 +1,16 @@
 package com.enterprisesystem.babycommon.mapper;
 
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import com.enterprisesystem.babycommon.query.GenericSqlProvider;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.apache.ibatis.annotations.DeleteProvider;
+import org.apache.ibatis.annotations.InsertProvider;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.util.List;
 
@@ -8,6 +18,9 @@ import java.util.List;
  * 通用 Mapper 接口
  * 提供基础的 CRUD 操作方法定义，减少重复代码
  *
+ * 带 @XxxProvider 注解的方法由 GenericSqlProvider 按实体元数据生成 SQL，子接口无需再声明；
+ * 其余方法由子接口通过注解或 XML 提供 SQL
+ *
  * @param <T> 实体类型
  * @param <ID> 主键类型
  * @author Claude Code
@@ -23,13 +36,24 @@ public interface BaseMapper<T, ID> {
     int insert(T entity);
 
     /**
-     * 批量插入记录
+     * 批量插入记录（一条多行 INSERT）
+     *
+     * 实现时通常使用 BaseSqlProvider.batchInsert 作为 @InsertProvider
      *
      * @param entities 实体对象列表
      * @return 影响行数
      */
     int batchInsert(@Param("list") List<T> entities);
 
+    /**
+     * 批量插入或更新记录（INSERT ... ON DUPLICATE KEY UPDATE）
+     *
+     * @param entities 实体对象列表
+     * @return 影响行数（MySQL 中插入的行计 1，更新的行计 2）
+     */
+    @InsertProvider(type = GenericSqlProvider.class, method = "batchUpsert")
+    int batchUpsert(@Param("list") List<T> entities);
+
     /**
      * 选择性插入记录（忽略 null 字段）
      *
@@ -55,7 +79,44 @@ public interface BaseMapper<T, ID> {
     int updateSelective(T entity);
 
     /**
-     * 批量更新记录
+     * 乐观锁更新记录（按版本号比较并交换），写入全部可更新字段
+     *
+     * @param entity 实体对象（必须包含主键和读取时的版本号）
+     * @return 影响行数（0 表示版本冲突）
+     */
+    default int updateWithVersion(T entity) {
+        return updateColumnsWithVersion(entity, EntityMetadataRegistry.get(entity.getClass()).getUpdateProperties());
+    }
+
+    /**
+     * 乐观锁更新指定字段（按版本号比较并交换）
+     *
+     * 按实体元数据生成：UPDATE xxx SET c1 = ..., revision = revision + 1 WHERE id = #{id} AND revision = #{revision}，
+     * 版本号字段由 @Version 标记或名为 revision。BaseService.updateWithRetry 依赖此方法，只写入修改函数改动过的字段
+     *
+     * @param entity     实体对象（必须包含主键和读取时的版本号）
+     * @param properties 需要更新的属性名
+     * @return 影响行数（0 表示版本冲突）
+     */
+    @UpdateProvider(type = GenericSqlProvider.class, method = "updateColumnsWithVersion")
+    int updateColumnsWithVersion(@Param("entity") T entity, @Param("properties") List<String> properties);
+
+    /**
+     * 只更新指定字段（字段值为 null 时写入 NULL）
+     *
+     * BaseService.updateChanged 依赖此方法，只写入实体读取后修改过的字段
+     *
+     * @param entity     实体对象（必须包含主键）
+     * @param properties 需要更新的属性名
+     * @return 影响行数
+     */
+    @UpdateProvider(type = GenericSqlProvider.class, method = "updateColumnsById")
+    int updateColumnsById(@Param("entity") T entity, @Param("properties") List<String> properties);
+
+    /**
+     * 批量更新记录（一条 UPDATE ... SET col = CASE id WHEN ... END）
+     *
+     * 实现时通常使用 BaseSqlProvider.batchUpdate 作为 @UpdateProvider
      *
      * @param entities 实体对象列表
      * @return 影响行数
@@ -78,6 +139,36 @@ public interface BaseMapper<T, ID> {
      */
     int deleteByIds(@Param("ids") List<ID> ids);
 
+    /**
+     * 根据 LambdaQueryWrapper 删除记录
+     *
+     * 一次删除大量行时使用 BaseService.deleteInChunks 分块执行
+     *
+     * @param wrapper 删除条件
+     * @return 影响行数
+     */
+    @DeleteProvider(type = GenericSqlProvider.class, method = "deleteByWrapper")
+    int deleteByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper);
+
+    /**
+     * 根据 LambdaQueryWrapper 选择性更新记录（只更新 entity 中不为 null 的字段）
+     *
+     * @param entity  更新值
+     * @param wrapper 更新条件
+     * @return 影响行数
+     */
+    @UpdateProvider(type = GenericSqlProvider.class, method = "updateSelectiveByWrapper")
+    int updateSelectiveByWrapper(@Param("entity") T entity, @Param("wrapper") LambdaQueryWrapper<T> wrapper);
+
+    /**
+     * 根据 LambdaQueryWrapper 查询主键列表（包含 ORDER BY 和 LIMIT）
+     *
+     * @param wrapper 查询条件
+     * @return 主键列表
+     */
+    @SelectProvider(type = GenericSqlProvider.class, method = "selectIdsByWrapper")
+    List<ID> selectIdsByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper);
+
     /**
      * 根据条件删除记录
      *
@@ -109,6 +200,28 @@ public interface BaseMapper<T, ID> {
      */
     List<T> selectAll();
 
+    /**
+     * 流式查询所有记录
+     *
+     * 返回的 Cursor 逐行读取结果集，需要在事务中使用，推荐通过 BaseService.streamAll() 调用。
+     * 方法名以 stream 开头，StreamingFetchSizeInterceptor 会自动设置流式读取的 fetchSize
+     *
+     * @return 记录游标
+     */
+    @SelectProvider(type = GenericSqlProvider.class, method = "findAll")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY)
+    Cursor<T> streamAll();
+
+    /**
+     * 根据 LambdaQueryWrapper 流式查询记录
+     *
+     * @param wrapper 查询条件
+     * @return 记录游标
+     */
+    @SelectProvider(type = GenericSqlProvider.class, method = "findByWrapper")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY)
+    Cursor<T> streamByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper);
+
     /**
      * 根据条件查询单条记录
      *
@@ -140,6 +253,24 @@ public interface BaseMapper<T, ID> {
      */
     Long countByCondition(T entity);
 
+    /**
+     * 根据 LambdaQueryWrapper 查询记录列表（包含 ORDER BY 和 LIMIT）
+     *
+     * @param wrapper 查询条件
+     * @return 实体对象列表
+     */
+    @SelectProvider(type = GenericSqlProvider.class, method = "findByWrapper")
+    List<T> selectByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper);
+
+    /**
+     * 根据 LambdaQueryWrapper 统计记录数（忽略 ORDER BY 和 LIMIT）
+     *
+     * @param wrapper 查询条件
+     * @return 记录总数
+     */
+    @SelectProvider(type = GenericSqlProvider.class, method = "countByWrapper")
+    Long countByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper);
+
     /**
      * 查询记录是否存在
      *
@@ -0,0 +1,22 @@
+package com.enterprisesystem.babycommon.model;
+
+/**
+ * 页码分页的总数统计方式
+ */
+public enum CountMode {
+
+    /**
+     * 精确总数（默认）：COUNT 与当前页查询并行执行，相同条件的 COUNT 结果短时间缓存
+     */
+    EXACT,
+
+    /**
+     * 估算总数：读取表统计信息 / 执行计划中的估算行数，不执行 COUNT，适合大表的模糊搜索
+     */
+    ESTIMATED,
+
+    /**
+     * 不统计总数：多查一行判断是否有下一页，适合只提供「上一页 / 下一页」的列表
+     */
+    HAS_NEXT
+}
@@ -0,0 +1,176 @@
+package com.enterprisesystem.babycommon.model;
+
+import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页的游标
+ *
+ * 【内容】
+ * 上一页最后一行的 (排序字段值, 主键值)，以及排序字段和方向。
+ * 编码为 URL 安全的 Base64 字符串返回给前端，前端原样传回即可，不需要关心其中的内容。
+ *
+ * 排序字段和方向也写入游标，翻页过程中请求的排序方式发生变化时可以直接识别出来。
+ */
+public class PageCursor {
+
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_DATE = 4;
+    private static final byte TYPE_DECIMAL = 5;
+    private static final byte TYPE_DOUBLE = 6;
+
+    /**
+     * 排序属性名
+     */
+    private final String sortField;
+
+    /**
+     * 是否升序
+     */
+    private final boolean asc;
+
+    /**
+     * 上一页最后一行的排序字段值
+     */
+    private final Object sortValue;
+
+    /**
+     * 上一页最后一行的主键值
+     */
+    private final Object idValue;
+
+    public PageCursor(String sortField, boolean asc, Object sortValue, Object idValue) {
+        this.sortField = sortField;
+        this.asc = asc;
+        this.sortValue = sortValue;
+        this.idValue = idValue;
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public boolean isAsc() {
+        return asc;
+    }
+
+    public Object getSortValue() {
+        return sortValue;
+    }
+
+    public Object getIdValue() {
+        return idValue;
+    }
+
+    /**
+     * 编码为字符串
+     *
+     * @return URL 安全的 Base64 字符串
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(sortField);
+            out.writeBoolean(asc);
+            writeValue(out, sortValue);
+            writeValue(out, idValue);
+        } catch (IOException e) {
+            throw new SystemRuntimeException("游标编码失败：" + e.getMessage());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * 解析游标字符串
+     *
+     * @param cursor encode() 生成的字符串
+     * @return 游标对象
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                if (in.readByte() != VERSION) {
+                    throw new SystemRuntimeException("不支持的分页游标版本");
+                }
+                String sortField = in.readUTF();
+                boolean asc = in.readBoolean();
+                Object sortValue = readValue(in);
+                Object idValue = readValue(in);
+                return new PageCursor(sortField, asc, sortValue, idValue);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            throw new SystemRuntimeException("无效的分页游标：" + cursor);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Date) {
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TYPE_DECIMAL);
+            out.writeUTF(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_STRING:
+                return in.readUTF();
+            case TYPE_DATE:
+                return new Date(in.readLong());
+            case TYPE_DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            default:
+                throw new IOException("未知的值类型：" + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor{" +
+                "sortField='" + sortField + '\'' +
+                ", asc=" + asc +
+                ", sortValue=" + sortValue +
+                ", idValue=" + idValue +
+                '}';
+    }
+}
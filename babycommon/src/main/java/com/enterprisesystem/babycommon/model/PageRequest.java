@@ -30,6 +30,24 @@ public class PageRequest {
      */
     private String sortOrder;
 
+    /**
+     * 游标（游标分页时使用，第一页传 null，之后传上一页返回的 nextCursor）
+     */
+    private String cursor;
+
+    /**
+     * 是否使用游标分页（cursor 不为空时自动使用游标分页）
+     *
+     * 游标分页按 (排序字段, 主键) 定位，不执行 OFFSET 和 COUNT，翻到多深都是同样的查询耗时，
+     * 但只能逐页向后翻，不支持跳页
+     */
+    private Boolean cursorMode;
+
+    /**
+     * 总数统计方式（页码分页时使用），为 null 时按 EXACT 处理
+     */
+    private CountMode countMode;
+
     /**
      * 构造函数
      */
@@ -58,6 +76,60 @@ public class PageRequest {
         return new PageRequest(page, pageSize);
     }
 
+    /**
+     * 游标分页静态工厂方法
+     *
+     * @param cursor   上一页返回的 nextCursor，第一页传 null
+     * @param pageSize 每页大小
+     * @return 分页请求对象
+     */
+    public static PageRequest ofCursor(String cursor, Integer pageSize) {
+        PageRequest request = new PageRequest(1, pageSize);
+        request.setCursor(cursor);
+        request.setCursorMode(true);
+        return request;
+    }
+
+    /**
+     * 不统计总数的页码分页静态工厂方法（只返回是否有下一页）
+     *
+     * @param page     当前页码
+     * @param pageSize 每页大小
+     * @return 分页请求对象
+     */
+    public static PageRequest ofHasNext(Integer page, Integer pageSize) {
+        PageRequest request = new PageRequest(page, pageSize);
+        request.setCountMode(CountMode.HAS_NEXT);
+        return request;
+    }
+
+    /**
+     * 总数统计方式
+     *
+     * @return 未设置时返回 EXACT
+     */
+    public CountMode resolveCountMode() {
+        return countMode == null ? CountMode.EXACT : countMode;
+    }
+
+    /**
+     * 是否使用游标分页
+     *
+     * @return true-游标分页，false-页码分页
+     */
+    public boolean isCursorPaging() {
+        return Boolean.TRUE.equals(cursorMode) || (cursor != null && !cursor.isEmpty());
+    }
+
+    /**
+     * 是否升序（sortOrder 不是 DESC 时均视为升序）
+     *
+     * @return true-升序，false-降序
+     */
+    public boolean isAsc() {
+        return !"DESC".equalsIgnoreCase(sortOrder);
+    }
+
     /**
      * 计算偏移量
      *
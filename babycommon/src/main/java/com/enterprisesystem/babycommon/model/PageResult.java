@@ -2,7 +2,9 @@ package com.enterprisesystem.babycommon.model;
 
 import lombok.Data;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * 通用分页结果对象
@@ -38,6 +40,21 @@ public class PageResult<T> {
      */
     private List<T> records;
 
+    /**
+     * 下一页游标（游标分页时返回，为 null 表示没有下一页）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否有下一页（CountMode.HAS_NEXT 时返回，此时 total 和 totalPages 为 null）
+     */
+    private Boolean hasNextPage;
+
+    /**
+     * total 是否为估算值（CountMode.ESTIMATED 时为 true）
+     */
+    private Boolean totalEstimated;
+
     /**
      * 构造函数
      */
@@ -74,6 +91,84 @@ public class PageResult<T> {
         return new PageResult<>(page, pageSize, total, records);
     }
 
+    /**
+     * 游标分页静态工厂方法（不统计总记录数）
+     *
+     * @param pageSize   每页大小
+     * @param records    数据列表
+     * @param nextCursor 下一页游标，没有下一页时为 null
+     * @param <T>        数据类型
+     * @return 分页结果对象
+     */
+    public static <T> PageResult<T> ofCursor(Integer pageSize, List<T> records, String nextCursor) {
+        PageResult<T> result = new PageResult<>();
+        result.setPageSize(pageSize);
+        result.setRecords(records);
+        result.setNextCursor(nextCursor);
+        return result;
+    }
+
+    /**
+     * 不统计总数的页码分页静态工厂方法
+     *
+     * @param page        当前页码
+     * @param pageSize    每页大小
+     * @param records     数据列表
+     * @param hasNextPage 是否有下一页
+     * @param <T>         数据类型
+     * @return 分页结果对象
+     */
+    public static <T> PageResult<T> ofHasNext(Integer page, Integer pageSize, List<T> records, boolean hasNextPage) {
+        PageResult<T> result = new PageResult<>();
+        result.setPage(page);
+        result.setPageSize(pageSize);
+        result.setRecords(records);
+        result.setHasNextPage(hasNextPage);
+        return result;
+    }
+
+    /**
+     * 估算总数的静态工厂方法
+     *
+     * @param page     当前页码
+     * @param pageSize 每页大小
+     * @param total    估算的总记录数
+     * @param records  数据列表
+     * @param <T>      数据类型
+     * @return 分页结果对象
+     */
+    public static <T> PageResult<T> ofEstimated(Integer page, Integer pageSize, Long total, List<T> records) {
+        PageResult<T> result = new PageResult<>(page, pageSize, total, records);
+        result.setTotalEstimated(true);
+        return result;
+    }
+
+    /**
+     * 转换当前页数据（如实体转换为 DTO），分页信息保持不变
+     *
+     * @param converter 转换函数
+     * @param <R>       转换后的数据类型
+     * @return 新的分页结果对象
+     */
+    public <R> PageResult<R> map(Function<? super T, ? extends R> converter) {
+        PageResult<R> result = new PageResult<>();
+        result.setPage(page);
+        result.setPageSize(pageSize);
+        result.setTotal(total);
+        result.setTotalPages(totalPages);
+        result.setNextCursor(nextCursor);
+        result.setHasNextPage(hasNextPage);
+        result.setTotalEstimated(totalEstimated);
+        if (records != null) {
+            List<R> converted = new ArrayList<>(records.size());
+            for (T record : records) {
+                converted.add(converter.apply(record));
+            }
+            result.setRecords(converted);
+        }
+        return result;
+    }
+
     /**
      * 计算总页数
      *
@@ -94,6 +189,12 @@ public class PageResult<T> {
      * @return true-有下一页，false-无下一页
      */
     public boolean hasNext() {
+        if (nextCursor != null) {
+            return true;
+        }
+        if (hasNextPage != null) {
+            return hasNextPage;
+        }
         return page != null && totalPages != null && page < totalPages;
     }
 
@@ -0,0 +1,242 @@
+package com.enterprisesystem.babycommon.mq.consumer;
+
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.core.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量消息消费者基类
+ *
+ * 【功能说明】
+ * - 一次接收一批消息（最多 batch-size 条），一起处理（例如一次批量写库）
+ * - 成功的消息用一次 multiple=true 的 ack 确认，只对失败的消息单独 nack
+ * - 整批处理抛出异常时逐条重新处理，只拒绝真正失败的消息
+ * - 配置了 MessageDeduplicator 时先按 messageId 去重，重复的消息直接确认，不交给 processBatch
+ * - 每次调用 processBatch 都在独立的数据源路由作用域中，批次内写入后的读取走主库
+ *
+ * 【使用示例】
+ * <pre>
+ * {@code
+ * @Component
+ * public class DepartmentChangeConsumer extends BaseBatchMessageConsumer {
+ *
+ *     @RabbitListener(queues = RabbitMQConfig.QUEUE_DEPARTMENT,
+ *                     containerFactory = BaseBatchMessageConsumer.CONTAINER_FACTORY)
+ *     public void onMessages(List<Message> messages, Channel channel) {
+ *         consumeBatch(messages, channel);
+ *     }
+ *
+ *     @Override
+ *     protected List<Message> processBatch(List<Message> messages) {
+ *         // 一次批量写库，返回处理失败的消息（全部成功返回空列表）
+ *         departmentLogMapper.insertBatch(convert(messages));
+ *         return Collections.emptyList();
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * 批次大小、等待时间、预取数量见 BatchMessageConsumerAutoConfiguration。
+ */
+public abstract class BaseBatchMessageConsumer extends BaseMessageConsumer {
+
+    /**
+     * 批量监听容器工厂的 Bean 名称
+     */
+    public static final String CONTAINER_FACTORY = "batchRabbitListenerContainerFactory";
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * 处理一批消息
+     *
+     * @param messages 消息，按投递顺序排列
+     * @return 处理失败的消息（必须是 messages 中的对象），全部成功时返回空列表
+     * @throws Exception 整批失败，之后会逐条调用本方法重新处理
+     */
+    protected abstract List<Message> processBatch(List<Message> messages) throws Exception;
+
+    /**
+     * 失败的消息是否重新入队
+     *
+     * 默认第一次失败重新入队，再次投递仍失败时拒绝（配置了死信队列时进入死信队列），避免一条坏消息反复重试
+     *
+     * @param message 处理失败的消息
+     * @return true 重新入队，false 丢弃
+     */
+    protected boolean shouldRequeue(Message message) {
+        return !isRedelivered(message);
+    }
+
+    /**
+     * 处理并确认一批消息，在 @RabbitListener 方法中调用
+     *
+     * @param messages 消息
+     * @param channel  RabbitMQ 通道
+     */
+    protected void consumeBatch(List<Message> messages, Channel channel) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        Map<Message, MessageDeduplicator.Claim> claimed = new IdentityHashMap<>();
+        Set<Message> requeuedNow = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Message> toProcess = deduplicate(messages, channel, claimed, requeuedNow);
+        List<Message> failed = Collections.emptyList();
+        if (!toProcess.isEmpty()) {
+            try {
+                failed = processInScope(toProcess);
+            } catch (Exception e) {
+                System.err.println("❌ 批量处理失败，逐条重新处理（" + toProcess.size() + " 条）：" + e.getMessage());
+                failed = processOneByOne(toProcess);
+            }
+            if (failed == null) {
+                failed = Collections.emptyList();
+            }
+        }
+        if (!claimed.isEmpty()) {
+            Set<Message> failedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            failedSet.addAll(failed);
+            MessageDeduplicator deduplicator = getMessageDeduplicator();
+            for (Map.Entry<Message, MessageDeduplicator.Claim> entry : claimed.entrySet()) {
+                if (failedSet.contains(entry.getKey())) {
+                    deduplicator.release(entry.getValue());
+                } else {
+                    deduplicator.complete(entry.getValue());
+                }
+            }
+        }
+        List<Message> toSettle = messages;
+        if (!requeuedNow.isEmpty()) {
+            toSettle = new ArrayList<>(messages);
+            toSettle.removeIf(requeuedNow::contains);
+        }
+        settle(toSettle, failed, channel);
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.sum());
+        stats.put("acked", acked.sum());
+        stats.put("requeued", requeued.sum());
+        stats.put("discarded", discarded.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        stats.put("duplicates", duplicates.sum());
+        return stats;
+    }
+
+    /**
+     * 按 messageId 去重：重复的消息不处理，随批次一起确认；
+     * 其他节点正在处理的重新投递消息立即重新入队，放入 requeuedNow
+     *
+     * @return 需要处理的消息
+     */
+    private List<Message> deduplicate(List<Message> messages, Channel channel,
+                                      Map<Message, MessageDeduplicator.Claim> claimed,
+                                      Set<Message> requeuedNow) {
+        MessageDeduplicator deduplicator = getMessageDeduplicator();
+        if (deduplicator == null) {
+            return messages;
+        }
+        List<Message> toProcess = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            String messageId = MessageDeduplicator.messageIdOf(message);
+            if (messageId == null) {
+                toProcess.add(message);
+                continue;
+            }
+            MessageDeduplicator.Claim claim = deduplicator.tryClaim(consumerName(), messageId);
+            MessageDeduplicator.Result result = claim.getResult();
+            if (result == MessageDeduplicator.Result.CLAIMED) {
+                claimed.put(message, claim);
+                toProcess.add(message);
+            } else if (result == MessageDeduplicator.Result.IN_PROGRESS && isRedelivered(message)) {
+                requeued.increment();
+                rejectAndRequeue(message, channel);
+                requeuedNow.add(message);
+            } else {
+                duplicates.increment();
+            }
+        }
+        return toProcess;
+    }
+
+    private List<Message> processInScope(List<Message> messages) throws Exception {
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+            return processBatch(messages);
+        }
+    }
+
+    private List<Message> processOneByOne(List<Message> messages) {
+        fallbacks.increment();
+        List<Message> failed = new ArrayList<>();
+        for (Message message : messages) {
+            try {
+                List<Message> result = processInScope(Collections.singletonList(message));
+                if (result != null && !result.isEmpty()) {
+                    failed.add(message);
+                }
+            } catch (Exception e) {
+                System.err.println("❌ 消息处理失败，序号：" + message.getMessageProperties().getDeliveryTag()
+                        + "，" + e.getMessage());
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 先逐条 nack 失败的消息，再用一次 multiple ack 确认其余消息
+     *
+     * 同一个消费者的批次按顺序处理，批次中最大序号之前的未确认消息都属于本批次，multiple ack 不会误确认其他消息
+     */
+    private void settle(List<Message> messages, List<Message> failed, Channel channel) {
+        long maxAckTag = -1;
+        if (failed.isEmpty()) {
+            for (Message message : messages) {
+                maxAckTag = Math.max(maxAckTag, message.getMessageProperties().getDeliveryTag());
+            }
+        } else {
+            Set<Long> failedTags = new HashSet<>();
+            for (Message message : failed) {
+                failedTags.add(message.getMessageProperties().getDeliveryTag());
+            }
+            for (Message message : messages) {
+                long deliveryTag = message.getMessageProperties().getDeliveryTag();
+                if (!failedTags.contains(deliveryTag)) {
+                    maxAckTag = Math.max(maxAckTag, deliveryTag);
+                } else if (shouldRequeue(message)) {
+                    requeued.increment();
+                    nackMessage(message, channel, true);
+                } else {
+                    discarded.increment();
+                    nackMessage(message, channel, false);
+                }
+            }
+        }
+        if (maxAckTag >= 0) {
+            ackMultiple(maxAckTag, channel);
+            acked.add(messages.size() - failed.size());
+        }
+    }
+}
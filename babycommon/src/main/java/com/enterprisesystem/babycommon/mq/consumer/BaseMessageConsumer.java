@@ -1,7 +1,10 @@
 package com.enterprisesystem.babycommon.mq.consumer;
 
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
 import com.rabbitmq.client.Channel;
 import org.springframework.amqp.core.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.ClassUtils;
 
 /**
  * 消息消费者基类
@@ -10,6 +13,7 @@ import org.springframework.amqp.core.Message;
  * - 提供消息消费的通用方法
  * - 手动确认消息（ACK）
  * - 消息重试机制
+ * - 按 messageId 幂等去重（consumeOnce，需要 MessageDeduplicator，见 BatchMessageConsumerAutoConfiguration）
  *
  * 【使用示例】
  * <pre>
@@ -43,10 +47,114 @@ import org.springframework.amqp.core.Message;
  * }
  * </pre>
  *
+ * 【幂等消费】
+ * <pre>
+ * {@code
+ * @RabbitListener(queues = "queue.order")
+ * public void onMessage(Message message, Channel channel) {
+ *     // 去重窗口内同一 messageId 只处理一次，成功 ack，失败重新入队
+ *     consumeOnce(message, channel, m -> processOrder(new String(m.getBody())));
+ * }
+ * }
+ * </pre>
+ *
  * @author Claude Code
  */
 public abstract class BaseMessageConsumer {
 
+    /**
+     * 消息处理函数
+     */
+    @FunctionalInterface
+    public interface MessageHandler {
+        void handle(Message message) throws Exception;
+    }
+
+    /**
+     * 幂等去重，未配置时不去重
+     */
+    @Autowired(required = false)
+    private MessageDeduplicator messageDeduplicator;
+
+    /**
+     * 幂等处理一条消息并确认
+     *
+     * 【流程】
+     * - 去重窗口内已处理成功的消息：直接确认，不调用 handler
+     * - 其他节点正在处理的消息：首次投递的副本直接确认（原消息失败时会自己重新入队）；
+     *   重新投递的（处理它的节点可能已宕机）重新入队，等待占用过期
+     * - 其余消息调用 handler：成功后确认并记录，失败时释放占用并重新入队
+     * - handler 在独立的数据源路由作用域中执行：写入后的读取走主库，处理完恢复，不影响监听线程处理下一条消息
+     *
+     * @param message 消息对象
+     * @param channel RabbitMQ 通道
+     * @param handler 业务处理
+     */
+    protected void consumeOnce(Message message, Channel channel, MessageHandler handler) {
+        String messageId = messageDeduplicator == null ? null : MessageDeduplicator.messageIdOf(message);
+        MessageDeduplicator.Claim claim = null;
+        if (messageId != null) {
+            claim = messageDeduplicator.tryClaim(consumerName(), messageId);
+            MessageDeduplicator.Result result = claim.getResult();
+            if (result == MessageDeduplicator.Result.DUPLICATE) {
+                System.out.println("⚠️ 重复消息，跳过：" + messageId);
+                ackMessage(message, channel);
+                return;
+            }
+            if (result == MessageDeduplicator.Result.IN_PROGRESS) {
+                System.out.println("⚠️ 消息正在其他节点处理：" + messageId);
+                if (isRedelivered(message)) {
+                    rejectAndRequeue(message, channel);
+                } else {
+                    ackMessage(message, channel);
+                }
+                return;
+            }
+        }
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+            handler.handle(message);
+        } catch (Exception e) {
+            System.err.println("❌ 消息处理失败：" + e.getMessage());
+            if (claim != null) {
+                messageDeduplicator.release(claim);
+            }
+            rejectAndRequeue(message, channel);
+            return;
+        }
+        if (claim != null) {
+            messageDeduplicator.complete(claim);
+        }
+        ackMessage(message, channel);
+    }
+
+    /**
+     * 去重使用的消费者名称，默认为类名；同一个类监听多个队列且需要分别去重时覆盖
+     *
+     * @return 消费者名称
+     */
+    protected String consumerName() {
+        return ClassUtils.getUserClass(getClass()).getSimpleName();
+    }
+
+    /**
+     * 幂等去重，未配置时为 null
+     *
+     * @return MessageDeduplicator
+     */
+    protected MessageDeduplicator getMessageDeduplicator() {
+        return messageDeduplicator;
+    }
+
+    /**
+     * 是否是重新投递的消息
+     *
+     * @param message 消息对象
+     * @return true 重新投递
+     */
+    protected boolean isRedelivered(Message message) {
+        return Boolean.TRUE.equals(message.getMessageProperties().isRedelivered());
+    }
+
     /**
      * 手动确认消息
      *
@@ -69,6 +177,24 @@ public abstract class BaseMessageConsumer {
         }
     }
 
+    /**
+     * 批量确认消息
+     *
+     * 【作用】
+     * 一次确认当前通道上序号不大于 deliveryTag 的所有未确认消息，只发送一个帧。
+     * 需要单独拒绝的消息要先 nack，否则会被一起确认。
+     *
+     * @param deliveryTag 最大的消息投递序号
+     * @param channel     RabbitMQ 通道
+     */
+    protected void ackMultiple(long deliveryTag, Channel channel) {
+        try {
+            channel.basicAck(deliveryTag, true);
+        } catch (Exception e) {
+            System.err.println("❌ 批量确认失败，序号：" + deliveryTag + "，" + e.getMessage());
+        }
+    }
+
     /**
      * 拒绝消息
      *
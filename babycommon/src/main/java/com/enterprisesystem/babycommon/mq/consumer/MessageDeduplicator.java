@@ -0,0 +1,301 @@
+package com.enterprisesystem.babycommon.mq.consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消费者幂等去重
+ *
+ * 【作用】
+ * 至少一次投递（发布确认超时重发、rejectAndRequeue、延迟消息补发）会让同一条消息多次到达消费者，
+ * 本类保证同一个消费者在去重窗口内对同一 messageId 只成功处理一次。
+ *
+ * 【流程】
+ * 1. 本地布隆过滤器（只记录本节点处理成功的消息）：
+ *    - 一定不存在：直接进入第 2 步，正常消息只需要一次 Redis 请求
+ *    - 可能存在：GET 确认，已完成则判定重复；Redis 中没有说明是误判，记为 falsePositive 后进入第 2 步
+ * 2. Redis SET NX PX 占用：md:{消费者}:{messageId} = 0:{令牌}（处理中），过期时间 processingTtlMillis，
+ *    令牌每次占用随机生成，随 Claim 返回
+ *    - 成功：交给业务处理
+ *    - 失败：已完成（1）判定重复，处理中（0:...）说明其他节点正在处理
+ * 3. 处理成功后改为 1（已完成），过期时间为去重窗口，并写入布隆过滤器；处理失败删除占用，重新投递时可以再处理。
+ *    两者都通过 Lua 脚本比较令牌后再写入 / 删除（同 RedisLoadLock）：处理时间超过 processingTtlMillis、
+ *    占用已过期并被其他节点重新占用时，不会覆盖或删除对方的占用，记为 lostClaims。
+ *    占用已过期且没有被重新占用时，完成仍然写入 1。
+ *
+ * 【降级】
+ * Redis 不可用时只使用布隆过滤器：可能存在的消息按重复处理（误判率 fpp），其余正常处理；
+ * 没有 Redis 时只能对本节点处理过的消息去重。
+ */
+public class MessageDeduplicator {
+
+    private static final String KEY_PREFIX = "md:";
+    private static final String PROCESSING = "0:";
+    private static final String DONE = "1";
+    /**
+     * 值仍为本次占用的令牌（或已不存在）时改为已完成
+     */
+    private static final DefaultRedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('get', KEYS[1]) "
+                    + "if v == ARGV[1] or not v then redis.call('set', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 "
+                    + "else return 0 end",
+            Long.class);
+    /**
+     * 值仍为本次占用的令牌时删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * 检查结果
+     */
+    public enum Result {
+        /**
+         * 首次处理，已占用
+         */
+        CLAIMED,
+        /**
+         * 窗口内已处理成功
+         */
+        DUPLICATE,
+        /**
+         * 其他节点（或线程）正在处理
+         */
+        IN_PROGRESS
+    }
+
+    /**
+     * 一次检查的结果，CLAIMED 时处理后交给 complete 或 release
+     */
+    public static final class Claim {
+
+        private final Result result;
+        private final String key;
+        private final String messageId;
+        /**
+         * 写入 Redis 的处理中的值，没有写入 Redis（无 Redis 或访问失败）时为 null
+         */
+        private final String token;
+
+        private Claim(Result result, String key, String messageId, String token) {
+            this.result = result;
+            this.key = key;
+            this.messageId = messageId;
+            this.token = token;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final TimeBucketedBloomFilter bloomFilter;
+    private final long windowMillis;
+    private final long processingTtlMillis;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder bloomPositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder localDuplicates = new LongAdder();
+    private final LongAdder remoteDuplicates = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder lostClaims = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate       Redis，为 null 时只在本节点去重
+     * @param windowMillis        去重窗口（毫秒）
+     * @param processingTtlMillis 处理中占用的过期时间（毫秒），应大于单条消息的最长处理时间
+     * @param expectedPerWindow   一个窗口内预计的消息数（决定布隆过滤器大小）
+     * @param fpp                 布隆过滤器误判率
+     * @param generations         布隆过滤器代数
+     */
+    public MessageDeduplicator(StringRedisTemplate redisTemplate, long windowMillis, long processingTtlMillis,
+                               long expectedPerWindow, double fpp, int generations) {
+        this.redisTemplate = redisTemplate;
+        this.windowMillis = windowMillis;
+        this.processingTtlMillis = processingTtlMillis;
+        this.bloomFilter = new TimeBucketedBloomFilter(expectedPerWindow, fpp, windowMillis, generations);
+    }
+
+    /**
+     * 读取消息的 messageId：优先取消息属性，没有时从 JSON 消息体（SystemMessage）的 messageId 字段读取
+     *
+     * @param message 消息
+     * @return messageId，没有时返回 null（不去重）
+     */
+    public static String messageIdOf(Message message) {
+        String messageId = message.getMessageProperties().getMessageId();
+        if (messageId != null && !messageId.isEmpty()) {
+            return messageId;
+        }
+        try {
+            JsonNode node = OBJECT_MAPPER.readTree(message.getBody()).get("messageId");
+            return node == null || node.isNull() ? null : node.asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 处理前检查并占用
+     *
+     * @param consumer  消费者名称（不同消费者各自去重）
+     * @param messageId 消息ID
+     * @return 检查结果，CLAIMED 时处理后必须调用 complete 或 release
+     */
+    public Claim tryClaim(String consumer, String messageId) {
+        checks.increment();
+        String key = KEY_PREFIX + consumer + ":" + messageId;
+        boolean maybeSeen = bloomFilter.mightContain(key);
+        if (maybeSeen) {
+            bloomPositives.increment();
+        }
+        if (redisTemplate == null) {
+            return maybeSeen ? duplicate(key, messageId, localDuplicates) : claim(key, messageId, null);
+        }
+        try {
+            if (maybeSeen) {
+                String state = redisTemplate.opsForValue().get(key);
+                if (DONE.equals(state)) {
+                    return duplicate(key, messageId, localDuplicates);
+                }
+                if (state != null && state.startsWith(PROCESSING)) {
+                    return inProgress(key, messageId);
+                }
+                falsePositives.increment();
+            }
+            String token = PROCESSING + UUID.randomUUID();
+            Boolean success = redisTemplate.opsForValue()
+                    .setIfAbsent(key, token, processingTtlMillis, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(success)) {
+                return claim(key, messageId, token);
+            }
+            if (DONE.equals(redisTemplate.opsForValue().get(key))) {
+                return duplicate(key, messageId, remoteDuplicates);
+            }
+            return inProgress(key, messageId);
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            System.err.println("❌ 消息去重访问 Redis 失败，仅使用本地记录：" + e.getMessage());
+            return maybeSeen ? duplicate(key, messageId, localDuplicates) : claim(key, messageId, null);
+        }
+    }
+
+    /**
+     * 处理成功，记录为已完成
+     *
+     * 占用已被其他节点重新占用（本次处理超过了 processingTtlMillis）时不覆盖，由对方记录结果
+     *
+     * @param claim tryClaim 返回的占用
+     */
+    public void complete(Claim claim) {
+        bloomFilter.put(claim.key);
+        completed.increment();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            // 占用时访问 Redis 失败的没有令牌：只在不存在时写入
+            String token = claim.token == null ? "" : claim.token;
+            Long result = redisTemplate.execute(COMPLETE_SCRIPT, Collections.singletonList(claim.key),
+                    token, DONE, String.valueOf(windowMillis));
+            if (result == null || result == 0L) {
+                lostClaims.increment();
+                System.out.println("⚠️ 消息占用已过期并被其他节点占用，不记录完成：" + claim.messageId);
+            }
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            System.err.println("❌ 记录已处理消息失败：" + claim.messageId + "，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 处理失败，释放占用，重新投递时可以再次处理
+     *
+     * 只删除本次的占用，占用已过期或被其他节点重新占用时不做处理
+     *
+     * @param claim tryClaim 返回的占用
+     */
+    public void release(Claim claim) {
+        released.increment();
+        if (redisTemplate == null || claim.token == null) {
+            return;
+        }
+        try {
+            Long result = redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(claim.key), claim.token);
+            if (result == null || result == 0L) {
+                lostClaims.increment();
+            }
+        } catch (RuntimeException e) {
+            // 占用到期后自动释放
+            redisErrors.increment();
+            System.err.println("❌ 释放消息占用失败：" + claim.messageId + "，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * duplicates = localDuplicates（布隆过滤器命中并经 Redis 确认）+ remoteDuplicates（其他节点处理过）；
+     * falsePositives / bloomPositives 为布隆过滤器的实际误判比例；
+     * lostClaims 为完成或释放时占用已不属于本次处理的次数，持续增长说明 processingTtlMillis 小于实际处理时间
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("checks", checks.sum());
+        stats.put("claimed", claimed.sum());
+        stats.put("duplicates", localDuplicates.sum() + remoteDuplicates.sum());
+        stats.put("localDuplicates", localDuplicates.sum());
+        stats.put("remoteDuplicates", remoteDuplicates.sum());
+        stats.put("inProgress", inProgress.sum());
+        stats.put("bloomPositives", bloomPositives.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        stats.put("completed", completed.sum());
+        stats.put("released", released.sum());
+        stats.put("lostClaims", lostClaims.sum());
+        stats.put("redisErrors", redisErrors.sum());
+        stats.put("bloomRotations", bloomFilter.getRotations());
+        stats.put("bloomMemoryBytes", bloomFilter.getMemoryBytes());
+        return stats;
+    }
+
+    private Claim claim(String key, String messageId, String token) {
+        claimed.increment();
+        return new Claim(Result.CLAIMED, key, messageId, token);
+    }
+
+    private Claim duplicate(String key, String messageId, LongAdder counter) {
+        counter.increment();
+        return new Claim(Result.DUPLICATE, key, messageId, null);
+    }
+
+    private Claim inProgress(String key, String messageId) {
+        inProgress.increment();
+        return new Claim(Result.IN_PROGRESS, key, messageId, null);
+    }
+}
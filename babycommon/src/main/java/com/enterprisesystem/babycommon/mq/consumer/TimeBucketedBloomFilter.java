@@ -0,0 +1,166 @@
+package com.enterprisesystem.babycommon.mq.consumer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按时间分代的布隆过滤器
+ *
+ * 【结构】
+ * generations 个同样大小的布隆过滤器，每代负责 windowMillis / (generations - 1) 的时间段，
+ * 写入当前代，查询检查所有代。当前代用满时间段后，最老的一代清空并成为新的当前代，
+ * 因此最近 windowMillis 内写入的键一定能查到，内存固定为 generations × 单代位数，不随消息数增长。
+ *
+ * 【误判】
+ * 只会把没写入过的键误判为存在（概率约为 fpp），不会漏判。
+ * 单代按 expectedPerWindow / (generations - 1) 个键、fpp / generations 的误判率计算位数，
+ * 查询所有代的总误判率约为 fpp。
+ *
+ * 线程安全：位数组用 CAS 置位，轮换时加锁；轮换与查询并发时只可能少报（清空中的一代），不会误报。
+ */
+public class TimeBucketedBloomFilter {
+
+    private final AtomicLongArray[] generations;
+    private final long bitCount;
+    private final int hashCount;
+    private final long spanMillis;
+
+    private volatile int current;
+    private volatile long currentStartMillis;
+    private long rotations;
+
+    /**
+     * 构造函数
+     *
+     * @param expectedPerWindow 一个窗口内预计写入的键数
+     * @param fpp               期望的误判率，例如 0.001
+     * @param windowMillis      保证能查到的时间窗口（毫秒）
+     * @param generations       代数，不小于 2
+     */
+    public TimeBucketedBloomFilter(long expectedPerWindow, double fpp, long windowMillis, int generations) {
+        if (expectedPerWindow <= 0 || fpp <= 0 || fpp >= 1 || windowMillis <= 0 || generations < 2) {
+            throw new IllegalArgumentException("布隆过滤器参数不合法：expected=" + expectedPerWindow + ", fpp=" + fpp
+                    + ", window=" + windowMillis + ", generations=" + generations);
+        }
+        long perGeneration = Math.max(1, expectedPerWindow / (generations - 1));
+        double generationFpp = fpp / generations;
+        long bits = (long) Math.ceil(-perGeneration * Math.log(generationFpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / perGeneration * Math.log(2)));
+        this.spanMillis = Math.max(1, windowMillis / (generations - 1));
+        this.generations = new AtomicLongArray[generations];
+        for (int i = 0; i < generations; i++) {
+            this.generations[i] = new AtomicLongArray(words);
+        }
+        this.currentStartMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 写入当前代
+     *
+     * @param key 键
+     */
+    public void put(String key) {
+        rotateIfNeeded(System.currentTimeMillis());
+        AtomicLongArray bits = generations[current];
+        long h1 = hash(key);
+        long h2 = fmix64(h1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long value = bits.get(word);
+            while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask)) {
+                value = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * 最近一个窗口内是否可能写入过
+     *
+     * @param key 键
+     * @return false 一定没有写入过；true 可能写入过
+     */
+    public boolean mightContain(String key) {
+        rotateIfNeeded(System.currentTimeMillis());
+        long h1 = hash(key);
+        long h2 = fmix64(h1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (AtomicLongArray bits : generations) {
+            if (contains(bits, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 占用的内存（字节）
+     *
+     * @return 字节数
+     */
+    public long getMemoryBytes() {
+        return bitCount / 8 * generations.length;
+    }
+
+    /**
+     * 已轮换的次数
+     *
+     * @return 次数
+     */
+    public synchronized long getRotations() {
+        return rotations;
+    }
+
+    private boolean contains(AtomicLongArray bits, long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfNeeded(long nowMillis) {
+        if (nowMillis - currentStartMillis < spanMillis) {
+            return;
+        }
+        synchronized (this) {
+            long elapsed = (nowMillis - currentStartMillis) / spanMillis;
+            if (elapsed <= 0) {
+                return;
+            }
+            // 长时间没有调用时连续轮换多代，最多全部清空一遍
+            long steps = Math.min(elapsed, generations.length);
+            for (long i = 0; i < steps; i++) {
+                int next = (current + 1) % generations.length;
+                AtomicLongArray oldest = generations[next];
+                for (int word = 0; word < oldest.length(); word++) {
+                    oldest.set(word, 0);
+                }
+                current = next;
+                rotations++;
+            }
+            currentStartMillis += elapsed * spanMillis;
+        }
+    }
+
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return fmix64(hash);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,568 @@
+package com.enterprisesystem.babycommon.mq.delay;
+
+import com.enterprisesystem.babycommon.mq.producer.MessageProducer;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟消息调度器
+ *
+ * 【两级延迟】
+ * - 剩余延迟不超过 wheelHorizonMillis（默认 5 秒）：放入进程内的分层时间轮（O(1) 插入，精度一个 tick），到期后发布
+ * - 更长的延迟：发到 TTL 分级队列 queue.delay.{n}ms（队列级 x-message-ttl = n，无消费者），过期后死信到
+ *   exchange.direct.system 的 delay.return 路由键，由本类消费后按剩余延迟继续路由
+ * 每次选择不超过剩余延迟的最大一级，默认级别按 4 倍递增（4 秒 ~ 18 小时），每级最多经过 3 次；
+ * 每跳都按绝对到期时间重新计算剩余延迟，误差不会累积，最后一段由时间轮补齐。
+ * 同一队列中的消息 TTL 相同，队头总是最早过期的，不存在逐条 TTL 的队头阻塞问题。
+ *
+ * 【重启不丢失】
+ * - 分级队列和消息都是持久化的，由 RabbitMQ 保存
+ * - 进入时间轮的消息同时写入 Redis（ZSET 按到期时间排序 + HASH 保存消息），发布确认后删除；
+ *   各节点定期扫描到期超过 recoveryGraceMillis 仍未删除的条目（所属节点已宕机或重启），ZREM 成功的节点负责补发
+ * 没有 Redis 时时间轮中的消息只在内存中，重启会丢失最后几秒内到期的消息。
+ *
+ * 【到期发布】
+ * 时间轮线程只负责推进时间轮，到期的条目交给有界的发布线程池（fireThreads 个线程，队列 fireQueueCapacity），
+ * 发布窗口已满时的等待、Redis 读写和失败重试都在发布线程池中执行，不会拖慢时间轮。
+ * 线程池队列已满时条目延后 REJECTED_RETRY_DELAY_MILLIS 重新放入时间轮，不计入发布次数。
+ *
+ * 【发布失败】
+ * 到期发布失败时按 1、2、4 ... 秒（最长 60 秒）退避后重新放入时间轮，同时把 ZSET 中的到期时间更新为重试时间，
+ * 避免其他节点把本节点仍在重试的消息当作宕机遗留的条目补发。
+ * 连续失败 maxFireAttempts 次后不再重试：有 Redis 时移入 dm:dead（HASH，messageId -> 消息），没有 Redis 时丢弃，均计入 parked。
+ *
+ * 【投递语义】
+ * 至少一次：补发和确认超时重发都可能产生重复，messageId 不变，消费者按 messageId 去重。
+ */
+public class DelayedMessageScheduler implements MessageListener {
+
+    /**
+     * 目标交换机、路由键、到期时间（毫秒时间戳）
+     */
+    public static final String HEADER_EXCHANGE = "x-delay-exchange";
+    public static final String HEADER_ROUTING_KEY = "x-delay-routing-key";
+    public static final String HEADER_DEADLINE = "x-delay-deadline";
+
+    private static final String SCHEDULE_KEY = "dm:schedule";
+    private static final String MESSAGE_KEY = "dm:messages";
+    private static final String DEAD_KEY = "dm:dead";
+    private static final long FIRE_RETRY_DELAY_MILLIS = 1_000;
+    private static final long MAX_FIRE_RETRY_DELAY_MILLIS = 60_000;
+    private static final long REJECTED_RETRY_DELAY_MILLIS = 100;
+    private static final long ROUTE_TIMEOUT_SECONDS = 30;
+    private static final int RECOVERY_BATCH = 500;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final MessageProducer messageProducer;
+    private final RabbitTemplate rabbitTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final long tickMillis;
+    private final long wheelHorizonMillis;
+    private final long[] tierMillis;
+    private final long recoveryGraceMillis;
+    private final int maxFireAttempts;
+    private final int fireThreads;
+    private final int fireQueueCapacity;
+
+    /**
+     * 其他线程加入的条目，由时间轮线程取出放入时间轮
+     */
+    private final ConcurrentLinkedQueue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wheelSize = new AtomicInteger();
+    private volatile boolean running;
+    private Thread wheelThread;
+    private ScheduledExecutorService recoveryExecutor;
+    private volatile ThreadPoolExecutor fireExecutor;
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder wheelEntries = new LongAdder();
+    private final LongAdder tierHops = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder fireFailures = new LongAdder();
+    private final LongAdder fireRejections = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder persistFailures = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param messageProducer     消息生产者（通过发布确认发送）
+     * @param rabbitTemplate      RabbitTemplate（转换消息）
+     * @param redisTemplate       保存时间轮中的消息，为 null 时不持久化
+     * @param tickMillis          时间轮精度（毫秒）
+     * @param wheelHorizonMillis  剩余延迟不超过该值时放入时间轮（毫秒），不小于最小的分级
+     * @param tierMillis          TTL 分级（毫秒），升序
+     * @param recoveryGraceMillis 到期超过该时间仍未发布的条目由其他节点补发（毫秒）
+     * @param maxFireAttempts     到期后最多发布次数，用完后不再重试，小于等于 0 时不限制
+     * @param fireThreads         到期发布线程数
+     * @param fireQueueCapacity   到期发布线程池的队列长度
+     */
+    public DelayedMessageScheduler(MessageProducer messageProducer, RabbitTemplate rabbitTemplate,
+                                   StringRedisTemplate redisTemplate, long tickMillis, long wheelHorizonMillis,
+                                   long[] tierMillis, long recoveryGraceMillis, int maxFireAttempts,
+                                   int fireThreads, int fireQueueCapacity) {
+        long[] tiers = tierMillis.clone();
+        Arrays.sort(tiers);
+        if (tiers.length == 0 || tiers[0] > wheelHorizonMillis) {
+            throw new IllegalArgumentException("最小的延迟分级不能大于时间轮范围 " + wheelHorizonMillis + " 毫秒");
+        }
+        this.messageProducer = messageProducer;
+        this.rabbitTemplate = rabbitTemplate;
+        this.redisTemplate = redisTemplate;
+        this.tickMillis = tickMillis;
+        this.wheelHorizonMillis = wheelHorizonMillis;
+        this.tierMillis = tiers;
+        this.recoveryGraceMillis = recoveryGraceMillis;
+        this.maxFireAttempts = maxFireAttempts;
+        this.fireThreads = Math.max(1, fireThreads);
+        this.fireQueueCapacity = Math.max(1, fireQueueCapacity);
+    }
+
+    /**
+     * 分级队列名称
+     *
+     * @param tierMillis 分级（毫秒）
+     * @return 队列名称
+     */
+    public static String tierQueueName(long tierMillis) {
+        return "queue.delay." + tierMillis + "ms";
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        fireExecutor = new ThreadPoolExecutor(fireThreads, fireThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(fireQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "mq-delay-fire");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        wheelThread = new Thread(this::runWheel, "mq-delay-wheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+        if (redisTemplate != null) {
+            recoveryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mq-delay-recovery");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(1_000, recoveryGraceMillis / 5);
+            recoveryExecutor.scheduleWithFixedDelay(this::recoverOverdue, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (recoveryExecutor != null) {
+            recoveryExecutor.shutdownNow();
+            recoveryExecutor = null;
+        }
+        if (wheelThread != null) {
+            wheelThread.interrupt();
+            wheelThread = null;
+        }
+        if (fireExecutor != null) {
+            // 未发布的条目仍在 Redis 中，由其他节点补发
+            fireExecutor.shutdownNow();
+            fireExecutor = null;
+        }
+    }
+
+    /**
+     * 调度延迟消息
+     *
+     * @param exchange    交换机
+     * @param routingKey  路由键
+     * @param payload     消息内容
+     * @param delayMillis 延迟（毫秒）
+     * @return 消息已安全保存（写入 Redis 并放入时间轮，或被分级队列确认）后完成的 Future，值为 messageId；
+     *         消息转换、发送失败都通过 Future 以异常完成，不会直接抛出
+     */
+    public CompletableFuture<String> schedule(String exchange, String routingKey, Object payload, long delayMillis) {
+        Entry entry;
+        try {
+            MessageProperties properties = new MessageProperties();
+            properties.setMessageId(UUID.randomUUID().toString());
+            Message message = rabbitTemplate.getMessageConverter().toMessage(payload, properties);
+            entry = new Entry(exchange, routingKey, System.currentTimeMillis() + Math.max(0, delayMillis), message);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        scheduled.increment();
+        return route(entry).thenApply(v -> entry.id);
+    }
+
+    /**
+     * 消费分级队列过期后死信回来的消息，按剩余延迟继续路由
+     */
+    @Override
+    public void onMessage(Message message) {
+        Map<String, Object> headers = message.getMessageProperties().getHeaders();
+        Object exchange = headers.get(HEADER_EXCHANGE);
+        Object routingKey = headers.get(HEADER_ROUTING_KEY);
+        Object deadline = headers.get(HEADER_DEADLINE);
+        if (exchange == null || routingKey == null || deadline == null) {
+            System.out.println("丢弃缺少延迟信息的消息：" + message.getMessageProperties().getMessageId());
+            return;
+        }
+        Entry entry = new Entry(exchange.toString(), routingKey.toString(), Long.parseLong(deadline.toString()),
+                copy(message));
+        try {
+            // 下一跳被确认后才返回，之后容器才确认本条消息
+            route(entry).get(ROUTE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("延迟消息路由被中断：" + entry.id, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("延迟消息路由失败：" + entry.id, e);
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("scheduled", scheduled.sum());
+        stats.put("wheelEntries", wheelEntries.sum());
+        stats.put("wheelSize", (long) wheelSize.get());
+        stats.put("tierHops", tierHops.sum());
+        stats.put("fired", fired.sum());
+        stats.put("fireFailures", fireFailures.sum());
+        stats.put("fireRejections", fireRejections.sum());
+        stats.put("parked", parked.sum());
+        stats.put("recovered", recovered.sum());
+        stats.put("persistFailures", persistFailures.sum());
+        return stats;
+    }
+
+    private CompletableFuture<Void> route(Entry entry) {
+        long remaining = entry.deadline - System.currentTimeMillis();
+        if (remaining <= wheelHorizonMillis) {
+            persist(entry);
+            enqueue(entry);
+            wheelEntries.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        long tier = tierMillis[0];
+        for (long candidate : tierMillis) {
+            if (candidate <= remaining) {
+                tier = candidate;
+            }
+        }
+        Message hop = entry.message;
+        hop.getMessageProperties().setHeader(HEADER_EXCHANGE, entry.exchange);
+        hop.getMessageProperties().setHeader(HEADER_ROUTING_KEY, entry.routingKey);
+        hop.getMessageProperties().setHeader(HEADER_DEADLINE, entry.deadline);
+        tierHops.increment();
+        try {
+            // 默认交换机按队列名直接投递
+            return messageProducer.sendAsync("", tierQueueName(tier), hop).thenApply(id -> null);
+        } catch (RuntimeException e) {
+            // 发送窗口已满、未开启发布确认等同步异常也通过 Future 返回
+            return failed(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private void enqueue(Entry entry) {
+        wheelSize.incrementAndGet();
+        incoming.add(entry);
+    }
+
+    private void runWheel() {
+        HierarchicalTimingWheel<Entry> wheel = new HierarchicalTimingWheel<>(tickMillis, 8, 3, System.currentTimeMillis());
+        while (running) {
+            Entry entry;
+            while ((entry = incoming.poll()) != null) {
+                wheel.add(entry, entry.deadline);
+            }
+            wheel.advance(System.currentTimeMillis(), this::dispatch);
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在时间轮线程上执行：只把到期的条目交给发布线程池，线程池已满时延后重新放入时间轮
+     */
+    private void dispatch(Entry entry) {
+        wheelSize.decrementAndGet();
+        ThreadPoolExecutor executor = fireExecutor;
+        try {
+            if (executor == null) {
+                throw new RejectedExecutionException("发布线程池已关闭");
+            }
+            executor.execute(() -> fire(entry));
+        } catch (RejectedExecutionException e) {
+            fireRejections.increment();
+            entry.deadline = System.currentTimeMillis() + REJECTED_RETRY_DELAY_MILLIS;
+            enqueue(entry);
+        }
+    }
+
+    /**
+     * 在发布线程池中执行：到期发布，确认后删除持久化的条目；失败时退避后重试，次数用完后移入死信
+     */
+    private void fire(Entry entry) {
+        Message message = entry.message;
+        message.getMessageProperties().getHeaders().remove(HEADER_EXCHANGE);
+        message.getMessageProperties().getHeaders().remove(HEADER_ROUTING_KEY);
+        message.getMessageProperties().getHeaders().remove(HEADER_DEADLINE);
+        CompletableFuture<String> future;
+        try {
+            future = messageProducer.sendAsync(entry.exchange, entry.routingKey, message);
+        } catch (RuntimeException e) {
+            future = failed(e);
+        }
+        // 确认回调在发布确认线程上，Redis 读写和重试调度转回发布线程池
+        future.whenComplete((id, error) -> runOnFireExecutor(() -> afterFire(entry, error)));
+    }
+
+    private void afterFire(Entry entry, Throwable error) {
+        if (error == null) {
+            fired.increment();
+            unpersist(entry);
+            return;
+        }
+        fireFailures.increment();
+        entry.fireAttempts++;
+        if (maxFireAttempts > 0 && entry.fireAttempts >= maxFireAttempts) {
+            System.out.println("延迟消息 " + entry.id + " 已发布 " + entry.fireAttempts + " 次仍失败，不再重试：" + error.getMessage());
+            park(entry);
+            return;
+        }
+        long delay = Math.min(MAX_FIRE_RETRY_DELAY_MILLIS, FIRE_RETRY_DELAY_MILLIS << Math.min(entry.fireAttempts - 1, 6));
+        System.out.println("延迟消息 " + entry.id + " 发布失败，" + delay + " 毫秒后重试：" + error.getMessage());
+        entry.deadline = System.currentTimeMillis() + delay;
+        reschedule(entry);
+        enqueue(entry);
+    }
+
+    /**
+     * 交给发布线程池执行，线程池已满或已关闭时在当前线程执行
+     */
+    private void runOnFireExecutor(Runnable task) {
+        ThreadPoolExecutor executor = fireExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException ignored) {
+                // 在当前线程执行
+            }
+        }
+        task.run();
+    }
+
+    private void persist(Entry entry) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().put(MESSAGE_KEY, entry.id, OBJECT_MAPPER.writeValueAsString(entry.toStored()));
+            redisTemplate.opsForZSet().add(SCHEDULE_KEY, entry.id, entry.deadline);
+        } catch (Exception e) {
+            // 不影响本节点按时发布，只是重启后无法恢复
+            persistFailures.increment();
+            System.out.println("延迟消息 " + entry.id + " 持久化失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 更新 ZSET 中的到期时间为重试时间
+     */
+    private void reschedule(Entry entry) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().add(SCHEDULE_KEY, entry.id, entry.deadline);
+        } catch (Exception e) {
+            persistFailures.increment();
+            System.out.println("延迟消息 " + entry.id + " 更新重试时间失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 发布次数用完：从调度中移除，消息移入 dm:dead
+     */
+    private void park(Entry entry) {
+        parked.increment();
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().put(DEAD_KEY, entry.id, OBJECT_MAPPER.writeValueAsString(entry.toStored()));
+            unpersist(entry);
+        } catch (Exception e) {
+            System.out.println("延迟消息 " + entry.id + " 移入死信失败：" + e.getMessage());
+        }
+    }
+
+    private void unpersist(Entry entry) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(SCHEDULE_KEY, entry.id);
+            redisTemplate.opsForHash().delete(MESSAGE_KEY, entry.id);
+        } catch (Exception e) {
+            System.out.println("删除已发布的延迟消息 " + entry.id + " 失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 补发到期超过 recoveryGraceMillis 仍未删除的条目：ZREM 成功的节点负责，重新登记后放入本节点时间轮
+     */
+    private void recoverOverdue() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> ids = redisTemplate.opsForZSet()
+                    .rangeByScore(SCHEDULE_KEY, 0, now - recoveryGraceMillis, 0, RECOVERY_BATCH);
+            if (ids == null) {
+                return;
+            }
+            for (String id : ids) {
+                Long removed = redisTemplate.opsForZSet().remove(SCHEDULE_KEY, id);
+                if (removed == null || removed == 0) {
+                    continue;
+                }
+                Object json = redisTemplate.opsForHash().get(MESSAGE_KEY, id);
+                if (json == null) {
+                    continue;
+                }
+                Entry entry = Entry.fromStored(OBJECT_MAPPER.readValue(json.toString(), StoredEntry.class));
+                redisTemplate.opsForZSet().add(SCHEDULE_KEY, id, now);
+                recovered.increment();
+                enqueue(entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("恢复延迟消息失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 复制收到的消息用于再次发送：去掉 x-death 等死信信息，设置持久化
+     */
+    private static Message copy(Message received) {
+        MessageProperties source = received.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(source.getMessageId());
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        for (Map.Entry<String, Object> header : source.getHeaders().entrySet()) {
+            if (!header.getKey().startsWith("x-death") && !header.getKey().startsWith("x-first-death")
+                    && !header.getKey().startsWith("x-last-death")) {
+                properties.setHeader(header.getKey(), header.getValue());
+            }
+        }
+        return new Message(received.getBody(), properties);
+    }
+
+    /**
+     * 调度中的消息
+     */
+    private static final class Entry {
+        private final String id;
+        private final String exchange;
+        private final String routingKey;
+        private final Message message;
+        private volatile long deadline;
+        private volatile int fireAttempts;
+
+        private Entry(String exchange, String routingKey, long deadline, Message message) {
+            this.id = message.getMessageProperties().getMessageId();
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.deadline = deadline;
+            this.message = message;
+        }
+
+        private StoredEntry toStored() {
+            StoredEntry stored = new StoredEntry();
+            MessageProperties properties = message.getMessageProperties();
+            stored.id = id;
+            stored.exchange = exchange;
+            stored.routingKey = routingKey;
+            stored.deadline = deadline;
+            stored.contentType = properties.getContentType();
+            stored.contentEncoding = properties.getContentEncoding();
+            stored.headers = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> header : properties.getHeaders().entrySet()) {
+                Object value = header.getValue();
+                stored.headers.put(header.getKey(), value instanceof Number || value instanceof Boolean
+                        ? value : String.valueOf(value));
+            }
+            stored.body = Base64.getEncoder().encodeToString(message.getBody());
+            return stored;
+        }
+
+        private static Entry fromStored(StoredEntry stored) {
+            MessageProperties properties = new MessageProperties();
+            properties.setMessageId(stored.id);
+            properties.setContentType(stored.contentType);
+            properties.setContentEncoding(stored.contentEncoding);
+            if (stored.headers != null) {
+                stored.headers.forEach(properties::setHeader);
+            }
+            return new Entry(stored.exchange, stored.routingKey, stored.deadline,
+                    new Message(Base64.getDecoder().decode(stored.body), properties));
+        }
+    }
+
+    /**
+     * Redis 中保存的格式
+     */
+    public static final class StoredEntry {
+        public String id;
+        public String exchange;
+        public String routingKey;
+        public long deadline;
+        public String contentType;
+        public String contentEncoding;
+        public Map<String, Object> headers;
+        public String body;
+    }
+}
@@ -0,0 +1,172 @@
+package com.enterprisesystem.babycommon.mq.delay;
+
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ *
+ * 【结构】
+ * levels 层，每层 2^bits 个槽位，第 0 层每个槽位跨度为 tickMillis，第 n 层为 tickMillis × 2^(bits × n)。
+ * 例如 tick 10 毫秒、每层 256 槽、3 层时，第 0 层覆盖 2.56 秒，第 1 层 11 分钟，第 2 层 46 小时。
+ * 每个槽位是一个单向链表。
+ *
+ * 【插入 O(1)】
+ * 按「到期 tick - 当前 tick」选择层，按到期 tick 在该层的位选择槽位，直接挂到链表头。
+ *
+ * 【推进】
+ * 每推进一个 tick，先把低位全为 0 的高层槽位整体取下重新插入（转移到更低的层），再取出第 0 层当前槽位的全部条目。
+ * 每个条目最多转移 levels - 1 次，推进的均摊代价与条目数无关。
+ * 超出最高层范围的条目先放在最高层最远的槽位，转移时再按实际到期时间重新放置。
+ *
+ * 非线程安全，由单个线程插入和推进（DelayedMessageScheduler 通过队列把其他线程的插入交给时间轮线程）。
+ *
+ * @param <T> 条目类型
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final long startMillis;
+    private final Node<T>[][] buckets;
+
+    /**
+     * 已处理到的 tick（相对 startMillis）
+     */
+    private long currentTick;
+    private int size;
+
+    /**
+     * 构造函数
+     *
+     * @param tickMillis  最小时间精度（毫秒）
+     * @param bits        每层槽位数为 2^bits
+     * @param levels      层数
+     * @param startMillis 起始时间
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int bits, int levels, long startMillis) {
+        if (tickMillis <= 0 || bits <= 0 || levels <= 0 || (long) bits * levels >= 62) {
+            throw new IllegalArgumentException("时间轮参数不合法：tick=" + tickMillis + ", bits=" + bits + ", levels=" + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+        this.levels = levels;
+        this.startMillis = startMillis;
+        this.buckets = new Node[levels][1 << bits];
+    }
+
+    /**
+     * 添加条目
+     *
+     * @param item           条目
+     * @param deadlineMillis 到期时间，已经到期的条目在下一次推进时取出
+     */
+    public void add(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis - startMillis, tickMillis), currentTick + 1);
+        place(new Node<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * 推进到指定时间，依次回调到期的条目
+     *
+     * @param nowMillis 当前时间
+     * @param expired   到期回调
+     * @return 到期的条目数
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        int count = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            int slot = (int) (currentTick & mask);
+            Node<T> node = buckets[0][slot];
+            buckets[0][slot] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                node.next = null;
+                size--;
+                count++;
+                expired.accept(node.item);
+                node = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 当前条目数
+     *
+     * @return 条目数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 时间轮能直接容纳的最长延迟（毫秒），更长的延迟会在最高层多转一圈
+     *
+     * @return 毫秒数
+     */
+    public long getRangeMillis() {
+        return tickMillis << (bits * levels);
+    }
+
+    private void cascade() {
+        for (int level = levels - 1; level > 0; level--) {
+            int shift = bits * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            int slot = (int) ((currentTick >>> shift) & mask);
+            Node<T> node = buckets[level][slot];
+            buckets[level][slot] = null;
+            while (node != null) {
+                Node<T> next = node.next;
+                place(node);
+                node = next;
+            }
+        }
+    }
+
+    private void place(Node<T> node) {
+        long delta = node.deadlineTick - currentTick;
+        if (delta <= 0) {
+            // 只会在转移时出现：放入本 tick 即将取出的槽位
+            link(0, (int) (currentTick & mask), node);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (delta < (1L << (bits * (level + 1)))) {
+                link(level, (int) ((node.deadlineTick >>> (bits * level)) & mask), node);
+                return;
+            }
+        }
+        long farthest = currentTick + (1L << (bits * levels)) - 1;
+        link(levels - 1, (int) ((farthest >>> (bits * (levels - 1))) & mask), node);
+    }
+
+    private void link(int level, int slot, Node<T> node) {
+        node.next = buckets[level][slot];
+        buckets[level][slot] = node;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static final class Node<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Node<T> next;
+
+        private Node(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.enterprisesystem.babycommon.mq.outbox;
+
+import com.enterprisesystem.babycommon.mq.config.RabbitMQConfig;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事务发件箱写入
+ *
+ * 【作用】
+ * 业务写入和「发送消息」原子化：消息不直接发到 RabbitMQ，而是写入发件箱表，
+ * 与业务数据使用同一个数据库连接（DataSourceUtils 取当前事务的连接，与 MyBatis 相同），一起提交或回滚。
+ * 请求不再等待 broker，由 OutboxRelay 在后台发送。
+ *
+ * 【消息格式】
+ * 与直接发送相同，使用 RabbitTemplate 的 MessageConverter 转换（Jackson2JsonMessageConverter 时为 JSON，
+ * __TypeId__ 头写入 payload_type），消费者收到的消息与 MessageProducer 发送的一致。
+ * payload 列为文本：文本和 JSON 内容按字符集解码后写入，Java 序列化等二进制内容写入 Base64，由 OutboxRelay 还原。
+ * messageId 写入时生成，重发时不变，消费者可以按 messageId 去重。
+ *
+ * 【注意】
+ * - 需要在事务中调用，否则消息立即提交，和业务写入不再是原子的
+ * - 事务提交后唤醒本节点的 OutboxRelay，一般在几毫秒内发出
+ */
+public class OutboxPublisher {
+
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+
+    private final DataSource dataSource;
+    private final MessageConverter messageConverter;
+    private final String insertSql;
+    private volatile OutboxRelay relay;
+
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param dataSource       数据源（与业务数据同一个库）
+     * @param messageConverter 消息转换器，一般为 rabbitTemplate.getMessageConverter()
+     * @param table            发件箱表名
+     */
+    public OutboxPublisher(DataSource dataSource, MessageConverter messageConverter, String table) {
+        this.dataSource = dataSource;
+        this.messageConverter = messageConverter;
+        this.insertSql = "INSERT INTO " + table
+                + " (exchange, routing_key, message_id, content_type, payload_type, payload) VALUES (?, ?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * 设置提交后唤醒的发送器
+     *
+     * @param relay 发件箱发送器
+     */
+    public void setRelay(OutboxRelay relay) {
+        this.relay = relay;
+    }
+
+    /**
+     * 写入发往直连交换机的消息
+     *
+     * @param routingKey 路由键
+     * @param payload    消息内容
+     * @return messageId
+     */
+    public String publish(String routingKey, Object payload) {
+        return publish(RabbitMQConfig.EXCHANGE_DIRECT, routingKey, payload);
+    }
+
+    /**
+     * 写入消息
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param payload    消息内容
+     * @return messageId
+     */
+    public String publish(String exchange, String routingKey, Object payload) {
+        String messageId = UUID.randomUUID().toString();
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(messageId);
+        Message message;
+        try {
+            message = messageConverter.toMessage(payload, properties);
+        } catch (MessageConversionException e) {
+            throw new IllegalArgumentException("消息序列化失败：" + payload.getClass().getName(), e);
+        }
+        String contentType = properties.getContentType() == null
+                ? MessageProperties.CONTENT_TYPE_BYTES : properties.getContentType();
+        Object typeId = properties.getHeader(TYPE_ID_HEADER);
+        String payloadType = typeId == null ? null : typeId.toString();
+        String body;
+        if (isText(contentType)) {
+            Charset charset = properties.getContentEncoding() == null
+                    ? StandardCharsets.UTF_8 : Charset.forName(properties.getContentEncoding());
+            body = new String(message.getBody(), charset);
+        } else {
+            body = Base64.getEncoder().encodeToString(message.getBody());
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            statement.setString(1, exchange);
+            statement.setString(2, routingKey);
+            statement.setString(3, messageId);
+            statement.setString(4, contentType);
+            statement.setString(5, payloadType);
+            statement.setString(6, body);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("写入发件箱失败：" + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        written.increment();
+        wakeRelayAfterCommit();
+        return messageId;
+    }
+
+    /**
+     * 已写入的消息数
+     *
+     * @return 消息数
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * 文本内容原样保存，其他内容保存为 Base64
+     *
+     * @param contentType 内容类型
+     * @return 是否为文本内容
+     */
+    static boolean isText(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("json");
+    }
+
+    private void wakeRelayAfterCommit() {
+        OutboxRelay current = relay;
+        if (current == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    current.wakeUp();
+                }
+            });
+        } else {
+            current.wakeUp();
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.enterprisesystem.babycommon.mq.outbox;
+
+import com.enterprisesystem.babycommon.mq.producer.MessageProducer;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事务发件箱发送器
+ *
+ * 【流程】
+ * 后台线程循环执行：
+ * 1. 认领：在一个短事务中 SELECT ... FOR UPDATE SKIP LOCKED 取最多 batchSize 条到期的消息，
+ *    并把它们的 available_at 推后 leaseMillis（租约）后提交。多个节点同时运行时各自跳过被锁定的行，
+ *    租约期内其他节点也不会再认领这些行。
+ * 2. 发送：通过 MessageProducer.sendAsync 流水线发送整批消息，等待 broker 确认（重试由 ConfirmingPublisher 负责）。
+ * 3. 收尾：确认成功的行一条语句批量删除（或标记 published_time）；失败的行按尝试次数退避后重新可见，
+ *    发送次数达到 maxAttempts 的行标记 failed_time 后不再认领（死信），排查原因后把 failed_time 置空即可重新发送。
+ * 整批取满时立即处理下一批，否则等待 pollIntervalMillis 或被 OutboxPublisher 在事务提交后唤醒。
+ *
+ * 【投递语义】
+ * 至少一次：确认前节点宕机、或确认超时后 broker 实际已收到时，租约到期后会再次发送（messageId 不变）。
+ * 同一批内按 id 顺序发送，多节点、重试时不保证全局顺序。
+ *
+ * 【延迟指标】
+ * - lastLagMillis / maxLagMillis：消息从写入到被 broker 确认的时间（写入时间按数据库时钟计算，不受节点时钟偏差影响）
+ * - pendingRows / oldestPendingAgeMillis：每 backlogIntervalMillis 统计一次待发送行数和最早一条的等待时间
+ * - parked / parkedRows：本节点标记为死信的次数，以及表中死信行数（随积压一起统计）
+ *
+ * 【表结构（MySQL 8.0+，SKIP LOCKED 需要 8.0）】
+ * <pre>
+ * CREATE TABLE mq_outbox (
+ *     id             BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+ *     exchange       VARCHAR(128) NOT NULL,
+ *     routing_key    VARCHAR(128) NOT NULL,
+ *     message_id     VARCHAR(64)  NOT NULL,
+ *     content_type   VARCHAR(64)  NOT NULL,
+ *     payload_type   VARCHAR(255) DEFAULT NULL,
+ *     payload        MEDIUMTEXT   NOT NULL,
+ *     attempts       INT          NOT NULL DEFAULT 0,
+ *     available_at   DATETIME(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+ *     published_time DATETIME(3)  DEFAULT NULL,
+ *     failed_time    DATETIME(3)  DEFAULT NULL,
+ *     last_error     VARCHAR(512) DEFAULT NULL,
+ *     create_time    DATETIME(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+ *     KEY idx_pending (published_time, failed_time, available_at)
+ * ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+ * </pre>
+ */
+public class OutboxRelay {
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageProducer messageProducer;
+    private final String table;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long leaseMillis;
+    private final boolean deletePublished;
+    private final long backlogIntervalMillis;
+    private final int maxAttempts;
+
+    private final Object signal = new Object();
+    private boolean signalled;
+    private volatile boolean running;
+    private Thread thread;
+    private long lastBacklogCheck;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long pendingRows = -1;
+    private volatile long oldestPendingAgeMillis = -1;
+    private volatile long parkedRows = -1;
+
+    /**
+     * 构造函数
+     *
+     * @param dataSource            数据源（与 OutboxPublisher 相同）
+     * @param transactionManager    事务管理器（认领时使用）
+     * @param messageProducer       消息生产者（通过发布确认发送）
+     * @param table                 发件箱表名
+     * @param batchSize             每批最多认领的行数
+     * @param pollIntervalMillis    没有新消息时的轮询间隔（毫秒）
+     * @param leaseMillis           认领租约（毫秒），应大于发送和确认（含重试）的最长时间
+     * @param deletePublished       发送成功后删除（true）还是标记 published_time（false）
+     * @param backlogIntervalMillis 统计积压的间隔（毫秒），小于等于 0 时不统计
+     * @param maxAttempts           最多发送次数，达到后标记为死信（failed_time），小于等于 0 时不限制
+     */
+    public OutboxRelay(DataSource dataSource, PlatformTransactionManager transactionManager,
+                       MessageProducer messageProducer, String table, int batchSize, long pollIntervalMillis,
+                       long leaseMillis, boolean deletePublished, long backlogIntervalMillis, int maxAttempts) {
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messageProducer = messageProducer;
+        this.table = table;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.leaseMillis = leaseMillis;
+        this.deletePublished = deletePublished;
+        this.backlogIntervalMillis = backlogIntervalMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "mq-outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        wakeUp();
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * 唤醒发送线程（事务提交后由 OutboxPublisher 调用）
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * 执行一批：认领、发送、收尾
+     *
+     * @return 本批认领的行数
+     */
+    public int relayOnce() {
+        List<OutboxRow> rows = claim();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        batches.increment();
+        claimed.add(rows.size());
+        long claimedAt = System.nanoTime();
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(rows.size());
+        for (OutboxRow row : rows) {
+            CompletableFuture<String> future;
+            try {
+                future = messageProducer.sendAsync(row.exchange, row.routingKey, toMessage(row));
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            futures.add(future);
+        }
+
+        List<Long> succeeded = new ArrayList<>(rows.size());
+        List<OutboxRow> retry = new ArrayList<>();
+        List<OutboxRow> dead = new ArrayList<>();
+        long maxBatchLag = 0;
+        long deadline = claimedAt + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxRow row = rows.get(i);
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                succeeded.add(row.id);
+                long lag = row.ageMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - claimedAt);
+                maxBatchLag = Math.max(maxBatchLag, lag);
+            } catch (InterruptedException e) {
+                // 停止时中断：剩余的行租约到期后重新发送
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                row.error = e.getCause() != null ? String.valueOf(e.getCause().getMessage()) : "等待确认超时";
+                if (maxAttempts > 0 && row.attempts >= maxAttempts) {
+                    dead.add(row);
+                    System.out.println("发件箱消息 " + row.messageId + " 已发送 " + row.attempts + " 次仍失败，标记为死信："
+                            + row.error);
+                } else {
+                    retry.add(row);
+                    System.out.println("发件箱消息 " + row.messageId + " 发送失败（第 " + row.attempts + " 次）：" + row.error);
+                }
+            }
+        }
+
+        if (!succeeded.isEmpty()) {
+            complete(succeeded);
+            published.add(succeeded.size());
+            lastLagMillis.set(maxBatchLag);
+            maxLagMillis.accumulateAndGet(maxBatchLag, Math::max);
+        }
+        if (!retry.isEmpty()) {
+            reschedule(retry);
+            failed.add(retry.size());
+        }
+        if (!dead.isEmpty()) {
+            park(dead);
+            failed.add(dead.size());
+            parked.add(dead.size());
+        }
+        return rows.size();
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("batches", batches.sum());
+        stats.put("claimed", claimed.sum());
+        stats.put("published", published.sum());
+        stats.put("failed", failed.sum());
+        stats.put("parked", parked.sum());
+        stats.put("errors", errors.sum());
+        stats.put("lastLagMillis", lastLagMillis.get());
+        stats.put("maxLagMillis", maxLagMillis.get());
+        stats.put("pendingRows", pendingRows);
+        stats.put("oldestPendingAgeMillis", oldestPendingAgeMillis);
+        stats.put("parkedRows", parkedRows);
+        return stats;
+    }
+
+    private void run() {
+        while (running) {
+            int count = 0;
+            try {
+                count = relayOnce();
+                checkBacklog();
+            } catch (RuntimeException e) {
+                errors.increment();
+                System.out.println("发件箱发送失败：" + e.getMessage());
+            }
+            if (count < batchSize) {
+                awaitSignal();
+            }
+        }
+    }
+
+    private void awaitSignal() {
+        synchronized (signal) {
+            if (!signalled && running) {
+                try {
+                    signal.wait(pollIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            signalled = false;
+        }
+    }
+
+    private List<OutboxRow> claim() {
+        String selectSql = "SELECT id, exchange, routing_key, message_id, content_type, payload_type, payload, attempts,"
+                + " TIMESTAMPDIFF(MICROSECOND, create_time, NOW(3)) DIV 1000 AS age_millis FROM " + table
+                + " WHERE published_time IS NULL AND failed_time IS NULL AND available_at <= NOW(3)"
+                + " ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+        List<OutboxRow> rows = transactionTemplate.execute(status -> {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                List<OutboxRow> result = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+                    statement.setInt(1, batchSize);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            result.add(new OutboxRow(resultSet));
+                        }
+                    }
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+                List<Long> ids = new ArrayList<>(result.size());
+                for (OutboxRow row : result) {
+                    ids.add(row.id);
+                    row.attempts++;
+                }
+                String leaseSql = "UPDATE " + table + " SET attempts = attempts + 1,"
+                        + " available_at = DATE_ADD(NOW(3), INTERVAL ? MICROSECOND) WHERE id IN (" + placeholders(ids.size()) + ")";
+                try (PreparedStatement statement = connection.prepareStatement(leaseSql)) {
+                    statement.setLong(1, TimeUnit.MILLISECONDS.toMicros(leaseMillis));
+                    bindIds(statement, 2, ids);
+                    statement.executeUpdate();
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new IllegalStateException("认领发件箱消息失败：" + e.getMessage(), e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+        return rows == null ? Collections.emptyList() : rows;
+    }
+
+    private void complete(List<Long> ids) {
+        String sql = deletePublished
+                ? "DELETE FROM " + table + " WHERE id IN (" + placeholders(ids.size()) + ")"
+                : "UPDATE " + table + " SET published_time = NOW(3) WHERE id IN (" + placeholders(ids.size()) + ")";
+        execute(sql, statement -> bindIds(statement, 1, ids));
+    }
+
+    /**
+     * 失败的行按尝试次数退避（1、2、4 ... 秒，最长 60 秒）后重新可见
+     */
+    private void reschedule(List<OutboxRow> rows) {
+        String sql = "UPDATE " + table + " SET available_at = DATE_ADD(NOW(3), INTERVAL ? MICROSECOND), last_error = ?"
+                + " WHERE id = ?";
+        execute(sql, statement -> {
+            for (OutboxRow row : rows) {
+                long delay = Math.min(MAX_RETRY_DELAY_MILLIS, 1000L << Math.min(row.attempts - 1, 6));
+                statement.setLong(1, TimeUnit.MILLISECONDS.toMicros(delay));
+                statement.setString(2, truncate(row.error));
+                statement.setLong(3, row.id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        });
+    }
+
+    /**
+     * 发送次数用完的行标记为死信，不再认领
+     */
+    private void park(List<OutboxRow> rows) {
+        String sql = "UPDATE " + table + " SET failed_time = NOW(3), last_error = ? WHERE id = ?";
+        execute(sql, statement -> {
+            for (OutboxRow row : rows) {
+                statement.setString(1, truncate(row.error));
+                statement.setLong(2, row.id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        });
+    }
+
+    private void checkBacklog() {
+        long now = System.currentTimeMillis();
+        if (backlogIntervalMillis <= 0 || now - lastBacklogCheck < backlogIntervalMillis) {
+            return;
+        }
+        lastBacklogCheck = now;
+        String sql = "SELECT COUNT(*) - COUNT(failed_time),"
+                + " TIMESTAMPDIFF(MICROSECOND, MIN(CASE WHEN failed_time IS NULL THEN create_time END), NOW(3)) DIV 1000,"
+                + " COUNT(failed_time) FROM " + table + " WHERE published_time IS NULL";
+        execute(sql, statement -> {
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    pendingRows = resultSet.getLong(1);
+                    long age = resultSet.getLong(2);
+                    oldestPendingAgeMillis = resultSet.wasNull() ? 0 : age;
+                    parkedRows = resultSet.getLong(3);
+                }
+            }
+        });
+    }
+
+    private void execute(String sql, StatementCallback callback) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            callback.apply(statement);
+        } catch (SQLException e) {
+            throw new IllegalStateException("更新发件箱失败：" + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static Message toMessage(OutboxRow row) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(row.messageId);
+        properties.setContentType(row.contentType);
+        if (row.payloadType != null) {
+            // 与 Jackson2JsonMessageConverter 的类型头一致
+            properties.setHeader("__TypeId__", row.payloadType);
+        }
+        if (!OutboxPublisher.isText(row.contentType)) {
+            return new Message(Base64.getDecoder().decode(row.payload), properties);
+        }
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        return new Message(row.payload.getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    private static void bindIds(PreparedStatement statement, int start, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(start + i, ids.get(i));
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementCallback {
+        void apply(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * 认领的一行
+     */
+    private static final class OutboxRow {
+        private final long id;
+        private final String exchange;
+        private final String routingKey;
+        private final String messageId;
+        private final String contentType;
+        private final String payloadType;
+        private final String payload;
+        private final long ageMillis;
+        private int attempts;
+        private String error;
+
+        private OutboxRow(ResultSet resultSet) throws SQLException {
+            this.id = resultSet.getLong("id");
+            this.exchange = resultSet.getString("exchange");
+            this.routingKey = resultSet.getString("routing_key");
+            this.messageId = resultSet.getString("message_id");
+            this.contentType = resultSet.getString("content_type");
+            this.payloadType = resultSet.getString("payload_type");
+            this.payload = resultSet.getString("payload");
+            this.attempts = resultSet.getInt("attempts");
+            this.ageMillis = resultSet.getLong("age_millis");
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.enterprisesystem.babycommon.mq.producer;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 跟踪发布确认的异步发送器
+ *
+ * 【流程】
+ * publish 把消息转换为 Message（设置 messageId，重试时原样重发）后立即发送，不等待确认，返回的 Future
+ * 在 broker ack 后完成。多个线程同时发送时各自从 CachingConnectionFactory 的通道缓存中取通道，
+ * 发送和确认是流水线式的。
+ *
+ * 【在途窗口】
+ * 最多 maxInFlight 条消息等待确认，窗口满时 publish 阻塞（背压），等待超过 confirmTimeoutMillis 抛出异常。
+ *
+ * 【确认跟踪】
+ * 每次发送分配递增序号，等待确认的消息以「序号 -> 消息」保存在 ConcurrentSkipListMap 中：
+ * 确认回调按序号取出；超时检查从最小序号开始，遇到第一条未超时的即停止。
+ *
+ * 【重试】
+ * nack、等待确认超时、发送异常时按 retryBackoffMillis × 2^(n-1) 延迟重发，超过 maxRetries 次后 Future 以异常完成；
+ * 消息未路由到队列（returned）重发也不会成功，直接以异常完成。
+ * 超时重发的消息可能已经到达 broker，消费者需要按 messageId 去重。
+ * 计时线程只负责超时检查和重试延迟，到期的重发交给单独的重试线程池执行：
+ * rabbitTemplate.send 在连接阻塞或通道耗尽时会阻塞，不能拖住其他消息的超时检查。
+ *
+ * 需要配置 spring.rabbitmq.publisher-confirm-type=correlated，并由 ConfirmCallback 调用 handleConfirm。
+ */
+public class ConfirmingPublisher {
+
+    /**
+     * 重试线程数：重发只是把消息写入通道，少量线程即可；等待重发的消息数受在途窗口限制
+     */
+    private static final int RETRY_THREADS = 2;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final int maxInFlight;
+    private final long confirmTimeoutMillis;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+
+    private final Semaphore window;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 发送序号 -> 等待确认的消息
+     */
+    private final ConcurrentSkipListMap<Long, PendingMessage> outstanding = new ConcurrentSkipListMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mq-publish-confirm");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService retryExecutor = new ThreadPoolExecutor(RETRY_THREADS, RETRY_THREADS,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "mq-publish-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder nacked = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder lateConfirms = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param rabbitTemplate       RabbitTemplate
+     * @param maxInFlight          最多等待确认的消息数
+     * @param confirmTimeoutMillis 等待确认超时时间（毫秒），同时是窗口满时的最长等待时间
+     * @param maxRetries           最多重试次数
+     * @param retryBackoffMillis   第一次重试的延迟（毫秒），之后逐次翻倍
+     */
+    public ConfirmingPublisher(RabbitTemplate rabbitTemplate, int maxInFlight, long confirmTimeoutMillis,
+                               int maxRetries, long retryBackoffMillis) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.maxInFlight = maxInFlight;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.window = new Semaphore(maxInFlight);
+        long sweepMillis = Math.max(10, confirmTimeoutMillis / 10);
+        scheduler.scheduleWithFixedDelay(this::sweepTimeouts, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 异步发送
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param payload    消息内容；为 Message 时原样发送（没有 messageId 时补充）
+     * @return broker 确认后完成的 Future，值为 messageId
+     */
+    public CompletableFuture<String> publish(String exchange, String routingKey, Object payload) {
+        if (!rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            throw new IllegalStateException("异步发送需要配置 spring.rabbitmq.publisher-confirm-type=correlated");
+        }
+        Message message;
+        if (payload instanceof Message) {
+            message = (Message) payload;
+            if (message.getMessageProperties().getMessageId() == null) {
+                message.getMessageProperties().setMessageId(UUID.randomUUID().toString());
+            }
+        } else {
+            MessageProperties properties = new MessageProperties();
+            properties.setMessageId(UUID.randomUUID().toString());
+            message = rabbitTemplate.getMessageConverter().toMessage(payload, properties);
+        }
+        String messageId = message.getMessageProperties().getMessageId();
+
+        try {
+            if (!window.tryAcquire(confirmTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("等待确认的消息已达到 " + maxInFlight + " 条，发送超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待发送窗口时被中断", e);
+        }
+        PendingMessage pending = new PendingMessage(messageId, exchange, routingKey, message);
+        send(pending);
+        return pending.future;
+    }
+
+    /**
+     * 处理发布确认
+     *
+     * @param correlationData 发送时的 CorrelationData
+     * @param ack             是否 ack
+     * @param cause           nack 原因
+     * @return 是否是本发送器发出的消息
+     */
+    public boolean handleConfirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (!(correlationData instanceof TrackedCorrelationData)) {
+            return false;
+        }
+        TrackedCorrelationData tracked = (TrackedCorrelationData) correlationData;
+        PendingMessage pending = outstanding.remove(tracked.sequence);
+        if (pending == null) {
+            // 已按超时处理（重发或失败）
+            lateConfirms.increment();
+            return true;
+        }
+        if (!ack) {
+            nacked.increment();
+            retryOrFail(pending, "broker nack：" + cause, null);
+            return true;
+        }
+        ReturnedMessage returnedMessage = tracked.getReturned();
+        if (returnedMessage != null) {
+            returned.increment();
+            fail(pending, new IllegalStateException("消息 " + pending.messageId + " 未路由到队列：" + returnedMessage.getReplyText()
+                    + "（交换机：" + returnedMessage.getExchange() + "，路由键：" + returnedMessage.getRoutingKey() + "）"));
+            return true;
+        }
+        acked.increment();
+        window.release();
+        pending.future.complete(pending.messageId);
+        return true;
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("inFlight", (long) (maxInFlight - window.availablePermits()));
+        stats.put("awaitingConfirm", (long) outstanding.size());
+        stats.put("published", published.sum());
+        stats.put("acked", acked.sum());
+        stats.put("nacked", nacked.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("returned", returned.sum());
+        stats.put("retries", retries.sum());
+        stats.put("failed", failed.sum());
+        stats.put("lateConfirms", lateConfirms.sum());
+        return stats;
+    }
+
+    /**
+     * 关闭，未确认的消息以异常完成
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        retryExecutor.shutdownNow();
+        for (Long key : outstanding.keySet()) {
+            PendingMessage pending = outstanding.remove(key);
+            if (pending != null) {
+                fail(pending, new IllegalStateException("发送器已关闭，消息 " + pending.messageId + " 未确认"));
+            }
+        }
+    }
+
+    private void send(PendingMessage pending) {
+        long seq = sequence.incrementAndGet();
+        TrackedCorrelationData correlationData = new TrackedCorrelationData(pending.messageId + "#" + seq, seq);
+        pending.attempts++;
+        pending.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMillis);
+        // 确认可能在 send 返回前到达，先登记
+        outstanding.put(seq, pending);
+        try {
+            rabbitTemplate.send(pending.exchange, pending.routingKey, pending.message, correlationData);
+            published.increment();
+        } catch (RuntimeException e) {
+            if (outstanding.remove(seq) != null) {
+                retryOrFail(pending, "发送失败：" + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void retryOrFail(PendingMessage pending, String reason, Throwable cause) {
+        if (pending.attempts > maxRetries) {
+            fail(pending, new IllegalStateException("消息 " + pending.messageId + " 发送失败（已重试 " + maxRetries + " 次）："
+                    + reason, cause));
+            return;
+        }
+        retries.increment();
+        long delay = retryBackoffMillis << Math.min(pending.attempts - 1, 6);
+        try {
+            scheduler.schedule(() -> resend(pending, cause), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            fail(pending, new IllegalStateException("发送器已关闭，消息 " + pending.messageId + " 未重试", cause));
+        }
+    }
+
+    /**
+     * 延迟到期，在重试线程池中重发
+     */
+    private void resend(PendingMessage pending, Throwable cause) {
+        try {
+            retryExecutor.execute(() -> send(pending));
+        } catch (RejectedExecutionException e) {
+            fail(pending, new IllegalStateException("发送器已关闭，消息 " + pending.messageId + " 未重试", cause));
+        }
+    }
+
+    private void fail(PendingMessage pending, Exception e) {
+        failed.increment();
+        window.release();
+        System.err.println("❌ " + e.getMessage());
+        pending.future.completeExceptionally(e);
+    }
+
+    /**
+     * 序号越小发送越早，遇到第一条未超时的消息即可停止
+     */
+    private void sweepTimeouts() {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Long, PendingMessage>> it = outstanding.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, PendingMessage> entry = it.next();
+            if (entry.getValue().deadlineNanos - now > 0) {
+                break;
+            }
+            if (outstanding.remove(entry.getKey(), entry.getValue())) {
+                timeouts.increment();
+                retryOrFail(entry.getValue(), "等待确认超时（" + confirmTimeoutMillis + " 毫秒）", null);
+            }
+        }
+    }
+
+    /**
+     * 等待确认的消息，同一时刻只有一次发送在等待确认
+     */
+    private static final class PendingMessage {
+        private final String messageId;
+        private final String exchange;
+        private final String routingKey;
+        private final Message message;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private volatile int attempts;
+        private volatile long deadlineNanos;
+
+        private PendingMessage(String messageId, String exchange, String routingKey, Message message) {
+            this.messageId = messageId;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 带发送序号的 CorrelationData，确认回调中取回的是同一个对象
+     */
+    private static final class TrackedCorrelationData extends CorrelationData {
+        private final long sequence;
+
+        private TrackedCorrelationData(String id, long sequence) {
+            super(id);
+            this.sequence = sequence;
+        }
+    }
+}
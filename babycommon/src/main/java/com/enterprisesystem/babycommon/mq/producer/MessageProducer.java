@@ -1,13 +1,24 @@
 package com.enterprisesystem.babycommon.mq.producer;
 
 import com.enterprisesystem.babycommon.mq.config.RabbitMQConfig;
+import com.enterprisesystem.babycommon.mq.delay.DelayedMessageScheduler;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * 消息生产者工具类
@@ -28,9 +39,26 @@ import java.util.UUID;
  *
  * // 发送字符串消息
  * messageProducer.sendMessage("system.message", "Hello RabbitMQ");
+ *
+ * // 异步发送，broker 确认后 Future 完成
+ * messageProducer.sendAsync("order.create", orderDto).thenAccept(messageId -> ...);
+ *
+ * // 批量发送，全部确认后完成
+ * messageProducer.sendBatch("order.create", orderDtos).join();
+ *
+ * // 延迟 30 分钟发送（配置见 BatchDelayedMessageAutoConfiguration）
+ * messageProducer.sendDelayedMessage("order.timeout", orderDto, 30 * 60 * 1000L);
  * }
  * </pre>
  *
+ * 【异步发送配置】
+ * spring.rabbitmq.publisher-confirm-type=correlated      必须，开启发布确认
+ * spring.rabbitmq.cache.channel.size                     通道缓存数，不小于同时发送的线程数
+ * babycommon.mq.publish.max-in-flight                    最多等待确认的消息数，默认 1000
+ * babycommon.mq.publish.confirm-timeout-millis           等待确认超时时间，默认 5000
+ * babycommon.mq.publish.max-retries                      nack / 超时后最多重试次数，默认 3
+ * babycommon.mq.publish.retry-backoff-millis             第一次重试的延迟，之后逐次翻倍，默认 200
+ *
  * @author Claude Code
  */
 @Component
@@ -39,14 +67,41 @@ public class MessageProducer {
     @Resource
     private RabbitTemplate rabbitTemplate;
 
+    @Value("${babycommon.mq.publish.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${babycommon.mq.publish.confirm-timeout-millis:5000}")
+    private long confirmTimeoutMillis;
+
+    @Value("${babycommon.mq.publish.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${babycommon.mq.publish.retry-backoff-millis:200}")
+    private long retryBackoffMillis;
+
+    /**
+     * 延迟消息调度器，babycommon.mq.delay.enabled=false 时不存在
+     */
+    @Autowired
+    private ObjectProvider<DelayedMessageScheduler> delayedMessageScheduler;
+
+    private ConfirmingPublisher confirmingPublisher;
+
     /**
      * 初始化回调函数
      * 在消息发送到交换机后触发回调
      */
     @PostConstruct
     public void init() {
+        confirmingPublisher = new ConfirmingPublisher(rabbitTemplate, maxInFlight, confirmTimeoutMillis,
+                maxRetries, retryBackoffMillis);
+
         // 消息发送到交换机的回调（成功或失败）
         rabbitTemplate.setConfirmCallback((correlationData, ack, cause) -> {
+            // 异步发送的消息由 ConfirmingPublisher 完成 Future 或重试
+            if (confirmingPublisher.handleConfirm(correlationData, ack, cause)) {
+                return;
+            }
             if (ack) {
                 // 消息成功发送到交换机
                 System.out.println("✅ 消息成功发送到交换机");
@@ -108,6 +163,77 @@ public class MessageProducer {
         }
     }
 
+    /**
+     * 异步发送消息到直连交换机
+     *
+     * 【适用场景】
+     * - 大量发送，不希望每条消息都同步等待
+     * - 需要知道消息是否被 broker 确认
+     *
+     * 不等待确认立即返回；等待确认的消息达到 max-in-flight 时阻塞。
+     * nack 或超时未确认时自动重发（messageId 不变），重试用尽或消息未路由到队列时 Future 以异常完成。
+     *
+     * @param routingKey 路由键
+     * @param message 消息内容
+     * @return broker 确认后完成的 Future，值为 messageId
+     */
+    public CompletableFuture<String> sendAsync(String routingKey, Object message) {
+        return sendAsync(RabbitMQConfig.EXCHANGE_DIRECT, routingKey, message);
+    }
+
+    /**
+     * 异步发送消息到指定交换机
+     *
+     * @param exchange 交换机
+     * @param routingKey 路由键
+     * @param message 消息内容（为 Message 时原样发送，保留其 messageId）
+     * @return broker 确认后完成的 Future，值为 messageId
+     */
+    public CompletableFuture<String> sendAsync(String exchange, String routingKey, Object message) {
+        return confirmingPublisher.publish(exchange, routingKey, message);
+    }
+
+    /**
+     * 批量异步发送消息到直连交换机
+     *
+     * 逐条发送不等待确认，全部确认后返回的 Future 完成；任意一条最终失败时 Future 以异常完成，
+     * 其他消息仍会继续发送和确认。某一条在发送时直接抛出异常（窗口已满超时、消息转换失败等）时，
+     * 这条记为失败，后面的消息照常发送，已发出消息的确认结果不会丢失。
+     *
+     * @param routingKey 路由键
+     * @param messages 消息内容列表
+     * @return 全部确认后完成的 Future，值为按顺序排列的 messageId
+     */
+    public CompletableFuture<List<String>> sendBatch(String routingKey, List<?> messages) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(messages.size());
+        for (Object message : messages) {
+            CompletableFuture<String> future;
+            try {
+                future = sendAsync(routingKey, message);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            futures.add(future);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * 异步发送统计（在途数、确认数、nack、超时、重试、失败等）
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getPublishStats() {
+        return confirmingPublisher.getStats();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        confirmingPublisher.shutdown();
+    }
+
     /**
      * 发送消息到主题交换机（支持通配符）
      *
@@ -187,18 +313,28 @@ public class MessageProducer {
     }
 
     /**
-     * 发送延迟消息（需要安装延迟插件）
+     * 发送延迟消息
      *
-     * 【注意】
-     * 需要安装 RabbitMQ 延迟插件：rabbitmq_delayed_message_exchange
+     * 【实现】
+     * 不需要 RabbitMQ 延迟插件：几秒内到期的消息放入进程内时间轮，更长的延迟经过 TTL 分级队列，
+     * 详见 DelayedMessageScheduler。方法返回时消息已保存（Redis 或 RabbitMQ），误差一般为一到两个时间轮 tick（默认 10 毫秒）。
+     * 投递语义为至少一次，消费者按 messageId 去重。
      *
      * @param routingKey 路由键
      * @param message 消息内容
      * @param delayMillis 延迟时间（毫秒）
      */
     public void sendDelayedMessage(String routingKey, Object message, long delayMillis) {
-        // TODO: 实现延迟消息（需要安装延迟插件）
-        System.out.println("⚠️ 延迟消息功能需要安装 RabbitMQ 延迟插件");
-        throw new UnsupportedOperationException("延迟消息功能暂未实现");
+        DelayedMessageScheduler scheduler = delayedMessageScheduler.getIfAvailable();
+        if (scheduler == null) {
+            throw new IllegalStateException("延迟消息未开启（babycommon.mq.delay.enabled=false）");
+        }
+        try {
+            String messageId = scheduler.schedule(RabbitMQConfig.EXCHANGE_DIRECT, routingKey, message, delayMillis).join();
+            System.out.println("✅ 延迟消息已调度：" + routingKey + "，延迟 " + delayMillis + " 毫秒，消息ID：" + messageId);
+        } catch (CompletionException e) {
+            System.err.println("❌ 发送延迟消息失败：" + e.getCause().getMessage());
+            throw new RuntimeException("发送延迟消息失败", e.getCause());
+        }
     }
 }
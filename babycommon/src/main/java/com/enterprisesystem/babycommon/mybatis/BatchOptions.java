@@ -0,0 +1,59 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import lombok.Data;
+
+/**
+ * 批量写入选项
+ */
+@Data
+public class BatchOptions {
+
+    /**
+     * 默认每批行数
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * 每批行数，每批执行一次 flushStatements（一次 executeBatch）
+     */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * 是否每批单独提交事务
+     *
+     * true：每批一个事务，失败只回滚当前批次，已提交的批次保留，适合可重跑的大批量导入
+     * false：所有批次在同一个事务中，任意一批失败全部回滚
+     */
+    private boolean perChunkTransaction = false;
+
+    /**
+     * 每批单独提交事务时，某一批失败后是否继续执行后续批次（失败信息记录在结果中）
+     */
+    private boolean continueOnError = false;
+
+    /**
+     * 静态工厂方法
+     *
+     * @param chunkSize 每批行数
+     * @return 批量写入选项
+     */
+    public static BatchOptions of(int chunkSize) {
+        BatchOptions options = new BatchOptions();
+        options.setChunkSize(chunkSize);
+        return options;
+    }
+
+    /**
+     * 每批单独提交事务
+     *
+     * @param chunkSize       每批行数
+     * @param continueOnError 某一批失败后是否继续执行后续批次
+     * @return 批量写入选项
+     */
+    public static BatchOptions perChunk(int chunkSize, boolean continueOnError) {
+        BatchOptions options = of(chunkSize);
+        options.setPerChunkTransaction(true);
+        options.setContinueOnError(continueOnError);
+        return options;
+    }
+}
@@ -0,0 +1,229 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.exception.BatchWriteException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * JDBC 批量写入执行器
+ *
+ * 【作用】
+ * 通过 MyBatis ExecutorType.BATCH 执行批量 INSERT / UPDATE：同一批中的语句只预编译一次，
+ * 调用 Mapper 方法时只是 addBatch()，每凑满 chunkSize 行执行一次 flushStatements()（executeBatch）。
+ * 连接参数开启 rewriteBatchedStatements=true 后，MySQL 驱动会把一批 INSERT 改写为一条多值 INSERT，
+ * 10 万行数据只需要几十次网络往返。
+ *
+ * 【使用方法】
+ * <pre>
+ * {@code
+ * BatchWriteResult result = batchWriteExecutor.execute(UserMapper.class, users, UserMapper::insert,
+ *         BatchOptions.perChunk(1000, false));
+ * }
+ * </pre>
+ *
+ * 【事务】
+ * 批量写入在独立的新事务中执行（BATCH 执行器不能与调用方事务中已打开的普通 SqlSession 共用），
+ * perChunkTransaction 为 true 时每批一个事务，否则所有批次在同一个事务中。
+ *
+ * 【失败处理】
+ * 每批单独提交且 continueOnError 为 true 时，失败的批次记录在结果中并继续执行后续批次；
+ * 否则在第一个失败的批次停止，抛出 BatchWriteException，其中携带截至失败时每批的执行情况。
+ *
+ * 【rewriteBatchedStatements】
+ * BatchMybatisAutoConfiguration 默认为 MySQL 数据源的连接参数加上 rewriteBatchedStatements=true
+ * （babycommon.mybatis.rewrite-batched-statements），这里只检测最终连接是否开启，未开启时提示一次。
+ */
+public class BatchWriteExecutor {
+
+    private static final String REWRITE_BATCHED_STATEMENTS = "rewritebatchedstatements=true";
+
+    private final SqlSessionTemplate batchSqlSession;
+    private final PlatformTransactionManager transactionManager;
+    private final int defaultChunkSize;
+
+    /**
+     * 连接是否开启了 rewriteBatchedStatements，首次执行时检测
+     */
+    private volatile Boolean rewriteBatchedStatements;
+
+    public BatchWriteExecutor(SqlSessionFactory sqlSessionFactory, PlatformTransactionManager transactionManager) {
+        this(sqlSessionFactory, transactionManager, BatchOptions.DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchWriteExecutor(SqlSessionFactory sqlSessionFactory, PlatformTransactionManager transactionManager,
+                              int defaultChunkSize) {
+        this.batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.transactionManager = transactionManager;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    /**
+     * 使用默认批次大小、单事务执行批量写入
+     *
+     * @param mapperType Mapper 接口
+     * @param items      数据列表
+     * @param statement  对每行数据调用的 Mapper 方法，如 UserMapper::insert
+     * @param <M>        Mapper 类型
+     * @param <T>        数据类型
+     * @return 执行结果
+     */
+    public <M, T> BatchWriteResult execute(Class<M> mapperType, List<T> items, BiConsumer<M, T> statement) {
+        return execute(mapperType, items, statement, defaultOptions());
+    }
+
+    /**
+     * 默认选项：babycommon.mybatis.batch-chunk-size 行一批，所有批次在同一个事务中
+     *
+     * @return 新的选项对象
+     */
+    public BatchOptions defaultOptions() {
+        return BatchOptions.of(defaultChunkSize);
+    }
+
+    /**
+     * 执行批量写入
+     *
+     * @param mapperType Mapper 接口
+     * @param items      数据列表
+     * @param statement  对每行数据调用的 Mapper 方法
+     * @param options    批量写入选项
+     * @param <M>        Mapper 类型
+     * @param <T>        数据类型
+     * @return 执行结果
+     */
+    public <M, T> BatchWriteResult execute(Class<M> mapperType, List<T> items, BiConsumer<M, T> statement,
+                                           BatchOptions options) {
+        if (options.getChunkSize() < 1) {
+            throw new IllegalArgumentException("chunkSize 必须大于 0");
+        }
+        BatchWriteResult result = new BatchWriteResult();
+        if (items == null || items.isEmpty()) {
+            return result;
+        }
+        result.setTotalRows(items.size());
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long start = System.nanoTime();
+        if (options.isPerChunkTransaction()) {
+            for (int from = 0, index = 0; from < items.size(); from += options.getChunkSize(), index++) {
+                List<T> chunk = items.subList(from, Math.min(from + options.getChunkSize(), items.size()));
+                int chunkIndex = index;
+                try {
+                    transaction.executeWithoutResult(status -> runChunk(mapperType, chunk, chunkIndex, statement, result));
+                } catch (RuntimeException e) {
+                    recordFailure(result, chunkIndex, chunk.size(), e);
+                    if (!options.isContinueOnError()) {
+                        result.setElapsedMillis(elapsedMillis(start));
+                        result.setRewriteBatchedStatements(Boolean.TRUE.equals(rewriteBatchedStatements));
+                        throw new BatchWriteException(result, chunkIndex, true, e);
+                    }
+                }
+            }
+        } else {
+            int[] current = new int[1];
+            try {
+                transaction.executeWithoutResult(status -> {
+                    for (int from = 0, index = 0; from < items.size(); from += options.getChunkSize(), index++) {
+                        List<T> chunk = items.subList(from, Math.min(from + options.getChunkSize(), items.size()));
+                        current[0] = index;
+                        runChunk(mapperType, chunk, index, statement, result);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 整个事务已回滚，之前成功的批次也不再有效
+                result.getChunks().clear();
+                result.setRowsAffected(0);
+                int failedRows = Math.min(options.getChunkSize(), items.size() - current[0] * options.getChunkSize());
+                recordFailure(result, current[0], failedRows, e);
+                result.setElapsedMillis(elapsedMillis(start));
+                result.setRewriteBatchedStatements(Boolean.TRUE.equals(rewriteBatchedStatements));
+                throw new BatchWriteException(result, current[0], false, e);
+            }
+        }
+        result.setElapsedMillis(elapsedMillis(start));
+        result.setRewriteBatchedStatements(Boolean.TRUE.equals(rewriteBatchedStatements));
+        return result;
+    }
+
+    /**
+     * 执行一批：逐行 addBatch，最后统一 flushStatements
+     */
+    private <M, T> void runChunk(Class<M> mapperType, List<T> chunk, int index, BiConsumer<M, T> statement,
+                                 BatchWriteResult result) {
+        long start = System.nanoTime();
+        detectRewriteBatchedStatements();
+        M mapper = batchSqlSession.getMapper(mapperType);
+        for (T item : chunk) {
+            statement.accept(mapper, item);
+        }
+        List<BatchResult> batchResults = batchSqlSession.flushStatements();
+
+        long rowsAffected = 0;
+        for (BatchResult batchResult : batchResults) {
+            for (int count : batchResult.getUpdateCounts()) {
+                if (count >= 0) {
+                    rowsAffected += count;
+                } else if (count == Statement.SUCCESS_NO_INFO) {
+                    rowsAffected++;
+                    result.setRowsAffectedExact(false);
+                }
+            }
+        }
+
+        BatchWriteResult.ChunkResult chunkResult = new BatchWriteResult.ChunkResult();
+        chunkResult.setIndex(index);
+        chunkResult.setRows(chunk.size());
+        chunkResult.setRowsAffected(rowsAffected);
+        chunkResult.setElapsedMillis(elapsedMillis(start));
+        result.getChunks().add(chunkResult);
+        result.setRowsAffected(result.getRowsAffected() + rowsAffected);
+    }
+
+    private void recordFailure(BatchWriteResult result, int index, int rows, RuntimeException e) {
+        BatchWriteResult.ChunkResult chunkResult = new BatchWriteResult.ChunkResult();
+        chunkResult.setIndex(index);
+        chunkResult.setRows(rows);
+        chunkResult.setSuccess(false);
+        chunkResult.setErrorMessage(e.getMessage());
+        result.getChunks().add(chunkResult);
+        System.out.println("批量写入第 " + index + " 批失败，已回滚：" + e.getMessage());
+    }
+
+    /**
+     * 检测连接是否开启了 rewriteBatchedStatements，未开启时提示一次
+     */
+    private void detectRewriteBatchedStatements() {
+        if (rewriteBatchedStatements != null) {
+            return;
+        }
+        boolean enabled = false;
+        try {
+            Connection connection = batchSqlSession.getConnection();
+            String url = connection.getMetaData().getURL();
+            enabled = url != null && url.toLowerCase().contains(REWRITE_BATCHED_STATEMENTS);
+        } catch (SQLException e) {
+            System.out.println("检测 rewriteBatchedStatements 失败：" + e.getMessage());
+        }
+        if (!enabled) {
+            System.out.println("JDBC 连接未开启 rewriteBatchedStatements=true，批量 INSERT 将逐条发送到 MySQL");
+        }
+        rewriteBatchedStatements = enabled;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,107 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量写入结果汇总
+ */
+@Data
+public class BatchWriteResult {
+
+    /**
+     * 提交的总行数
+     */
+    private int totalRows;
+
+    /**
+     * 影响的行数
+     *
+     * 开启 rewriteBatchedStatements 后 MySQL 驱动对 INSERT 返回 SUCCESS_NO_INFO，
+     * 此时按每条语句影响 1 行计算，rowsAffectedExact 为 false
+     */
+    private long rowsAffected;
+
+    /**
+     * 影响行数是否为驱动返回的准确值
+     */
+    private boolean rowsAffectedExact = true;
+
+    /**
+     * 连接是否开启了 rewriteBatchedStatements
+     */
+    private boolean rewriteBatchedStatements;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 每批的执行情况
+     */
+    private List<ChunkResult> chunks = new ArrayList<>();
+
+    /**
+     * 失败的批次数
+     *
+     * @return 失败的批次数
+     */
+    public int getFailedChunkCount() {
+        int failed = 0;
+        for (ChunkResult chunk : chunks) {
+            if (!chunk.isSuccess()) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 是否全部成功
+     *
+     * @return true-全部成功
+     */
+    public boolean isSuccess() {
+        return getFailedChunkCount() == 0;
+    }
+
+    /**
+     * 单个批次的执行情况
+     */
+    @Data
+    public static class ChunkResult {
+
+        /**
+         * 批次序号（从 0 开始）
+         */
+        private int index;
+
+        /**
+         * 本批行数
+         */
+        private int rows;
+
+        /**
+         * 本批影响的行数
+         */
+        private long rowsAffected;
+
+        /**
+         * 本批耗时（毫秒）
+         */
+        private long elapsedMillis;
+
+        /**
+         * 是否成功
+         */
+        private boolean success = true;
+
+        /**
+         * 失败原因
+         */
+        private String errorMessage;
+    }
+}
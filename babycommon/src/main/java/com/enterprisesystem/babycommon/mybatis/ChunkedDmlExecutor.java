@@ -0,0 +1,233 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 分块删除 / 更新执行器
+ *
+ * 【问题】
+ * DELETE / UPDATE ... WHERE 条件 一条语句处理几万行时，会在一个事务里锁住所有匹配的行（以及间隙）直到提交，
+ * 期间其他请求对这些行的写入全部等待，还会产生很大的 undo log 和主从延迟。
+ *
+ * 【流程】
+ * 按主键升序分块：先用 SELECT id ... WHERE 条件 AND id > 上一块上界 ORDER BY id LIMIT n 找到本块的主键范围（不加锁），
+ * 再执行 DELETE / UPDATE ... WHERE 条件 AND id > 下界 AND id <= 上界，每块在单独的事务中执行并立即提交。
+ * 语句中仍然带着原条件，扫描之后被其他请求修改、已经不满足条件的行不会被误删；
+ * 每条语句只锁定一个主键范围内的行，锁持有时间就是这一块的执行时间。
+ * 每块的条件通过 LambdaQueryWrapper.affectedIds 带上本块扫描到的主键，实体缓存按这些主键失效，不会每块清空整个实体类型的缓存。
+ *
+ * 【自适应节流】
+ * 根据上一块语句的实际耗时调整下一块行数，使单条语句耗时接近 targetStatementMillis；
+ * 每块提交后暂停 语句耗时 × pauseRatio，数据库繁忙（语句变慢）时暂停也随之变长。
+ *
+ * 【中断】
+ * 每块开始前检查线程中断标记和取消标记，暂停期间被中断也会停止；正在执行的块照常提交，不会留下执行了一半的块。
+ * 停止后返回的结果中 lastId 是已提交的最后位置，线程的中断标记会被保留。
+ */
+public class ChunkedDmlExecutor {
+
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * 构造函数
+     *
+     * @param transactionManager 事务管理器，为 null 时不单独开启事务
+     */
+    public ChunkedDmlExecutor(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * 按查询构造器的 WHERE 条件分块执行（忽略构造器中的排序、投影和 LIMIT）
+     *
+     * @param entityClass 实体类型（取表名、主键列）
+     * @param operation   操作类型（进度日志用，如 delete、update）
+     * @param wrapper     条件
+     * @param idSelector  按条件查询主键，如 UserMapper::selectIdsByWrapper
+     * @param statement   按条件执行一块，如 UserMapper::deleteByWrapper
+     * @param options     分块选项
+     * @param <T>         实体类型
+     * @param <ID>        主键类型
+     * @return 进度与结果
+     */
+    public <T, ID> ChunkedDmlResult execute(Class<T> entityClass, String operation, LambdaQueryWrapper<T> wrapper,
+                                            Function<LambdaQueryWrapper<T>, List<ID>> idSelector,
+                                            Function<LambdaQueryWrapper<T>, Integer> statement,
+                                            ChunkedDmlOptions options) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entityClass);
+        if (metadata.getIdProperty() == null) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " 未定义主键字段，无法分块执行");
+        }
+        String idColumn = metadata.getIdColumn();
+        return executeChunks(metadata.getTableName() + " " + operation, (ID after, Integer limit) -> {
+            LambdaQueryWrapper<T> scan = wrapper.copyWhere().entityClass(entityClass);
+            if (after != null) {
+                scan.apply(idColumn + " > ?", after);
+            }
+            return idSelector.apply(scan.orderBy(metadata.getIdProperty(), true).limit(limit));
+        }, (ID low, ID high, List<ID> ids) -> {
+            LambdaQueryWrapper<T> chunk = wrapper.copyWhere().entityClass(entityClass).affectedIds(ids);
+            if (low != null) {
+                chunk.apply(idColumn + " > ?", low);
+            }
+            return statement.apply(chunk.apply(idColumn + " <= ?", high));
+        }, options);
+    }
+
+    /**
+     * 分块执行
+     *
+     * @param name      操作名称（进度日志用）
+     * @param scanner   扫描主键：(上一块上界, 行数) -> 满足条件的主键（升序），上界为 null 表示从头开始
+     * @param statement 执行一块：(下界（不包括）, 上界（包括）) -> 影响行数，下界为 null 表示没有下界
+     * @param options   分块选项
+     * @param <ID>      主键类型
+     * @return 进度与结果
+     */
+    public <ID> ChunkedDmlResult execute(String name, BiFunction<ID, Integer, List<ID>> scanner,
+                                         BiFunction<ID, ID, Integer> statement, ChunkedDmlOptions options) {
+        return executeChunks(name, scanner, (low, high, ids) -> statement.apply(low, high), options);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <ID> ChunkedDmlResult executeChunks(String name, BiFunction<ID, Integer, List<ID>> scanner,
+                                                ChunkStatement<ID> statement, ChunkedDmlOptions options) {
+        if (options.getMinChunkSize() < 1 || options.getMaxChunkSize() < options.getMinChunkSize()) {
+            throw new IllegalArgumentException("chunkSize 范围不正确：" + options.getMinChunkSize() + " ~ " + options.getMaxChunkSize());
+        }
+        TransactionTemplate transaction = null;
+        if (options.isNewTransactionPerChunk() && transactionManager != null) {
+            transaction = new TransactionTemplate(transactionManager);
+            transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+
+        ChunkedDmlResult result = new ChunkedDmlResult();
+        result.setName(name);
+        result.setLastId(options.getStartAfter());
+        result.setChunkSize(clamp(options.getInitialChunkSize(), options));
+        long start = System.currentTimeMillis();
+        ID lastId = (ID) options.getStartAfter();
+
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                result.setInterrupted(true);
+                break;
+            }
+            if (options.isCancelled()) {
+                result.setCancelled(true);
+                break;
+            }
+            int limit = result.getChunkSize();
+            if (options.getMaxRows() > 0) {
+                long remaining = options.getMaxRows() - result.getRowsScanned();
+                if (remaining <= 0) {
+                    break;
+                }
+                limit = (int) Math.min(limit, remaining);
+            }
+
+            List<ID> ids = scanner.apply(lastId, limit);
+            if (ids.isEmpty()) {
+                result.setCompleted(true);
+                break;
+            }
+            ID low = lastId;
+            ID high = ids.get(ids.size() - 1);
+
+            long statementStart = System.nanoTime();
+            Integer rows = transaction == null
+                    ? statement.apply(low, high, ids)
+                    : transaction.execute(status -> statement.apply(low, high, ids));
+            long statementMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - statementStart);
+
+            lastId = high;
+            result.setChunks(result.getChunks() + 1);
+            result.setRowsScanned(result.getRowsScanned() + ids.size());
+            result.setRowsAffected(result.getRowsAffected() + (rows == null ? 0 : rows));
+            result.setLastId(high);
+            result.setLastStatementMillis(statementMillis);
+            result.setStatementMillis(result.getStatementMillis() + statementMillis);
+            result.setChunkSize(nextChunkSize(limit, statementMillis, options));
+            result.setElapsedMillis(System.currentTimeMillis() - start);
+            notifyProgress(options.getProgressListener(), result);
+
+            if (ids.size() < limit) {
+                // 不足一块说明已经扫描到末尾
+                result.setCompleted(true);
+                break;
+            }
+            if (!pause(statementMillis, options)) {
+                result.setInterrupted(true);
+                break;
+            }
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        if (!result.isCompleted()) {
+            System.out.println("分块操作 " + name + " 已停止：" + result.getChunks() + " 块，影响 " + result.getRowsAffected()
+                    + " 行，已提交到主键 " + result.getLastId()
+                    + (result.isInterrupted() ? "（线程中断）" : result.isCancelled() ? "（已取消）" : "（达到 maxRows）"));
+        }
+        return result;
+    }
+
+    /**
+     * 执行一块：(下界（不包括）, 上界（包括）, 本块扫描到的主键) -> 影响行数
+     */
+    private interface ChunkStatement<ID> {
+
+        Integer apply(ID low, ID high, List<ID> ids);
+    }
+
+    /**
+     * 按上一块的耗时计算下一块的行数：行数 × 目标耗时 / 实际耗时，每次最多放大 2 倍、缩小一半
+     */
+    private static int nextChunkSize(int chunkSize, long statementMillis, ChunkedDmlOptions options) {
+        double factor = statementMillis <= 0 ? 2.0 : (double) options.getTargetStatementMillis() / statementMillis;
+        factor = Math.max(0.5, Math.min(2.0, factor));
+        return clamp((int) Math.min(Integer.MAX_VALUE, Math.round(chunkSize * factor)), options);
+    }
+
+    private static int clamp(int chunkSize, ChunkedDmlOptions options) {
+        return Math.max(options.getMinChunkSize(), Math.min(options.getMaxChunkSize(), chunkSize));
+    }
+
+    /**
+     * 两块之间暂停，被中断时返回 false 并保留中断标记
+     */
+    private static boolean pause(long statementMillis, ChunkedDmlOptions options) {
+        long pauseMillis = Math.min(options.getMaxPauseMillis(), Math.round(statementMillis * options.getPauseRatio()));
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void notifyProgress(Consumer<ChunkedDmlResult> listener, ChunkedDmlResult result) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.accept(result);
+        } catch (RuntimeException e) {
+            System.out.println("分块操作进度回调异常：" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import lombok.Data;
+
+import java.util.function.Consumer;
+
+/**
+ * 分块删除 / 更新选项
+ *
+ * 每块的行数按上一块语句的实际耗时调整：耗时超过 targetStatementMillis 时缩小，明显低于时放大（每次最多 2 倍），
+ * 保证单条语句持有行锁的时间大致稳定；每块提交后暂停 语句耗时 × pauseRatio，给其他事务让出锁和 IO
+ */
+@Data
+public class ChunkedDmlOptions {
+
+    /**
+     * 第一块的行数
+     */
+    private int initialChunkSize = 500;
+
+    /**
+     * 每块最少行数
+     */
+    private int minChunkSize = 50;
+
+    /**
+     * 每块最多行数
+     */
+    private int maxChunkSize = 5000;
+
+    /**
+     * 单条语句的目标耗时（毫秒）
+     */
+    private long targetStatementMillis = 100;
+
+    /**
+     * 两块之间的暂停时间与上一块语句耗时的比例，1.0 表示最多一半的时间在持有锁，0 表示不暂停
+     */
+    private double pauseRatio = 1.0;
+
+    /**
+     * 两块之间的最长暂停时间（毫秒）
+     */
+    private long maxPauseMillis = 1000;
+
+    /**
+     * 最多处理的行数（按扫描到的主键计），0 表示不限制
+     */
+    private long maxRows;
+
+    /**
+     * 从该主键之后开始处理（不包括该主键），用于从上次中断的位置继续，为 null 时从头开始
+     */
+    private Object startAfter;
+
+    /**
+     * 每块是否在单独的事务中执行并立即提交（REQUIRES_NEW）
+     *
+     * 关闭后所有块都在调用方的事务中执行，锁会一直持有到外层事务提交，失去分块的意义，只在调用方没有事务时关闭
+     */
+    private boolean newTransactionPerChunk = true;
+
+    /**
+     * 每块提交后的进度回调（在执行线程中调用，不要做耗时操作）
+     */
+    private Consumer<ChunkedDmlResult> progressListener;
+
+    /**
+     * 取消标记，由其他线程调用 cancel() 设置
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 请求取消：当前块执行完并提交后停止，不会中断正在执行的语句
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * 静态工厂方法
+     *
+     * @param targetStatementMillis 单条语句的目标耗时（毫秒）
+     * @return 分块选项
+     */
+    public static ChunkedDmlOptions of(long targetStatementMillis) {
+        ChunkedDmlOptions options = new ChunkedDmlOptions();
+        options.setTargetStatementMillis(targetStatementMillis);
+        return options;
+    }
+}
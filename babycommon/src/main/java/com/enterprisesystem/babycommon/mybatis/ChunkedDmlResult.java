@@ -0,0 +1,74 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import lombok.Data;
+
+/**
+ * 分块删除 / 更新的进度与结果
+ *
+ * 执行过程中作为进度传给 ChunkedDmlOptions.progressListener，结束后作为结果返回；
+ * 未完成（中断、取消、达到 maxRows）时 lastId 之前的块都已提交，
+ * 把 lastId 设置为 ChunkedDmlOptions.startAfter 可以从中断的位置继续
+ */
+@Data
+public class ChunkedDmlResult {
+
+    /**
+     * 操作名称（通常为 表名 + 操作类型）
+     */
+    private String name;
+
+    /**
+     * 已提交的块数
+     */
+    private int chunks;
+
+    /**
+     * 扫描到的主键数（满足条件的行数）
+     */
+    private long rowsScanned;
+
+    /**
+     * 实际删除 / 更新的行数
+     */
+    private long rowsAffected;
+
+    /**
+     * 最后一个已提交块的主键上界
+     */
+    private Object lastId;
+
+    /**
+     * 下一块的行数
+     */
+    private int chunkSize;
+
+    /**
+     * 最后一块语句的耗时（毫秒）
+     */
+    private long lastStatementMillis;
+
+    /**
+     * 语句总耗时（毫秒，不包括扫描主键和暂停）
+     */
+    private long statementMillis;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 是否已处理完所有满足条件的行
+     */
+    private boolean completed;
+
+    /**
+     * 是否因线程中断而停止
+     */
+    private boolean interrupted;
+
+    /**
+     * 是否因调用 ChunkedDmlOptions.cancel() 而停止
+     */
+    private boolean cancelled;
+}
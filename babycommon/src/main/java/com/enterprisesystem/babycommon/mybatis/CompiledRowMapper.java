@@ -0,0 +1,99 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 预先生成的行映射器
+ *
+ * 由 CompiledRowMapperFactory 按「实体类型 + 结果集列」生成：每一列对应一个按类型读取的 ColumnReader
+ * （rs.getInt(下标) 等）和一个字段 setter 的 MethodHandle，映射一行只是顺序调用它们，
+ * 没有按列名查找属性、查找 TypeHandler 和 MetaObject 反射赋值的开销。
+ *
+ * 线程安全，可以被多个查询同时使用。
+ *
+ * @param <T> 实体类型
+ */
+public final class CompiledRowMapper<T> {
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final int[] columnIndexes;
+    private final ColumnReader[] readers;
+    private final MethodHandle[] setters;
+    private final boolean returnInstanceForEmptyRow;
+
+    /**
+     * 构造函数
+     *
+     * @param type                      实体类型
+     * @param constructor               无参构造函数，类型为 ()Object
+     * @param columnIndexes             参与映射的列下标（从 1 开始）
+     * @param readers                   各列的读取函数
+     * @param setters                   各列对应字段的 setter，类型为 (Object, Object)void
+     * @param returnInstanceForEmptyRow 所有列都为 NULL 时是否仍返回实例（对应 MyBatis 同名配置）
+     */
+    CompiledRowMapper(Class<T> type, MethodHandle constructor, int[] columnIndexes, ColumnReader[] readers,
+                      MethodHandle[] setters, boolean returnInstanceForEmptyRow) {
+        this.type = type;
+        this.constructor = constructor;
+        this.columnIndexes = columnIndexes;
+        this.readers = readers;
+        this.setters = setters;
+        this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    }
+
+    /**
+     * 映射当前行
+     *
+     * @param resultSet 已定位到当前行的结果集
+     * @return 实体对象；所有列都为 NULL 且未开启 returnInstanceForEmptyRow 时返回 null（与 MyBatis 一致）
+     * @throws SQLException 读取结果集失败
+     */
+    public T mapRow(ResultSet resultSet) throws SQLException {
+        try {
+            Object entity = constructor.invokeExact();
+            boolean foundValues = false;
+            for (int i = 0; i < readers.length; i++) {
+                Object value = readers[i].read(resultSet, columnIndexes[i]);
+                if (value != null) {
+                    // NULL 不调用 setter，保留字段默认值（MyBatis 默认 callSettersOnNulls = false）
+                    setters[i].invokeExact(entity, value);
+                    foundValues = true;
+                }
+            }
+            return foundValues || returnInstanceForEmptyRow ? type.cast(entity) : null;
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("映射 " + type.getName() + " 失败", e);
+        }
+    }
+
+    /**
+     * 参与映射的列数
+     *
+     * @return 列数
+     */
+    public int getMappedColumnCount() {
+        return readers.length;
+    }
+
+    /**
+     * 按类型读取一列
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+
+        /**
+         * 读取当前行的一列
+         *
+         * @param resultSet 结果集
+         * @param index     列下标（从 1 开始）
+         * @return 列值，NULL 时返回 null
+         * @throws SQLException 读取失败
+         */
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+}
@@ -0,0 +1,314 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import org.apache.ibatis.type.BigDecimalTypeHandler;
+import org.apache.ibatis.type.BooleanTypeHandler;
+import org.apache.ibatis.type.ByteArrayTypeHandler;
+import org.apache.ibatis.type.ByteTypeHandler;
+import org.apache.ibatis.type.DateTypeHandler;
+import org.apache.ibatis.type.DoubleTypeHandler;
+import org.apache.ibatis.type.EnumTypeHandler;
+import org.apache.ibatis.type.FloatTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.LocalDateTimeTypeHandler;
+import org.apache.ibatis.type.LocalDateTypeHandler;
+import org.apache.ibatis.type.LocalTimeTypeHandler;
+import org.apache.ibatis.type.LongTypeHandler;
+import org.apache.ibatis.type.ShortTypeHandler;
+import org.apache.ibatis.type.SqlDateTypeHandler;
+import org.apache.ibatis.type.SqlTimeTypeHandler;
+import org.apache.ibatis.type.SqlTimestampTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 行映射器工厂
+ *
+ * 【生成】
+ * 第一次遇到某个「实体类型 + 结果集列」组合时生成 CompiledRowMapper：
+ * 列名按 MyBatis 自动映射的规则找到字段（忽略大小写，mapUnderscoreToCamelCase 时忽略下划线），
+ * 每列按「字段类型 + 列的 JdbcType」从 TypeHandlerRegistry 取出 MyBatis 自动映射会使用的 TypeHandler：
+ * 是 MyBatis 内置的默认处理器时换成等价的直接读取函数（String → getString、Integer → getInt + wasNull、
+ * Date → getTimestamp ...），否则（全局注册的自定义 TypeHandler、CLOB / BLOB 等按列类型选出的处理器）
+ * 按下标调用该 TypeHandler，读取结果与 MyBatis 一致。
+ * 字段 setter 通过 MethodHandles.Lookup.unreflectSetter 得到。之后相同的组合直接复用。
+ *
+ * 【回退】
+ * 实体没有无参构造函数、或匹配到的字段找不到 TypeHandler 时不生成（返回 null），由 MyBatis 按原方式映射。
+ * 直接读取函数覆盖的类型：String、基本类型及其包装类、BigDecimal、java.util.Date、java.sql.Date / Time / Timestamp、
+ * LocalDate / LocalDateTime / LocalTime、byte[]、枚举（按名称，与 EnumTypeHandler 一致）。
+ */
+public class CompiledRowMapperFactory {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final Map<Class<?>, CompiledRowMapper.ColumnReader> READERS = new HashMap<>();
+
+    /**
+     * 字段类型 -> 直接读取函数等价的 MyBatis 默认 TypeHandler
+     */
+    private static final Map<Class<?>, Class<?>> DEFAULT_HANDLERS = new HashMap<>();
+
+    static {
+        READERS.put(String.class, (rs, i) -> rs.getString(i));
+        CompiledRowMapper.ColumnReader intReader = (rs, i) -> {
+            int value = rs.getInt(i);
+            return value == 0 && rs.wasNull() ? null : value;
+        };
+        READERS.put(Integer.class, intReader);
+        READERS.put(int.class, intReader);
+        CompiledRowMapper.ColumnReader longReader = (rs, i) -> {
+            long value = rs.getLong(i);
+            return value == 0 && rs.wasNull() ? null : value;
+        };
+        READERS.put(Long.class, longReader);
+        READERS.put(long.class, longReader);
+        CompiledRowMapper.ColumnReader shortReader = (rs, i) -> {
+            short value = rs.getShort(i);
+            return value == 0 && rs.wasNull() ? null : value;
+        };
+        READERS.put(Short.class, shortReader);
+        READERS.put(short.class, shortReader);
+        CompiledRowMapper.ColumnReader byteReader = (rs, i) -> {
+            byte value = rs.getByte(i);
+            return value == 0 && rs.wasNull() ? null : value;
+        };
+        READERS.put(Byte.class, byteReader);
+        READERS.put(byte.class, byteReader);
+        CompiledRowMapper.ColumnReader booleanReader = (rs, i) -> {
+            boolean value = rs.getBoolean(i);
+            return !value && rs.wasNull() ? null : value;
+        };
+        READERS.put(Boolean.class, booleanReader);
+        READERS.put(boolean.class, booleanReader);
+        CompiledRowMapper.ColumnReader doubleReader = (rs, i) -> {
+            double value = rs.getDouble(i);
+            return value == 0 && rs.wasNull() ? null : value;
+        };
+        READERS.put(Double.class, doubleReader);
+        READERS.put(double.class, doubleReader);
+        CompiledRowMapper.ColumnReader floatReader = (rs, i) -> {
+            float value = rs.getFloat(i);
+            return value == 0 && rs.wasNull() ? null : value;
+        };
+        READERS.put(Float.class, floatReader);
+        READERS.put(float.class, floatReader);
+        READERS.put(BigDecimal.class, (rs, i) -> rs.getBigDecimal(i));
+        READERS.put(Date.class, (rs, i) -> {
+            // 与 MyBatis DateTypeHandler 一致：读取 Timestamp 后转换为 java.util.Date
+            Timestamp value = rs.getTimestamp(i);
+            return value == null ? null : new Date(value.getTime());
+        });
+        READERS.put(Timestamp.class, (rs, i) -> rs.getTimestamp(i));
+        READERS.put(java.sql.Date.class, (rs, i) -> rs.getDate(i));
+        READERS.put(java.sql.Time.class, (rs, i) -> rs.getTime(i));
+        READERS.put(LocalDateTime.class, (rs, i) -> rs.getObject(i, LocalDateTime.class));
+        READERS.put(LocalDate.class, (rs, i) -> rs.getObject(i, LocalDate.class));
+        READERS.put(LocalTime.class, (rs, i) -> rs.getObject(i, LocalTime.class));
+        READERS.put(byte[].class, (rs, i) -> rs.getBytes(i));
+
+        DEFAULT_HANDLERS.put(String.class, StringTypeHandler.class);
+        DEFAULT_HANDLERS.put(Integer.class, IntegerTypeHandler.class);
+        DEFAULT_HANDLERS.put(int.class, IntegerTypeHandler.class);
+        DEFAULT_HANDLERS.put(Long.class, LongTypeHandler.class);
+        DEFAULT_HANDLERS.put(long.class, LongTypeHandler.class);
+        DEFAULT_HANDLERS.put(Short.class, ShortTypeHandler.class);
+        DEFAULT_HANDLERS.put(short.class, ShortTypeHandler.class);
+        DEFAULT_HANDLERS.put(Byte.class, ByteTypeHandler.class);
+        DEFAULT_HANDLERS.put(byte.class, ByteTypeHandler.class);
+        DEFAULT_HANDLERS.put(Boolean.class, BooleanTypeHandler.class);
+        DEFAULT_HANDLERS.put(boolean.class, BooleanTypeHandler.class);
+        DEFAULT_HANDLERS.put(Double.class, DoubleTypeHandler.class);
+        DEFAULT_HANDLERS.put(double.class, DoubleTypeHandler.class);
+        DEFAULT_HANDLERS.put(Float.class, FloatTypeHandler.class);
+        DEFAULT_HANDLERS.put(float.class, FloatTypeHandler.class);
+        DEFAULT_HANDLERS.put(BigDecimal.class, BigDecimalTypeHandler.class);
+        DEFAULT_HANDLERS.put(Date.class, DateTypeHandler.class);
+        DEFAULT_HANDLERS.put(Timestamp.class, SqlTimestampTypeHandler.class);
+        DEFAULT_HANDLERS.put(java.sql.Date.class, SqlDateTypeHandler.class);
+        DEFAULT_HANDLERS.put(java.sql.Time.class, SqlTimeTypeHandler.class);
+        DEFAULT_HANDLERS.put(LocalDateTime.class, LocalDateTimeTypeHandler.class);
+        DEFAULT_HANDLERS.put(LocalDate.class, LocalDateTypeHandler.class);
+        DEFAULT_HANDLERS.put(LocalTime.class, LocalTimeTypeHandler.class);
+        DEFAULT_HANDLERS.put(byte[].class, ByteArrayTypeHandler.class);
+    }
+
+    /**
+     * TypeHandlerRegistry -> 「实体类型 + 结果集列」-> 行映射器；不同 SqlSessionFactory 的 TypeHandler 注册可能不同，分开缓存
+     */
+    private final Map<TypeHandlerRegistry, Map<String, Optional<CompiledRowMapper<?>>>> mappers = new ConcurrentHashMap<>();
+    private final LongAdder typeHandlerColumns = new LongAdder();
+    private final Map<Class<?>, Map<String, Field>> fieldIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * 获取（必要时生成）行映射器
+     *
+     * @param type                      实体类型
+     * @param metaData                  结果集元数据
+     * @param typeHandlerRegistry       MyBatis 配置中的 TypeHandler 注册表
+     * @param mapUnderscoreToCamelCase  是否忽略列名中的下划线（对应 MyBatis 同名配置）
+     * @param returnInstanceForEmptyRow 所有列都为 NULL 时是否返回实例
+     * @param <T>                       实体类型
+     * @return 行映射器，无法生成时返回 null
+     * @throws SQLException 读取结果集元数据失败
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledRowMapper<T> get(Class<T> type, ResultSetMetaData metaData,
+                                        TypeHandlerRegistry typeHandlerRegistry, boolean mapUnderscoreToCamelCase,
+                                        boolean returnInstanceForEmptyRow) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        JdbcType[] jdbcTypes = new JdbcType[columnCount];
+        StringBuilder key = new StringBuilder(type.getName().length() + columnCount * 20);
+        key.append(type.getName()).append('|').append(mapUnderscoreToCamelCase).append('|').append(returnInstanceForEmptyRow);
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+            // 与 MyBatis ResultSetWrapper 一致，按列的 JdbcType 选择 TypeHandler
+            jdbcTypes[i] = JdbcType.forCode(metaData.getColumnType(i + 1));
+            key.append('|').append(labels[i]).append(':').append(jdbcTypes[i]);
+        }
+        return (CompiledRowMapper<T>) mappers.computeIfAbsent(typeHandlerRegistry, registry -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key.toString(), k -> Optional.ofNullable(
+                        compile(type, labels, jdbcTypes, typeHandlerRegistry, mapUnderscoreToCamelCase, returnInstanceForEmptyRow)))
+                .orElse(null);
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        long compiled = 0;
+        long unsupported = 0;
+        for (Map<String, Optional<CompiledRowMapper<?>>> registryMappers : mappers.values()) {
+            for (Optional<CompiledRowMapper<?>> mapper : registryMappers.values()) {
+                if (mapper.isPresent()) {
+                    compiled++;
+                } else {
+                    unsupported++;
+                }
+            }
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("compiledMappers", compiled);
+        stats.put("unsupportedShapes", unsupported);
+        stats.put("typeHandlerColumns", typeHandlerColumns.sum());
+        return stats;
+    }
+
+    private <T> CompiledRowMapper<T> compile(Class<T> type, String[] labels, JdbcType[] jdbcTypes,
+                                             TypeHandlerRegistry typeHandlerRegistry, boolean mapUnderscoreToCamelCase,
+                                             boolean returnInstanceForEmptyRow) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor;
+        try {
+            constructor = lookup.unreflectConstructor(accessibleConstructor(type)).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            System.out.println(type.getName() + " 没有可用的无参构造函数，使用 MyBatis 默认映射");
+            return null;
+        }
+
+        Map<String, Field> fields = fieldIndexes.computeIfAbsent(type, CompiledRowMapperFactory::indexFields);
+        List<Integer> indexes = new ArrayList<>();
+        List<CompiledRowMapper.ColumnReader> readers = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        for (int i = 0; i < labels.length; i++) {
+            String property = mapUnderscoreToCamelCase ? labels[i].replace("_", "") : labels[i];
+            Field field = fields.get(property.toUpperCase(Locale.ENGLISH));
+            if (field == null) {
+                // 与 MyBatis 一致：没有对应属性的列忽略
+                continue;
+            }
+            TypeHandler<?> typeHandler = typeHandlerRegistry.getTypeHandler(field.getType(), jdbcTypes[i]);
+            if (typeHandler == null || typeHandler instanceof UnknownTypeHandler) {
+                System.out.println(type.getName() + "." + field.getName() + " 的类型 " + field.getType().getName()
+                        + " 没有对应的 TypeHandler，使用 MyBatis 默认映射");
+                return null;
+            }
+            CompiledRowMapper.ColumnReader reader = readerFor(field.getType(), typeHandler);
+            try {
+                setters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+            indexes.add(i + 1);
+            readers.add(reader);
+        }
+        int[] columnIndexes = new int[indexes.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            columnIndexes[i] = indexes.get(i);
+        }
+        return new CompiledRowMapper<>(type, constructor, columnIndexes,
+                readers.toArray(new CompiledRowMapper.ColumnReader[0]), setters.toArray(new MethodHandle[0]),
+                returnInstanceForEmptyRow);
+    }
+
+    /**
+     * 选择读取函数：MyBatis 会使用默认 TypeHandler 时直接读取，否则按下标调用该 TypeHandler
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CompiledRowMapper.ColumnReader readerFor(Class<?> fieldType, TypeHandler<?> typeHandler) {
+        if (typeHandler.getClass() == DEFAULT_HANDLERS.get(fieldType)) {
+            return READERS.get(fieldType);
+        }
+        if (fieldType.isEnum() && typeHandler.getClass() == EnumTypeHandler.class) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) fieldType;
+            return (rs, i) -> {
+                String name = rs.getString(i);
+                return name == null ? null : Enum.valueOf(enumType, name);
+            };
+        }
+        typeHandlerColumns.increment();
+        return typeHandler::getResult;
+    }
+
+    private static Constructor<?> accessibleConstructor(Class<?> type) throws NoSuchMethodException {
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor;
+    }
+
+    /**
+     * 属性名（大写）-> 字段，复用 EntityMetadata 收集的字段（包括父类字段，已设置可访问）
+     */
+    private static Map<String, Field> indexFields(Class<?> type) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(type);
+        Map<String, Field> index = new HashMap<>();
+        for (String property : metadata.getProperties()) {
+            Field field = metadata.getField(property);
+            if (!Modifier.isFinal(field.getModifiers())) {
+                index.putIfAbsent(property.toUpperCase(Locale.ENGLISH), field);
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,154 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.annotation.CompiledRowMapping;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预生成行映射拦截器
+ *
+ * 【作用】
+ * 拦截 ResultSetHandler.handleResultSets：结果类型标注了 @CompiledRowMapping 的查询，
+ * 直接用 CompiledRowMapperFactory 生成的映射器逐行读取结果集，跳过 MyBatis 的自动映射。
+ * 每列使用的 TypeHandler 与自动映射相同（包括全局注册的自定义 TypeHandler），只省去按列名查找和反射赋值。
+ *
+ * 【适用条件】
+ * 只处理与 MyBatis 自动映射结果完全一致的简单场景，其他情况调用原来的处理逻辑：
+ * - 单个 resultMap，没有显式的 @Results / result 映射、嵌套映射和 discriminator
+ * - 不是存储过程，没有多结果集，没有自定义 ResultHandler 和 RowBounds
+ * - 全局配置没有关闭自动映射、没有开启 callSettersOnNulls、没有自定义 ObjectFactory
+ * Cursor 查询（handleCursorResultSets）不经过本拦截器。
+ */
+@Intercepts({
+        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class})
+})
+public class CompiledRowMappingInterceptor implements Interceptor {
+
+    private final CompiledRowMapperFactory factory;
+
+    /**
+     * MappedStatement ID -> 可使用预生成映射时的实体类型
+     */
+    private final Map<String, Optional<Class<?>>> statementTypes = new ConcurrentHashMap<>();
+
+    private final LongAdder compiledQueries = new LongAdder();
+    private final LongAdder compiledRows = new LongAdder();
+    private final LongAdder fallbackQueries = new LongAdder();
+
+    public CompiledRowMappingInterceptor(CompiledRowMapperFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MetaObject handler = unwrap(invocation.getTarget());
+        if (!handler.hasGetter("mappedStatement")) {
+            return invocation.proceed();
+        }
+        MappedStatement mappedStatement = (MappedStatement) handler.getValue("mappedStatement");
+        Class<?> type = statementTypes.computeIfAbsent(mappedStatement.getId(),
+                id -> Optional.ofNullable(resolveType(mappedStatement))).orElse(null);
+        if (type == null) {
+            return invocation.proceed();
+        }
+        RowBounds rowBounds = (RowBounds) handler.getValue("rowBounds");
+        if (handler.getValue("resultHandler") != null || (rowBounds != null
+                && (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT))) {
+            fallbackQueries.increment();
+            return invocation.proceed();
+        }
+
+        Statement statement = (Statement) invocation.getArgs()[0];
+        ResultSet resultSet = statement.getResultSet();
+        if (resultSet == null) {
+            return invocation.proceed();
+        }
+        Configuration configuration = mappedStatement.getConfiguration();
+        CompiledRowMapper<?> mapper = factory.get(type, resultSet.getMetaData(), configuration.getTypeHandlerRegistry(),
+                configuration.isMapUnderscoreToCamelCase(), configuration.isReturnInstanceForEmptyRow());
+        if (mapper == null) {
+            fallbackQueries.increment();
+            return invocation.proceed();
+        }
+
+        List<Object> rows = new ArrayList<>();
+        try {
+            while (resultSet.next()) {
+                rows.add(mapper.mapRow(resultSet));
+            }
+        } finally {
+            resultSet.close();
+        }
+        compiledQueries.increment();
+        compiledRows.add(rows.size());
+        return rows;
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("compiledQueries", compiledQueries.sum());
+        stats.put("compiledRows", compiledRows.sum());
+        stats.put("fallbackQueries", fallbackQueries.sum());
+        stats.putAll(factory.getStats());
+        return stats;
+    }
+
+    /**
+     * 判断语句是否满足使用预生成映射的条件，满足时返回实体类型
+     */
+    private static Class<?> resolveType(MappedStatement mappedStatement) {
+        Configuration configuration = mappedStatement.getConfiguration();
+        if (mappedStatement.getStatementType() == StatementType.CALLABLE || mappedStatement.getResultSets() != null
+                || mappedStatement.getResultMaps().size() != 1
+                || configuration.getAutoMappingBehavior() == AutoMappingBehavior.NONE
+                || configuration.isCallSettersOnNulls()
+                || configuration.getObjectFactory().getClass() != DefaultObjectFactory.class) {
+            return null;
+        }
+        ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+        if (!resultMap.getResultMappings().isEmpty() || resultMap.hasNestedResultMaps()
+                || resultMap.getDiscriminator() != null || Boolean.FALSE.equals(resultMap.getAutoMapping())) {
+            return null;
+        }
+        Class<?> type = resultMap.getType();
+        return type.isAnnotationPresent(CompiledRowMapping.class) ? type : null;
+    }
+
+    /**
+     * 存在多个插件时 target 是层层包装的代理对象，取出被代理的 DefaultResultSetHandler
+     */
+    private static MetaObject unwrap(Object target) {
+        MetaObject metaObject = SystemMetaObject.forObject(target);
+        while (metaObject.hasGetter("h")) {
+            metaObject = SystemMetaObject.forObject(metaObject.getValue("h.target"));
+        }
+        return metaObject;
+    }
+}
@@ -0,0 +1,124 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
+import com.enterprisesystem.babycommon.model.PageCursor;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（Keyset）分页
+ *
+ * 【流程】
+ * 1. 解码 PageRequest.cursor 得到上一页最后一行的 (排序字段值, 主键值)，排序方式与游标不一致时拒绝
+ * 2. seekAfter 定位到游标之后，多查一行判断是否有下一页
+ * 3. 排序字段为 NULL 的行与非 NULL 的行是两个索引范围，当前区段不足一页时用 nextSeekSegment 查询后续区段补足
+ * 4. 按当前页最后一行生成下一页游标
+ *
+ * 每次查询都是 (排序字段, 主键) 索引上的单个范围扫描，耗时与翻页深度无关。
+ * 排序字段来自前端请求，可以传入允许排序的属性白名单，避免按敏感字段（如密码）排序后从游标中读出字段值。
+ */
+public final class CursorPager {
+
+    private CursorPager() {
+    }
+
+    /**
+     * 游标分页查询，任意实体属性都可以作为排序字段
+     *
+     * @param entityClass 实体类
+     * @param wrapper     查询条件，会被设置排序和 LIMIT
+     * @param pageRequest 分页请求，sortField 为空时按主键排序
+     * @param select      执行查询的方法，一般为 mapper::selectByWrapper
+     * @return 分页结果，nextCursor 为 null 时表示没有下一页
+     */
+    public static <T> PageResult<T> page(Class<T> entityClass, LambdaQueryWrapper<T> wrapper, PageRequest pageRequest,
+                                         Function<LambdaQueryWrapper<T>, List<T>> select) {
+        return page(entityClass, wrapper, pageRequest, null, select);
+    }
+
+    /**
+     * 游标分页查询
+     *
+     * @param entityClass 实体类
+     * @param wrapper     查询条件，会被设置排序和 LIMIT
+     * @param pageRequest 分页请求，sortField 为空时按主键排序
+     * @param sortable    允许排序的属性名，为 null 时不限制
+     * @param select      执行查询的方法，一般为 mapper::selectByWrapper
+     * @return 分页结果，nextCursor 为 null 时表示没有下一页
+     */
+    public static <T> PageResult<T> page(Class<T> entityClass, LambdaQueryWrapper<T> wrapper, PageRequest pageRequest,
+                                         Collection<String> sortable, Function<LambdaQueryWrapper<T>, List<T>> select) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entityClass);
+        String sortProperty = resolveSortProperty(entityClass, pageRequest.getSortField(), sortable);
+        boolean asc = pageRequest.isAsc();
+        int pageSize = pageRequest.getPageSize();
+
+        Object sortValue = null;
+        Object idValue = null;
+        if (pageRequest.getCursor() != null && !pageRequest.getCursor().isEmpty()) {
+            PageCursor cursor = PageCursor.decode(pageRequest.getCursor());
+            if (!sortProperty.equals(cursor.getSortField()) || asc != cursor.isAsc()) {
+                throw new SystemRuntimeException("分页游标与当前排序方式不一致，请从第一页重新查询");
+            }
+            sortValue = cursor.getSortValue();
+            idValue = cursor.getIdValue();
+        }
+
+        wrapper.seekAfter(sortProperty, sortValue, idValue, asc).limit(pageSize + 1);
+        List<T> records = select.apply(wrapper);
+        if (records.size() <= pageSize) {
+            LambdaQueryWrapper<T> next = wrapper.nextSeekSegment();
+            if (next != null) {
+                List<T> rest = select.apply(next.limit(pageSize + 1 - records.size()));
+                if (!rest.isEmpty()) {
+                    records = new ArrayList<>(records);
+                    records.addAll(rest);
+                }
+            }
+        }
+
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+            T last = records.get(pageSize - 1);
+            nextCursor = new PageCursor(sortProperty, asc,
+                    metadata.getValue(last, sortProperty), metadata.getIdValue(last)).encode();
+        }
+        return PageResult.ofCursor(pageSize, records, nextCursor);
+    }
+
+    /**
+     * 解析排序属性名，排序字段可以是属性名或列名，未指定时按主键排序
+     *
+     * 页码分页也可以用它校验前端传入的排序字段
+     *
+     * @param entityClass 实体类
+     * @param sortField   排序字段，为空时返回主键属性名
+     * @param sortable    允许排序的属性名，为 null 时不限制
+     * @return 排序属性名
+     */
+    public static String resolveSortProperty(Class<?> entityClass, String sortField, Collection<String> sortable) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entityClass);
+        String property;
+        if (sortField == null || sortField.isEmpty()) {
+            property = metadata.getIdProperty();
+            if (property == null) {
+                throw new SystemRuntimeException(entityClass.getSimpleName() + " 未定义主键字段，无法确定默认排序");
+            }
+            return property;
+        }
+        property = metadata.getColumn(sortField) != null ? sortField : metadata.getProperty(sortField);
+        if (property == null || (sortable != null && !sortable.contains(property))) {
+            throw new SystemRuntimeException("不支持的排序字段：" + sortField);
+        }
+        return property;
+    }
+}
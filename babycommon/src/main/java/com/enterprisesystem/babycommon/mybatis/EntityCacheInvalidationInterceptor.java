@@ -0,0 +1,204 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.cache.EntityCacheManager;
+import com.enterprisesystem.babycommon.mapper.BaseMapper;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体缓存失效拦截器
+ *
+ * 【作用】
+ * Mapper 执行 INSERT / UPDATE / DELETE 后，根据参数清除对应实体的缓存，不需要在业务代码中手动清除：
+ * - 参数是实体（update、updateSelective、insert）或实体列表（batchUpdate、batchUpsert）：清除主键和唯一键缓存
+ * - 参数中有 id / ids（deleteById、deleteByIds、updateStatus(id, status) 等）：清除这些主键的缓存
+ * - 按 LambdaQueryWrapper 更新 / 删除且声明了 affectedIds（ChunkedDmlExecutor 的每一块）：清除这些主键的缓存
+ * - 无法确定影响哪些行（deleteByCondition、未声明 affectedIds 的按条件更新 / 删除）：清除该实体类型的全部缓存
+ *
+ * 在事务中执行时，事务结束后再清除一次，防止事务提交前其他线程把旧数据回填到缓存。
+ *
+ * 【实体类型】
+ * Mapper 继承 BaseMapper 时取其实体泛型参数，否则取 Mapper 中 selectById 方法的返回类型；
+ * 只处理标注了 @CachedEntity 的实体。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class EntityCacheInvalidationInterceptor implements Interceptor {
+
+    private static final String ID_PARAM = "id";
+    private static final String IDS_PARAM = "ids";
+    private static final String SELECT_BY_ID = "selectById";
+
+    private final EntityCacheManager cacheManager;
+
+    /**
+     * Mapper 命名空间 -> 实体类型（不是 Mapper 或实体未开启缓存时为空）
+     */
+    private final Map<String, Optional<Class<?>>> entityTypes = new ConcurrentHashMap<>();
+
+    public EntityCacheInvalidationInterceptor(EntityCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Class<?> entityType = resolveEntityType(mappedStatement.getId());
+        if (entityType != null) {
+            // 在 proceed 之后收集参数，自增主键此时已经回填到实体中
+            Runnable eviction = buildEviction(entityType, invocation.getArgs()[1]);
+            eviction.run();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        eviction.run();
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    private Runnable buildEviction(Class<?> entityType, Object parameter) {
+        LambdaQueryWrapper<?> wrapper = findWrapper(parameter);
+        if (wrapper != null) {
+            // 按条件更新 / 删除（参数中的实体只是更新值）：声明了影响的主键（如分块执行）时按主键清除，否则无法确定影响了哪些行；
+            // 唯一键索引需要实体的唯一键值才能清除，有唯一键的实体仍然全部清除
+            Collection<?> affectedIds = wrapper.getAffectedIds();
+            if (affectedIds == null || cacheManager.hasUniqueKeys(entityType)) {
+                return () -> cacheManager.evictAll(entityType);
+            }
+            List<Object> wrapperIds = new ArrayList<>(affectedIds);
+            return () -> cacheManager.evictByIds(entityType, wrapperIds);
+        }
+        List<Object> entities = new ArrayList<>();
+        Set<Object> ids = new LinkedHashSet<>();
+        collect(entityType, parameter, entities, ids, true);
+        if (entities.isEmpty() && ids.isEmpty()) {
+            return () -> cacheManager.evictAll(entityType);
+        }
+        return () -> {
+            cacheManager.evictEntities(entityType, entities);
+            cacheManager.evictByIds(entityType, ids);
+        };
+    }
+
+    /**
+     * 从参数中收集实体和主键
+     *
+     * @param topLevel 是否为 Mapper 方法的直接参数（单个基本类型参数即为主键）
+     */
+    private void collect(Class<?> entityType, Object parameter, List<Object> entities, Set<Object> ids, boolean topLevel) {
+        if (parameter == null) {
+            return;
+        }
+        if (entityType.isInstance(parameter)) {
+            entities.add(parameter);
+        } else if (parameter instanceof Map) {
+            Map<?, ?> params = (Map<?, ?>) parameter;
+            Object id = params.containsKey(ID_PARAM) ? params.get(ID_PARAM) : null;
+            if (id != null && !(id instanceof Collection)) {
+                ids.add(id);
+            }
+            Object idList = params.containsKey(IDS_PARAM) ? params.get(IDS_PARAM) : null;
+            if (idList instanceof Collection) {
+                ids.addAll((Collection<?>) idList);
+            }
+            // ParamMap 中同一个参数会以 param1 等名称重复出现，按对象去重
+            Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Object value : params.values()) {
+                if (value == null || !seen.add(value)) {
+                    continue;
+                }
+                if (value instanceof Collection) {
+                    for (Object item : (Collection<?>) value) {
+                        if (entityType.isInstance(item)) {
+                            entities.add(item);
+                        }
+                    }
+                } else if (entityType.isInstance(value)) {
+                    entities.add(value);
+                }
+            }
+        } else if (parameter instanceof Collection) {
+            for (Object item : (Collection<?>) parameter) {
+                if (entityType.isInstance(item)) {
+                    entities.add(item);
+                } else if (isIdValue(item)) {
+                    ids.add(item);
+                }
+            }
+        } else if (topLevel && isIdValue(parameter)) {
+            ids.add(parameter);
+        }
+    }
+
+    private static LambdaQueryWrapper<?> findWrapper(Object parameter) {
+        if (parameter instanceof LambdaQueryWrapper) {
+            return (LambdaQueryWrapper<?>) parameter;
+        }
+        if (parameter instanceof Map) {
+            for (Object value : ((Map<?, ?>) parameter).values()) {
+                if (value instanceof LambdaQueryWrapper) {
+                    return (LambdaQueryWrapper<?>) value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIdValue(Object value) {
+        return value instanceof Number || value instanceof CharSequence;
+    }
+
+    private Class<?> resolveEntityType(String statementId) {
+        String namespace = statementId.substring(0, statementId.lastIndexOf('.'));
+        return entityTypes.computeIfAbsent(namespace, this::resolveMapperEntityType).orElse(null);
+    }
+
+    private Optional<Class<?>> resolveMapperEntityType(String namespace) {
+        Class<?> mapperType;
+        try {
+            mapperType = Resources.classForName(namespace);
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        }
+        Class<?> entityType = null;
+        if (BaseMapper.class.isAssignableFrom(mapperType)) {
+            Class<?>[] arguments = GenericTypeResolver.resolveTypeArguments(mapperType, BaseMapper.class);
+            entityType = arguments == null ? null : arguments[0];
+        } else {
+            for (Method method : mapperType.getMethods()) {
+                if (SELECT_BY_ID.equals(method.getName())) {
+                    entityType = method.getReturnType();
+                    break;
+                }
+            }
+        }
+        return cacheManager.isCacheable(entityType) ? Optional.of(entityType) : Optional.empty();
+    }
+}
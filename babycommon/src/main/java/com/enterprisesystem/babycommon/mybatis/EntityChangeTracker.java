@@ -0,0 +1,223 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 实体变更跟踪器
+ *
+ * 【作用】
+ * 实体读取后调用 track() 记录可更新字段的快照，保存前通过 getChangedProperties() 与快照比较，
+ * 只把真正修改过的字段写入 UPDATE（包括改为 null 的字段，这是 updateSelective 做不到的）。
+ * 没有修改的大字段（TEXT / JSON）不再重复写入，redo log、binlog 和语句执行时间都随之减少。
+ *
+ * 【快照】
+ * 按对象身份（==）关联，不依赖实体的 equals / hashCode；只持有实体的弱引用，实体不再使用后快照自动清除。
+ * Date、数组等可变值保存副本，调用方原地修改（如 date.setTime()）也能识别。
+ *
+ * 【线程安全】
+ * 跟踪器本身可以多线程共享，但同一个实体对象不应同时被多个线程修改和保存。
+ */
+public class EntityChangeTracker {
+
+    private final Map<IdentityKey, Object[]> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    private final LongAdder tracked = new LongAdder();
+    private final LongAdder diffs = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder columnsWritten = new LongAdder();
+    private final LongAdder columnsSkipped = new LongAdder();
+
+    /**
+     * 记录实体当前的字段值作为快照（已跟踪时覆盖旧快照）
+     *
+     * @param entity 实体对象，为 null 时直接返回
+     * @param <T>    实体类型
+     * @return 传入的实体对象
+     */
+    public <T> T track(T entity) {
+        if (entity == null) {
+            return null;
+        }
+        purge();
+        snapshots.put(new IdentityKey(entity, collected), capture(entity));
+        tracked.increment();
+        return entity;
+    }
+
+    /**
+     * 批量记录快照
+     *
+     * @param entities 实体列表
+     * @param <T>      实体类型
+     * @return 传入的实体列表
+     */
+    public <T> List<T> trackAll(List<T> entities) {
+        if (entities != null) {
+            for (T entity : entities) {
+                track(entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * 是否已记录快照
+     *
+     * @param entity 实体对象
+     * @return true-已跟踪
+     */
+    public boolean isTracked(Object entity) {
+        return entity != null && snapshots.containsKey(new IdentityKey(entity, null));
+    }
+
+    /**
+     * 与快照比较，得到修改过的可更新字段
+     *
+     * @param entity 实体对象
+     * @return 修改过的属性名（按实体元数据中的字段顺序），没有修改时为空列表；未跟踪时返回 null
+     */
+    public List<String> getChangedProperties(Object entity) {
+        Object[] snapshot = entity == null ? null : snapshots.get(new IdentityKey(entity, null));
+        if (snapshot == null) {
+            return null;
+        }
+        diffs.increment();
+        EntityMetadata metadata = EntityMetadataRegistry.get(entity.getClass());
+        List<String> properties = metadata.getUpdateProperties();
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < properties.size(); i++) {
+            if (!Objects.deepEquals(snapshot[i], metadata.getValue(entity, properties.get(i)))) {
+                changed.add(properties.get(i));
+            }
+        }
+        if (changed.isEmpty()) {
+            unchanged.increment();
+        }
+        columnsWritten.add(changed.size());
+        columnsSkipped.add(properties.size() - changed.size());
+        return changed;
+    }
+
+    /**
+     * 保存成功后调用：以当前值作为新的快照，后续只比较此后的修改
+     *
+     * @param entity 实体对象
+     */
+    public void markClean(Object entity) {
+        if (entity != null && snapshots.containsKey(new IdentityKey(entity, null))) {
+            snapshots.put(new IdentityKey(entity, collected), capture(entity));
+        }
+    }
+
+    /**
+     * 停止跟踪
+     *
+     * @param entity 实体对象
+     */
+    public void untrack(Object entity) {
+        if (entity != null) {
+            snapshots.remove(new IdentityKey(entity, null));
+        }
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        purge();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) snapshots.size());
+        stats.put("tracked", tracked.sum());
+        stats.put("diffs", diffs.sum());
+        stats.put("unchanged", unchanged.sum());
+        stats.put("columnsWritten", columnsWritten.sum());
+        stats.put("columnsSkipped", columnsSkipped.sum());
+        return stats;
+    }
+
+    private static Object[] capture(Object entity) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entity.getClass());
+        List<String> properties = metadata.getUpdateProperties();
+        Object[] values = new Object[properties.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = copyOf(metadata.getValue(entity, properties.get(i)));
+        }
+        return values;
+    }
+
+    /**
+     * 可变值保存副本
+     */
+    private static Object copyOf(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+        if (value instanceof byte[]) {
+            return Arrays.copyOf((byte[]) value, ((byte[]) value).length);
+        }
+        if (value instanceof Object[]) {
+            return Arrays.copyOf((Object[]) value, ((Object[]) value).length);
+        }
+        if (value instanceof List) {
+            return Collections.unmodifiableList(new ArrayList<>((List<?>) value));
+        }
+        return value;
+    }
+
+    /**
+     * 清除已被回收实体的快照
+     */
+    private void purge() {
+        Object key;
+        while ((key = collected.poll()) != null) {
+            snapshots.remove(key);
+        }
+    }
+
+    /**
+     * 按对象身份比较的弱引用 key
+     */
+    private static final class IdentityKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        private IdentityKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof IdentityKey)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityKey) other).get();
+        }
+    }
+}
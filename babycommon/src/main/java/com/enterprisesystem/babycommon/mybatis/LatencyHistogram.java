@@ -0,0 +1,135 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶延迟直方图
+ *
+ * 桶上限从 100 微秒到 10 秒按 1-2.5-5 递增，记录时只做一次桶查找和 LongAdder 累加，
+ * 高并发下没有锁竞争。百分位取所在桶的上限，精度足够用来发现慢语句和回归。
+ */
+public class LatencyHistogram {
+
+    /**
+     * 桶上限（微秒），最后一个桶之外的记录计入溢出桶
+     */
+    static final long[] BUCKET_BOUNDS_MICROS = {
+            100, 250, 500,
+            1_000, 2_500, 5_000,
+            10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            10_000_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MICROS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        buckets[bucketIndex(micros)].increment();
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    static int bucketIndex(long micros) {
+        for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+            if (micros <= BUCKET_BOUNDS_MICROS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MICROS.length;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 平均耗时（毫秒）
+     *
+     * @return 平均耗时
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0D : totalMicros.sum() / 1000D / n;
+    }
+
+    /**
+     * 最大耗时（毫秒）
+     *
+     * @return 最大耗时
+     */
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000D;
+    }
+
+    /**
+     * 百分位耗时（毫秒），取所在桶的上限；落在溢出桶时返回最大耗时
+     *
+     * @param percentile 百分位，如 0.99
+     * @return 耗时
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            snapshot[i] = buckets[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0D;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return BUCKET_BOUNDS_MICROS[i] / 1000D;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * 各桶计数
+     *
+     * @return 桶上限描述（如 "<=2.5ms"）-> 次数，只包含非零的桶
+     */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length; i++) {
+            long n = buckets[i].sum();
+            if (n == 0) {
+                continue;
+            }
+            String label = i < BUCKET_BOUNDS_MICROS.length
+                    ? "<=" + formatMillis(BUCKET_BOUNDS_MICROS[i])
+                    : ">" + formatMillis(BUCKET_BOUNDS_MICROS[BUCKET_BOUNDS_MICROS.length - 1]);
+            result.put(label, n);
+        }
+        return result;
+    }
+
+    private static String formatMillis(long micros) {
+        double millis = micros / 1000D;
+        return (millis == Math.floor(millis) ? String.valueOf((long) millis) : String.valueOf(millis)) + "ms";
+    }
+}
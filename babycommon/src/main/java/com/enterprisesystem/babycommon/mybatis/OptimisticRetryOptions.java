@@ -0,0 +1,58 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import lombok.Data;
+
+/**
+ * 乐观锁重试选项
+ *
+ * 第 n 次冲突后等待 [0, min(maxBackoffMillis, initialBackoffMillis × multiplier^(n-1))) 之间的随机时间再重试，
+ * 随机等待让同时冲突的请求错开，避免它们再次同时读取、同时提交
+ */
+@Data
+public class OptimisticRetryOptions {
+
+    /**
+     * 默认最多尝试次数
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /**
+     * 最多尝试次数（包括第一次）
+     */
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    /**
+     * 第一次冲突后的最大等待时间（毫秒）
+     */
+    private long initialBackoffMillis = 10;
+
+    /**
+     * 等待时间上限（毫秒）
+     */
+    private long maxBackoffMillis = 500;
+
+    /**
+     * 每次冲突后等待时间的增长倍数
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * 每次尝试是否在单独的事务中执行（REQUIRES_NEW）
+     *
+     * MySQL 默认的可重复读隔离级别下，同一个事务中重新读取仍然是事务开始时的快照，读不到其他事务提交的新版本号，
+     * 重试必然再次冲突，所以默认每次尝试单独开启事务；已经在外层事务中且确认隔离级别为读已提交时可以关闭
+     */
+    private boolean newTransactionPerAttempt = true;
+
+    /**
+     * 静态工厂方法
+     *
+     * @param maxAttempts 最多尝试次数
+     * @return 乐观锁重试选项
+     */
+    public static OptimisticRetryOptions of(int maxAttempts) {
+        OptimisticRetryOptions options = new OptimisticRetryOptions();
+        options.setMaxAttempts(maxAttempts);
+        return options;
+    }
+}
@@ -0,0 +1,28 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * 乐观锁更新 actuator 端点
+ *
+ * - GET /actuator/optimisticlock  各实体的尝试、冲突、重试用完次数和冲突率（千分比）
+ *
+ * 需要在 management.endpoints.web.exposure.include 中加入 optimisticlock
+ */
+@Endpoint(id = "optimisticlock")
+public class OptimisticUpdateEndpoint {
+
+    private final OptimisticUpdateExecutor executor;
+
+    public OptimisticUpdateEndpoint(OptimisticUpdateExecutor executor) {
+        this.executor = executor;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Long>> stats() {
+        return executor.getStats();
+    }
+}
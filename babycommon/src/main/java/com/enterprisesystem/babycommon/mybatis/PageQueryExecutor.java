@@ -0,0 +1,407 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.cache.QueryResultCache;
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
+import com.enterprisesystem.babycommon.datasource.DataSourceType;
+import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
+import com.enterprisesystem.babycommon.loader.SingleFlight;
+import com.enterprisesystem.babycommon.model.CountMode;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 分页总数执行器
+ *
+ * 【并行 COUNT】
+ * 页码分页的 COUNT 与当前页查询在不同线程中同时执行，分页耗时从两者之和变为两者中较慢的一个。
+ * 线程池有上限，线程全忙时由调用线程自己执行 COUNT（退化为串行），不会无限排队。
+ * 读写事务中需要读到本事务未提交的数据，COUNT 仍在当前线程中执行。
+ *
+ * 【COUNT 缓存】
+ * 按「表 + WHERE 子句 + 参数值」缓存 COUNT 结果（默认 5 秒），同一条件的翻页只统计一次；
+ * 配置了 QueryResultCache 时同时记录表版本号，表被修改后缓存的总数立即失效。
+ * 同一条件的 COUNT 正在执行时，其他请求等待同一个结果，不重复执行。
+ *
+ * 【估算总数】
+ * 无条件时读取 information_schema.TABLES 的 TABLE_ROWS，有条件时读取 EXPLAIN 的估算行数（rows × filtered%），
+ * 只适用于 MySQL，误差可能较大，用于「约 N 条」的展示。
+ *
+ * 【使用】
+ * 列表 Service 调用 page()，按 PageRequest 选择游标分页或页码分页，页码分页再按 countMode 选择上面的统计方式：
+ * <pre>
+ * {@code
+ * PageResult<UserEntity> page = pageQueryExecutor.page(wrapper, pageRequest, SORTABLE_PROPERTIES,
+ *         userMapper::selectByWrapper, userMapper::countByWrapper);
+ * }
+ * </pre>
+ */
+public class PageQueryExecutor {
+
+    private final DataSource dataSource;
+    private final ThreadPoolExecutor executor;
+    private final long countCacheTtlMillis;
+    private final Map<List<Object>, CountEntry> countCache;
+    private final SingleFlight<List<Object>, Long> singleFlight = new SingleFlight<>();
+    private volatile QueryResultCache queryResultCache;
+
+    private final LongAdder parallelCounts = new LongAdder();
+    private final LongAdder inlineCounts = new LongAdder();
+    private final LongAdder countCacheHits = new LongAdder();
+    private final LongAdder estimates = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param dataSource          数据源（估算总数时使用）
+     * @param maxThreads          并行 COUNT 的最大线程数
+     * @param countCacheTtlMillis COUNT 结果缓存时间（毫秒），小于等于 0 时不缓存
+     * @param countCacheMaxSize   COUNT 结果缓存最大条目数
+     */
+    public PageQueryExecutor(DataSource dataSource, int maxThreads, long countCacheTtlMillis, int countCacheMaxSize) {
+        this.dataSource = dataSource;
+        this.countCacheTtlMillis = countCacheTtlMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-count-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.countCache = Collections.synchronizedMap(new LinkedHashMap<List<Object>, CountEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CountEntry> eldest) {
+                return size() > countCacheMaxSize;
+            }
+        });
+    }
+
+    /**
+     * 使用查询结果缓存的表版本号使 COUNT 缓存随写入失效
+     *
+     * @param queryResultCache 查询结果缓存
+     */
+    public void setQueryResultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * 分页查询
+     *
+     * 传入 cursor 或 cursorMode=true 时使用游标分页（CursorPager），否则按 countMode 查询当前页和总数：
+     * - EXACT：COUNT 与当前页查询并行执行，总数不超过偏移量时不再查询当前页
+     * - ESTIMATED：使用估算总数，当前页不满时可以得到准确总数
+     * - HAS_NEXT：不统计总数，多查一行判断是否有下一页
+     * 页码分页未指定 sortField 且 wrapper 中没有排序时按主键排序，保证翻页顺序稳定
+     *
+     * @param wrapper     查询条件（需要指定实体类），会被设置排序和 LIMIT
+     * @param pageRequest 分页请求，为 null 时使用默认值
+     * @param sortable    允许排序的属性名，为 null 时不限制
+     * @param select      查询当前页的方法，一般为 mapper::selectByWrapper
+     * @param count       统计总数的方法，一般为 mapper::countByWrapper
+     * @return 分页结果
+     */
+    public <T> PageResult<T> page(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest, Collection<String> sortable,
+                                  Function<LambdaQueryWrapper<T>, List<T>> select,
+                                  Function<LambdaQueryWrapper<T>, Long> count) {
+        if (wrapper.getEntityClass() == null) {
+            throw new IllegalArgumentException("分页查询需要通过 new LambdaQueryWrapper<>(实体类) 指定实体类");
+        }
+        if (pageRequest == null) {
+            pageRequest = new PageRequest();
+        }
+        pageRequest.validate();
+        if (pageRequest.isCursorPaging()) {
+            return CursorPager.page(wrapper.getEntityClass(), wrapper, pageRequest, sortable, select);
+        }
+
+        applySort(wrapper, pageRequest, sortable);
+        CountMode countMode = pageRequest.resolveCountMode();
+        if (countMode == CountMode.HAS_NEXT) {
+            return pageWithoutCount(wrapper, pageRequest, select);
+        }
+        String table = EntityMetadataRegistry.get(wrapper.getEntityClass()).getTableName();
+        if (countMode == CountMode.ESTIMATED) {
+            return pageWithEstimatedCount(table, wrapper, pageRequest, select, count);
+        }
+
+        // COUNT 使用条件副本在其他线程执行，与当前页查询设置 LIMIT 互不干扰
+        LambdaQueryWrapper<T> countWrapper = wrapper.copyWhere();
+        CompletableFuture<Long> totalFuture = countAsync(table, countWrapper, () -> count.apply(countWrapper));
+        if (totalFuture.isDone()) {
+            Long total = join(totalFuture);
+            if (total == null || total <= pageRequest.getOffset()) {
+                return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), total, Collections.emptyList());
+            }
+        }
+        List<T> records = selectPage(wrapper, pageRequest, pageRequest.getPageSize(), select);
+        Long total = join(totalFuture);
+        return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), total, records);
+    }
+
+    /**
+     * 开始统计总数；可以并行时在线程池中执行，否则在当前线程中执行后返回已完成的 Future
+     *
+     * @param table   表名
+     * @param wrapper 只包含 WHERE 条件的查询构造器（执行期间不能再修改，通常为 copyWhere() 的结果）
+     * @param counter 执行 COUNT 的函数
+     * @return 总数 Future
+     */
+    public CompletableFuture<Long> countAsync(String table, LambdaQueryWrapper<?> wrapper, Supplier<Long> counter) {
+        if (inReadWriteTransaction()) {
+            inlineCounts.increment();
+            return CompletableFuture.completedFuture(counter.get());
+        }
+        List<Object> key = Arrays.asList(table, wrapper.getWhereSql(), wrapper.getParams());
+        Long cached = getCachedCount(key);
+        if (cached != null) {
+            countCacheHits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        QueryResultCache.Snapshot snapshot = snapshot(table);
+        Thread caller = Thread.currentThread();
+        DataSourceContextHolder.Snapshot routing = DataSourceContextHolder.capture();
+        parallelCounts.increment();
+        return singleFlight.executeAsync(key, () -> {
+            if (Thread.currentThread() == caller) {
+                // 线程池已满，由调用线程执行，路由上下文就是调用方自己的
+                return countAndCache(key, snapshot, counter);
+            }
+            // 把调用线程的数据源路由带到 COUNT 线程，刚写入后的分页仍然读主库
+            try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope(routing)) {
+                return countAndCache(key, snapshot, counter);
+            }
+        }, executor);
+    }
+
+    /**
+     * 等待总数
+     *
+     * @param future countAsync 返回的 Future
+     * @return 总数
+     */
+    public static Long join(CompletableFuture<Long> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SystemRuntimeException("统计总数失败：" + cause);
+        }
+    }
+
+    /**
+     * 估算总数
+     *
+     * @param table   表名
+     * @param wrapper 查询构造器（只使用 WHERE 条件）
+     * @return 估算的总数，无法估算时返回 null
+     */
+    public Long estimate(String table, LambdaQueryWrapper<?> wrapper) {
+        estimates.increment();
+        String whereSql = wrapper.getWhereSql();
+        if (whereSql.isEmpty()) {
+            return queryLong("SELECT TABLE_ROWS FROM information_schema.TABLES "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Collections.singletonList(table), false);
+        }
+        return queryLong("EXPLAIN SELECT * FROM " + table + whereSql, wrapper.getParams(), true);
+    }
+
+    /**
+     * 统计
+     *
+     * @return 指标名 -> 值
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("parallelCounts", parallelCounts.sum());
+        stats.put("inlineCounts", inlineCounts.sum());
+        stats.put("countCacheHits", countCacheHits.sum());
+        stats.put("countCacheSize", (long) countCache.size());
+        stats.put("estimates", estimates.sum());
+        stats.put("activeThreads", (long) executor.getActiveCount());
+        stats.putAll(singleFlight.getStats());
+        return stats;
+    }
+
+    /**
+     * 估算总数：当前页不满时可以得到准确总数，否则使用估算值（不小于已经查到的行数）；无法估算时准确统计
+     */
+    private <T> PageResult<T> pageWithEstimatedCount(String table, LambdaQueryWrapper<T> wrapper, PageRequest pageRequest,
+                                                     Function<LambdaQueryWrapper<T>, List<T>> select,
+                                                     Function<LambdaQueryWrapper<T>, Long> count) {
+        Long estimated = estimate(table, wrapper);
+        if (estimated == null) {
+            Long total = count.apply(wrapper.copyWhere());
+            if (total == null || total <= pageRequest.getOffset()) {
+                return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), total, Collections.emptyList());
+            }
+            return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), total,
+                    selectPage(wrapper, pageRequest, pageRequest.getPageSize(), select));
+        }
+        List<T> records = selectPage(wrapper, pageRequest, pageRequest.getPageSize(), select);
+        long seen = (long) pageRequest.getOffset() + records.size();
+        if (records.size() < pageRequest.getPageSize() && (!records.isEmpty() || pageRequest.getOffset() == 0)) {
+            return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), seen, records);
+        }
+        long total = records.isEmpty() ? Math.min(estimated, pageRequest.getOffset()) : Math.max(estimated, seen + 1);
+        return PageResult.ofEstimated(pageRequest.getPage(), pageRequest.getPageSize(), total, records);
+    }
+
+    /**
+     * 不统计总数：多查一行判断是否有下一页
+     */
+    private static <T> PageResult<T> pageWithoutCount(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest,
+                                                      Function<LambdaQueryWrapper<T>, List<T>> select) {
+        int pageSize = pageRequest.getPageSize();
+        List<T> records = selectPage(wrapper, pageRequest, pageSize + 1, select);
+        boolean hasNext = records.size() > pageSize;
+        if (hasNext) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+        }
+        return PageResult.ofHasNext(pageRequest.getPage(), pageSize, records, hasNext);
+    }
+
+    private static <T> List<T> selectPage(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest, int rows,
+                                          Function<LambdaQueryWrapper<T>, List<T>> select) {
+        wrapper.limit((long) pageRequest.getOffset(), rows);
+        return select.apply(wrapper);
+    }
+
+    /**
+     * 页码分页的排序：sortField 经白名单校验，排序字段不是主键时再按主键排序，相同值的行在翻页时顺序稳定
+     */
+    private static <T> void applySort(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest, Collection<String> sortable) {
+        String sortField = pageRequest.getSortField();
+        boolean unsorted = sortField == null || sortField.isEmpty();
+        EntityMetadata metadata = EntityMetadataRegistry.get(wrapper.getEntityClass());
+        String idProperty = metadata.getIdProperty();
+        if (unsorted && (wrapper.hasOrderBy() || idProperty == null)) {
+            return;
+        }
+        String sortProperty = CursorPager.resolveSortProperty(wrapper.getEntityClass(), sortField, sortable);
+        wrapper.orderBy(sortProperty, pageRequest.isAsc());
+        if (idProperty != null && !idProperty.equals(sortProperty)) {
+            wrapper.orderBy(idProperty, pageRequest.isAsc());
+        }
+    }
+
+    private Long countAndCache(List<Object> key, QueryResultCache.Snapshot snapshot, Supplier<Long> counter) {
+        Long total = counter.get();
+        putCachedCount(key, snapshot, total);
+        return total;
+    }
+
+    private Long getCachedCount(List<Object> key) {
+        if (countCacheTtlMillis <= 0) {
+            return null;
+        }
+        CountEntry entry = countCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        QueryResultCache cache = queryResultCache;
+        if (entry.expireAt < System.currentTimeMillis() || (cache != null && entry.snapshot != null
+                && !cache.isCurrent(entry.snapshot))) {
+            countCache.remove(key, entry);
+            return null;
+        }
+        return entry.total;
+    }
+
+    private void putCachedCount(List<Object> key, QueryResultCache.Snapshot snapshot, Long total) {
+        if (countCacheTtlMillis <= 0 || total == null) {
+            return;
+        }
+        QueryResultCache cache = queryResultCache;
+        if (cache != null && snapshot != null && !cache.isCurrent(snapshot)) {
+            return;
+        }
+        countCache.put(key, new CountEntry(total, snapshot, System.currentTimeMillis() + countCacheTtlMillis));
+    }
+
+    private QueryResultCache.Snapshot snapshot(String table) {
+        QueryResultCache cache = queryResultCache;
+        return cache == null ? null : cache.snapshot(Collections.singletonList(table.toLowerCase()));
+    }
+
+    /**
+     * 执行估算语句，explain 为 true 时按 rows × filtered% 计算
+     */
+    private Long queryLong(String sql, List<Object> params, boolean explain) {
+        DataSourceType previous = DataSourceContextHolder.setStatementType(DataSourceType.REPLICA);
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                if (!explain) {
+                    return resultSet.getLong(1);
+                }
+                long rows = resultSet.getLong("rows");
+                double filtered = resultSet.getDouble("filtered");
+                return filtered > 0 ? Math.round(rows * filtered / 100) : rows;
+            }
+        } catch (SQLException e) {
+            System.out.println("估算总数失败：" + e.getMessage());
+            return null;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            DataSourceContextHolder.setStatementType(previous);
+        }
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static final class CountEntry {
+
+        private final Long total;
+        private final QueryResultCache.Snapshot snapshot;
+        private final long expireAt;
+
+        private CountEntry(Long total, QueryResultCache.Snapshot snapshot, long expireAt) {
+            this.total = total;
+            this.snapshot = snapshot;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.annotation.CachedQuery;
+import com.enterprisesystem.babycommon.cache.QueryResultCache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 查询结果缓存拦截器
+ *
+ * 【读】
+ * 标注了 @CachedQuery 的查询以 MyBatis 的 CacheKey（语句 ID + 实际执行的 SQL + 参数值 + 分页参数）为 key 读写 QueryResultCache，
+ * selectByWrapper 等以 LambdaQueryWrapper 为参数的语句，条件或参数值不同会得到不同的 key。
+ * 以下情况直接查询数据库：读写事务中（需要看到本事务未提交的修改，也不能把未提交的数据放入缓存）、
+ * 使用自定义 ResultHandler、语句有多个结果映射、无法解析出所读的表。
+ *
+ * 【写】
+ * 所有 INSERT / UPDATE / DELETE 执行后递增其修改的表的版本号（不论是否开启缓存），在事务中执行时事务结束后再递增一次，
+ * 防止事务提交前其他线程把旧数据放入缓存。
+ *
+ * 【注意】
+ * 只能感知经过 MyBatis 的写入，JdbcTemplate、手工 SQL 或其他系统直接修改数据库不会使缓存失效，只能等待过期。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class QueryResultCacheInterceptor implements Interceptor {
+
+    private final QueryResultCache cache;
+
+    /**
+     * 语句 ID -> 缓存配置（未开启缓存时为空）
+     */
+    private final Map<String, Optional<CachedQuery>> configs = new ConcurrentHashMap<>();
+
+    /**
+     * 静态写语句 ID -> 修改的表
+     */
+    private final Map<String, Set<String>> staticWriteTables = new ConcurrentHashMap<>();
+
+    public QueryResultCacheInterceptor(QueryResultCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if ("update".equals(invocation.getMethod().getName())) {
+            return update(invocation);
+        }
+        Object[] args = invocation.getArgs();
+        MappedStatement mappedStatement = (MappedStatement) args[0];
+        CachedQuery config = resolveConfig(mappedStatement);
+        if (config == null || args[3] != null || mappedStatement.getResultMaps().size() != 1 || inReadWriteTransaction()) {
+            return invocation.proceed();
+        }
+
+        BoundSql boundSql;
+        CacheKey cacheKey;
+        if (args.length == 6) {
+            cacheKey = (CacheKey) args[4];
+            boundSql = (BoundSql) args[5];
+        } else {
+            Executor executor = (Executor) invocation.getTarget();
+            boundSql = mappedStatement.getBoundSql(args[1]);
+            cacheKey = executor.createCacheKey(mappedStatement, args[1], (RowBounds) args[2], boundSql);
+        }
+        Set<String> tables = config.tables().length > 0
+                ? new LinkedHashSet<>(Arrays.asList(config.tables()))
+                : SqlTables.extract(boundSql.getSql());
+        if (tables.isEmpty()) {
+            return invocation.proceed();
+        }
+
+        String key = cacheKey.toString();
+        Class<?> rowType = mappedStatement.getResultMaps().get(0).getType();
+        List<Object> cached = cache.get(key, rowType);
+        if (cached != null) {
+            return cached;
+        }
+        QueryResultCache.Snapshot snapshot = cache.snapshot(tables);
+        Object result = invocation.proceed();
+        if (result instanceof List && ((List<?>) result).size() <= config.maxRows()) {
+            cache.put(key, snapshot, (List<?>) result, config.ttlSeconds() * 1000);
+        }
+        return result;
+    }
+
+    private Object update(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Object result = invocation.proceed();
+        Set<String> tables = writeTables(mappedStatement, invocation.getArgs()[1]);
+        cache.bumpTables(tables);
+        if (!tables.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.bumpTables(tables);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 静态 SQL 的表名按语句缓存，批量写入时不必每行都解析一次
+     */
+    private Set<String> writeTables(MappedStatement mappedStatement, Object parameter) {
+        if (mappedStatement.getSqlSource() instanceof RawSqlSource) {
+            return staticWriteTables.computeIfAbsent(mappedStatement.getId(),
+                    id -> SqlTables.extract(mappedStatement.getBoundSql(parameter).getSql()));
+        }
+        return SqlTables.extract(mappedStatement.getBoundSql(parameter).getSql());
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private CachedQuery resolveConfig(MappedStatement mappedStatement) {
+        if (mappedStatement.getSqlCommandType() != SqlCommandType.SELECT) {
+            return null;
+        }
+        return configs.computeIfAbsent(mappedStatement.getId(), QueryResultCacheInterceptor::findConfig).orElse(null);
+    }
+
+    /**
+     * 方法上的注解优先，其次是 Mapper 接口上的注解
+     */
+    private static Optional<CachedQuery> findConfig(String statementId) {
+        int dot = statementId.lastIndexOf('.');
+        // selectKey 等生成的语句（xxx!selectKey）不缓存
+        if (dot < 0 || statementId.indexOf('!') >= 0) {
+            return Optional.empty();
+        }
+        Class<?> mapperType;
+        try {
+            mapperType = Resources.classForName(statementId.substring(0, dot));
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        }
+        String methodName = statementId.substring(dot + 1);
+        for (Method method : mapperType.getMethods()) {
+            if (method.getName().equals(methodName) && method.isAnnotationPresent(CachedQuery.class)) {
+                return Optional.of(method.getAnnotation(CachedQuery.class));
+            }
+        }
+        return Optional.ofNullable(mapperType.getAnnotation(CachedQuery.class));
+    }
+}
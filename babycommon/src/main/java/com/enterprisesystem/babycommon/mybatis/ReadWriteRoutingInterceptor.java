@@ -0,0 +1,51 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
+import com.enterprisesystem.babycommon.datasource.DataSourceType;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 读写分离语句类型拦截器
+ *
+ * 【作用】
+ * 在 Executor 执行 SQL 之前标记当前语句是读还是写，ReadWriteRoutingDataSource 在获取连接时据此选择主库或从库。
+ * 非事务场景下 MyBatis 在执行语句时才获取连接，所以这里的标记在获取连接时一定有效。
+ *
+ * 写语句执行后标记主库粘滞，同一请求中后续的读取都走主库，避免刚写入的数据因从库延迟读不到。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class ReadWriteRoutingInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        boolean write = "update".equals(invocation.getMethod().getName());
+        if (write) {
+            DataSourceContextHolder.markPrimarySticky();
+        }
+        DataSourceType previous = DataSourceContextHolder.setStatementType(
+                write ? DataSourceType.PRIMARY : DataSourceType.REPLICA);
+        try {
+            return invocation.proceed();
+        } finally {
+            DataSourceContextHolder.setStatementType(previous);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 查询结果大小估算
+ *
+ * 根据映射后的结果对象估算从数据库读取的字节数：字符串按字符数，数值按定长，byte[] 按长度。
+ * 只计算前 SAMPLE_ROWS 行，再按总行数推算，大结果集的统计开销固定。
+ * 得到的是数据本身的大小，不含协议开销，用于横向比较各语句的数据量（如是否查询了大字段）。
+ */
+final class ResultSizeEstimator {
+
+    static final int SAMPLE_ROWS = 100;
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private ResultSizeEstimator() {
+    }
+
+    /**
+     * 估算结果大小
+     *
+     * @param result Executor 返回的结果（List 或单个对象）
+     * @return 估算字节数
+     */
+    static long estimate(Object result) {
+        if (!(result instanceof List)) {
+            return sizeOf(result, true);
+        }
+        List<?> rows = (List<?>) result;
+        int sampled = Math.min(rows.size(), SAMPLE_ROWS);
+        long bytes = 0;
+        for (int i = 0; i < sampled; i++) {
+            bytes += sizeOf(rows.get(i), true);
+        }
+        return sampled == 0 ? 0 : bytes * rows.size() / sampled;
+    }
+
+    private static long sizeOf(Object value, boolean expand) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Long || value instanceof Double || value instanceof Date) {
+            return 8;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof Short) {
+            return 2;
+        }
+        if (value instanceof Byte || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger || value instanceof Enum) {
+            return value.toString().length();
+        }
+        if (!expand) {
+            // 嵌套对象（关联查询结果）只展开一层
+            return 0;
+        }
+        if (value instanceof Map) {
+            long bytes = 0;
+            for (Object item : ((Map<?, ?>) value).values()) {
+                bytes += sizeOf(item, false);
+            }
+            return bytes;
+        }
+        if (value instanceof Collection) {
+            long bytes = 0;
+            for (Object item : (Collection<?>) value) {
+                bytes += sizeOf(item, false);
+            }
+            return bytes;
+        }
+        long bytes = 0;
+        for (Field field : fieldsOf(value.getClass())) {
+            try {
+                bytes += sizeOf(field.get(value), false);
+            } catch (IllegalAccessException e) {
+                // 无法访问的字段不计入
+            }
+        }
+        return bytes;
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, clazz -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    } catch (RuntimeException e) {
+                        // 无法访问的字段（如 JDK 内部类）不计入
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        });
+    }
+}
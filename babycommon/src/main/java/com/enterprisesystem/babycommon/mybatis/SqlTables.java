@@ -0,0 +1,80 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 从 SQL 中提取表名
+ *
+ * 只做简单的词法扫描：FROM / JOIN / INTO / UPDATE 之后的标识符视为表名，FROM 和 UPDATE 后的逗号列表也会提取，
+ * 子查询中的表同样会被提取。结果只用于缓存失效，多提取只会降低命中率，不影响正确性。
+ */
+public final class SqlTables {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[\\s();]+|(?=,)|(?<=,)");
+
+    private static final Set<String> TABLE_KEYWORDS = new HashSet<>(Arrays.asList("from", "join", "into", "update"));
+
+    private static final Set<String> LIST_KEYWORDS = new HashSet<>(Arrays.asList("from", "update"));
+
+    /**
+     * 表名之后结束逗号列表的关键字
+     */
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+            "where", "join", "left", "right", "inner", "outer", "cross", "straight_join", "natural", "on", "using",
+            "group", "order", "having", "limit", "union", "set", "values", "value", "select", "for", "lock",
+            "window", "into", "partition", "force", "ignore", "use"));
+
+    private SqlTables() {
+    }
+
+    /**
+     * 提取表名
+     *
+     * @param sql SQL
+     * @return 表名（小写，去掉库名前缀）
+     */
+    public static Set<String> extract(String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+        if (sql == null) {
+            return tables;
+        }
+        String[] tokens = TOKEN_SEPARATOR.split(sql.replace("`", "").toLowerCase());
+        for (int i = 0; i < tokens.length; i++) {
+            String keyword = tokens[i];
+            if (!TABLE_KEYWORDS.contains(keyword)) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < tokens.length) {
+                String table = tokens[j];
+                if (table.isEmpty() || ",".equals(table) || CLAUSE_KEYWORDS.contains(table) || table.startsWith("#")
+                        || table.startsWith("?")) {
+                    break;
+                }
+                tables.add(stripSchema(table));
+                if (!LIST_KEYWORDS.contains(keyword)) {
+                    break;
+                }
+                // 跳过别名，遇到逗号继续提取下一个表
+                j++;
+                while (j < tokens.length && !",".equals(tokens[j]) && !CLAUSE_KEYWORDS.contains(tokens[j])) {
+                    j++;
+                }
+                if (j >= tokens.length || !",".equals(tokens[j])) {
+                    break;
+                }
+                j++;
+            }
+        }
+        return tables;
+    }
+
+    private static String stripSchema(String table) {
+        int dot = table.lastIndexOf('.');
+        return dot < 0 ? table : table.substring(dot + 1);
+    }
+}
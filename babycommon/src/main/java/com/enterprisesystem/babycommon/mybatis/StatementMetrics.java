@@ -0,0 +1,85 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单条语句（或 selectByWrapper 的某一种 WHERE 形状）的统计
+ */
+public class StatementMetrics {
+
+    private final String key;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+
+    StatementMetrics(String key) {
+        this.key = key;
+    }
+
+    void record(long nanos, long rowCount, long byteCount, boolean error, boolean slowQuery) {
+        latency.record(nanos);
+        rows.add(rowCount);
+        bytes.add(byteCount);
+        if (error) {
+            errors.increment();
+        }
+        if (slowQuery) {
+            slow.increment();
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getSlow() {
+        return slow.sum();
+    }
+
+    /**
+     * 转换为便于输出的 Map（actuator 端点使用）
+     *
+     * @return 统计数据
+     */
+    public Map<String, Object> toMap() {
+        long count = latency.getCount();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("errors", getErrors());
+        result.put("slow", getSlow());
+        result.put("meanMs", round(latency.getMeanMillis()));
+        result.put("p50Ms", latency.getPercentileMillis(0.50));
+        result.put("p95Ms", latency.getPercentileMillis(0.95));
+        result.put("p99Ms", latency.getPercentileMillis(0.99));
+        result.put("maxMs", round(latency.getMaxMillis()));
+        result.put("rows", getRows());
+        result.put("rowsPerCall", count == 0 ? 0D : round((double) getRows() / count));
+        result.put("estimatedBytes", getBytes());
+        result.put("histogram", latency.getBuckets());
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000D) / 1000D;
+    }
+}
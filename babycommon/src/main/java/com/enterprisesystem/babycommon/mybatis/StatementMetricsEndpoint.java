@@ -0,0 +1,42 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 语句统计 actuator 端点
+ *
+ * - GET    /actuator/mybatis        所有语句的统计，按总耗时从高到低排序
+ * - GET    /actuator/mybatis/{key}  单条语句的统计（key 为 MappedStatement ID 或带 WHERE 形状的 key）
+ *
+ * 需要在 management.endpoints.web.exposure.include 中加入 mybatis。
+ * 端点只读：actuator 路径没有鉴权，清空统计只能在应用内调用 StatementMetricsRegistry.reset()
+ */
+@Endpoint(id = "mybatis")
+public class StatementMetricsEndpoint {
+
+    private final StatementMetricsRegistry registry;
+
+    public StatementMetricsEndpoint(StatementMetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statements() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (StatementMetrics metrics : registry.getAll()) {
+            result.put(metrics.getKey(), metrics.toMap());
+        }
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statement(@Selector String key) {
+        StatementMetrics metrics = registry.find(key);
+        return metrics == null ? null : metrics.toMap();
+    }
+}
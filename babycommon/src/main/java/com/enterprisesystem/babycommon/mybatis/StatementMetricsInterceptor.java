@@ -0,0 +1,169 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 语句耗时统计拦截器
+ *
+ * 【作用】
+ * 按 MappedStatement 记录每条 SQL 的耗时直方图、返回行数（写语句为影响行数）和估算的读取字节数，
+ * 通过 actuator 端点 /actuator/mybatis 查看，用于找出慢语句和性能回归（如没有索引的全表扫描）。
+ *
+ * selectByWrapper、countByWrapper 等以 LambdaQueryWrapper 为参数的语句，同一个 Mapper 方法会生成不同的 SQL，
+ * 这类语句再按 WHERE 子句的形状（只包含列名和 ?，不含参数值）分别统计。
+ *
+ * 【慢查询日志】
+ * 耗时超过阈值的语句打印 SQL 和参数，参数只输出名称和类型，不输出值（避免密码、手机号等敏感数据进入日志）。
+ *
+ * 【注意】
+ * queryCursor（流式查询）只统计打开游标的耗时，行数和字节数不计入。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class StatementMetricsInterceptor implements Interceptor {
+
+    private static final String WRAPPER_PARAM = "wrapper";
+    private static final String NO_CONDITION = "无条件";
+
+    private final StatementMetricsRegistry registry;
+    private final long slowQueryNanos;
+
+    /**
+     * 构造函数
+     *
+     * @param registry        统计注册表
+     * @param slowQueryMillis 慢查询阈值（毫秒），小于等于 0 时不打印慢查询日志
+     */
+    public StatementMetricsInterceptor(StatementMetricsRegistry registry, long slowQueryMillis) {
+        this.registry = registry;
+        this.slowQueryNanos = slowQueryMillis > 0 ? slowQueryMillis * 1_000_000 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement mappedStatement = (MappedStatement) args[0];
+        Object parameter = args[1];
+        boolean query = !"update".equals(invocation.getMethod().getName());
+
+        long start = System.nanoTime();
+        Object result = null;
+        boolean error = true;
+        try {
+            result = invocation.proceed();
+            error = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long rows = 0;
+            long bytes = 0;
+            if (!error) {
+                if (result instanceof List) {
+                    rows = ((List<?>) result).size();
+                    bytes = ResultSizeEstimator.estimate(result);
+                } else if (result instanceof Integer && !query) {
+                    rows = (Integer) result;
+                }
+            }
+            boolean slow = elapsed >= slowQueryNanos;
+            registry.get(mappedStatement.getId(), whereShape(parameter)).record(elapsed, rows, bytes, error, slow);
+            if (slow) {
+                logSlowQuery(mappedStatement, parameter, args.length == 6 ? (BoundSql) args[5] : null, elapsed, rows);
+            }
+        }
+    }
+
+    /**
+     * 取出 LambdaQueryWrapper 参数的 WHERE 形状
+     *
+     * @param parameter Mapper 方法参数
+     * @return WHERE 形状，不是按条件查询时返回 null
+     */
+    static String whereShape(Object parameter) {
+        Object wrapper = parameter;
+        if (parameter instanceof Map) {
+            Map<?, ?> params = (Map<?, ?>) parameter;
+            wrapper = params.containsKey(WRAPPER_PARAM) ? params.get(WRAPPER_PARAM) : null;
+        }
+        if (!(wrapper instanceof LambdaQueryWrapper)) {
+            return null;
+        }
+        String where = ((LambdaQueryWrapper<?>) wrapper).getWhereSql().trim();
+        return where.isEmpty() ? NO_CONDITION : where;
+    }
+
+    private void logSlowQuery(MappedStatement mappedStatement, Object parameter, BoundSql boundSql,
+                              long elapsedNanos, long rows) {
+        try {
+            if (boundSql == null) {
+                boundSql = mappedStatement.getBoundSql(parameter);
+            }
+            System.out.println("慢查询【" + mappedStatement.getId() + "】耗时：" + elapsedNanos / 1_000_000 + " ms，行数：" + rows
+                    + "，SQL：" + boundSql.getSql().replaceAll("\\s+", " ").trim()
+                    + "，参数：" + describeParameters(mappedStatement, boundSql, parameter));
+        } catch (RuntimeException e) {
+            System.out.println("慢查询【" + mappedStatement.getId() + "】耗时：" + elapsedNanos / 1_000_000 + " ms（SQL 获取失败："
+                    + e.getMessage() + "）");
+        }
+    }
+
+    /**
+     * 参数描述，只包含参数名和类型，如：[account:String, cStatus:Integer]
+     */
+    static String describeParameters(MappedStatement mappedStatement, BoundSql boundSql, Object parameter) {
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        if (mappings == null || mappings.isEmpty()) {
+            return "[]";
+        }
+        MetaObject metaObject = null;
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < mappings.size(); i++) {
+            String property = mappings.get(i).getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (mappedStatement.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                if (metaObject == null) {
+                    metaObject = mappedStatement.getConfiguration().newMetaObject(parameter);
+                }
+                value = metaObject.hasGetter(property) ? metaObject.getValue(property) : null;
+            }
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(property).append(':').append(value == null ? "null" : value.getClass().getSimpleName());
+        }
+        return builder.append(']').toString();
+    }
+
+    public StatementMetricsRegistry getRegistry() {
+        return registry;
+    }
+}
@@ -0,0 +1,89 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 语句统计注册表
+ *
+ * key 为 MappedStatement ID；按条件动态生成 SQL 的语句（selectByWrapper 等）再按 WHERE 形状细分，
+ * key 形如 com.xxx.UserMapper.selectByWrapper[WHERE account = ? AND c_status = ?]。
+ * 每条语句最多保留 maxShapesPerStatement 种形状，超出的计入 [其他形状]，避免统计项无限增长。
+ */
+public class StatementMetricsRegistry {
+
+    public static final String OTHER_SHAPES = "[其他形状]";
+
+    private final Map<String, StatementMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> shapeCounts = new ConcurrentHashMap<>();
+    private final int maxShapesPerStatement;
+
+    public StatementMetricsRegistry(int maxShapesPerStatement) {
+        this.maxShapesPerStatement = maxShapesPerStatement;
+    }
+
+    /**
+     * 获取（或创建）统计项
+     *
+     * @param statementId MappedStatement ID
+     * @param shape       WHERE 形状，不区分形状时为 null
+     * @return 统计项
+     */
+    public StatementMetrics get(String statementId, String shape) {
+        if (shape == null) {
+            return metrics.computeIfAbsent(statementId, StatementMetrics::new);
+        }
+        String key = statementId + "[" + shape + "]";
+        StatementMetrics existing = metrics.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        AtomicInteger shapes = shapeCounts.computeIfAbsent(statementId, id -> new AtomicInteger());
+        if (shapes.incrementAndGet() > maxShapesPerStatement) {
+            shapes.decrementAndGet();
+            return metrics.computeIfAbsent(statementId + OTHER_SHAPES, StatementMetrics::new);
+        }
+        StatementMetrics created = new StatementMetrics(key);
+        existing = metrics.putIfAbsent(key, created);
+        if (existing != null) {
+            // 并发创建了同一个形状，撤销计数
+            shapes.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+
+    /**
+     * 查找统计项
+     *
+     * @param key 统计项 key
+     * @return 统计项，不存在时返回 null
+     */
+    public StatementMetrics find(String key) {
+        return metrics.get(key);
+    }
+
+    /**
+     * 所有统计项，按总耗时（平均耗时 × 次数）从高到低排序
+     *
+     * @return 统计项列表
+     */
+    public List<StatementMetrics> getAll() {
+        List<StatementMetrics> list = new ArrayList<>(metrics.values());
+        list.sort(Comparator.comparingDouble(
+                (StatementMetrics m) -> m.getLatency().getMeanMillis() * m.getLatency().getCount()).reversed());
+        return list;
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        metrics.clear();
+        shapeCounts.clear();
+    }
+}
@@ -0,0 +1,92 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 流式查询迭代器
+ *
+ * 持有 MyBatis Cursor 和只读事务，逐行读取数据库结果，调用方取一行数据库才读一行（拉模式，天然背压）。
+ * 必须在同一线程中使用，并通过 try-with-resources 关闭，关闭时释放结果集和数据库连接：
+ * <pre>
+ * {@code
+ * try (StreamCursor<UserEntity> cursor = userService.iterateByWrapper(wrapper)) {
+ *     while (cursor.hasNext()) {
+ *         write(cursor.next());
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * @param <T> 实体类型
+ */
+public class StreamCursor<T> implements Iterator<T>, Closeable {
+
+    private final Cursor<T> cursor;
+    private final Iterator<T> iterator;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionStatus transaction;
+    private long count;
+    private boolean closed;
+
+    StreamCursor(Cursor<T> cursor, PlatformTransactionManager transactionManager, TransactionStatus transaction) {
+        this.cursor = cursor;
+        this.iterator = cursor.iterator();
+        this.transactionManager = transactionManager;
+        this.transaction = transaction;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        boolean hasNext = iterator.hasNext();
+        if (!hasNext) {
+            close();
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        count++;
+        return iterator.next();
+    }
+
+    /**
+     * 已读取的行数
+     *
+     * @return 行数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 关闭结果集并结束只读事务，可重复调用
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            cursor.close();
+        } catch (IOException e) {
+            System.out.println("关闭 Cursor 失败：" + e.getMessage());
+        } finally {
+            transactionManager.commit(transaction);
+        }
+    }
+}
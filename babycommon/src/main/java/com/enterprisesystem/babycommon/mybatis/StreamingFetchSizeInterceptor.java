@@ -0,0 +1,96 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * 流式查询 fetchSize 拦截器
+ *
+ * 【作用】
+ * MySQL 驱动默认会把整个结果集读入内存，即使 Mapper 返回的是 Cursor 也一样。
+ * 只有 fetchSize = Integer.MIN_VALUE（逐行流式读取），或者连接参数 useCursorFetch=true 且 fetchSize > 0
+ * （服务端游标分批读取）时，结果集才会边读边处理。
+ *
+ * 本拦截器对方法名以 stream 开头的 Mapper 方法（如 streamAll、streamByWrapper）统一设置 fetchSize，
+ * 不需要在每个方法上重复写 @Options(fetchSize = ...)；方法上显式指定了 fetchSize 的以方法上的为准。
+ */
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})
+})
+public class StreamingFetchSizeInterceptor implements Interceptor {
+
+    /**
+     * MySQL 逐行流式读取的 fetchSize
+     */
+    public static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    /**
+     * 流式查询方法名前缀
+     */
+    public static final String STREAM_METHOD_PREFIX = "stream";
+
+    private final int fetchSize;
+
+    public StreamingFetchSizeInterceptor() {
+        this(MYSQL_STREAMING_FETCH_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param fetchSize 流式查询使用的 fetchSize，MySQL 逐行读取使用 Integer.MIN_VALUE，
+     *                  服务端游标（useCursorFetch=true）使用正数，如 1000
+     */
+    public StreamingFetchSizeInterceptor(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (result instanceof Statement) {
+            MappedStatement mappedStatement = getMappedStatement((StatementHandler) invocation.getTarget());
+            if (mappedStatement != null && mappedStatement.getFetchSize() == null && isStreamStatement(mappedStatement.getId())) {
+                ((Statement) result).setFetchSize(fetchSize);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否为流式查询语句（Mapper 方法名以 stream 开头）
+     *
+     * @param statementId MappedStatement ID，如 com.xxx.UserMapper.streamAll
+     * @return true-流式查询
+     */
+    static boolean isStreamStatement(String statementId) {
+        int index = statementId.lastIndexOf('.');
+        return statementId.startsWith(STREAM_METHOD_PREFIX, index + 1);
+    }
+
+    private static MappedStatement getMappedStatement(StatementHandler handler) {
+        MetaObject metaObject = SystemMetaObject.forObject(handler);
+        // 存在多个插件时 handler 是层层包装的代理对象，先取出被代理的目标
+        while (metaObject.hasGetter("h")) {
+            metaObject = SystemMetaObject.forObject(metaObject.getValue("h.target"));
+        }
+        // 实际类型为 RoutingStatementHandler，MappedStatement 在其 delegate 中
+        while (metaObject.hasGetter("delegate")) {
+            metaObject = SystemMetaObject.forObject(metaObject.getValue("delegate"));
+        }
+        return metaObject.hasGetter("mappedStatement") ? (MappedStatement) metaObject.getValue("mappedStatement") : null;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+}
@@ -0,0 +1,107 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 流式查询执行器
+ *
+ * 【作用】
+ * Mapper 返回的 MyBatis Cursor 只有在 SqlSession 保持打开时才能读取，而 Spring 管理的 Mapper
+ * 在没有事务时每次调用结束就会关闭 SqlSession。本类在只读事务中打开 Cursor，逐行（或按批）回调处理，
+ * 处理完成后关闭 Cursor 并结束事务，内存中最多只保留一个批次的数据。
+ *
+ * 【背压】
+ * 回调在读取线程中同步执行，回调没有返回之前不会读取下一行，处理速度慢时数据库读取自动放慢，
+ * 导出几百万行数据时堆内存占用保持不变。
+ *
+ * 【注意】
+ * MySQL 逐行流式读取（fetchSize = Integer.MIN_VALUE）期间，同一连接不能执行其他 SQL，
+ * 因此回调中不要再通过 Mapper 查询数据库；需要在回调中查询时，改用 useCursorFetch=true 并设置正数 fetchSize。
+ */
+public class StreamingQueryExecutor {
+
+    /**
+     * 默认批次大小
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final PlatformTransactionManager transactionManager;
+
+    public StreamingQueryExecutor(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * 逐行处理
+     *
+     * @param query   返回 Cursor 的 Mapper 调用，如 () -> userMapper.streamAll()
+     * @param handler 每行的处理函数
+     * @param <T>     实体类型
+     * @return 处理的行数
+     */
+    public <T> long forEach(Supplier<Cursor<T>> query, Consumer<T> handler) {
+        try (StreamCursor<T> cursor = open(query)) {
+            while (cursor.hasNext()) {
+                handler.accept(cursor.next());
+            }
+            return cursor.getCount();
+        }
+    }
+
+    /**
+     * 按批处理，每凑满 batchSize 行回调一次，最后一批可能不足 batchSize
+     *
+     * @param query     返回 Cursor 的 Mapper 调用
+     * @param batchSize 批次大小
+     * @param handler   每批的处理函数，每次回调都是新的 List，可以安全地保存或异步使用
+     * @param <T>       实体类型
+     * @return 处理的行数
+     */
+    public <T> long forEachBatch(Supplier<Cursor<T>> query, int batchSize, Consumer<List<T>> handler) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize 必须大于 0");
+        }
+        try (StreamCursor<T> cursor = open(query)) {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    handler.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                handler.accept(batch);
+            }
+            return cursor.getCount();
+        }
+    }
+
+    /**
+     * 打开流式查询迭代器，调用方负责关闭
+     *
+     * @param query 返回 Cursor 的 Mapper 调用
+     * @param <T>   实体类型
+     * @return 迭代器
+     */
+    public <T> StreamCursor<T> open(Supplier<Cursor<T>> query) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+        definition.setName("streamingQuery");
+        TransactionStatus transaction = transactionManager.getTransaction(definition);
+        try {
+            return new StreamCursor<>(query.get(), transactionManager, transaction);
+        } catch (RuntimeException | Error e) {
+            transactionManager.rollback(transaction);
+            throw e;
+        }
+    }
+}
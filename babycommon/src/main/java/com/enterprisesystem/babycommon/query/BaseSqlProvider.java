@@ -1,37 +1,99 @@
 package com.enterprisesystem.babycommon.query;
 
+import org.apache.ibatis.annotations.Param;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * MyBatis SQL Provider 基类
  * 用于支持 @SelectProvider、@UpdateProvider、@DeleteProvider 注解
  *
+ * 生成的 SQL 使用参数化模式（#{wrapper.paramMap.pN}），条件值作为预编译参数绑定，
+ * 因此 Mapper 方法需要使用 @Param("wrapper") 声明查询构造器参数：
+ * <pre>
+ * {@code
+ * @SelectProvider(type = UserSqlProvider.class, method = "findByWrapper")
+ * List<User> selectByWrapper(@Param("wrapper") LambdaQueryWrapper<User> wrapper);
+ * }
+ * </pre>
+ *
+ * 结构相同的查询会直接命中 SqlShapeCache 中的完整语句；配合 @Lang(ShapeCachingLanguageDriver.class)
+ * 还可以跳过 MyBatis 对 SQL 文本的重复解析
+ *
+ * 批量写入语句（batchInsert / batchUpdate / batchUpsert）根据实体元数据生成，Mapper 方法使用 @Param("list")：
+ * <pre>
+ * {@code
+ * @InsertProvider(type = UserSqlProvider.class, method = "batchInsert")
+ * int batchInsert(@Param("list") List<User> list);
+ * }
+ * </pre>
+ *
  * @author Claude Code
  * @date 2026-01-04
  */
 public class BaseSqlProvider<T> {
 
     private final Class<T> entityClass;
+    private final EntityMetadata metadata;
     private final String tableName;
 
+    /**
+     * 构造函数，表名从实体类的 @TableName 注解解析
+     *
+     * @param entityClass 实体类类型
+     */
+    public BaseSqlProvider(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        this.metadata = EntityMetadataRegistry.get(entityClass);
+        this.tableName = metadata.getTableName();
+    }
+
     /**
      * 构造函数
      *
      * @param entityClass 实体类类型
      * @param tableName   数据库表名
+     * @deprecated 表名请通过实体类上的 @TableName 声明，使用 {@link #BaseSqlProvider(Class)}
      */
+    @Deprecated
     public BaseSqlProvider(Class<T> entityClass, String tableName) {
         this.entityClass = entityClass;
+        this.metadata = EntityMetadataRegistry.get(entityClass);
         this.tableName = tableName;
     }
 
     /**
-     * 生成查询 SQL
+     * 获取实体元数据
+     *
+     * @return 实体元数据
+     */
+    public EntityMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * 生成查询 SQL，通过 wrapper.select() 设置了列投影时只查询指定的列
      * 使用方法：@SelectProvider(type = UserSqlProvider.class, method = "findByWrapper")
      *
      * @param wrapper Lambda 查询构造器
      * @return SQL 语句
      */
-    public String findByWrapper(LambdaQueryWrapper<T> wrapper) {
-        return "SELECT * FROM " + tableName + wrapper.getSql();
+    public String findByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper) {
+        return render("find|", wrapper,
+                () -> "SELECT " + wrapper.getSelectSql() + " FROM " + tableName + wrapper.paramSql());
+    }
+
+    /**
+     * 生成查询全部记录的 SQL
+     * 使用方法：@SelectProvider(type = UserSqlProvider.class, method = "findAll")
+     *
+     * @return SQL 语句
+     */
+    public String findAll() {
+        return "SELECT * FROM " + tableName;
     }
 
     /**
@@ -40,8 +102,8 @@ public class BaseSqlProvider<T> {
      * @param wrapper Lambda 查询构造器
      * @return SQL 语句
      */
-    public String countByWrapper(LambdaQueryWrapper<T> wrapper) {
-        return "SELECT COUNT(*) FROM " + tableName + wrapper.getWhereSql();
+    public String countByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper) {
+        return render("count|", wrapper, () -> "SELECT COUNT(*) FROM " + tableName + wrapper.paramWhereSql());
     }
 
     /**
@@ -50,18 +112,292 @@ public class BaseSqlProvider<T> {
      * @param wrapper Lambda 查询构造器
      * @return SQL 语句
      */
-    public String deleteByWrapper(LambdaQueryWrapper<T> wrapper) {
-        return "DELETE FROM " + tableName + wrapper.getWhereSql();
+    public String deleteByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper) {
+        return render("delete|", wrapper, () -> "DELETE FROM " + tableName + wrapper.paramWhereSql());
     }
 
     /**
      * 生成更新 SQL（需要额外拼接 SET 子句）
      *
      * @param wrapper Lambda 查询构造器
-     * @param setSql  SET 子句（如："name = ?, age = ?"）
+     * @param setSql  SET 子句（使用 MyBatis 参数引用，如："name = #{name}, age = #{age}"）
+     * @return SQL 语句
+     */
+    public String updateByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper, @Param("setSql") String setSql) {
+        String sql = "UPDATE " + tableName + " SET " + setSql + wrapper.paramWhereSql();
+        PreparedStatementStats.record(sql);
+        return sql;
+    }
+
+    /**
+     * 生成只查询主键的 SQL：SELECT id FROM t WHERE ... ORDER BY ... LIMIT ?
+     * 分块删除 / 更新时用于确定每一块的主键范围
+     *
+     * @param wrapper Lambda 查询构造器
+     * @return SQL 语句
+     */
+    public String selectIdsByWrapper(@Param("wrapper") LambdaQueryWrapper<T> wrapper) {
+        return render("ids|", wrapper, () -> "SELECT " + requireIdColumn() + " FROM " + tableName + wrapper.paramSql());
+    }
+
+    /**
+     * 生成按条件选择性更新的 SQL：UPDATE t SET c1 = #{entity.p1}, ... WHERE ...
+     * 只更新实体中不为 null 的可更新字段，Mapper 方法使用 @Param("entity") 和 @Param("wrapper")
+     *
+     * @param entity  更新值（不为 null 的字段）
+     * @param wrapper Lambda 查询构造器
+     * @return SQL 语句
+     */
+    public String updateSelectiveByWrapper(@Param("entity") T entity, @Param("wrapper") LambdaQueryWrapper<T> wrapper) {
+        List<String> properties = new ArrayList<>();
+        for (String property : metadata.getUpdateProperties()) {
+            if (metadata.getValue(entity, property) != null) {
+                properties.add(property);
+            }
+        }
+        if (properties.isEmpty()) {
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " 没有需要更新的字段");
+        }
+        return render("uselective|" + String.join(",", properties) + "|", wrapper, () -> {
+            StringBuilder sql = new StringBuilder(64 + properties.size() * 32);
+            sql.append("UPDATE ").append(tableName).append(" SET ");
+            for (int i = 0; i < properties.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(metadata.getColumn(properties.get(i))).append(" = #{entity.").append(properties.get(i)).append('}');
+            }
+            return sql.append(wrapper.paramWhereSql()).toString();
+        });
+    }
+
+    /**
+     * 生成只更新指定字段的 SQL：UPDATE t SET c1 = #{entity.p1}, c2 = #{entity.p2} WHERE id = #{entity.id}
+     *
+     * 与 updateSelective 不同，指定的字段为 null 时同样写入 NULL；配合 EntityChangeTracker 只写入修改过的字段，
+     * 修改字段相同的语句文本相同，可以合并为一个 JDBC batch
+     *
+     * @param entity     实体对象（主键不能为空）
+     * @param properties 需要更新的属性名
+     * @return SQL 语句
+     */
+    public String updateColumnsById(@Param("entity") T entity, @Param("properties") List<String> properties) {
+        if (properties == null || properties.isEmpty()) {
+            throw new IllegalArgumentException("更新的字段不能为空");
+        }
+        String idProperty = requireIdProperty();
+        String sql = SqlShapeCache.getSql("ucols|" + tableName + "|" + String.join(",", properties), () -> {
+            StringBuilder builder = new StringBuilder(64 + properties.size() * 32);
+            builder.append("UPDATE ").append(tableName).append(" SET ");
+            for (int i = 0; i < properties.size(); i++) {
+                String column = metadata.getColumn(properties.get(i));
+                if (column == null || !metadata.getUpdateProperties().contains(properties.get(i))) {
+                    throw new IllegalArgumentException(entityClass.getSimpleName() + " 不可更新的字段：" + properties.get(i));
+                }
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(column).append(" = #{entity.").append(properties.get(i)).append('}');
+            }
+            return builder.append(" WHERE ").append(metadata.getIdColumn())
+                    .append(" = #{entity.").append(idProperty).append('}').toString();
+        });
+        PreparedStatementStats.record(sql);
+        return sql;
+    }
+
+    /**
+     * 生成只更新指定字段的乐观锁更新：
+     * UPDATE t SET c1 = #{entity.p1}, ..., revision = revision + 1 WHERE id = #{entity.id} AND revision = #{entity.revision}
+     *
+     * 字段值为 null 时写入 NULL；版本号字段由 @Version 标记或名为 revision，出现在 properties 中时忽略；
+     * 影响 0 行表示读取之后记录已被修改（或已删除），由 OptimisticUpdateExecutor 重新读取后重试
+     *
+     * @param entity     实体对象（主键和读取时的版本号不能为空）
+     * @param properties 需要更新的属性名（通常为修改函数改动过的字段），为空时只递增版本号
+     * @return SQL 语句
+     */
+    public String updateColumnsWithVersion(@Param("entity") T entity, @Param("properties") List<String> properties) {
+        String idProperty = requireIdProperty();
+        String versionProperty = metadata.getVersionProperty();
+        if (versionProperty == null) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " 未定义版本号字段（@Version 或 revision），无法生成乐观锁更新语句");
+        }
+        List<String> columns = properties == null ? Collections.emptyList() : properties;
+        String sql = SqlShapeCache.getSql("ucolsv|" + tableName + "|" + String.join(",", columns), () -> {
+            String versionColumn = metadata.getVersionColumn();
+            StringBuilder builder = new StringBuilder(96 + columns.size() * 32);
+            builder.append("UPDATE ").append(tableName).append(" SET ");
+            for (String property : columns) {
+                if (property.equals(versionProperty)) {
+                    continue;
+                }
+                String column = metadata.getColumn(property);
+                if (column == null || !metadata.getUpdateProperties().contains(property)) {
+                    throw new IllegalArgumentException(entityClass.getSimpleName() + " 不可更新的字段：" + property);
+                }
+                builder.append(column).append(" = #{entity.").append(property).append("}, ");
+            }
+            return builder.append(versionColumn).append(" = ").append(versionColumn).append(" + 1")
+                    .append(" WHERE ").append(metadata.getIdColumn()).append(" = #{entity.").append(idProperty).append('}')
+                    .append(" AND ").append(versionColumn).append(" = #{entity.").append(versionProperty).append('}')
+                    .toString();
+        });
+        PreparedStatementStats.record(sql);
+        return sql;
+    }
+
+    /**
+     * 生成多行 INSERT：INSERT INTO t (c1, c2) VALUES (...), (...)
+     *
+     * 自增主键和 insertable = false 的字段不写入；一条语句的行数由调用方分批控制，
+     * 避免超过 MySQL 的 max_allowed_packet
+     *
+     * @param list 实体列表
+     * @return SQL 语句
+     */
+    public String batchInsert(@Param("list") List<T> list) {
+        return renderBatch("binsert|", list.size(), () -> insertSql(metadata.getInsertProperties(), list.size()));
+    }
+
+    /**
+     * 生成按主键批量更新的单条 UPDATE：
+     * UPDATE t SET c1 = CASE id WHEN ? THEN ? WHEN ? THEN ? END, c2 = ... WHERE id IN (?, ?)
+     *
+     * 与 update() 一样更新所有可更新字段（包括 null 值）
+     *
+     * @param list 实体列表（主键不能为空）
+     * @return SQL 语句
+     */
+    public String batchUpdate(@Param("list") List<T> list) {
+        return renderBatch("bupdate|", list.size(), () -> caseWhenUpdateSql(list.size()));
+    }
+
+    /**
+     * 生成批量插入或更新：INSERT INTO t (...) VALUES (...), (...) ON DUPLICATE KEY UPDATE c1 = VALUES(c1), ...
+     *
+     * 主键（包括自增主键）总是写入：主键为 null 的行插入新记录，主键或唯一键冲突的行更新可更新字段
+     *
+     * @param list 实体列表
+     * @return SQL 语句
+     */
+    public String batchUpsert(@Param("list") List<T> list) {
+        return renderBatch("bupsert|", list.size(), () -> {
+            List<String> properties = new ArrayList<>(metadata.getInsertProperties());
+            String idProperty = requireIdProperty();
+            if (!properties.contains(idProperty)) {
+                properties.add(0, idProperty);
+            }
+            StringBuilder sql = new StringBuilder(insertSql(properties, list.size()));
+            sql.append(" ON DUPLICATE KEY UPDATE ");
+            List<String> updateProperties = metadata.getUpdateProperties();
+            for (int i = 0; i < updateProperties.size(); i++) {
+                String column = metadata.getColumn(updateProperties.get(i));
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(column).append(" = VALUES(").append(column).append(')');
+            }
+            return sql.toString();
+        });
+    }
+
+    private String insertSql(List<String> properties, int rows) {
+        StringBuilder sql = new StringBuilder(64 + rows * properties.size() * 24);
+        sql.append("INSERT INTO ").append(tableName).append(" (");
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(metadata.getColumn(properties.get(i)));
+        }
+        sql.append(") VALUES ");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append('(');
+            for (int i = 0; i < properties.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                appendItemRef(sql, row, properties.get(i));
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    private String caseWhenUpdateSql(int rows) {
+        String idProperty = requireIdProperty();
+        String idColumn = metadata.getIdColumn();
+        List<String> properties = metadata.getUpdateProperties();
+        StringBuilder sql = new StringBuilder(64 + rows * properties.size() * 48);
+        sql.append("UPDATE ").append(tableName).append(" SET ");
+        for (int i = 0; i < properties.size(); i++) {
+            String property = properties.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(metadata.getColumn(property)).append(" = CASE ").append(idColumn);
+            for (int row = 0; row < rows; row++) {
+                sql.append(" WHEN ");
+                appendItemRef(sql, row, idProperty);
+                sql.append(" THEN ");
+                appendItemRef(sql, row, property);
+            }
+            sql.append(" END");
+        }
+        sql.append(" WHERE ").append(idColumn).append(" IN (");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            appendItemRef(sql, row, idProperty);
+        }
+        sql.append(')');
+        return sql.toString();
+    }
+
+    private static void appendItemRef(StringBuilder sql, int row, String property) {
+        sql.append("#{list[").append(row).append("].").append(property).append('}');
+    }
+
+    private String requireIdProperty() {
+        if (metadata.getIdProperty() == null) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " 未定义主键字段，无法生成批量更新语句");
+        }
+        return metadata.getIdProperty();
+    }
+
+    private String requireIdColumn() {
+        requireIdProperty();
+        return metadata.getIdColumn();
+    }
+
+    /**
+     * 批量语句按 表名 + 语句类型 + 行数 缓存，同一批次大小只生成一次
+     */
+    private String renderBatch(String type, int rows, Supplier<String> renderer) {
+        if (rows == 0) {
+            throw new IllegalArgumentException("批量写入的列表不能为空");
+        }
+        String sql = SqlShapeCache.getSql(type + tableName + "|" + rows, renderer);
+        PreparedStatementStats.record(sql);
+        return sql;
+    }
+
+    /**
+     * 按 表名 + 语句类型 + 结构指纹 获取完整 SQL，结构相同的查询直接返回缓存的语句
+     *
+     * @param type     语句类型
+     * @param wrapper  Lambda 查询构造器
+     * @param renderer SQL 渲染函数
      * @return SQL 语句
      */
-    public String updateByWrapper(LambdaQueryWrapper<T> wrapper, String setSql) {
-        return "UPDATE " + tableName + " SET " + setSql + wrapper.getWhereSql();
+    private String render(String type, LambdaQueryWrapper<T> wrapper, Supplier<String> renderer) {
+        String sql = SqlShapeCache.getSql(type + tableName + "|" + wrapper.getShapeKey(), renderer);
+        PreparedStatementStats.record(sql);
+        return sql;
     }
 }
@@ -0,0 +1,306 @@
+package com.enterprisesystem.babycommon.query;
+
+import com.enterprisesystem.babycommon.annotation.TableField;
+import com.enterprisesystem.babycommon.annotation.TableId;
+import com.enterprisesystem.babycommon.annotation.TableName;
+import com.enterprisesystem.babycommon.annotation.Version;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实体元数据
+ *
+ * 【内容】
+ * - 表名：@TableName 指定，未指定时使用类名的下划线形式
+ * - 主键：@TableId 标记的字段，未标记时使用名为 id 的字段
+ * - 字段列表：实体类（含父类）中所有非 static、非 transient 字段，按声明顺序排列
+ * - 写入字段：生成 INSERT / UPDATE 时使用的字段，排除自增主键和 @TableField 标记为不可写的字段
+ * - 版本号：@Version 标记的字段，未标记时使用名为 revision 的字段，用于乐观锁更新
+ *
+ * 元数据在首次解析后不可变，由 EntityMetadataRegistry 统一缓存
+ */
+public class EntityMetadata {
+
+    private static final String DEFAULT_ID_PROPERTY = "id";
+    private static final String DEFAULT_VERSION_PROPERTY = "revision";
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final String idProperty;
+    private final String idColumn;
+    private final String versionProperty;
+    private final List<String> properties;
+    private final List<String> columns;
+    private final String columnList;
+    private final Map<String, String> propertyToColumn;
+    private final Map<String, String> columnToProperty;
+    private final Map<String, Field> fields;
+    private final boolean idAutoIncrement;
+    private final List<String> insertProperties;
+    private final List<String> updateProperties;
+
+    EntityMetadata(Class<?> entityClass) {
+        this.entityClass = entityClass;
+
+        TableName table = entityClass.getAnnotation(TableName.class);
+        this.tableName = table != null ? table.value() : LambdaUtils.camelToUnderscore(
+                Character.toLowerCase(entityClass.getSimpleName().charAt(0)) + entityClass.getSimpleName().substring(1));
+
+        Map<String, Field> fieldMap = new LinkedHashMap<>();
+        Map<String, String> p2c = new LinkedHashMap<>();
+        Map<String, String> c2p = new LinkedHashMap<>();
+        List<String> propertyList = new ArrayList<>();
+        List<String> columnNames = new ArrayList<>();
+        String id = null;
+        String version = null;
+        boolean autoIncrement = false;
+        List<String> insertable = new ArrayList<>();
+        List<String> updatable = new ArrayList<>();
+
+        for (Field field : collectFields(entityClass)) {
+            String property = field.getName();
+            String column = LambdaUtils.camelToUnderscore(property);
+            field.setAccessible(true);
+            fieldMap.put(property, field);
+            p2c.put(property, column);
+            c2p.put(column, property);
+            propertyList.add(property);
+            columnNames.add(column);
+            TableId tableId = field.getAnnotation(TableId.class);
+            if (tableId != null) {
+                id = property;
+                autoIncrement = tableId.autoIncrement();
+            }
+            if (field.isAnnotationPresent(Version.class)) {
+                version = property;
+            }
+            TableField tableField = field.getAnnotation(TableField.class);
+            if (tableField == null || tableField.insertable()) {
+                insertable.add(property);
+            }
+            if (tableField == null || tableField.updatable()) {
+                updatable.add(property);
+            }
+        }
+        if (id == null && fieldMap.containsKey(DEFAULT_ID_PROPERTY)) {
+            id = DEFAULT_ID_PROPERTY;
+        }
+        if (version == null && fieldMap.containsKey(DEFAULT_VERSION_PROPERTY)) {
+            version = DEFAULT_VERSION_PROPERTY;
+        }
+
+        this.idProperty = id;
+        this.idColumn = id == null ? null : p2c.get(id);
+        this.versionProperty = version;
+        this.fields = Collections.unmodifiableMap(fieldMap);
+        this.propertyToColumn = Collections.unmodifiableMap(p2c);
+        this.columnToProperty = Collections.unmodifiableMap(c2p);
+        this.properties = Collections.unmodifiableList(propertyList);
+        this.columns = Collections.unmodifiableList(columnNames);
+        this.columnList = String.join(", ", columnNames);
+        this.idAutoIncrement = autoIncrement;
+        if (id != null) {
+            if (autoIncrement) {
+                insertable.remove(id);
+            }
+            updatable.remove(id);
+        }
+        this.insertProperties = Collections.unmodifiableList(insertable);
+        this.updateProperties = Collections.unmodifiableList(updatable);
+    }
+
+    /**
+     * 收集实体类及其父类的字段，父类字段在前
+     */
+    private static List<Field> collectFields(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<Field> result = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getIdProperty() {
+        return idProperty;
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    /**
+     * 乐观锁版本号属性名，没有时返回 null
+     */
+    public String getVersionProperty() {
+        return versionProperty;
+    }
+
+    /**
+     * 乐观锁版本号列名，没有时返回 null
+     */
+    public String getVersionColumn() {
+        return versionProperty == null ? null : propertyToColumn.get(versionProperty);
+    }
+
+    /**
+     * 主键是否为数据库自增
+     */
+    public boolean isIdAutoIncrement() {
+        return idAutoIncrement;
+    }
+
+    /**
+     * 生成 INSERT 时写入的属性（排除自增主键和 insertable = false 的字段）
+     */
+    public List<String> getInsertProperties() {
+        return insertProperties;
+    }
+
+    /**
+     * 生成 UPDATE 时更新的属性（排除主键和 updatable = false 的字段）
+     */
+    public List<String> getUpdateProperties() {
+        return updateProperties;
+    }
+
+    /**
+     * 所有属性名（驼峰），按声明顺序排列
+     */
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * 所有列名（下划线），与 getProperties() 一一对应
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 逗号分隔的列名列表，如：id, account, name
+     */
+    public String getColumnList() {
+        return columnList;
+    }
+
+    /**
+     * 根据属性名获取列名
+     *
+     * @param property 属性名（驼峰）
+     * @return 列名，属性不存在时返回 null
+     */
+    public String getColumn(String property) {
+        return propertyToColumn.get(property);
+    }
+
+    /**
+     * 根据列名获取属性名
+     *
+     * @param column 列名（下划线）
+     * @return 属性名，列不存在时返回 null
+     */
+    public String getProperty(String column) {
+        return columnToProperty.get(column);
+    }
+
+    /**
+     * 根据属性名获取字段（已设置为可访问）
+     *
+     * @param property 属性名
+     * @return 字段，属性不存在时返回 null
+     */
+    public Field getField(String property) {
+        return fields.get(property);
+    }
+
+    /**
+     * 读取实体对象的属性值
+     *
+     * @param entity   实体对象
+     * @param property 属性名
+     * @return 属性值
+     */
+    public Object getValue(Object entity, String property) {
+        Field field = fields.get(property);
+        if (field == null) {
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " 不存在属性：" + property);
+        }
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("读取属性失败：" + property, e);
+        }
+    }
+
+    /**
+     * 把实体对象的版本号加 1，与 updateColumnsWithVersion 成功后数据库中的值保持一致
+     *
+     * @param entity 实体对象
+     */
+    public void incrementVersion(Object entity) {
+        if (versionProperty == null) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " 未定义版本号字段");
+        }
+        Field field = fields.get(versionProperty);
+        try {
+            Object value = field.get(entity);
+            if (value instanceof Long) {
+                field.set(entity, (Long) value + 1);
+            } else if (value instanceof Integer) {
+                field.set(entity, (Integer) value + 1);
+            } else if (value != null) {
+                throw new IllegalStateException(entityClass.getSimpleName() + " 版本号字段只支持 Integer / Long：" + versionProperty);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("写入版本号失败：" + versionProperty, e);
+        }
+    }
+
+    /**
+     * 读取实体对象的主键值
+     *
+     * @param entity 实体对象
+     * @return 主键值
+     */
+    public Object getIdValue(Object entity) {
+        if (idProperty == null) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " 未定义主键字段");
+        }
+        return getValue(entity, idProperty);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityMetadata{" +
+                "entityClass=" + entityClass.getName() +
+                ", tableName='" + tableName + '\'' +
+                ", idColumn='" + idColumn + '\'' +
+                ", columns=" + columns +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.enterprisesystem.babycommon.query;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体元数据注册中心
+ *
+ * 【作用】
+ * - 每个实体类只解析一次表名、主键和字段列表，之后从并发缓存中读取
+ * - LambdaUtils 解析 Lambda 字段引用时通过这里得到列名
+ * - BaseSqlProvider 通过这里得到表名，不再需要硬编码
+ *
+ * 【使用方法】
+ * 启动时调用 register() 预先解析实体，避免第一次请求时才进行反射：
+ * <pre>
+ * {@code
+ * EntityMetadataRegistry.register(UserEntity.class, DepartmentEntity.class);
+ * }
+ * </pre>
+ */
+public class EntityMetadataRegistry {
+
+    private static final Map<Class<?>, EntityMetadata> METADATA = new ConcurrentHashMap<>();
+
+    private EntityMetadataRegistry() {
+    }
+
+    /**
+     * 预先注册实体类
+     *
+     * @param entityClasses 实体类
+     */
+    public static void register(Class<?>... entityClasses) {
+        for (Class<?> entityClass : entityClasses) {
+            get(entityClass);
+        }
+    }
+
+    /**
+     * 获取实体元数据，首次访问时解析并缓存
+     *
+     * @param entityClass 实体类
+     * @return 实体元数据
+     */
+    public static EntityMetadata get(Class<?> entityClass) {
+        EntityMetadata metadata = METADATA.get(entityClass);
+        if (metadata == null) {
+            metadata = METADATA.computeIfAbsent(entityClass, EntityMetadata::new);
+        }
+        return metadata;
+    }
+
+    /**
+     * 是否已注册
+     *
+     * @param entityClass 实体类
+     * @return true-已注册
+     */
+    public static boolean contains(Class<?> entityClass) {
+        return METADATA.containsKey(entityClass);
+    }
+
+    /**
+     * 获取所有已注册的实体元数据
+     *
+     * @return 实体元数据集合
+     */
+    public static Collection<EntityMetadata> getAll() {
+        return Collections.unmodifiableCollection(METADATA.values());
+    }
+}
@@ -0,0 +1,110 @@
+package com.enterprisesystem.babycommon.query;
+
+import com.enterprisesystem.babycommon.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.builder.annotation.ProviderContext;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BaseMapper 通用 SQL Provider
+ *
+ * 【作用】
+ * BaseMapper 上的批量写入、按条件查询 / 更新 / 删除、流式查询等方法使用本类作为 Provider，
+ * 继承 BaseMapper 的 Mapper 不需要再逐个声明 @SelectProvider / @UpdateProvider，直接获得可用的语句。
+ *
+ * 【实体解析】
+ * 通过 ProviderContext.getMapperType() 取到具体的 Mapper 接口（如 UserMapper extends BaseMapper&lt;UserEntity, Integer&gt;），
+ * 从泛型参数解析出实体类，按实体类缓存一个 BaseSqlProvider 并委托给它生成 SQL，表名和字段来自实体元数据。
+ * Mapper 中自行声明了同名方法（@Select 等注解或 XML）时以 Mapper 的声明为准。
+ */
+public class GenericSqlProvider {
+
+    private static final Map<Class<?>, BaseSqlProvider<Object>> PROVIDERS = new ConcurrentHashMap<>();
+
+    public String findByWrapper(ProviderContext context, @Param("wrapper") LambdaQueryWrapper<Object> wrapper) {
+        return provider(context).findByWrapper(wrapper);
+    }
+
+    public String findAll(ProviderContext context) {
+        return provider(context).findAll();
+    }
+
+    public String countByWrapper(ProviderContext context, @Param("wrapper") LambdaQueryWrapper<Object> wrapper) {
+        return provider(context).countByWrapper(wrapper);
+    }
+
+    public String deleteByWrapper(ProviderContext context, @Param("wrapper") LambdaQueryWrapper<Object> wrapper) {
+        return provider(context).deleteByWrapper(wrapper);
+    }
+
+    public String selectIdsByWrapper(ProviderContext context, @Param("wrapper") LambdaQueryWrapper<Object> wrapper) {
+        return provider(context).selectIdsByWrapper(wrapper);
+    }
+
+    public String updateSelectiveByWrapper(ProviderContext context, @Param("entity") Object entity,
+                                           @Param("wrapper") LambdaQueryWrapper<Object> wrapper) {
+        return provider(context).updateSelectiveByWrapper(entity, wrapper);
+    }
+
+    public String updateColumnsById(ProviderContext context, @Param("entity") Object entity,
+                                    @Param("properties") List<String> properties) {
+        return provider(context).updateColumnsById(entity, properties);
+    }
+
+    public String updateColumnsWithVersion(ProviderContext context, @Param("entity") Object entity,
+                                           @Param("properties") List<String> properties) {
+        return provider(context).updateColumnsWithVersion(entity, properties);
+    }
+
+    public String batchUpsert(ProviderContext context, @Param("list") List<Object> list) {
+        return provider(context).batchUpsert(list);
+    }
+
+    /**
+     * 解析 Mapper 对应的实体类
+     *
+     * @param mapperType Mapper 接口
+     * @return 实体类
+     */
+    public static Class<?> resolveEntityClass(Class<?> mapperType) {
+        Class<?> entityClass = findEntityClass(mapperType);
+        if (entityClass == null) {
+            throw new IllegalStateException(mapperType.getName() + " 需要直接或间接继承 BaseMapper<实体类, 主键类型> 并指定实体类");
+        }
+        return entityClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BaseSqlProvider<Object> provider(ProviderContext context) {
+        Class<?> entityClass = resolveEntityClass(context.getMapperType());
+        return PROVIDERS.computeIfAbsent(entityClass, type -> new BaseSqlProvider<>((Class<Object>) type));
+    }
+
+    private static Class<?> findEntityClass(Class<?> type) {
+        for (Type candidate : type.getGenericInterfaces()) {
+            if (candidate instanceof ParameterizedType
+                    && ((ParameterizedType) candidate).getRawType() == BaseMapper.class) {
+                Type entityType = ((ParameterizedType) candidate).getActualTypeArguments()[0];
+                if (entityType instanceof Class) {
+                    return (Class<?>) entityType;
+                }
+                if (entityType instanceof ParameterizedType) {
+                    return (Class<?>) ((ParameterizedType) entityType).getRawType();
+                }
+                return null;
+            }
+            Class<?> raw = candidate instanceof ParameterizedType
+                    ? (Class<?>) ((ParameterizedType) candidate).getRawType() : (Class<?>) candidate;
+            Class<?> found = findEntityClass(raw);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+}
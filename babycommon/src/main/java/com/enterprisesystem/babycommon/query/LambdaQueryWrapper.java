@@ -3,9 +3,12 @@ package com.enterprisesystem.babycommon.query;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * MyBatis Lambda 查询构造器
@@ -17,10 +20,85 @@ import java.util.List;
  */
 public class LambdaQueryWrapper<T> {
 
+    /**
+     * 默认参数别名，与 Mapper 方法上的 @Param("wrapper") 保持一致
+     */
+    public static final String DEFAULT_PARAM_ALIAS = "wrapper";
+
+    /**
+     * 参数名前缀，生成的参数名为 p0、p1、p2...
+     */
+    private static final String PARAM_NAME_PREFIX = "p";
+
+    /**
+     * LIMIT 参数名
+     */
+    private static final String OFFSET_PARAM = "offset";
+    private static final String LIMIT_PARAM = "limit";
+
+    /**
+     * IN 参数个数分桶上限（2 的幂），超过后按实际个数生成占位符
+     */
+    private static final int MAX_IN_BUCKET = 1024;
+
+    /**
+     * 各分桶对应的占位符，下标为 log2(分桶大小)
+     */
+    private static final String[] IN_PLACEHOLDERS = new String[Integer.numberOfTrailingZeros(MAX_IN_BUCKET) + 1];
+
+    static {
+        for (int i = 0; i < IN_PLACEHOLDERS.length; i++) {
+            IN_PLACEHOLDERS[i] = String.join(",", Collections.nCopies(1 << i, "?"));
+        }
+    }
+
     private final StringBuilder whereSql = new StringBuilder();
     private final List<Object> params = new ArrayList<>();
+    private final Map<String, Object> paramMap = new LinkedHashMap<>();
     private final List<String> orderByConditions = new ArrayList<>();
+    private final List<String> selectColumns = new ArrayList<>();
     private boolean hasCondition = false;
+    private String paramAlias = DEFAULT_PARAM_ALIAS;
+    private String shapeKey;
+    private Long offset;
+    private Integer limit;
+
+    /**
+     * 实体类类型，仅按属性名添加条件（如 eq(String, Object)、seekAfter(String, ...)）时需要
+     */
+    private Class<T> entityClass;
+
+    /**
+     * 按条件更新 / 删除时可能影响的全部主键，不参与 SQL，供实体缓存按主键失效
+     */
+    private Collection<?> affectedIds;
+
+    /**
+     * 游标分页在当前区段之后的区段条件（排序字段为 NULL / 非 NULL 的另一段），没有时为 null
+     */
+    private String seekSegmentSql;
+    private int seekWhereLength;
+    private int seekParamCount;
+    private boolean seekHadCondition;
+
+    /**
+     * 构造函数
+     */
+    public LambdaQueryWrapper() {
+        this(null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * 指定实体类后可以按属性名添加条件，属性名会根据实体元数据校验并转换为列名，
+     * 适用于排序字段等来自前端请求的场景
+     *
+     * @param entityClass 实体类类型
+     */
+    public LambdaQueryWrapper(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
 
     /**
      * 等于 (=)
@@ -33,6 +111,23 @@ public class LambdaQueryWrapper<T> {
         return addCondition(column, " = ", value, value != null);
     }
 
+    /**
+     * 等于 (=)，按属性名添加条件
+     *
+     * @param property 属性名（驼峰，如：account、cStatus）
+     * @param value    值
+     * @return this
+     */
+    public LambdaQueryWrapper<T> eq(String property, Object value) {
+        if (value != null) {
+            addWherePrefix();
+            whereSql.append(resolveColumn(property)).append(" = ?");
+            addParam(value);
+            hasCondition = true;
+        }
+        return this;
+    }
+
     /**
      * 不等于 (!=)
      *
@@ -142,9 +237,7 @@ public class LambdaQueryWrapper<T> {
             String columnName = LambdaUtils.getFieldName(column, true);
             addWherePrefix();
             whereSql.append(columnName).append(" IN (");
-            String placeholders = String.join(",", Collections.nCopies(values.size(), "?"));
-            whereSql.append(placeholders).append(")");
-            params.addAll(values);
+            appendInValues(values);
             hasCondition = true;
         }
         return this;
@@ -162,9 +255,7 @@ public class LambdaQueryWrapper<T> {
             String columnName = LambdaUtils.getFieldName(column, true);
             addWherePrefix();
             whereSql.append(columnName).append(" NOT IN (");
-            String placeholders = String.join(",", Collections.nCopies(values.size(), "?"));
-            whereSql.append(placeholders).append(")");
-            params.addAll(values);
+            appendInValues(values);
             hasCondition = true;
         }
         return this;
@@ -183,8 +274,8 @@ public class LambdaQueryWrapper<T> {
             String columnName = LambdaUtils.getFieldName(column, true);
             addWherePrefix();
             whereSql.append(columnName).append(" BETWEEN ? AND ?");
-            params.add(start);
-            params.add(end);
+            addParam(start);
+            addParam(end);
             hasCondition = true;
         }
         return this;
@@ -227,6 +318,7 @@ public class LambdaQueryWrapper<T> {
     public LambdaQueryWrapper<T> orderByAsc(SerializableFunction<T, ?> column) {
         String columnName = LambdaUtils.getFieldName(column, true);
         orderByConditions.add(columnName + " ASC");
+        shapeKey = null;
         return this;
     }
 
@@ -239,6 +331,148 @@ public class LambdaQueryWrapper<T> {
     public LambdaQueryWrapper<T> orderByDesc(SerializableFunction<T, ?> column) {
         String columnName = LambdaUtils.getFieldName(column, true);
         orderByConditions.add(columnName + " DESC");
+        shapeKey = null;
+        return this;
+    }
+
+    /**
+     * 按属性名排序
+     *
+     * @param property 属性名（驼峰）
+     * @param asc      true-升序，false-降序
+     * @return this
+     */
+    public LambdaQueryWrapper<T> orderBy(String property, boolean asc) {
+        orderByConditions.add(resolveColumn(property) + (asc ? " ASC" : " DESC"));
+        shapeKey = null;
+        return this;
+    }
+
+    /**
+     * 游标（Keyset）分页条件
+     *
+     * 按 (排序字段, 主键) 定位上一页最后一行，只查询其后的数据，查询耗时与页码深度无关。
+     * 会同时设置 ORDER BY 排序字段、主键（覆盖之前设置的排序），第一页时 idValue 传 null 即可。
+     * 排序字段可能为 NULL 时，当前区段不足一页需要再查询 nextSeekSegment()。
+     *
+     * @param sortColumn 排序字段
+     * @param sortValue  上一页最后一行的排序字段值
+     * @param idColumn   主键字段
+     * @param idValue    上一页最后一行的主键值，为 null 时表示第一页
+     * @param asc        true-升序，false-降序
+     * @return this
+     */
+    public LambdaQueryWrapper<T> seekAfter(SerializableFunction<T, ?> sortColumn, Object sortValue,
+                                           SerializableFunction<T, ?> idColumn, Object idValue, boolean asc) {
+        return appendSeek(LambdaUtils.getFieldName(sortColumn, true), sortValue,
+                LambdaUtils.getFieldName(idColumn, true), idValue, asc);
+    }
+
+    /**
+     * 游标（Keyset）分页条件，按属性名指定排序字段，主键取自实体元数据
+     *
+     * @param sortProperty 排序属性名（驼峰）
+     * @param sortValue    上一页最后一行的排序字段值
+     * @param idValue      上一页最后一行的主键值，为 null 时表示第一页
+     * @param asc          true-升序，false-降序
+     * @return this
+     */
+    public LambdaQueryWrapper<T> seekAfter(String sortProperty, Object sortValue, Object idValue, boolean asc) {
+        EntityMetadata metadata = requireMetadata();
+        if (metadata.getIdColumn() == null) {
+            throw new IllegalStateException(entityClass.getSimpleName() + " 未定义主键字段，无法使用游标分页");
+        }
+        return appendSeek(resolveColumn(sortProperty), sortValue, metadata.getIdColumn(), idValue, asc);
+    }
+
+    /**
+     * 游标分页的后续区段查询
+     *
+     * 排序字段为 NULL 的行与非 NULL 的行分别是 (s, id) 索引上的两个范围，seekAfter 只查询游标所在的区段；
+     * 当前区段不足一页时，用返回的查询构造器继续查询排序在其后的另一段（升序为 s IS NOT NULL，降序为 s IS NULL），
+     * 包含 seekAfter 之前的 WHERE 条件、排序和列投影，不包含 LIMIT
+     *
+     * @return 后续区段的查询构造器，游标所在区段之后没有其他区段时返回 null
+     */
+    public LambdaQueryWrapper<T> nextSeekSegment() {
+        if (seekSegmentSql == null) {
+            return null;
+        }
+        LambdaQueryWrapper<T> next = new LambdaQueryWrapper<>(entityClass);
+        next.whereSql.append(whereSql, 0, seekWhereLength);
+        next.addParams(params.subList(0, seekParamCount));
+        next.hasCondition = seekHadCondition;
+        next.paramAlias = paramAlias;
+        next.orderByConditions.addAll(orderByConditions);
+        next.selectColumns.addAll(selectColumns);
+        next.addWherePrefix();
+        next.whereSql.append(seekSegmentSql);
+        next.hasCondition = true;
+        return next;
+    }
+
+    /**
+     * 只查询指定的列（列投影），未调用时查询所有列（SELECT *）
+     *
+     * 多次调用时追加列，重复的列会被忽略
+     *
+     * @param columns 字段
+     * @return this
+     */
+    @SafeVarargs
+    public final LambdaQueryWrapper<T> select(SerializableFunction<T, ?>... columns) {
+        for (SerializableFunction<T, ?> column : columns) {
+            addSelectColumn(LambdaUtils.getFieldName(column, true));
+        }
+        return this;
+    }
+
+    /**
+     * 只查询投影中的列
+     *
+     * @param projection 预定义的列投影
+     * @return this
+     */
+    public LambdaQueryWrapper<T> select(Projection<T> projection) {
+        for (String column : projection.getColumns()) {
+            addSelectColumn(column);
+        }
+        return this;
+    }
+
+    /**
+     * 获取 SELECT 子句的列
+     *
+     * @return 逗号分隔的列名，未设置投影时返回 *
+     */
+    public String getSelectSql() {
+        return selectColumns.isEmpty() ? "*" : String.join(", ", selectColumns);
+    }
+
+    /**
+     * 限制返回行数 (LIMIT rows)
+     *
+     * @param rows 行数
+     * @return this
+     */
+    public LambdaQueryWrapper<T> limit(int rows) {
+        return limit(null, rows);
+    }
+
+    /**
+     * 限制返回行数 (LIMIT offset, rows)
+     *
+     * @param offset 偏移量，为 null 时不设置偏移
+     * @param rows   行数
+     * @return this
+     */
+    public LambdaQueryWrapper<T> limit(Long offset, int rows) {
+        if (rows < 0 || (offset != null && offset < 0)) {
+            throw new IllegalArgumentException("LIMIT 参数不能为负数");
+        }
+        this.offset = offset;
+        this.limit = rows;
+        shapeKey = null;
         return this;
     }
 
@@ -254,7 +488,7 @@ public class LambdaQueryWrapper<T> {
             addWherePrefix();
             whereSql.append(conditionSql);
             if (params != null) {
-                Collections.addAll(this.params, params);
+                addParams(Arrays.asList(params));
             }
             hasCondition = true;
         }
@@ -275,17 +509,176 @@ public class LambdaQueryWrapper<T> {
     }
 
     /**
-     * 获取完整 SQL（包含 WHERE 和 ORDER BY）
+     * 获取完整 SQL（包含 WHERE、ORDER BY 和 LIMIT）
      *
      * @return 完整 SQL
      */
     public String getSql() {
-        StringBuilder sql = new StringBuilder();
-        sql.append(getWhereSql());
-        if (!orderByConditions.isEmpty()) {
-            sql.append(" ORDER BY ").append(String.join(", ", orderByConditions));
+        String sql = getWhereSql() + getOrderBySql();
+        if (limit == null) {
+            return sql;
         }
-        return sql.toString();
+        return sql + (offset == null ? " LIMIT ?" : " LIMIT ?, ?");
+    }
+
+    /**
+     * 获取 ORDER BY 子句 SQL
+     *
+     * @return ORDER BY SQL，没有排序条件时返回空字符串
+     */
+    private String getOrderBySql() {
+        if (orderByConditions.isEmpty()) {
+            return "";
+        }
+        return " ORDER BY " + String.join(", ", orderByConditions);
+    }
+
+    /**
+     * 设置 MyBatis 参数别名
+     *
+     * 参数化模式下生成的占位符为 #{别名.paramMap.p0}，别名需要与 Mapper 方法上的 @Param 一致；
+     * 如果 Mapper 方法没有使用 @Param（wrapper 作为唯一参数），传入空字符串即可
+     *
+     * @param paramAlias 参数别名
+     * @return this
+     */
+    public LambdaQueryWrapper<T> paramAlias(String paramAlias) {
+        this.paramAlias = paramAlias == null ? "" : paramAlias;
+        shapeKey = null;
+        return this;
+    }
+
+    /**
+     * 设置实体类（未通过构造函数指定时使用，如 BaseServiceImpl 分页时补充）
+     *
+     * @param entityClass 实体类类型
+     * @return this
+     */
+    public LambdaQueryWrapper<T> entityClass(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        return this;
+    }
+
+    /**
+     * 获取实体类
+     *
+     * @return 实体类类型，未指定时返回 null
+     */
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * 声明按本条件更新 / 删除时可能影响的全部主键（如 ChunkedDmlExecutor 每块扫描到的主键），不改变生成的 SQL；
+     * 实体缓存只清除这些主键，未声明时清除该实体类型的全部缓存
+     *
+     * @param ids 主键集合，必须覆盖条件能匹配到的所有行
+     * @return this
+     */
+    public LambdaQueryWrapper<T> affectedIds(Collection<?> ids) {
+        this.affectedIds = ids;
+        return this;
+    }
+
+    /**
+     * 可能影响的全部主键
+     *
+     * @return 主键集合，未声明时返回 null
+     */
+    public Collection<?> getAffectedIds() {
+        return affectedIds;
+    }
+
+    /**
+     * 获取参数化的 WHERE 子句 SQL（包含 WHERE 关键字）
+     *
+     * 与 getWhereSql() 不同，这里的 ? 会被替换为 MyBatis 参数引用（如 #{wrapper.paramMap.p0}），
+     * 在 Mapper 中通过 ${wrapper.paramWhereSql} 引用后，参数会作为预编译参数绑定
+     *
+     * @return 参数化的 WHERE SQL
+     */
+    public String getParamWhereSql() {
+        String sql = paramWhereSql();
+        PreparedStatementStats.record(sql);
+        return sql;
+    }
+
+    /**
+     * 获取参数化的完整 SQL（包含 WHERE 和 ORDER BY）
+     *
+     * 在 Mapper 中通过 ${wrapper.paramSql} 引用，每次执行都会生成相同结构的 SQL 文本，
+     * 从而可以被驱动和 MySQL 的预编译语句缓存复用
+     *
+     * @return 参数化的完整 SQL
+     */
+    public String getParamSql() {
+        String sql = paramSql();
+        PreparedStatementStats.record(sql);
+        return sql;
+    }
+
+    /**
+     * 获取结构指纹
+     *
+     * 指纹只包含字段、操作符、IN 参数个数分桶、排序和参数别名，不包含参数值，
+     * 结构相同的查询指纹相同，可以直接复用 SqlShapeCache 中已渲染的 SQL
+     *
+     * @return 结构指纹
+     */
+    public String getShapeKey() {
+        String key = shapeKey;
+        if (key == null) {
+            StringBuilder builder = new StringBuilder(paramAlias.length() + whereSql.length() + 32);
+            builder.append(paramAlias).append('|');
+            for (String column : selectColumns) {
+                builder.append(column).append(',');
+            }
+            builder.append('|').append(whereSql).append('|');
+            for (String orderBy : orderByConditions) {
+                builder.append(orderBy).append(',');
+            }
+            if (limit != null) {
+                builder.append(offset == null ? "|L" : "|OL");
+            }
+            key = builder.toString();
+            shapeKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * 参数化的完整 SQL（不计入预编译语句统计，供 BaseSqlProvider 组装完整语句使用）
+     *
+     * @return 参数化的完整 SQL
+     */
+    String paramSql() {
+        return SqlShapeCache.getSql("S|" + getShapeKey(), () -> toParamSql(getWhereSql() + getOrderBySql()) + paramLimitSql());
+    }
+
+    /**
+     * 参数化的 WHERE 子句 SQL（不计入预编译语句统计，供 BaseSqlProvider 组装完整语句使用）
+     *
+     * @return 参数化的 WHERE SQL
+     */
+    String paramWhereSql() {
+        return SqlShapeCache.getSql("W|" + getShapeKey(), () -> toParamSql(getWhereSql()));
+    }
+
+    /**
+     * 获取参数名与参数值的映射，供 #{wrapper.paramMap.pN} 引用
+     *
+     * @return 参数映射（p0、p1、p2...，设置了 LIMIT 时还包含 offset、limit）
+     */
+    public Map<String, Object> getParamMap() {
+        if (limit == null) {
+            return Collections.unmodifiableMap(paramMap);
+        }
+        Map<String, Object> result = new LinkedHashMap<>(paramMap);
+        if (offset != null) {
+            result.put(OFFSET_PARAM, offset);
+        }
+        result.put(LIMIT_PARAM, limit);
+        return Collections.unmodifiableMap(result);
     }
 
     /**
@@ -294,7 +687,31 @@ public class LambdaQueryWrapper<T> {
      * @return 参数列表
      */
     public List<Object> getParams() {
-        return new ArrayList<>(params);
+        List<Object> result = new ArrayList<>(params);
+        if (limit != null) {
+            if (offset != null) {
+                result.add(offset);
+            }
+            result.add(limit);
+        }
+        return result;
+    }
+
+    /**
+     * 复制 WHERE 条件（不包括排序、投影和 LIMIT），得到的查询构造器与当前对象互不影响
+     *
+     * 分页时 COUNT 在其他线程执行，使用副本可以避免与当前页查询设置排序、LIMIT 相互干扰
+     *
+     * @return 只包含 WHERE 条件的新查询构造器
+     */
+    public LambdaQueryWrapper<T> copyWhere() {
+        LambdaQueryWrapper<T> copy = new LambdaQueryWrapper<>(entityClass);
+        copy.whereSql.append(whereSql);
+        copy.params.addAll(params);
+        copy.paramMap.putAll(paramMap);
+        copy.hasCondition = hasCondition;
+        copy.paramAlias = paramAlias;
+        return copy;
     }
 
     /**
@@ -303,8 +720,14 @@ public class LambdaQueryWrapper<T> {
     public void clear() {
         whereSql.setLength(0);
         params.clear();
+        paramMap.clear();
         orderByConditions.clear();
+        selectColumns.clear();
         hasCondition = false;
+        shapeKey = null;
+        offset = null;
+        limit = null;
+        seekSegmentSql = null;
     }
 
     /**
@@ -316,15 +739,211 @@ public class LambdaQueryWrapper<T> {
         return hasCondition || !orderByConditions.isEmpty();
     }
 
+    /**
+     * 是否设置了排序
+     *
+     * @return true 如果有 ORDER BY
+     */
+    public boolean hasOrderBy() {
+        return !orderByConditions.isEmpty();
+    }
+
     /**
      * 添加 WHERE 前缀
      */
     private void addWherePrefix() {
+        shapeKey = null;
         if (hasCondition) {
             whereSql.append(" AND ");
         }
     }
 
+    /**
+     * 添加参数，同时登记到参数映射中
+     *
+     * @param value 参数值
+     */
+    private void addParam(Object value) {
+        paramMap.put(PARAM_NAME_PREFIX + params.size(), value);
+        params.add(value);
+    }
+
+    /**
+     * 批量添加参数
+     *
+     * @param values 参数值集合
+     */
+    private void addParams(Collection<?> values) {
+        for (Object value : values) {
+            addParam(value);
+        }
+    }
+
+    /**
+     * 参数化的 LIMIT 子句
+     */
+    private String paramLimitSql() {
+        if (limit == null) {
+            return "";
+        }
+        String prefix = paramAlias.isEmpty() ? "paramMap." : paramAlias + ".paramMap.";
+        if (offset == null) {
+            return " LIMIT #{" + prefix + LIMIT_PARAM + "}";
+        }
+        return " LIMIT #{" + prefix + OFFSET_PARAM + "}, #{" + prefix + LIMIT_PARAM + "}";
+    }
+
+    /**
+     * 追加游标分页条件和排序
+     *
+     * 每个条件都是 (s, id) 索引上的单个范围（s >= ? / s <= ? / s IS NULL 开头），MySQL 可以直接定位到游标位置；
+     * 写成 s > ? OR (s = ? AND id > ?) 或与 s IS NULL 做 OR 时优化器无法提取单个范围，会从头扫描索引。
+     * MySQL 中 NULL 在升序时排在最前、降序时排在最后，这里按同样的规则处理排序字段为 NULL 的行：
+     * - 升序：s >= ? AND (s > ? OR id > ?)；上一行为 NULL 时：s IS NULL AND id > ?，后续区段 s IS NOT NULL
+     * - 降序：s <= ? AND (s < ? OR id < ?)，后续区段 s IS NULL；上一行为 NULL 时：s IS NULL AND id < ?
+     * 后续区段由 nextSeekSegment() 生成单独的查询，当前区段不足一页时再查询
+     * 排序字段就是主键时只生成 id > ? / id < ?
+     */
+    private LambdaQueryWrapper<T> appendSeek(String sortColumn, Object sortValue, String idColumn, Object idValue, boolean asc) {
+        String direction = asc ? " ASC" : " DESC";
+        String compare = asc ? " > ?" : " < ?";
+        orderByConditions.clear();
+        orderByConditions.add(sortColumn + direction);
+        if (!sortColumn.equals(idColumn)) {
+            orderByConditions.add(idColumn + direction);
+        }
+        // 使用了列投影时，保证下一页游标需要的排序字段和主键被查询出来
+        if (!selectColumns.isEmpty()) {
+            addSelectColumn(sortColumn);
+            addSelectColumn(idColumn);
+        }
+        shapeKey = null;
+        seekSegmentSql = null;
+        if (idValue == null) {
+            return this;
+        }
+
+        seekWhereLength = whereSql.length();
+        seekParamCount = params.size();
+        seekHadCondition = hasCondition;
+        addWherePrefix();
+        if (sortColumn.equals(idColumn)) {
+            whereSql.append(idColumn).append(compare);
+            addParam(idValue);
+        } else if (sortValue == null) {
+            whereSql.append(sortColumn).append(" IS NULL AND ").append(idColumn).append(compare);
+            addParam(idValue);
+            if (asc) {
+                seekSegmentSql = sortColumn + " IS NOT NULL";
+            }
+        } else {
+            whereSql.append(sortColumn).append(asc ? " >= ?" : " <= ?")
+                    .append(" AND (").append(sortColumn).append(compare)
+                    .append(" OR ").append(idColumn).append(compare).append(")");
+            addParam(sortValue);
+            addParam(sortValue);
+            addParam(idValue);
+            if (!asc) {
+                seekSegmentSql = sortColumn + " IS NULL";
+            }
+        }
+        hasCondition = true;
+        return this;
+    }
+
+    private void addSelectColumn(String column) {
+        if (!selectColumns.contains(column)) {
+            selectColumns.add(column);
+            shapeKey = null;
+        }
+    }
+
+    /**
+     * 获取实体元数据，未指定实体类时抛出异常
+     */
+    private EntityMetadata requireMetadata() {
+        if (entityClass == null) {
+            throw new IllegalStateException("按属性名添加条件时需要通过 new LambdaQueryWrapper<>(实体类) 指定实体类");
+        }
+        return EntityMetadataRegistry.get(entityClass);
+    }
+
+    /**
+     * 将属性名转换为列名，属性名也可以直接传列名；不存在的字段抛出异常，防止拼接任意 SQL
+     */
+    private String resolveColumn(String property) {
+        EntityMetadata metadata = requireMetadata();
+        String column = metadata.getColumn(property);
+        if (column == null && metadata.getProperty(property) != null) {
+            column = property;
+        }
+        if (column == null) {
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " 不存在字段：" + property);
+        }
+        return column;
+    }
+
+    /**
+     * 追加 IN / NOT IN 的占位符和参数
+     *
+     * 参数个数向上取整到 2 的幂（重复最后一个值补齐），例如 3 个和 4 个参数都生成 4 个占位符，
+     * 这样不同个数的 IN 查询可以共用同一个结构，减少 SQL 文本和预编译语句的种类
+     *
+     * @param values 参数值集合
+     */
+    private void appendInValues(Collection<?> values) {
+        int size = values.size();
+        if (size > MAX_IN_BUCKET) {
+            whereSql.append(String.join(",", Collections.nCopies(size, "?"))).append(")");
+            addParams(values);
+            return;
+        }
+        int bucket = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        whereSql.append(IN_PLACEHOLDERS[Integer.numberOfTrailingZeros(bucket)]).append(")");
+        Object last = null;
+        for (Object value : values) {
+            addParam(value);
+            last = value;
+        }
+        for (int i = size; i < bucket; i++) {
+            addParam(last);
+        }
+    }
+
+    /**
+     * 将 ? 占位符按顺序替换为 MyBatis 参数引用
+     * 单引号、双引号、反引号内的 ? 视为字面量，不做替换
+     *
+     * @param sql 使用 ? 占位符的 SQL
+     * @return 使用 #{...} 参数引用的 SQL
+     */
+    private String toParamSql(String sql) {
+        if (sql.indexOf('?') < 0) {
+            return sql;
+        }
+        String prefix = paramAlias.isEmpty() ? "paramMap." : paramAlias + ".paramMap.";
+        StringBuilder result = new StringBuilder(sql.length() + params.size() * 24);
+        int index = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                result.append(c);
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                result.append(c);
+            } else if (c == '?') {
+                result.append("#{").append(prefix).append(PARAM_NAME_PREFIX).append(index++).append('}');
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
     /**
      * 添加条件
      *
@@ -341,7 +960,7 @@ public class LambdaQueryWrapper<T> {
         String columnName = LambdaUtils.getFieldName(column, true);
         addWherePrefix();
         whereSql.append(columnName).append(operator).append("?");
-        params.add(value);
+        addParam(value);
         hasCondition = true;
         return this;
     }
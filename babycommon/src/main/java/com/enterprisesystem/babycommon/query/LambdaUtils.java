@@ -7,9 +7,12 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.SerializedLambda;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Lambda 表达式工具类，用于提取字段名
+ * 解析结果按 Lambda 类缓存，列名优先取自 EntityMetadataRegistry
  *
  * @author Claude Code
  * @date 2026-01-04
@@ -19,6 +22,12 @@ public class LambdaUtils {
     private static final String GET_PREFIX = "get";
     private static final String IS_PREFIX = "is";
 
+    /**
+     * Lambda 类 -> 字段解析结果
+     * 同一个方法引用在同一调用点总是对应同一个 Lambda 类，因此每个调用点只需要反射一次
+     */
+    private static final Map<Class<?>, LambdaField> FIELD_CACHE = new ConcurrentHashMap<>();
+
     /**
      * 根据 Lambda 表达式获取字段名（驼峰命名）
      *
@@ -39,13 +48,44 @@ public class LambdaUtils {
      * @return 字段名
      */
     public static <T> String getFieldName(SerializableFunction<T, ?> function, boolean toUnderline) {
+        LambdaField field = resolve(function);
+        return toUnderline ? field.column : field.property;
+    }
+
+    /**
+     * 根据 Lambda 表达式获取所属实体类
+     *
+     * @param function Lambda 表达式
+     * @param <T>      实体类类型
+     * @return 实体类
+     */
+    public static <T> Class<?> getEntityClass(SerializableFunction<T, ?> function) {
+        return resolve(function).entityClass;
+    }
+
+    /**
+     * 解析 Lambda 表达式，结果按 Lambda 类缓存
+     */
+    private static LambdaField resolve(SerializableFunction<?, ?> function) {
+        Class<?> lambdaClass = function.getClass();
+        LambdaField field = FIELD_CACHE.get(lambdaClass);
+        if (field == null) {
+            field = extract(function);
+            FIELD_CACHE.putIfAbsent(lambdaClass, field);
+        }
+        return field;
+    }
+
+    private static LambdaField extract(SerializableFunction<?, ?> function) {
         try {
             Method method = function.getClass().getDeclaredMethod("writeReplace");
             method.setAccessible(true);
             SerializedLambda lambda = (SerializedLambda) method.invoke(function);
-            String methodName = lambda.getImplMethodName();
-            String fieldName = methodNameToFieldName(methodName);
-            return toUnderline ? camelToUnderscore(fieldName) : fieldName;
+            String property = methodNameToFieldName(lambda.getImplMethodName());
+            Class<?> entityClass = Class.forName(lambda.getImplClass().replace('/', '.'),
+                    false, function.getClass().getClassLoader());
+            String column = EntityMetadataRegistry.get(entityClass).getColumn(property);
+            return new LambdaField(entityClass, property, column != null ? column : camelToUnderscore(property));
         } catch (Exception e) {
             throw new RuntimeException("无法从 Lambda 表达式提取字段名", e);
         }
@@ -90,6 +130,21 @@ public class LambdaUtils {
         return underscore.toString();
     }
 
+    /**
+     * Lambda 字段解析结果
+     */
+    private static class LambdaField {
+        private final Class<?> entityClass;
+        private final String property;
+        private final String column;
+
+        LambdaField(Class<?> entityClass, String property, String column) {
+            this.entityClass = entityClass;
+            this.property = property;
+            this.column = column;
+        }
+    }
+
     /**
      * 下划线命名转驼峰命名
      *
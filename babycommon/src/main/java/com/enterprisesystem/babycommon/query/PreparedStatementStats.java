@@ -0,0 +1,122 @@
+package com.enterprisesystem.babycommon.query;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL 结构复用统计
+ *
+ * 【作用】
+ * LambdaQueryWrapper 以参数化模式渲染 SQL 后，相同结构的查询会得到完全相同的 SQL 文本，
+ * MySQL 驱动（cachePrepStmts / useServerPrepStmts）即可复用已预编译的语句。
+ * 本类按 SQL 文本无锁计数，统计每种结构的执行次数，用于观察参数化的效果：
+ * 重复出现的比例越高，驱动语句缓存能复用的越多。
+ *
+ * 【推荐的 JDBC 连接参数】
+ * useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048
+ *
+ * 注意：这里统计的是"SQL 文本是否重复出现"，不是驱动缓存的真实命中；
+ * 真实命中率看 MySQL 服务端：SHOW GLOBAL STATUS LIKE 'Com_stmt_%'，Com_stmt_prepare 远小于 Com_stmt_execute 即为命中。
+ */
+public class PreparedStatementStats {
+
+    /**
+     * 最多跟踪的 SQL 结构数，超过后新结构只计入 untracked，避免拼接了字面量的 SQL 撑大内存
+     */
+    public static final int MAX_TRACKED_SHAPES = 10_000;
+
+    private static final Map<String, LongAdder> SHAPES = new ConcurrentHashMap<>();
+    private static final LongAdder REPEATS = new LongAdder();
+    private static final LongAdder FIRST_SEEN = new LongAdder();
+    private static final LongAdder UNTRACKED = new LongAdder();
+
+    private PreparedStatementStats() {
+    }
+
+    /**
+     * 记录一次语句执行
+     *
+     * @param sql 渲染后的 SQL 文本
+     */
+    public static void record(String sql) {
+        if (sql == null) {
+            return;
+        }
+        LongAdder counter = SHAPES.get(sql);
+        if (counter == null) {
+            if (SHAPES.size() >= MAX_TRACKED_SHAPES) {
+                UNTRACKED.increment();
+                return;
+            }
+            LongAdder created = new LongAdder();
+            counter = SHAPES.putIfAbsent(sql, created);
+            if (counter == null) {
+                created.increment();
+                FIRST_SEEN.increment();
+                return;
+            }
+        }
+        counter.increment();
+        REPEATS.increment();
+    }
+
+    /**
+     * 重复出现的执行次数（驱动语句缓存可以复用的上限）
+     *
+     * @return 次数
+     */
+    public static long getHits() {
+        return REPEATS.sum();
+    }
+
+    /**
+     * 第一次出现或未跟踪的执行次数
+     *
+     * @return 次数
+     */
+    public static long getMisses() {
+        return FIRST_SEEN.sum() + UNTRACKED.sum();
+    }
+
+    /**
+     * 重复出现的比例
+     *
+     * @return 0 ~ 1 之间的比例，没有任何记录时返回 0
+     */
+    public static double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0D : (double) hits / total;
+    }
+
+    /**
+     * 已跟踪的 SQL 结构数量
+     *
+     * @return 结构数量
+     */
+    public static int getCachedStatementCount() {
+        return SHAPES.size();
+    }
+
+    /**
+     * 某个 SQL 结构的执行次数
+     *
+     * @param sql SQL 文本
+     * @return 执行次数，未跟踪时返回 0
+     */
+    public static long getExecutions(String sql) {
+        LongAdder counter = SHAPES.get(sql);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public static void reset() {
+        SHAPES.clear();
+        REPEATS.reset();
+        FIRST_SEEN.reset();
+        UNTRACKED.reset();
+    }
+}
@@ -0,0 +1,106 @@
+package com.enterprisesystem.babycommon.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 列投影（只查询指定的列）
+ *
+ * 【作用】
+ * SELECT * 会把大字段（头像、扩展信息、密码日志等 TEXT 列）一起传输和解析，
+ * 列表页、登录校验等场景只需要少数几列。预先定义好常用的投影，通过 LambdaQueryWrapper.select() 使用：
+ * <pre>
+ * {@code
+ * public static final Projection<UserEntity> LIST = Projection.of(UserEntity::getId, UserEntity::getAccount);
+ *
+ * wrapper.select(LIST).eq(UserEntity::getCStatus, 1);
+ * // 生成 SQL: SELECT id, account FROM b_user WHERE c_status = ?
+ * }
+ * </pre>
+ *
+ * 未查询的列在返回的实体中为 null（基本类型为默认值），更新时请使用 updateSelective 等只更新非空字段的方法
+ *
+ * @param <T> 实体类型
+ */
+public final class Projection<T> {
+
+    private final List<String> columns;
+    private final String sql;
+
+    private Projection(List<String> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("投影至少需要一列");
+        }
+        this.columns = Collections.unmodifiableList(columns);
+        this.sql = String.join(", ", columns);
+    }
+
+    /**
+     * 通过 Lambda 字段引用创建投影
+     *
+     * @param columns 字段
+     * @param <T>     实体类型
+     * @return 投影
+     */
+    @SafeVarargs
+    public static <T> Projection<T> of(SerializableFunction<T, ?>... columns) {
+        List<String> list = new ArrayList<>(columns.length);
+        for (SerializableFunction<T, ?> column : columns) {
+            String name = LambdaUtils.getFieldName(column, true);
+            if (!list.contains(name)) {
+                list.add(name);
+            }
+        }
+        return new Projection<>(list);
+    }
+
+    /**
+     * 通过逗号分隔的列名创建投影，列名会根据实体元数据校验
+     *
+     * 适用于需要与 @Select 注解共用同一个列名常量的场景
+     *
+     * @param entityClass 实体类
+     * @param columnList  逗号分隔的列名，如："id, account, name"
+     * @param <T>         实体类型
+     * @return 投影
+     */
+    public static <T> Projection<T> of(Class<T> entityClass, String columnList) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entityClass);
+        List<String> list = new ArrayList<>();
+        for (String column : columnList.split(",")) {
+            String name = column.trim();
+            if (name.isEmpty() || list.contains(name)) {
+                continue;
+            }
+            if (metadata.getProperty(name) == null) {
+                throw new IllegalArgumentException(entityClass.getSimpleName() + " 不存在列：" + name);
+            }
+            list.add(name);
+        }
+        return new Projection<>(list);
+    }
+
+    /**
+     * 投影的列名
+     *
+     * @return 列名列表
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 逗号分隔的列名，用于 SELECT 子句
+     *
+     * @return 列名 SQL，如：id, account, name
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection{" + sql + '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.enterprisesystem.babycommon.query;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 缓存 SqlSource 的 MyBatis 语言驱动
+ *
+ * 【作用】
+ * 使用 @SelectProvider 等注解时，MyBatis 每次执行都会把 Provider 返回的 SQL 重新解析成 SqlSource。
+ * BaseSqlProvider 对同一结构的查询总是返回相同的 SQL 文本，因此这里按文本缓存解析结果，
+ * 重复查询只需要用新的参数对象调用 getBoundSql()，不再重复解析 #{} 占位符。
+ *
+ * 【使用方法】
+ * <pre>
+ * {@code
+ * @Lang(ShapeCachingLanguageDriver.class)
+ * @SelectProvider(type = UserSqlProvider.class, method = "findByWrapper")
+ * List<UserEntity> selectByWrapper(@Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
+ * }
+ * </pre>
+ */
+public class ShapeCachingLanguageDriver extends XMLLanguageDriver {
+
+    @Override
+    public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterType) {
+        // <script> 动态脚本在启动时只解析一次，无需缓存
+        if (script.startsWith("<script>")) {
+            return super.createSqlSource(configuration, script, parameterType);
+        }
+        String key = System.identityHashCode(configuration) + "|"
+                + (parameterType == null ? "" : parameterType.getName()) + "|" + script;
+        return SqlShapeCache.getSqlSource(key, () -> super.createSqlSource(configuration, script, parameterType));
+    }
+}
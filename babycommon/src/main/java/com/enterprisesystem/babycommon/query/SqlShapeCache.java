@@ -0,0 +1,195 @@
+package com.enterprisesystem.babycommon.query;
+
+import org.apache.ibatis.mapping.SqlSource;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * SQL 结构缓存
+ *
+ * 【作用】
+ * LambdaQueryWrapper 的结构指纹（字段、操作符、IN 参数个数分桶、排序）相同时，
+ * 渲染出来的参数化 SQL 也完全相同，只是参数值不同。这里缓存两层结果：
+ * 1. 结构指纹 -> 渲染好的 SQL 文本（跳过 StringBuilder 拼接和占位符替换）
+ * 2. SQL 文本 -> MyBatis SqlSource（跳过 #{} 解析和 ParameterMapping 构建）
+ *
+ * 缓存条目数达到上限时随机淘汰约 1/8 的条目，避免 apply() 拼接的动态 SQL 导致无限增长，
+ * 同时不会因为一次溢出清掉所有常用结构（常用结构被淘汰后下次访问即重新缓存）
+ */
+public class SqlShapeCache {
+
+    /**
+     * 默认最大缓存条目数
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 2048;
+
+    private static final Map<String, String> SQL_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, SqlSource> SQL_SOURCE_CACHE = new ConcurrentHashMap<>();
+
+    private static final LongAdder SQL_HITS = new LongAdder();
+    private static final LongAdder SQL_MISSES = new LongAdder();
+    private static final LongAdder SQL_SOURCE_HITS = new LongAdder();
+    private static final LongAdder SQL_SOURCE_MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    /**
+     * 每次淘汰的比例为 1 / EVICTION_DIVISOR
+     */
+    private static final int EVICTION_DIVISOR = 8;
+
+    private static volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private SqlShapeCache() {
+    }
+
+    /**
+     * 根据结构指纹获取渲染好的 SQL，不存在时调用 renderer 渲染并缓存
+     *
+     * @param shapeKey 结构指纹
+     * @param renderer SQL 渲染函数
+     * @return SQL 文本
+     */
+    public static String getSql(String shapeKey, Supplier<String> renderer) {
+        String sql = SQL_CACHE.get(shapeKey);
+        if (sql != null) {
+            SQL_HITS.increment();
+            return sql;
+        }
+        SQL_MISSES.increment();
+        sql = renderer.get();
+        evictIfFull(SQL_CACHE);
+        SQL_CACHE.put(shapeKey, sql);
+        return sql;
+    }
+
+    /**
+     * 根据 SQL 文本获取已解析的 SqlSource，不存在时调用 parser 解析并缓存
+     *
+     * @param sqlKey SQL 文本（包含参数类型等区分信息）
+     * @param parser SqlSource 解析函数
+     * @return SqlSource
+     */
+    public static SqlSource getSqlSource(String sqlKey, Supplier<SqlSource> parser) {
+        SqlSource sqlSource = SQL_SOURCE_CACHE.get(sqlKey);
+        if (sqlSource != null) {
+            SQL_SOURCE_HITS.increment();
+            return sqlSource;
+        }
+        SQL_SOURCE_MISSES.increment();
+        sqlSource = parser.get();
+        evictIfFull(SQL_SOURCE_CACHE);
+        SQL_SOURCE_CACHE.put(sqlKey, sqlSource);
+        return sqlSource;
+    }
+
+    /**
+     * 设置最大缓存条目数
+     *
+     * @param entries 最大条目数
+     */
+    public static void setMaxEntries(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("maxEntries 必须大于 0");
+        }
+        maxEntries = entries;
+    }
+
+    /**
+     * SQL 渲染缓存命中率
+     *
+     * @return 0 ~ 1 之间的命中率
+     */
+    public static double getSqlHitRatio() {
+        return ratio(SQL_HITS.sum(), SQL_MISSES.sum());
+    }
+
+    /**
+     * SqlSource 解析缓存命中率
+     *
+     * @return 0 ~ 1 之间的命中率
+     */
+    public static double getSqlSourceHitRatio() {
+        return ratio(SQL_SOURCE_HITS.sum(), SQL_SOURCE_MISSES.sum());
+    }
+
+    public static long getSqlHits() {
+        return SQL_HITS.sum();
+    }
+
+    public static long getSqlMisses() {
+        return SQL_MISSES.sum();
+    }
+
+    public static long getSqlSourceHits() {
+        return SQL_SOURCE_HITS.sum();
+    }
+
+    public static long getSqlSourceMisses() {
+        return SQL_SOURCE_MISSES.sum();
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.sum();
+    }
+
+    /**
+     * 当前缓存的结构数量
+     *
+     * @return 结构数量
+     */
+    public static int size() {
+        return SQL_CACHE.size();
+    }
+
+    /**
+     * 清空缓存和统计数据
+     */
+    public static void clear() {
+        SQL_CACHE.clear();
+        SQL_SOURCE_CACHE.clear();
+        SQL_HITS.reset();
+        SQL_MISSES.reset();
+        SQL_SOURCE_HITS.reset();
+        SQL_SOURCE_MISSES.reset();
+        EVICTIONS.reset();
+    }
+
+    /**
+     * 随机淘汰：每个条目以 1/8 的概率删除，至少删除到低于上限
+     */
+    private static void evictIfFull(Map<String, ?> cache) {
+        int limit = maxEntries;
+        if (cache.size() < limit) {
+            return;
+        }
+        int target = Math.max(1, limit / EVICTION_DIVISOR);
+        int removed = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (iterator.hasNext() && removed < target) {
+            iterator.next();
+            if (random.nextInt(EVICTION_DIVISOR) == 0 || cache.size() > limit) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        // 条目集中在迭代末尾时可能不够，再从头补足
+        iterator = cache.keySet().iterator();
+        while (cache.size() >= limit && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            removed++;
+        }
+        EVICTIONS.add(removed);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0D : (double) hits / total;
+    }
+}
@@ -1,9 +1,18 @@
 package com.enterprisesystem.babycommon.service;
 
 import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.mybatis.StreamCursor;
 import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.mybatis.BatchOptions;
+import com.enterprisesystem.babycommon.mybatis.BatchWriteResult;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlOptions;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlResult;
+import com.enterprisesystem.babycommon.mybatis.OptimisticRetryOptions;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * 通用 Service 接口
@@ -31,6 +40,15 @@ public interface BaseService<T, ID> {
      */
     int batchSave(List<T> entities);
 
+    /**
+     * 分批批量保存记录（JDBC Batch），返回每批的执行情况
+     *
+     * @param entities 实体对象列表
+     * @param options  批次大小、事务边界等选项
+     * @return 执行结果汇总
+     */
+    BatchWriteResult batchSave(List<T> entities, BatchOptions options);
+
     /**
      * 更新记录
      *
@@ -40,13 +58,108 @@ public interface BaseService<T, ID> {
     int update(T entity);
 
     /**
-     * 保存或更新记录（根据主键是否存在判断）
+     * 乐观锁更新：读取最新记录、执行修改函数、按版本号更新，冲突时随机退避后重新读取重试
+     *
+     * 修改函数可能被执行多次，每次都作用在新读取的记录上；UPDATE 只写入修改函数改动过的字段（BaseMapper.updateColumnsWithVersion）
+     *
+     * @param id       主键ID
+     * @param mutation 修改函数
+     * @return 更新后的记录（版本号为更新后的值）
+     */
+    T updateWithRetry(ID id, Consumer<T> mutation);
+
+    /**
+     * 乐观锁更新（指定重试次数、退避时间等选项）
+     *
+     * @param id       主键ID
+     * @param mutation 修改函数
+     * @param options  重试选项
+     * @return 更新后的记录（版本号为更新后的值）
+     */
+    T updateWithRetry(ID id, Consumer<T> mutation, OptimisticRetryOptions options);
+
+    /**
+     * 根据主键读取记录并开始跟踪修改（直接查询数据库，不经过实体缓存）
+     *
+     * 修改返回的对象后调用 updateChanged，只有修改过的字段会写入 UPDATE
+     *
+     * @param id 主键ID
+     * @return 实体对象，不存在时返回 null
+     */
+    T getTracked(ID id);
+
+    /**
+     * 按条件读取记录并开始跟踪修改
+     *
+     * @param wrapper 查询条件
+     * @return 实体对象列表
+     */
+    List<T> listTracked(LambdaQueryWrapper<T> wrapper);
+
+    /**
+     * 只更新读取后修改过的字段（包括改为 null 的字段），没有修改时不执行 SQL
+     *
+     * 需要 Mapper 实现 updateColumnsById；实体不是通过 getTracked / listTracked 读取的，按 update() 更新全部字段
+     *
+     * @param entity 实体对象
+     * @return 影响行数（没有修改时为 0）
+     */
+    int updateChanged(T entity);
+
+    /**
+     * 批量只更新修改过的字段：修改字段相同的实体使用同一条语句，通过 JDBC batch 一起执行
+     *
+     * 在单独的新事务中执行（BatchWriteExecutor），没有修改的实体跳过，未跟踪的实体更新全部可更新字段
+     *
+     * @param entities 实体对象列表
+     * @return 执行结果
+     */
+    BatchWriteResult updateChangedBatch(List<T> entities);
+
+    /**
+     * 批量只更新修改过的字段，按选项分批提交
+     *
+     * 只有所在批次已提交的实体会清除修改标记；失败批次中的实体保留修改记录，可以再次调用重试
+     *
+     * @param entities 实体对象列表
+     * @param options  批次大小、事务边界等选项
+     * @return 执行结果
+     */
+    BatchWriteResult updateChangedBatch(List<T> entities, BatchOptions options);
+
+    /**
+     * 批量更新记录
+     *
+     * @param entities 实体对象列表
+     * @return 更新的记录数
+     */
+    int batchUpdate(List<T> entities);
+
+    /**
+     * 分批批量更新记录（JDBC Batch），返回每批的执行情况
+     *
+     * @param entities 实体对象列表
+     * @param options  批次大小、事务边界等选项
+     * @return 执行结果汇总
+     */
+    BatchWriteResult batchUpdate(List<T> entities, BatchOptions options);
+
+    /**
+     * 保存或更新记录（根据主键或唯一键是否冲突判断）
      *
      * @param entity 实体对象
      * @return 保存或更新后的实体对象
      */
     T saveOrUpdate(T entity);
 
+    /**
+     * 批量保存或更新记录，分批执行 INSERT ... ON DUPLICATE KEY UPDATE
+     *
+     * @param entities 实体对象列表
+     * @return 影响的行数（MySQL 中插入的行计 1，更新的行计 2）
+     */
+    int saveOrUpdateBatch(List<T> entities);
+
     /**
      * 根据主键删除记录
      *
@@ -63,6 +176,29 @@ public interface BaseService<T, ID> {
      */
     int deleteByIds(List<ID> ids);
 
+    /**
+     * 按条件分块删除：每块删除一个主键范围内满足条件的行并立即提交，块大小按语句耗时自适应调整
+     *
+     * 需要 Mapper 实现 selectIdsByWrapper 和 deleteByWrapper；各块单独提交，中途失败或中断时已提交的块不会回滚
+     *
+     * @param wrapper 删除条件（忽略排序和 LIMIT）
+     * @param options 分块选项
+     * @return 进度与结果
+     */
+    ChunkedDmlResult deleteInChunks(LambdaQueryWrapper<T> wrapper, ChunkedDmlOptions options);
+
+    /**
+     * 按条件分块更新：把 changes 中不为 null 的字段写入满足条件的行，分块方式与 deleteInChunks 相同
+     *
+     * 需要 Mapper 实现 selectIdsByWrapper 和 updateSelectiveByWrapper
+     *
+     * @param changes 更新值（不为 null 的字段）
+     * @param wrapper 更新条件（忽略排序和 LIMIT）
+     * @param options 分块选项
+     * @return 进度与结果
+     */
+    ChunkedDmlResult updateInChunks(T changes, LambdaQueryWrapper<T> wrapper, ChunkedDmlOptions options);
+
     /**
      * 根据主键查询记录
      *
@@ -79,6 +215,16 @@ public interface BaseService<T, ID> {
      */
     List<T> getByIds(List<ID> ids);
 
+    /**
+     * 根据主键异步查询记录，短时间内多个线程的请求合并为一次 getByIds 批量查询
+     *
+     * 适用于渲染列表时逐行查询关联数据的场景；在事务中调用时直接同步查询（保证读到本事务写入的数据）
+     *
+     * @param id 主键ID
+     * @return 实体对象 Future，记录不存在时结果为 null
+     */
+    CompletableFuture<T> getByIdAsync(ID id);
+
     /**
      * 查询所有记录
      *
@@ -86,6 +232,35 @@ public interface BaseService<T, ID> {
      */
     List<T> list();
 
+    /**
+     * 流式处理所有记录
+     *
+     * 逐行读取数据库结果集并回调，内存中不保留已处理的数据，适合大批量导出。
+     * 回调同步执行，处理慢时数据库读取自动放慢（背压）；回调中不要再查询数据库
+     *
+     * @param handler 每行的处理函数
+     * @return 处理的行数
+     */
+    long streamAll(Consumer<T> handler);
+
+    /**
+     * 根据 LambdaQueryWrapper 流式批量处理记录
+     *
+     * @param wrapper   查询条件，为 null 时查询全部
+     * @param batchSize 批次大小，内存中最多保留一个批次的数据
+     * @param handler   每批的处理函数
+     * @return 处理的行数
+     */
+    long streamByWrapper(LambdaQueryWrapper<T> wrapper, int batchSize, Consumer<List<T>> handler);
+
+    /**
+     * 根据 LambdaQueryWrapper 打开流式查询迭代器，调用方需要在同一线程中通过 try-with-resources 关闭
+     *
+     * @param wrapper 查询条件，为 null 时查询全部
+     * @return 迭代器
+     */
+    StreamCursor<T> iterateByWrapper(LambdaQueryWrapper<T> wrapper);
+
     /**
      * 根据条件查询记录列表
      *
@@ -126,6 +301,19 @@ public interface BaseService<T, ID> {
      */
     PageResult<T> pageByCondition(T entity, PageRequest pageRequest);
 
+    /**
+     * 根据 LambdaQueryWrapper 分页查询记录
+     *
+     * pageRequest.isCursorPaging() 为 true 时使用游标分页：按 (排序字段, 主键) 定位，
+     * 不执行 OFFSET 和 COUNT，结果中返回 nextCursor，wrapper 中已有的排序会被覆盖；否则使用页码分页。
+     * 分页条件会直接追加到传入的 wrapper 上
+     *
+     * @param wrapper     查询条件，为 null 时查询全部
+     * @param pageRequest 分页请求对象
+     * @return 分页结果对象
+     */
+    PageResult<T> pageByWrapper(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest);
+
     /**
      * 查询记录是否存在
      *
@@ -1,13 +1,44 @@
 package com.enterprisesystem.babycommon.service.impl;
 
+import com.enterprisesystem.babycommon.cache.EntityCacheManager;
+import com.enterprisesystem.babycommon.exception.BatchWriteException;
+import com.enterprisesystem.babycommon.loader.BatchLoader;
 import com.enterprisesystem.babycommon.mapper.BaseMapper;
 import com.enterprisesystem.babycommon.model.PageRequest;
 import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.mybatis.BatchOptions;
+import com.enterprisesystem.babycommon.mybatis.BatchWriteExecutor;
+import com.enterprisesystem.babycommon.mybatis.BatchWriteResult;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlExecutor;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlOptions;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlResult;
+import com.enterprisesystem.babycommon.mybatis.CursorPager;
+import com.enterprisesystem.babycommon.mybatis.EntityChangeTracker;
+import com.enterprisesystem.babycommon.mybatis.OptimisticRetryOptions;
+import com.enterprisesystem.babycommon.mybatis.OptimisticUpdateExecutor;
+import com.enterprisesystem.babycommon.mybatis.PageQueryExecutor;
+import com.enterprisesystem.babycommon.mybatis.StreamCursor;
+import com.enterprisesystem.babycommon.mybatis.StreamingQueryExecutor;
+import com.enterprisesystem.babycommon.query.EntityMetadata;
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
 import com.enterprisesystem.babycommon.service.BaseService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * 通用 Service 实现类
@@ -20,9 +51,37 @@ import java.util.List;
  */
 public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implements BaseService<T, ID> {
 
+    /**
+     * 多行 INSERT / CASE WHEN UPDATE 每条语句的默认行数
+     */
+    public static final int DEFAULT_MULTI_ROW_CHUNK_SIZE = 500;
+
     @Autowired
     protected M mapper;
 
+    @Autowired(required = false)
+    private StreamingQueryExecutor streamingQueryExecutor;
+
+    @Autowired(required = false)
+    private BatchWriteExecutor batchWriteExecutor;
+
+    @Autowired(required = false)
+    private EntityCacheManager entityCacheManager;
+
+    @Autowired(required = false)
+    private PageQueryExecutor pageQueryExecutor;
+
+    @Autowired(required = false)
+    private OptimisticUpdateExecutor optimisticUpdateExecutor;
+
+    @Autowired(required = false)
+    private ChunkedDmlExecutor chunkedDmlExecutor;
+
+    @Autowired(required = false)
+    private EntityChangeTracker entityChangeTracker;
+
+    private volatile BatchLoader<ID, T> batchLoader;
+
     /**
      * 获取当前使用的 Mapper
      *
@@ -32,6 +91,56 @@ public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implem
         return mapper;
     }
 
+    /**
+     * Mapper 接口和实体类类型，从子类声明的泛型参数中解析
+     */
+    private volatile Class<M> mapperClass;
+    private volatile Class<T> entityClass;
+
+    /**
+     * 获取实体类类型
+     *
+     * @return 实体类类型
+     */
+    protected Class<T> getEntityClass() {
+        if (entityClass == null) {
+            resolveTypeArguments();
+        }
+        return entityClass;
+    }
+
+    /**
+     * 获取 Mapper 接口类型
+     *
+     * @return Mapper 接口类型
+     */
+    protected Class<M> getMapperClass() {
+        if (mapperClass == null) {
+            resolveTypeArguments();
+        }
+        return mapperClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resolveTypeArguments() {
+        Class<?>[] arguments = GenericTypeResolver.resolveTypeArguments(
+                ClassUtils.getUserClass(getClass()), BaseServiceImpl.class);
+        if (arguments == null || arguments[0] == null || arguments[1] == null) {
+            throw new IllegalStateException(getClass().getName() + " 未声明 Mapper 和实体类型泛型参数");
+        }
+        mapperClass = (Class<M>) arguments[0];
+        entityClass = (Class<T>) arguments[1];
+    }
+
+    /**
+     * 获取实体元数据
+     *
+     * @return 实体元数据
+     */
+    protected EntityMetadata getMetadata() {
+        return EntityMetadataRegistry.get(getEntityClass());
+    }
+
     @Override
     public T save(T entity) {
         mapper.insert(entity);
@@ -40,10 +149,29 @@ public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implem
 
     @Override
     public int batchSave(List<T> entities) {
-        if (entities == null || entities.isEmpty()) {
-            return 0;
+        return executeInChunks(entities, mapper::batchInsert);
+    }
+
+    @Override
+    public BatchWriteResult batchSave(List<T> entities, BatchOptions options) {
+        return getBatchWriteExecutor().execute(getMapperClass(), entities, BaseMapper::insert, options);
+    }
+
+    @Override
+    public int batchUpdate(List<T> entities) {
+        return executeInChunks(entities, mapper::batchUpdate);
+    }
+
+    @Override
+    public BatchWriteResult batchUpdate(List<T> entities, BatchOptions options) {
+        return getBatchWriteExecutor().execute(getMapperClass(), entities, BaseMapper::update, options);
+    }
+
+    private BatchWriteExecutor getBatchWriteExecutor() {
+        if (batchWriteExecutor == null) {
+            throw new IllegalStateException("未配置 BatchWriteExecutor，批量写入需要 SqlSessionFactory 和 Spring 事务管理器");
         }
-        return mapper.batchInsert(entities);
+        return batchWriteExecutor;
     }
 
     @Override
@@ -51,12 +179,158 @@ public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implem
         return mapper.update(entity);
     }
 
+    @Override
+    public T updateWithRetry(ID id, Consumer<T> mutation) {
+        return updateWithRetry(id, mutation, new OptimisticRetryOptions());
+    }
+
+    /**
+     * 每次尝试直接查询数据库（不经过实体缓存），保证读到最新的版本号；只写入修改函数改动过的字段
+     */
+    @Override
+    public T updateWithRetry(ID id, Consumer<T> mutation, OptimisticRetryOptions options) {
+        if (optimisticUpdateExecutor == null) {
+            throw new IllegalStateException("未配置 OptimisticUpdateExecutor，乐观锁更新需要 Spring 事务管理器");
+        }
+        return optimisticUpdateExecutor.executeChanged(getMetadata().getTableName(), () -> mapper.selectById(id),
+                mutation, mapper::updateColumnsWithVersion, options);
+    }
+
+    /**
+     * 快照必须与数据库一致，直接查询数据库（缓存中的旧值可能让修改被误判为没有变化）
+     */
+    @Override
+    public T getTracked(ID id) {
+        return getEntityChangeTracker().track(mapper.selectById(id));
+    }
+
+    @Override
+    public List<T> listTracked(LambdaQueryWrapper<T> wrapper) {
+        return getEntityChangeTracker().trackAll(mapper.selectByWrapper(wrapper));
+    }
+
+    @Override
+    public int updateChanged(T entity) {
+        EntityChangeTracker tracker = getEntityChangeTracker();
+        List<String> changed = tracker.getChangedProperties(entity);
+        if (changed == null) {
+            return mapper.update(entity);
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        int rows = mapper.updateColumnsById(entity, changed);
+        tracker.markClean(entity);
+        return rows;
+    }
+
+    /**
+     * 按修改字段分组后依次排列，MyBatis BATCH 执行器会把连续的同一条语句合并为一个 JDBC batch
+     */
+    @Override
+    public BatchWriteResult updateChangedBatch(List<T> entities) {
+        return updateChangedBatch(entities, getBatchWriteExecutor().defaultOptions());
+    }
+
+    @Override
+    public BatchWriteResult updateChangedBatch(List<T> entities, BatchOptions options) {
+        EntityChangeTracker tracker = getEntityChangeTracker();
+        if (entities == null || entities.isEmpty()) {
+            return new BatchWriteResult();
+        }
+        Map<List<String>, List<T>> groups = new LinkedHashMap<>();
+        for (T entity : entities) {
+            List<String> changed = tracker.getChangedProperties(entity);
+            if (changed == null) {
+                changed = getMetadata().getUpdateProperties();
+            }
+            if (!changed.isEmpty()) {
+                groups.computeIfAbsent(changed, key -> new ArrayList<>()).add(entity);
+            }
+        }
+        List<Map.Entry<T, List<String>>> ordered = new ArrayList<>(entities.size());
+        for (Map.Entry<List<String>, List<T>> group : groups.entrySet()) {
+            for (T entity : group.getValue()) {
+                ordered.add(new AbstractMap.SimpleImmutableEntry<>(entity, group.getKey()));
+            }
+        }
+        BatchWriteResult result;
+        try {
+            result = getBatchWriteExecutor().execute(getMapperClass(), ordered,
+                    (batchMapper, item) -> batchMapper.updateColumnsById(item.getKey(), item.getValue()), options);
+        } catch (BatchWriteException e) {
+            // 每批单独提交时，失败之前的批次已经提交
+            markCommittedClean(tracker, ordered, e.getResult(), options.getChunkSize());
+            throw e;
+        }
+        markCommittedClean(tracker, ordered, result, options.getChunkSize());
+        return result;
+    }
+
+    /**
+     * 清除已提交批次中实体的修改标记，失败批次的实体保留修改记录
+     */
+    private void markCommittedClean(EntityChangeTracker tracker, List<Map.Entry<T, List<String>>> ordered,
+                                    BatchWriteResult result, int chunkSize) {
+        Set<Integer> failed = new HashSet<>();
+        Set<Integer> succeeded = new HashSet<>();
+        for (BatchWriteResult.ChunkResult chunk : result.getChunks()) {
+            if (chunk.isSuccess()) {
+                succeeded.add(chunk.getIndex());
+            } else {
+                failed.add(chunk.getIndex());
+            }
+        }
+        // 同一批可能先执行成功、提交时才失败，以失败为准
+        succeeded.removeAll(failed);
+        for (int index : succeeded) {
+            int from = index * chunkSize;
+            for (Map.Entry<T, List<String>> item : ordered.subList(from, Math.min(from + chunkSize, ordered.size()))) {
+                tracker.markClean(item.getKey());
+            }
+        }
+    }
+
+    private EntityChangeTracker getEntityChangeTracker() {
+        if (entityChangeTracker == null) {
+            throw new IllegalStateException("未配置 EntityChangeTracker");
+        }
+        return entityChangeTracker;
+    }
+
     @Override
     public T saveOrUpdate(T entity) {
-        // 子类需要根据实际情况实现此方法
-        // 因为需要知道如何判断记录是否存在
-        throw new UnsupportedOperationException(
-                "saveOrUpdate 方法需要子类根据具体业务实现，建议通过主键判断记录是否存在");
+        mapper.batchUpsert(Collections.singletonList(entity));
+        return entity;
+    }
+
+    @Override
+    public int saveOrUpdateBatch(List<T> entities) {
+        return executeInChunks(entities, mapper::batchUpsert);
+    }
+
+    /**
+     * 每条多行语句的行数，子类可以根据单行数据大小调整（一条语句不能超过 MySQL 的 max_allowed_packet）
+     *
+     * @return 行数
+     */
+    protected int getMultiRowChunkSize() {
+        return DEFAULT_MULTI_ROW_CHUNK_SIZE;
+    }
+
+    /**
+     * 按 getMultiRowChunkSize() 分批执行多行语句，每批一次网络往返
+     */
+    private int executeInChunks(List<T> entities, Function<List<T>, Integer> statement) {
+        if (entities == null || entities.isEmpty()) {
+            return 0;
+        }
+        int chunkSize = getMultiRowChunkSize();
+        int rows = 0;
+        for (int from = 0; from < entities.size(); from += chunkSize) {
+            rows += statement.apply(entities.subList(from, Math.min(from + chunkSize, entities.size())));
+        }
+        return rows;
     }
 
     @Override
@@ -72,8 +346,33 @@ public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implem
         return mapper.deleteByIds(ids);
     }
 
+    @Override
+    public ChunkedDmlResult deleteInChunks(LambdaQueryWrapper<T> wrapper, ChunkedDmlOptions options) {
+        return getChunkedDmlExecutor().execute(getEntityClass(), "delete", wrapper, mapper::selectIdsByWrapper,
+                mapper::deleteByWrapper, options);
+    }
+
+    @Override
+    public ChunkedDmlResult updateInChunks(T changes, LambdaQueryWrapper<T> wrapper, ChunkedDmlOptions options) {
+        return getChunkedDmlExecutor().execute(getEntityClass(), "update", wrapper, mapper::selectIdsByWrapper,
+                chunk -> mapper.updateSelectiveByWrapper(changes, chunk), options);
+    }
+
+    private ChunkedDmlExecutor getChunkedDmlExecutor() {
+        if (chunkedDmlExecutor == null) {
+            throw new IllegalStateException("未配置 ChunkedDmlExecutor，分块删除 / 更新需要 Spring 事务管理器");
+        }
+        return chunkedDmlExecutor;
+    }
+
+    /**
+     * 实体标注了 @CachedEntity 时先读二级缓存，缓存由 EntityCacheInvalidationInterceptor 在写操作后自动清除
+     */
     @Override
     public T getById(ID id) {
+        if (isEntityCacheEnabled()) {
+            return entityCacheManager.getById(getEntityClass(), id, () -> mapper.selectById(id));
+        }
         return mapper.selectById(id);
     }
 
@@ -82,14 +381,95 @@ public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implem
         if (ids == null || ids.isEmpty()) {
             return Collections.emptyList();
         }
+        if (isEntityCacheEnabled()) {
+            return entityCacheManager.getByIds(getEntityClass(), ids, mapper::selectByIds);
+        }
         return mapper.selectByIds(ids);
     }
 
+    @Override
+    public CompletableFuture<T> getByIdAsync(ID id) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return CompletableFuture.completedFuture(getById(id));
+        }
+        return getBatchLoader().load(id);
+    }
+
+    /**
+     * 合并 getByIdAsync 请求的批量加载器，首次使用时创建
+     */
+    private BatchLoader<ID, T> getBatchLoader() {
+        BatchLoader<ID, T> loader = batchLoader;
+        if (loader == null) {
+            synchronized (this) {
+                loader = batchLoader;
+                if (loader == null) {
+                    EntityMetadata metadata = getMetadata();
+                    loader = new BatchLoader<>(this::getByIds, metadata::getIdValue,
+                            getBatchLoadWindowMicros(), getBatchLoadMaxSize(), BatchLoader.defaultExecutor());
+                    batchLoader = loader;
+                }
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * getByIdAsync 合并请求的时间窗口（微秒），子类可以覆盖
+     *
+     * @return 时间窗口
+     */
+    protected long getBatchLoadWindowMicros() {
+        return BatchLoader.DEFAULT_WINDOW_MICROS;
+    }
+
+    /**
+     * getByIdAsync 每批最多合并的主键数，子类可以覆盖
+     *
+     * @return 主键数
+     */
+    protected int getBatchLoadMaxSize() {
+        return BatchLoader.DEFAULT_MAX_BATCH_SIZE;
+    }
+
+    /**
+     * 是否使用实体二级缓存
+     *
+     * @return true-已配置 EntityCacheManager 且实体标注了 @CachedEntity
+     */
+    protected boolean isEntityCacheEnabled() {
+        return entityCacheManager != null && entityCacheManager.isCacheable(getEntityClass());
+    }
+
     @Override
     public List<T> list() {
         return mapper.selectAll();
     }
 
+    @Override
+    public long streamAll(Consumer<T> handler) {
+        return getStreamingQueryExecutor().forEach(mapper::streamAll, handler);
+    }
+
+    @Override
+    public long streamByWrapper(LambdaQueryWrapper<T> wrapper, int batchSize, Consumer<List<T>> handler) {
+        LambdaQueryWrapper<T> query = wrapper == null ? new LambdaQueryWrapper<>(getEntityClass()) : wrapper;
+        return getStreamingQueryExecutor().forEachBatch(() -> mapper.streamByWrapper(query), batchSize, handler);
+    }
+
+    @Override
+    public StreamCursor<T> iterateByWrapper(LambdaQueryWrapper<T> wrapper) {
+        LambdaQueryWrapper<T> query = wrapper == null ? new LambdaQueryWrapper<>(getEntityClass()) : wrapper;
+        return getStreamingQueryExecutor().open(() -> mapper.streamByWrapper(query));
+    }
+
+    private StreamingQueryExecutor getStreamingQueryExecutor() {
+        if (streamingQueryExecutor == null) {
+            throw new IllegalStateException("未配置 StreamingQueryExecutor，流式查询需要 Spring 事务管理器");
+        }
+        return streamingQueryExecutor;
+    }
+
     @Override
     public List<T> listByCondition(T entity) {
         return mapper.selectByCondition(entity);
@@ -107,26 +487,82 @@ public abstract class BaseServiceImpl<M extends BaseMapper<T, ID>, T, ID> implem
 
     @Override
     public PageResult<T> page(PageRequest pageRequest) {
-        if (pageRequest == null) {
-            pageRequest = new PageRequest();
-        }
-        pageRequest.validate();
-
-        // 子类需要实现具体的分页查询逻辑
-        throw new UnsupportedOperationException(
-                "page 方法需要子类根据具体业务实现，因为不同实体的分页查询条件不同");
+        return pageByWrapper(new LambdaQueryWrapper<>(getEntityClass()), pageRequest);
     }
 
     @Override
     public PageResult<T> pageByCondition(T entity, PageRequest pageRequest) {
+        return pageByWrapper(buildConditionWrapper(entity), pageRequest);
+    }
+
+    @Override
+    public PageResult<T> pageByWrapper(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest) {
         if (pageRequest == null) {
             pageRequest = new PageRequest();
         }
         pageRequest.validate();
+        if (wrapper == null) {
+            wrapper = new LambdaQueryWrapper<>(getEntityClass());
+        } else if (wrapper.getEntityClass() == null) {
+            wrapper.entityClass(getEntityClass());
+        }
+
+        if (pageQueryExecutor != null) {
+            return pageQueryExecutor.page(wrapper, pageRequest, null, mapper::selectByWrapper, mapper::countByWrapper);
+        }
+        if (pageRequest.isCursorPaging()) {
+            return CursorPager.page(getEntityClass(), wrapper, pageRequest, mapper::selectByWrapper);
+        }
+        return pageWithSerialCount(wrapper, pageRequest);
+    }
 
-        // 子类需要实现具体的分页查询逻辑
-        throw new UnsupportedOperationException(
-                "pageByCondition 方法需要子类根据具体业务实现，因为不同实体的分页查询条件不同");
+    /**
+     * 未配置 PageQueryExecutor 时：先统计总数，总数不超过偏移量时不再查询当前页
+     */
+    private PageResult<T> pageWithSerialCount(LambdaQueryWrapper<T> wrapper, PageRequest pageRequest) {
+        Long total = mapper.countByWrapper(wrapper);
+        if (total == null || total <= pageRequest.getOffset()) {
+            return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), total, Collections.emptyList());
+        }
+        if (pageRequest.getSortField() != null && !pageRequest.getSortField().isEmpty()) {
+            wrapper.orderBy(pageRequest.getSortField(), pageRequest.isAsc());
+        }
+        wrapper.limit((long) pageRequest.getOffset(), pageRequest.getPageSize());
+        return PageResult.of(pageRequest.getPage(), pageRequest.getPageSize(), total, mapper.selectByWrapper(wrapper));
+    }
+
+    /**
+     * 将查询条件实体转换为 LambdaQueryWrapper，非 null 字段按等值条件处理
+     *
+     * 基本类型字段无法区分"未设置"和默认值，值为 0 / false 时忽略
+     *
+     * @param entity 查询条件实体，为 null 时不添加条件
+     * @return 查询条件
+     */
+    protected LambdaQueryWrapper<T> buildConditionWrapper(T entity) {
+        LambdaQueryWrapper<T> wrapper = new LambdaQueryWrapper<>(getEntityClass());
+        if (entity == null) {
+            return wrapper;
+        }
+        EntityMetadata metadata = getMetadata();
+        for (String property : metadata.getProperties()) {
+            Object value = metadata.getValue(entity, property);
+            if (value == null || (metadata.getField(property).getType().isPrimitive() && isDefaultValue(value))) {
+                continue;
+            }
+            wrapper.eq(property, value);
+        }
+        return wrapper;
+    }
+
+    private static boolean isDefaultValue(Object value) {
+        if (value instanceof Boolean) {
+            return !(Boolean) value;
+        }
+        if (value instanceof Character) {
+            return (Character) value == 0;
+        }
+        return value instanceof Number && ((Number) value).doubleValue() == 0D;
     }
 
     @Override
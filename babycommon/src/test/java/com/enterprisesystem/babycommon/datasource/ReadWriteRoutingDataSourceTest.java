@@ -0,0 +1,198 @@
+package com.enterprisesystem.babycommon.datasource;
+
+import com.enterprisesystem.babycommon.annotation.TargetDataSource;
+import com.enterprisesystem.babycommon.aspect.DataSourceRoutingAspect;
+import com.enterprisesystem.babycommon.mybatis.ReadWriteRoutingInterceptor;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 读写分离路由测试：两个 H2 内存库分别模拟主库和从库，通过 MyBatis 和 ReadWriteRoutingInterceptor 访问
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MILLIS = 1000;
+
+    private final AtomicLong replicaLag = new AtomicLong();
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private ReplicaLagMonitor lagMonitor;
+    private ReadWriteRoutingDataSource routing;
+    private NodeMapper mapper;
+
+    public interface NodeMapper {
+
+        @Select("SELECT name FROM node")
+        String currentNode();
+
+        @Insert("INSERT INTO item (id) VALUES (#{id})")
+        int insertItem(int id);
+    }
+
+    public interface NodeReader {
+
+        String currentNode();
+    }
+
+    static class PrimaryNodeReader implements NodeReader {
+
+        private final NodeMapper mapper;
+
+        PrimaryNodeReader(NodeMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        @TargetDataSource(DataSourceType.PRIMARY)
+        public String currentNode() {
+            return mapper.currentNode();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = h2("primary");
+        DataSource replica = h2("replica");
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+
+        lagMonitor = new ReplicaLagMonitor(Collections.singletonList("replica-0"), Collections.singletonList(replica),
+                dataSource -> replicaLag.get(), MAX_LAG_MILLIS, 60_000);
+        routing = new ReadWriteRoutingDataSource(primary, Collections.singletonList(replica), lagMonitor);
+        routing.afterPropertiesSet();
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), routing));
+        configuration.addInterceptor(new ReadWriteRoutingInterceptor());
+        configuration.addMapper(NodeMapper.class);
+        mapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration)).getMapper(NodeMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataSourceContextHolder.clear();
+        primaryJdbc.execute("DROP ALL OBJECTS");
+        replicaJdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void readGoesToReplica() {
+        assertEquals("replica", mapper.currentNode());
+        assertEquals(1L, routing.getRouteStats().get("replica"));
+    }
+
+    @Test
+    void writeGoesToPrimary() {
+        mapper.insertItem(1);
+
+        assertEquals(1, primaryJdbc.queryForObject("SELECT COUNT(*) FROM item", Integer.class));
+        assertEquals(0, replicaJdbc.queryForObject("SELECT COUNT(*) FROM item", Integer.class));
+    }
+
+    @Test
+    void readAfterWriteSticksToPrimaryWithinScope() {
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+            assertEquals("replica", mapper.currentNode());
+            mapper.insertItem(1);
+            assertEquals("primary", mapper.currentNode());
+        }
+        // 作用域结束后不再粘滞
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+            assertEquals("replica", mapper.currentNode());
+        }
+    }
+
+    @Test
+    void writeOutsideScopeDoesNotPinThread() {
+        mapper.insertItem(1);
+
+        assertEquals("replica", mapper.currentNode());
+    }
+
+    @Test
+    void nestedScopeRestoresOuterStickiness() {
+        try (DataSourceContextHolder.Scope outer = DataSourceContextHolder.openScope()) {
+            mapper.insertItem(1);
+            try (DataSourceContextHolder.Scope inner = DataSourceContextHolder.openScope()) {
+                assertEquals("replica", mapper.currentNode());
+            }
+            assertEquals("primary", mapper.currentNode());
+        }
+    }
+
+    @Test
+    void targetDataSourceOverridesReadRouting() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new PrimaryNodeReader(mapper));
+        factory.addAspect(new DataSourceRoutingAspect());
+        NodeReader reader = factory.getProxy();
+
+        assertEquals("primary", reader.currentNode());
+        assertEquals("replica", mapper.currentNode());
+    }
+
+    @Test
+    void forcedReplicaOverridesStickiness() {
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+            mapper.insertItem(1);
+            DataSourceContextHolder.pushForced(DataSourceType.REPLICA);
+            try {
+                assertEquals("replica", mapper.currentNode());
+            } finally {
+                DataSourceContextHolder.popForced();
+            }
+        }
+    }
+
+    @Test
+    void readInTransactionGoesToPrimary() {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(routing));
+
+        assertEquals("primary", transaction.execute(status -> mapper.currentNode()));
+    }
+
+    @Test
+    void laggingReplicaIsDroppedAndRejoins() {
+        replicaLag.set(MAX_LAG_MILLIS + 1);
+        lagMonitor.check();
+        assertEquals("primary", mapper.currentNode());
+        assertEquals(1L, routing.getRouteStats().get("fallback"));
+
+        replicaLag.set(-1);
+        lagMonitor.check();
+        assertEquals("primary", mapper.currentNode());
+
+        replicaLag.set(0);
+        lagMonitor.check();
+        assertEquals("replica", mapper.currentNode());
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbc.execute("CREATE TABLE item (id INT PRIMARY KEY)");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
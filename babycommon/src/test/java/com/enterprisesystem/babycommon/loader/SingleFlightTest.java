@@ -0,0 +1,94 @@
+package com.enterprisesystem.babycommon.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 单飞加载测试：加载期间的调用方共享结果，加载完成后的调用重新加载
+ */
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> first = pool.submit(() -> flight.execute("k", () -> {
+                loading.countDown();
+                await(release);
+                return loads.incrementAndGet();
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            List<Future<Integer>> waiters = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiters.add(pool.submit(() -> flight.execute("k", loads::incrementAndGet)));
+            }
+            while (flight.getStats().get("shared") < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> waiter : waiters) {
+                assertEquals(Integer.valueOf(1), waiter.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1L, flight.getStats().get("executions"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void callMadeOnCompletionReloads() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        List<Runnable> tasks = new ArrayList<>();
+        CompletableFuture<String> first = flight.executeAsync("k", () -> "old", tasks::add);
+        // 拿到结果后立即发起的调用（例如发现缓存已失效后重新加载）不能再共享到旧结果
+        CompletableFuture<String> next = first.thenApply(value -> flight.execute("k", () -> "new"));
+
+        tasks.get(0).run();
+
+        assertEquals("old", first.join());
+        assertEquals("new", next.join());
+        assertFalse(flight.isInFlight("k"));
+    }
+
+    @Test
+    void failureIsSharedAndNotRemembered() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        IllegalStateException failure = new IllegalStateException("db down");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> flight.execute("k", () -> {
+            throw failure;
+        })));
+        assertFalse(flight.isInFlight("k"));
+        assertEquals("ok", flight.execute("k", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.enterprisesystem.babycommon.mq.consumer;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * 批量消费测试：失败的消息先逐条 nack，其余消息只用一次 multiple ack 确认
+ */
+class BaseBatchMessageConsumerTest {
+
+    private Channel channel;
+    private TestConsumer consumer;
+
+    /**
+     * processBatch 中按 messageId 判定失败，batchFailure 为 true 时整批抛出异常
+     */
+    private static final class TestConsumer extends BaseBatchMessageConsumer {
+
+        private final Set<String> failing = new HashSet<>();
+        private final List<List<String>> batches = new ArrayList<>();
+        private boolean batchFailure;
+        private MessageDeduplicator deduplicator;
+
+        @Override
+        protected List<Message> processBatch(List<Message> messages) throws Exception {
+            batches.add(ids(messages));
+            if (batchFailure && messages.size() > 1) {
+                throw new IllegalStateException("批量写入失败");
+            }
+            List<Message> failed = new ArrayList<>();
+            for (Message message : messages) {
+                if (failing.contains(message.getMessageProperties().getMessageId())) {
+                    failed.add(message);
+                }
+            }
+            return failed;
+        }
+
+        @Override
+        protected MessageDeduplicator getMessageDeduplicator() {
+            return deduplicator;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        channel = mock(Channel.class);
+        consumer = new TestConsumer();
+    }
+
+    @Test
+    void successfulBatchIsAckedOnce() throws Exception {
+        consumer.consumeBatch(messages("a", "b", "c"), channel);
+
+        verify(channel).basicAck(3, true);
+        verifyNoMoreInteractions(channel);
+        assertEquals(3L, consumer.getStats().get("acked"));
+    }
+
+    @Test
+    void failedMessagesAreNackedBeforeMultipleAck() throws Exception {
+        consumer.failing.addAll(Arrays.asList("b", "d"));
+        List<Message> messages = messages("a", "b", "c", "d", "e");
+        // d 已经重新投递过一次，再次失败时丢弃
+        messages.get(3).getMessageProperties().setRedelivered(true);
+
+        consumer.consumeBatch(messages, channel);
+
+        InOrder order = inOrder(channel);
+        order.verify(channel).basicNack(2, false, true);
+        order.verify(channel).basicNack(4, false, false);
+        order.verify(channel).basicAck(5, true);
+        verifyNoMoreInteractions(channel);
+        assertEquals(3L, consumer.getStats().get("acked"));
+        assertEquals(1L, consumer.getStats().get("requeued"));
+        assertEquals(1L, consumer.getStats().get("discarded"));
+    }
+
+    @Test
+    void ackStopsBeforeTrailingFailure() throws Exception {
+        consumer.failing.add("c");
+
+        consumer.consumeBatch(messages("a", "b", "c"), channel);
+
+        InOrder order = inOrder(channel);
+        order.verify(channel).basicNack(3, false, true);
+        order.verify(channel).basicAck(2, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    void allFailedIsNeverAcked() throws Exception {
+        consumer.failing.addAll(Arrays.asList("a", "b"));
+
+        consumer.consumeBatch(messages("a", "b"), channel);
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        assertEquals(0L, consumer.getStats().get("acked"));
+    }
+
+    @Test
+    void batchFailureFallsBackToOneByOne() throws Exception {
+        consumer.batchFailure = true;
+        consumer.failing.add("b");
+
+        consumer.consumeBatch(messages("a", "b", "c"), channel);
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Collections.singletonList("a"),
+                Collections.singletonList("b"), Collections.singletonList("c")), consumer.batches);
+        InOrder order = inOrder(channel);
+        order.verify(channel).basicNack(2, false, true);
+        order.verify(channel).basicAck(3, true);
+        verifyNoMoreInteractions(channel);
+        assertEquals(1L, consumer.getStats().get("fallbacks"));
+    }
+
+    @Test
+    void duplicatesAreAckedWithoutProcessing() throws Exception {
+        consumer.deduplicator = new MessageDeduplicator(null, 60_000, 30_000, 1_000, 0.01, 2);
+        consumer.deduplicator.complete(consumer.deduplicator.tryClaim("TestConsumer", "b"));
+        consumer.failing.add("c");
+
+        consumer.consumeBatch(messages("a", "b", "c"), channel);
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "c")), consumer.batches);
+        InOrder order = inOrder(channel);
+        order.verify(channel).basicNack(3, false, true);
+        order.verify(channel).basicAck(2, true);
+        verifyNoMoreInteractions(channel);
+        assertEquals(1L, consumer.getStats().get("duplicates"));
+        // a 记录为已完成，c 的占用已释放
+        assertEquals(2L, consumer.deduplicator.getStats().get("completed"));
+        assertEquals(1L, consumer.deduplicator.getStats().get("released"));
+    }
+
+    /**
+     * 按顺序生成消息，投递序号从 1 开始
+     */
+    private static List<Message> messages(String... ids) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            MessageProperties properties = new MessageProperties();
+            properties.setMessageId(ids[i]);
+            properties.setDeliveryTag(i + 1);
+            properties.setRedelivered(false);
+            messages.add(new Message(new byte[0], properties));
+        }
+        return messages;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        List<String> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessageProperties().getMessageId());
+        }
+        return ids;
+    }
+}
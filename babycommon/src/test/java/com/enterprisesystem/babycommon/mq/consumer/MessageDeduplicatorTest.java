@@ -0,0 +1,175 @@
+package com.enterprisesystem.babycommon.mq.consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 消息去重测试：占用令牌只属于本次处理，完成和释放都不会覆盖或删除其他节点的占用
+ */
+class MessageDeduplicatorTest {
+
+    private static final String KEY = "md:consumer:m1";
+
+    /**
+     * 模拟 Redis 中的值（不模拟过期，测试中直接删除表示过期）
+     */
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new FakeRedisTemplate(redis);
+    }
+
+    @Test
+    void completedMessageIsDuplicateOnAllNodes() {
+        MessageDeduplicator node = deduplicator();
+        MessageDeduplicator.Claim claim = node.tryClaim("consumer", "m1");
+        assertEquals(MessageDeduplicator.Result.CLAIMED, claim.getResult());
+        assertTrue(redis.get(KEY).startsWith("0:"));
+
+        node.complete(claim);
+
+        assertEquals("1", redis.get(KEY));
+        assertEquals(MessageDeduplicator.Result.DUPLICATE, node.tryClaim("consumer", "m1").getResult());
+        assertEquals(1L, node.getStats().get("localDuplicates"));
+        MessageDeduplicator other = deduplicator();
+        assertEquals(MessageDeduplicator.Result.DUPLICATE, other.tryClaim("consumer", "m1").getResult());
+        assertEquals(1L, other.getStats().get("remoteDuplicates"));
+    }
+
+    @Test
+    void claimedMessageIsInProgressForOtherNodes() {
+        deduplicator().tryClaim("consumer", "m1");
+
+        MessageDeduplicator other = deduplicator();
+        assertEquals(MessageDeduplicator.Result.IN_PROGRESS, other.tryClaim("consumer", "m1").getResult());
+        // 不同消费者各自去重
+        assertEquals(MessageDeduplicator.Result.CLAIMED, other.tryClaim("another", "m1").getResult());
+    }
+
+    @Test
+    void releaseAllowsRedelivery() {
+        MessageDeduplicator node = deduplicator();
+        node.release(node.tryClaim("consumer", "m1"));
+
+        assertFalse(redis.containsKey(KEY));
+        assertEquals(MessageDeduplicator.Result.CLAIMED, deduplicator().tryClaim("consumer", "m1").getResult());
+        assertEquals(0L, node.getStats().get("lostClaims"));
+    }
+
+    @Test
+    void staleClaimDoesNotTouchNewOwner() {
+        MessageDeduplicator slow = deduplicator();
+        MessageDeduplicator.Claim stale = slow.tryClaim("consumer", "m1");
+        // 处理超过 processingTtlMillis，占用过期后被其他节点重新占用
+        redis.remove(KEY);
+        MessageDeduplicator other = deduplicator();
+        MessageDeduplicator.Claim current = other.tryClaim("consumer", "m1");
+        String otherToken = redis.get(KEY);
+
+        slow.complete(stale);
+        assertEquals(otherToken, redis.get(KEY));
+        slow.release(stale);
+        assertEquals(otherToken, redis.get(KEY));
+        assertEquals(2L, slow.getStats().get("lostClaims"));
+
+        other.complete(current);
+        assertEquals("1", redis.get(KEY));
+        assertEquals(0L, other.getStats().get("lostClaims"));
+    }
+
+    @Test
+    void expiredClaimWithoutNewOwnerStillCompletes() {
+        MessageDeduplicator node = deduplicator();
+        MessageDeduplicator.Claim claim = node.tryClaim("consumer", "m1");
+        redis.remove(KEY);
+
+        node.complete(claim);
+
+        assertEquals("1", redis.get(KEY));
+        assertEquals(0L, node.getStats().get("lostClaims"));
+    }
+
+    @Test
+    void redisFailureFallsBackToLocalRecord() {
+        MessageDeduplicator node = new MessageDeduplicator(new FakeRedisTemplate(null), 60_000, 30_000, 1_000, 0.01, 2);
+        MessageDeduplicator.Claim claim = node.tryClaim("consumer", "m1");
+        assertEquals(MessageDeduplicator.Result.CLAIMED, claim.getResult());
+
+        node.complete(claim);
+
+        assertEquals(MessageDeduplicator.Result.DUPLICATE, node.tryClaim("consumer", "m1").getResult());
+        assertTrue(node.getStats().get("redisErrors") >= 2);
+    }
+
+    private MessageDeduplicator deduplicator() {
+        return new MessageDeduplicator(redisTemplate, 60_000, 30_000, 1_000, 0.01, 2);
+    }
+
+    /**
+     * 按 MessageDeduplicator 中的 Lua 脚本语义模拟 Redis，redis 为 null 时所有操作抛出异常
+     */
+    @SuppressWarnings("unchecked")
+    private static final class FakeRedisTemplate extends StringRedisTemplate {
+
+        private final Map<String, String> redis;
+        private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+
+        private FakeRedisTemplate(Map<String, String> redis) {
+            this.redis = redis;
+            when(valueOperations.get(anyString())).thenAnswer(invocation -> store().get(invocation.<String>getArgument(0)));
+            when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                    .thenAnswer(invocation -> store().putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        }
+
+        @Override
+        public ValueOperations<String, String> opsForValue() {
+            return valueOperations;
+        }
+
+        @Override
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            String key = keys.get(0);
+            String value = store().get(key);
+            if (args.length == 3) {
+                // COMPLETE_SCRIPT：值为本次令牌或不存在时改为已完成
+                if (value == null || value.equals(args[0])) {
+                    store().put(key, (String) args[1]);
+                    return (T) Long.valueOf(1);
+                }
+                return (T) Long.valueOf(0);
+            }
+            // RELEASE_SCRIPT：值为本次令牌时删除
+            if (value != null && value.equals(args[0])) {
+                store().remove(key);
+                return (T) Long.valueOf(1);
+            }
+            return (T) Long.valueOf(0);
+        }
+
+        private Map<String, String> store() {
+            if (redis == null) {
+                throw new IllegalStateException("Redis 不可用");
+            }
+            return redis;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.enterprisesystem.babycommon.mq.delay;
+
+import com.enterprisesystem.babycommon.mq.producer.MessageProducer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 延迟消息调度器测试：到期发布在发布线程池中执行，发布阻塞或线程池已满时时间轮线程不受影响
+ */
+class DelayedMessageSchedulerTest {
+
+    private DelayedMessageScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void blockingSendDoesNotStallWheel() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Set<String> sendThreads = ConcurrentHashMap.newKeySet();
+        MessageProducer producer = mock(MessageProducer.class);
+        when(producer.sendAsync(anyString(), anyString(), any(Message.class))).thenAnswer(invocation -> {
+            sendThreads.add(Thread.currentThread().getName());
+            // 模拟发布窗口已满时的等待
+            release.await(5, TimeUnit.SECONDS);
+            return CompletableFuture.completedFuture("id");
+        });
+        scheduler = new DelayedMessageScheduler(producer, new RabbitTemplate(), null,
+                5, 5_000, new long[]{4_000}, 30_000, 3, 1, 1);
+        scheduler.start();
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.schedule("exchange", "key", "payload" + i, 0).get(1, TimeUnit.SECONDS);
+        }
+
+        // 一条阻塞在发布线程、一条在线程池队列中，第三条被拒绝后由时间轮反复延后
+        waitUntil(() -> scheduler.getStats().get("fireRejections") >= 2);
+        assertEquals(0L, scheduler.getStats().get("fired"));
+
+        release.countDown();
+        waitUntil(() -> scheduler.getStats().get("fired") == 3);
+        assertEquals(0L, scheduler.getStats().get("wheelSize"));
+        assertEquals(1, sendThreads.size());
+        assertTrue(sendThreads.contains("mq-delay-fire"));
+    }
+
+    @Test
+    void failedSendIsRetriedThenParked() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        MessageProducer producer = mock(MessageProducer.class);
+        when(producer.sendAsync(anyString(), anyString(), any(Message.class))).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("nack"));
+            return future;
+        });
+        scheduler = new DelayedMessageScheduler(producer, new RabbitTemplate(), null,
+                5, 5_000, new long[]{4_000}, 30_000, 2, 2, 10);
+        scheduler.start();
+
+        scheduler.schedule("exchange", "key", "payload", 0).get(1, TimeUnit.SECONDS);
+
+        // 第一次失败后 1 秒重试，第二次失败后次数用完
+        waitUntil(() -> scheduler.getStats().get("parked") == 1);
+        assertEquals(2, attempts.get());
+        assertEquals(2L, scheduler.getStats().get("fireFailures"));
+        assertEquals(0L, scheduler.getStats().get("wheelSize"));
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.met()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+}
@@ -0,0 +1,110 @@
+package com.enterprisesystem.babycommon.mq.delay;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层时间轮与优先队列（DelayQueue 的底层结构）的性能对比
+ *
+ * 使用模拟时间（不 sleep），每次调用插入 count 条随机到期时间的条目，再按 tick 推进直到全部到期：
+ * - spreadMillis = 5000：到期时间在 0 ~ 5 秒内均匀分布（DelayedMessageScheduler 放入时间轮的范围）
+ * - spreadMillis = 3600000：到期时间在 0 ~ 1 小时内均匀分布（超出第 0 层，需要逐层转移）
+ * 结果为插入加到期全部条目的耗时，并校验没有条目提前或遗漏；内存占用可加 -prof gc 查看。
+ *
+ * 运行：mvn test-compile 后执行本类的 main 方法（JMH）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimingWheelBenchmark {
+
+    private static final long TICK_MILLIS = 10;
+
+    /**
+     * 条目数
+     */
+    @Param({"1000000"})
+    public int count;
+
+    /**
+     * 到期时间分布范围（毫秒）
+     */
+    @Param({"5000", "3600000"})
+    public long spreadMillis;
+
+    private long[] deadlines;
+
+    @Setup
+    public void setUp() {
+        deadlines = new long[count];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            deadlines[i] = (long) (random.nextDouble() * spreadMillis);
+        }
+    }
+
+    @Benchmark
+    public long timingWheel() {
+        HierarchicalTimingWheel<long[]> wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 8, 3, 0);
+        for (long deadline : deadlines) {
+            wheel.add(new long[]{deadline}, deadline);
+        }
+        long[] fired = new long[1];
+        for (long now = 0; now <= spreadMillis + TICK_MILLIS; now += TICK_MILLIS) {
+            long current = now;
+            wheel.advance(now, item -> {
+                if (item[0] > current) {
+                    throw new IllegalStateException("条目提前到期：" + item[0] + " > " + current);
+                }
+                fired[0]++;
+            });
+        }
+        return verify(fired[0]);
+    }
+
+    @Benchmark
+    public long priorityQueue() {
+        PriorityQueue<long[]> queue = new PriorityQueue<>(11, (a, b) -> Long.compare(a[0], b[0]));
+        for (long deadline : deadlines) {
+            queue.add(new long[]{deadline});
+        }
+        long fired = 0;
+        for (long now = 0; now <= spreadMillis + TICK_MILLIS; now += TICK_MILLIS) {
+            while (!queue.isEmpty() && queue.peek()[0] <= now) {
+                queue.poll();
+                fired++;
+            }
+        }
+        return verify(fired);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TimingWheelBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private long verify(long fired) {
+        if (fired != deadlines.length) {
+            throw new IllegalStateException("到期条目数不一致：" + fired + " / " + deadlines.length);
+        }
+        return fired;
+    }
+}
@@ -0,0 +1,135 @@
+package com.enterprisesystem.babycommon.mq.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 发件箱写入测试：消息按 RabbitTemplate 的 MessageConverter 转换，与直接发送的格式一致
+ */
+class OutboxPublisherTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    public static class Change implements Serializable {
+        private Integer id;
+        private LocalDateTime time;
+        private Date createTime;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public void setTime(LocalDateTime time) {
+            this.time = time;
+        }
+
+        public Date getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(Date createTime) {
+            this.createTime = createTime;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:outbox_publisher;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE mq_outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, exchange VARCHAR(128),"
+                + " routing_key VARCHAR(128), message_id VARCHAR(64), content_type VARCHAR(64),"
+                + " payload_type VARCHAR(255), payload CLOB)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void jsonConverterWritesTypedJson() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        OutboxPublisher publisher = new OutboxPublisher(dataSource, new Jackson2JsonMessageConverter(objectMapper), "mq_outbox");
+
+        String messageId = publisher.publish("exchange", "key", change());
+
+        Map<String, Object> row = jdbc.queryForMap("SELECT * FROM mq_outbox");
+        assertEquals(messageId, row.get("MESSAGE_ID"));
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, row.get("CONTENT_TYPE"));
+        assertEquals(Change.class.getName(), row.get("PAYLOAD_TYPE"));
+        assertTrue(row.get("PAYLOAD").toString().contains("\"time\":[2024,1,2,3,4,5]"), row.get("PAYLOAD").toString());
+        assertEquals(1L, publisher.getWrittenCount());
+    }
+
+    @Test
+    void stringIsStoredAsText() {
+        OutboxPublisher publisher = new OutboxPublisher(dataSource, new SimpleMessageConverter(), "mq_outbox");
+
+        publisher.publish("exchange", "key", "hello");
+
+        Map<String, Object> row = jdbc.queryForMap("SELECT * FROM mq_outbox");
+        assertEquals(MessageProperties.CONTENT_TYPE_TEXT_PLAIN, row.get("CONTENT_TYPE"));
+        assertNull(row.get("PAYLOAD_TYPE"));
+        assertEquals("hello", row.get("PAYLOAD"));
+    }
+
+    @Test
+    void serializedObjectIsStoredAsBase64() {
+        SimpleMessageConverter converter = new SimpleMessageConverter();
+        converter.setAllowedListPatterns(Collections.singletonList("*"));
+        OutboxPublisher publisher = new OutboxPublisher(dataSource, converter, "mq_outbox");
+
+        publisher.publish("exchange", "key", change());
+
+        Map<String, Object> row = jdbc.queryForMap("SELECT * FROM mq_outbox");
+        String contentType = row.get("CONTENT_TYPE").toString();
+        assertEquals(MessageProperties.CONTENT_TYPE_SERIALIZED_OBJECT, contentType);
+        assertFalse(OutboxPublisher.isText(contentType));
+        // OutboxRelay 发送前按 Base64 还原
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(contentType);
+        Change restored = (Change) converter.fromMessage(
+                new Message(Base64.getDecoder().decode(row.get("PAYLOAD").toString()), properties));
+        assertEquals(Integer.valueOf(7), restored.getId());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5), restored.getTime());
+    }
+
+    private static Change change() {
+        Change change = new Change();
+        change.setId(7);
+        change.setTime(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+        change.setCreateTime(new Date(0));
+        return change;
+    }
+}
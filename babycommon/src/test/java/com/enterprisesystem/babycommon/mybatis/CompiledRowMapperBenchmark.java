@@ -0,0 +1,330 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预生成行映射与 MyBatis 自动映射的性能对比
+ *
+ * 用内存中的结果集（不访问数据库）分别执行：
+ * - MyBatis 默认的 DefaultResultSetHandler（自动映射：按列名查找属性、TypeHandler、MetaObject 赋值）
+ * - CompiledRowMapper（按列下标读取 + MethodHandle 写入字段）
+ * 只比较结果集到实体的映射开销，两种方式读取的是同一份数据，并在开始前校验结果一致。
+ *
+ * 运行：mvn test-compile 后执行本类的 main 方法（JMH），结果为每次查询（默认 1000 行）的平均耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CompiledRowMapperBenchmark {
+
+    private static final String[] COLUMNS = {
+            "id", "account", "user_name", "email", "status", "score", "create_time", "update_time"
+    };
+    private static final int[] COLUMN_TYPES = {
+            Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.DECIMAL,
+            Types.TIMESTAMP, Types.TIMESTAMP
+    };
+    private static final String[] COLUMN_CLASSES = {
+            Integer.class.getName(), String.class.getName(), String.class.getName(), String.class.getName(),
+            Integer.class.getName(), BigDecimal.class.getName(), Timestamp.class.getName(), Timestamp.class.getName()
+    };
+
+    /**
+     * 每次查询的行数
+     */
+    @Param({"1000"})
+    public int rowCount;
+
+    /**
+     * 示例实体类
+     */
+    public static class SampleUser {
+        private Integer id;
+        private String account;
+        private String userName;
+        private String email;
+        private Integer status;
+        private BigDecimal score;
+        private Date createTime;
+        private Date updateTime;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getAccount() {
+            return account;
+        }
+
+        public void setAccount(String account) {
+            this.account = account;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public void setStatus(Integer status) {
+            this.status = status;
+        }
+
+        public BigDecimal getScore() {
+            return score;
+        }
+
+        public void setScore(BigDecimal score) {
+            this.score = score;
+        }
+
+        public Date getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(Date createTime) {
+            this.createTime = createTime;
+        }
+
+        public Date getUpdateTime() {
+            return updateTime;
+        }
+
+        public void setUpdateTime(Date updateTime) {
+            this.updateTime = updateTime;
+        }
+
+        @Override
+        public String toString() {
+            return "SampleUser{id=" + id + ", account=" + account + ", userName=" + userName + ", email=" + email
+                    + ", status=" + status + ", score=" + score
+                    + ", createTime=" + (createTime == null ? null : createTime.getTime())
+                    + ", updateTime=" + (updateTime == null ? null : updateTime.getTime()) + "}";
+        }
+    }
+
+    private Object[][] rows;
+    private MappedStatement mappedStatement;
+    private CompiledRowMapperFactory factory;
+    private TypeHandlerRegistry typeHandlerRegistry;
+
+    @Setup
+    public void setUp() throws Exception {
+        rows = createRows(rowCount);
+        Configuration configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        ResultMap resultMap = new ResultMap.Builder(configuration, "benchmark.selectUsers-Inline", SampleUser.class,
+                new ArrayList<>()).build();
+        mappedStatement = new MappedStatement.Builder(configuration, "benchmark.selectUsers",
+                parameterObject -> null, SqlCommandType.SELECT)
+                .resultMaps(Collections.singletonList(resultMap))
+                .build();
+        factory = new CompiledRowMapperFactory();
+        typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+
+        // 两种方式读取同一份数据，测量前先校验结果一致
+        List<Object> expected = mybatisAutoMapping();
+        List<SampleUser> actual = compiledRowMapping();
+        for (int i = 0; i < expected.size(); i++) {
+            if (!Objects.equals(expected.get(i).toString(), actual.get(i).toString())) {
+                throw new IllegalStateException("第 " + i + " 行映射结果不一致：" + expected.get(i) + " / " + actual.get(i));
+            }
+        }
+    }
+
+    /**
+     * MyBatis 自动映射
+     */
+    @Benchmark
+    public List<Object> mybatisAutoMapping() throws Exception {
+        DefaultResultSetHandler handler = new DefaultResultSetHandler(null, mappedStatement, null, null, null,
+                RowBounds.DEFAULT);
+        return handler.handleResultSets(statement(resultSet(rows)));
+    }
+
+    /**
+     * 预生成行映射
+     */
+    @Benchmark
+    public List<SampleUser> compiledRowMapping() throws Exception {
+        ResultSet resultSet = resultSet(rows);
+        // 与 CompiledRowMappingInterceptor 相同：每次查询按结果集列查找映射器
+        CompiledRowMapper<SampleUser> mapper = factory.get(SampleUser.class, resultSet.getMetaData(),
+                typeHandlerRegistry, true, false);
+        List<SampleUser> result = new ArrayList<>();
+        while (resultSet.next()) {
+            result.add(mapper.mapRow(resultSet));
+        }
+        resultSet.close();
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompiledRowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static Object[][] createRows(int rowCount) {
+        long now = System.currentTimeMillis();
+        Object[][] rows = new Object[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = new Object[]{
+                    i + 1,
+                    "user" + i,
+                    "用户" + i,
+                    // 每 10 行一个 NULL，覆盖 NULL 不赋值的分支
+                    i % 10 == 0 ? null : "user" + i + "@example.com",
+                    i % 2,
+                    new BigDecimal(i).movePointLeft(2),
+                    new Timestamp(now - i * 1000L),
+                    i % 10 == 0 ? null : new Timestamp(now)
+            };
+        }
+        return rows;
+    }
+
+    // ==================== 内存结果集 ====================
+
+    private static Statement statement(ResultSet resultSet) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getResultSet":
+                            return resultSet;
+                        case "getMoreResults":
+                            return false;
+                        case "getUpdateCount":
+                            return -1;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static ResultSetMetaData metaData() {
+        return (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return COLUMNS.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return COLUMNS[(Integer) args[0] - 1];
+                        case "getColumnType":
+                            return COLUMN_TYPES[(Integer) args[0] - 1];
+                        case "getColumnClassName":
+                            return COLUMN_CLASSES[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ResultSet resultSet(Object[][] rows) {
+        ResultSetMetaData metaData = metaData();
+        int[] cursor = {-1};
+        boolean[] state = new boolean[2];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.length;
+                        case "getMetaData":
+                            return metaData;
+                        case "getType":
+                            return ResultSet.TYPE_FORWARD_ONLY;
+                        case "close":
+                            state[1] = true;
+                            return null;
+                        case "isClosed":
+                            return state[1];
+                        case "wasNull":
+                            return state[0];
+                        default:
+                            break;
+                    }
+                    if (!method.getName().startsWith("get") || args == null || args.length == 0) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Object value = rows[cursor[0]][columnIndex(args[0])];
+                    state[0] = value == null;
+                    return convert(value, method.getReturnType());
+                });
+    }
+
+    private static int columnIndex(Object column) {
+        if (column instanceof Integer) {
+            return (Integer) column - 1;
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equalsIgnoreCase((String) column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("列不存在：" + column);
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == int.class) {
+            return value == null ? 0 : ((Number) value).intValue();
+        }
+        if (type == long.class) {
+            return value == null ? 0L : ((Number) value).longValue();
+        }
+        return value;
+    }
+}
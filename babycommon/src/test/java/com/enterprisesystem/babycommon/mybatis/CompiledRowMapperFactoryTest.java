@@ -0,0 +1,177 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 预生成行映射测试：TypeHandlerRegistry 中注册的 TypeHandler 与 MyBatis 自动映射一样生效
+ */
+class CompiledRowMapperFactoryTest {
+
+    private Connection connection;
+
+    public static class Article {
+        private Integer id;
+        private String title;
+        private List<String> tags;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+    }
+
+    /**
+     * 逗号分隔的字符串 <-> List
+     */
+    public static class CsvTypeHandler extends BaseTypeHandler<List<String>> {
+
+        @Override
+        public void setNonNullParameter(PreparedStatement ps, int i, List<String> parameter, JdbcType jdbcType)
+                throws SQLException {
+            ps.setString(i, String.join(",", parameter));
+        }
+
+        @Override
+        public List<String> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+            return parse(rs.getString(columnName));
+        }
+
+        @Override
+        public List<String> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+            return parse(rs.getString(columnIndex));
+        }
+
+        @Override
+        public List<String> getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+            return parse(cs.getString(columnIndex));
+        }
+
+        private static List<String> parse(String value) {
+            return value == null ? null : Arrays.asList(value.split(","));
+        }
+    }
+
+    /**
+     * 覆盖内置的 VARCHAR -> String 处理器：去掉首尾空格
+     */
+    public static class TrimmingStringTypeHandler extends BaseTypeHandler<String> {
+
+        @Override
+        public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType)
+                throws SQLException {
+            ps.setString(i, parameter);
+        }
+
+        @Override
+        public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+            return trim(rs.getString(columnName));
+        }
+
+        @Override
+        public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+            return trim(rs.getString(columnIndex));
+        }
+
+        @Override
+        public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+            return trim(cs.getString(columnIndex));
+        }
+
+        private static String trim(String value) {
+            return value == null ? null : value.trim();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:compiled_row_mapper;DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE article (id INT PRIMARY KEY, title VARCHAR(64), tags VARCHAR(64))");
+            statement.execute("INSERT INTO article VALUES (1, '  hello  ', 'a,b'), (2, NULL, NULL)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void usesRegisteredTypeHandlerForCustomType() throws SQLException {
+        TypeHandlerRegistry registry = new TypeHandlerRegistry();
+        registry.register(List.class, new CsvTypeHandler());
+
+        List<Article> articles = query(new CompiledRowMapperFactory(), registry);
+
+        assertEquals(Arrays.asList("a", "b"), articles.get(0).getTags());
+        assertEquals("  hello  ", articles.get(0).getTitle());
+        assertNull(articles.get(1).getTags());
+    }
+
+    @Test
+    void honorsOverriddenBuiltInTypeHandler() throws SQLException {
+        TypeHandlerRegistry registry = new TypeHandlerRegistry();
+        registry.register(List.class, new CsvTypeHandler());
+        registry.register(String.class, JdbcType.VARCHAR, new TrimmingStringTypeHandler());
+
+        List<Article> articles = query(new CompiledRowMapperFactory(), registry);
+
+        assertEquals("hello", articles.get(0).getTitle());
+        assertEquals(Integer.valueOf(1), articles.get(0).getId());
+    }
+
+    @Test
+    void fallsBackWithoutTypeHandler() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, title, tags FROM article")) {
+            // List 没有注册 TypeHandler：MyBatis 按原方式处理
+            assertNull(new CompiledRowMapperFactory().get(Article.class, resultSet.getMetaData(),
+                    new TypeHandlerRegistry(), true, false));
+        }
+    }
+
+    private List<Article> query(CompiledRowMapperFactory factory, TypeHandlerRegistry registry) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, title, tags FROM article ORDER BY id")) {
+            CompiledRowMapper<Article> mapper = factory.get(Article.class, resultSet.getMetaData(), registry, true, false);
+            assertNotNull(mapper);
+            List<Article> articles = new ArrayList<>();
+            while (resultSet.next()) {
+                articles.add(mapper.mapRow(resultSet));
+            }
+            return articles;
+        }
+    }
+}
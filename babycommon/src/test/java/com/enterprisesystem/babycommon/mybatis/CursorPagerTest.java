@@ -0,0 +1,244 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.annotation.TableName;
+import com.enterprisesystem.babycommon.mapper.BaseMapper;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 游标分页测试：seekAfter 生成的条件都是单个范围，排序字段有重复值和 NULL 时逐页翻完与 ORDER BY 全量查询的顺序一致
+ */
+class CursorPagerTest {
+
+    private JdbcTemplate jdbc;
+    private ItemMapper mapper;
+
+    @TableName("item")
+    public static class Item {
+        private Integer id;
+        private Integer score;
+        private Integer flag;
+        private String name;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public Integer getScore() {
+            return score;
+        }
+
+        public Integer getFlag() {
+            return flag;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public interface ItemMapper extends BaseMapper<Item, Integer> {
+    }
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:cursor_pager;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE item (id INT PRIMARY KEY, score INT, flag INT, name VARCHAR(32))");
+        jdbc.execute("CREATE INDEX idx_item_score ON item (score, id)");
+        Integer[] scores = {null, 3, 1, null, 3, 2, 3, null, 1, 2, 3, null, 2, 3};
+        for (int i = 0; i < scores.length; i++) {
+            jdbc.update("INSERT INTO item VALUES (?, ?, ?, ?)", i + 1, scores[i], i % 5 == 0 ? 0 : 1, "item" + (i + 1));
+        }
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(ItemMapper.class);
+        mapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration)).getMapper(ItemMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void ascendingSeekIsSingleRange() {
+        LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<>(Item.class).eq("flag", 1)
+                .seekAfter("score", 2, 6, true);
+
+        assertEquals(" WHERE flag = ? AND score >= ? AND (score > ? OR id > ?) ORDER BY score ASC, id ASC", wrapper.getSql());
+        assertEquals(Arrays.asList(1, 2, 2, 6), wrapper.getParams());
+        assertNull(wrapper.nextSeekSegment());
+    }
+
+    @Test
+    void ascendingSeekFromNullContinuesWithNotNullSegment() {
+        LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<>(Item.class).eq("flag", 1)
+                .seekAfter("score", null, 4, true);
+
+        assertEquals(" WHERE flag = ? AND score IS NULL AND id > ? ORDER BY score ASC, id ASC", wrapper.getSql());
+        assertEquals(Arrays.asList(1, 4), wrapper.getParams());
+
+        LambdaQueryWrapper<Item> next = wrapper.nextSeekSegment();
+        assertEquals(" WHERE flag = ? AND score IS NOT NULL ORDER BY score ASC, id ASC", next.getSql());
+        assertEquals(Collections.singletonList(1), next.getParams());
+    }
+
+    @Test
+    void descendingSeekContinuesWithNullSegment() {
+        LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<>(Item.class)
+                .select(Item::getName)
+                .seekAfter("score", 2, 6, false);
+
+        assertEquals(" WHERE score <= ? AND (score < ? OR id < ?) ORDER BY score DESC, id DESC", wrapper.getSql());
+        assertEquals("name, score, id", wrapper.getSelectSql());
+
+        LambdaQueryWrapper<Item> next = wrapper.nextSeekSegment();
+        assertEquals(" WHERE score IS NULL ORDER BY score DESC, id DESC", next.getSql());
+        assertTrue(next.getParams().isEmpty());
+        assertEquals("name, score, id", next.getSelectSql());
+    }
+
+    @Test
+    void descendingSeekFromNullStaysInNullSegment() {
+        LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<>(Item.class).seekAfter("score", null, 8, false);
+
+        assertEquals(" WHERE score IS NULL AND id < ? ORDER BY score DESC, id DESC", wrapper.getSql());
+        assertNull(wrapper.nextSeekSegment());
+    }
+
+    @Test
+    void seekByIdAndFirstPage() {
+        assertEquals(" WHERE id > ? ORDER BY id ASC",
+                new LambdaQueryWrapper<>(Item.class).seekAfter("id", 3, 3, true).getSql());
+        assertEquals(" ORDER BY score DESC, id DESC",
+                new LambdaQueryWrapper<>(Item.class).seekAfter("score", null, null, false).getSql());
+    }
+
+    @Test
+    void traversesAllPagesWithTiesAndNulls() {
+        for (boolean asc : new boolean[]{true, false}) {
+            for (int pageSize : new int[]{1, 2, 3, 5, 20}) {
+                String direction = asc ? "ASC" : "DESC";
+                assertEquals(jdbc.queryForList("SELECT id FROM item ORDER BY score " + direction + ", id " + direction, Integer.class),
+                        traverse("score", asc, pageSize, false), direction + " pageSize=" + pageSize);
+                assertEquals(jdbc.queryForList("SELECT id FROM item WHERE flag = 1 ORDER BY score " + direction + ", id " + direction, Integer.class),
+                        traverse("score", asc, pageSize, true), direction + " flag=1 pageSize=" + pageSize);
+            }
+        }
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        PageRequest request = PageRequest.ofCursor(null, 14);
+        request.setSortField("score");
+
+        PageResult<Item> result = CursorPager.page(Item.class, new LambdaQueryWrapper<>(Item.class), request, mapper::selectByWrapper);
+
+        assertEquals(14, result.getRecords().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void nullSegmentQueriedOnlyWhenNonNullRangeRunsOut() {
+        // 降序：3 -> 14, 11, 7, 5, 2；2 -> 13, 10, 6；1 -> 9, 3；NULL -> 12, 8, 4, 1
+        List<Integer> queriesPerPage = new ArrayList<>();
+        List<List<Integer>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            AtomicInteger queries = new AtomicInteger();
+            PageRequest request = PageRequest.ofCursor(cursor, 2);
+            request.setSortField("score");
+            request.setSortOrder("desc");
+            PageResult<Item> result = CursorPager.page(Item.class, new LambdaQueryWrapper<>(Item.class), request, wrapper -> {
+                queries.incrementAndGet();
+                return mapper.selectByWrapper(wrapper);
+            });
+            queriesPerPage.add(queries.get());
+            pages.add(ids(result.getRecords()));
+            cursor = result.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList(Arrays.asList(14, 11), Arrays.asList(7, 5), Arrays.asList(2, 13), Arrays.asList(10, 6),
+                Arrays.asList(9, 3), Arrays.asList(12, 8), Arrays.asList(4, 1)), pages);
+        // 第 5 页非 NULL 区段只剩 2 行、第 6 页的游标仍在非 NULL 区段，都需要再查 NULL 区段；第 7 页的游标已在 NULL 区段内
+        assertEquals(Arrays.asList(1, 1, 1, 1, 2, 2, 1), queriesPerPage);
+    }
+
+    @Test
+    void rejectsSortFieldOutsideWhitelist() {
+        PageRequest request = PageRequest.ofCursor(null, 2);
+        request.setSortField("name");
+
+        assertThrows(RuntimeException.class, () -> CursorPager.page(Item.class, new LambdaQueryWrapper<>(Item.class), request,
+                Arrays.asList("id", "score"), mapper::selectByWrapper));
+    }
+
+    @Test
+    void rejectsCursorFromDifferentSort() {
+        PageRequest request = PageRequest.ofCursor(null, 2);
+        request.setSortField("score");
+        String cursor = CursorPager.page(Item.class, new LambdaQueryWrapper<>(Item.class), request, mapper::selectByWrapper)
+                .getNextCursor();
+
+        PageRequest changed = PageRequest.ofCursor(cursor, 2);
+        changed.setSortField("score");
+        changed.setSortOrder("desc");
+        assertThrows(RuntimeException.class, () ->
+                CursorPager.page(Item.class, new LambdaQueryWrapper<>(Item.class), changed, mapper::selectByWrapper));
+    }
+
+    private List<Integer> traverse(String sortField, boolean asc, int pageSize, boolean onlyFlagged) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageRequest request = PageRequest.ofCursor(cursor, pageSize);
+            request.setSortField(sortField);
+            request.setSortOrder(asc ? "asc" : "desc");
+            LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<>(Item.class);
+            if (onlyFlagged) {
+                wrapper.eq("flag", 1);
+            }
+            PageResult<Item> result = CursorPager.page(Item.class, wrapper, request, mapper::selectByWrapper);
+            assertTrue(result.getRecords().size() <= pageSize);
+            if (result.getNextCursor() != null) {
+                assertEquals(pageSize, result.getRecords().size());
+            }
+            ids.addAll(ids(result.getRecords()));
+            cursor = result.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Integer> ids(List<Item> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,160 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.annotation.TableName;
+import com.enterprisesystem.babycommon.exception.OptimisticLockException;
+import com.enterprisesystem.babycommon.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 乐观锁更新测试：BaseMapper.updateColumnsWithVersion 生成的语句只写入修改函数改动过的字段，冲突时重新读取重试
+ */
+class OptimisticUpdateExecutorTest {
+
+    private JdbcTemplate jdbc;
+    private AccountMapper mapper;
+    private OptimisticUpdateExecutor executor;
+
+    @TableName("account")
+    public static class Account {
+        private Integer id;
+        private String name;
+        private Integer status;
+        private Integer revision;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public Integer getRevision() {
+            return revision;
+        }
+    }
+
+    public interface AccountMapper extends BaseMapper<Account, Integer> {
+
+        @Select("SELECT * FROM account WHERE id = #{id}")
+        Account selectById(@Param("id") Integer id);
+    }
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:optimistic_update;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE account (id INT PRIMARY KEY, name VARCHAR(32), status INT, revision INT)");
+        jdbc.update("INSERT INTO account VALUES (1, 'alice', 1, 1)");
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(AccountMapper.class);
+        mapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration)).getMapper(AccountMapper.class);
+        executor = new OptimisticUpdateExecutor(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void writesOnlyChangedColumns() {
+        Account updated = executor.executeChanged("account", () -> mapper.selectById(1), account -> {
+            // 不带版本号的写入（如 UserMapper.updateStatus）在读取之后修改了状态
+            jdbc.update("UPDATE account SET status = 0 WHERE id = 1");
+            account.setName("bob");
+        }, mapper::updateColumnsWithVersion, fastOptions(3));
+
+        assertEquals(Integer.valueOf(2), updated.getRevision());
+        Map<String, Object> row = jdbc.queryForMap("SELECT name, status, revision FROM account WHERE id = 1");
+        assertEquals("bob", row.get("NAME"));
+        assertEquals(0, row.get("STATUS"));
+        assertEquals(2, row.get("REVISION"));
+    }
+
+    @Test
+    void retriesAfterConflict() {
+        AtomicInteger calls = new AtomicInteger();
+        Account updated = executor.executeChanged("account", () -> mapper.selectById(1), account -> {
+            if (calls.incrementAndGet() == 1) {
+                jdbc.update("UPDATE account SET revision = revision + 1 WHERE id = 1");
+            }
+            account.setName("bob");
+        }, mapper::updateColumnsWithVersion, fastOptions(3));
+
+        assertEquals(2, calls.get());
+        assertEquals(Integer.valueOf(3), updated.getRevision());
+        Map<String, Long> stats = executor.getStats().get("account");
+        assertEquals(2L, stats.get("attempts"));
+        assertEquals(1L, stats.get("conflicts"));
+        assertEquals(1L, stats.get("retriedSuccesses"));
+    }
+
+    @Test
+    void skipsUpdateWhenNothingChanged() {
+        Account updated = executor.executeChanged("account", () -> mapper.selectById(1), account -> account.setName("alice"),
+                mapper::updateColumnsWithVersion, fastOptions(3));
+
+        assertEquals(Integer.valueOf(1), updated.getRevision());
+        assertEquals(1, jdbc.queryForObject("SELECT revision FROM account WHERE id = 1", Integer.class));
+        assertEquals(1L, executor.getStats().get("account").get("unchanged"));
+    }
+
+    @Test
+    void throwsWhenAttemptsExhausted() {
+        OptimisticLockException e = assertThrows(OptimisticLockException.class, () ->
+                executor.executeChanged("account", () -> mapper.selectById(1), account -> {
+                    jdbc.update("UPDATE account SET revision = revision + 1 WHERE id = 1");
+                    account.setName("bob");
+                }, mapper::updateColumnsWithVersion, fastOptions(2)));
+
+        assertEquals(2, e.getAttempts());
+        assertEquals("alice", jdbc.queryForObject("SELECT name FROM account WHERE id = 1", String.class));
+        assertEquals(1L, executor.getStats().get("account").get("exhausted"));
+    }
+
+    @Test
+    void fullRowUpdateWritesAllColumns() {
+        Account account = mapper.selectById(1);
+        jdbc.update("UPDATE account SET status = 0 WHERE id = 1");
+        account.setName("bob");
+
+        assertEquals(1, mapper.updateWithVersion(account));
+        assertEquals(1, jdbc.queryForObject("SELECT status FROM account WHERE id = 1", Integer.class));
+    }
+
+    private static OptimisticRetryOptions fastOptions(int maxAttempts) {
+        OptimisticRetryOptions options = OptimisticRetryOptions.of(maxAttempts);
+        options.setInitialBackoffMillis(1);
+        options.setMaxBackoffMillis(2);
+        return options;
+    }
+}
@@ -0,0 +1,345 @@
+package com.enterprisesystem.babycommon.mybatis;
+
+import com.enterprisesystem.babycommon.annotation.TableName;
+import com.enterprisesystem.babycommon.cache.QueryResultCache;
+import com.enterprisesystem.babycommon.mapper.BaseMapper;
+import com.enterprisesystem.babycommon.model.CountMode;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分页总数执行器测试：COUNT 缓存命中、表版本失效、线程池满时由调用线程执行、估算语句和各分页模式
+ */
+class PageQueryExecutorTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ItemMapper mapper;
+    private PageQueryExecutor executor;
+
+    @TableName("item")
+    public static class Item {
+        private Integer id;
+        private Integer flag;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public Integer getFlag() {
+            return flag;
+        }
+    }
+
+    public interface ItemMapper extends BaseMapper<Item, Integer> {
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:page_query;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE item (id INT PRIMARY KEY, flag INT)");
+        for (int i = 1; i <= 25; i++) {
+            jdbc.update("INSERT INTO item VALUES (?, ?)", i, i % 5 == 0 ? 0 : 1);
+        }
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(ItemMapper.class);
+        mapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration)).getMapper(ItemMapper.class);
+        executor = new PageQueryExecutor(dataSource, 2, 60_000, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void countCacheHitSkipsCounter() {
+        AtomicInteger counts = new AtomicInteger();
+
+        assertEquals(Long.valueOf(20), PageQueryExecutor.join(executor.countAsync("item", flagged(),
+                () -> countFlagged(counts))));
+        CompletableFuture<Long> cached = executor.countAsync("item", flagged(), () -> countFlagged(counts));
+
+        assertTrue(cached.isDone());
+        assertEquals(Long.valueOf(20), cached.join());
+        assertEquals(1, counts.get());
+        assertEquals(1L, executor.getStats().get("countCacheHits"));
+
+        // 条件值不同时不命中
+        PageQueryExecutor.join(executor.countAsync("item", new LambdaQueryWrapper<>(Item.class).eq("flag", 0),
+                () -> countFlagged(counts)));
+        assertEquals(2, counts.get());
+    }
+
+    @Test
+    void tableWriteInvalidatesCachedCount() {
+        QueryResultCache queryResultCache = new QueryResultCache(null, 100);
+        executor.setQueryResultCache(queryResultCache);
+        AtomicInteger counts = new AtomicInteger();
+
+        assertEquals(Long.valueOf(20), PageQueryExecutor.join(executor.countAsync("item", flagged(),
+                () -> countFlagged(counts))));
+        jdbc.update("INSERT INTO item VALUES (26, 1)");
+        queryResultCache.bumpTables(Collections.singletonList("item"));
+
+        assertEquals(Long.valueOf(21), PageQueryExecutor.join(executor.countAsync("item", flagged(),
+                () -> countFlagged(counts))));
+        assertEquals(2, counts.get());
+        assertEquals(0L, executor.getStats().get("countCacheHits"));
+    }
+
+    @Test
+    void countRacingWithWriteIsNotCached() {
+        QueryResultCache queryResultCache = new QueryResultCache(null, 100);
+        executor.setQueryResultCache(queryResultCache);
+        AtomicInteger counts = new AtomicInteger();
+
+        PageQueryExecutor.join(executor.countAsync("item", flagged(), () -> {
+            Long total = countFlagged(counts);
+            // COUNT 执行期间表被修改，结果可能已经过时
+            queryResultCache.bumpTables(Collections.singletonList("item"));
+            return total;
+        }));
+        PageQueryExecutor.join(executor.countAsync("item", flagged(), () -> countFlagged(counts)));
+
+        assertEquals(2, counts.get());
+        assertEquals(1L, executor.getStats().get("countCacheSize"));
+    }
+
+    @Test
+    void saturatedPoolRunsCountOnCaller() throws Exception {
+        PageQueryExecutor single = new PageQueryExecutor(dataSource, 1, 0, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Long> blocked = single.countAsync("item", flagged(), () -> {
+            started.countDown();
+            await(release);
+            return 1L;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AtomicReference<Thread> countThread = new AtomicReference<>();
+        CompletableFuture<Long> inline = single.countAsync("item", new LambdaQueryWrapper<>(Item.class).eq("flag", 0), () -> {
+            countThread.set(Thread.currentThread());
+            return 2L;
+        });
+
+        assertTrue(inline.isDone());
+        assertSame(Thread.currentThread(), countThread.get());
+        assertEquals(Long.valueOf(2), inline.join());
+        assertFalse(blocked.isDone());
+        release.countDown();
+        assertEquals(Long.valueOf(1), PageQueryExecutor.join(blocked));
+    }
+
+    @Test
+    void concurrentCountsForSameConditionShareOneQuery() throws Exception {
+        PageQueryExecutor uncached = new PageQueryExecutor(dataSource, 2, 0, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counts = new AtomicInteger();
+        CompletableFuture<Long> first = uncached.countAsync("item", flagged(), () -> {
+            await(release);
+            return countFlagged(counts);
+        });
+        CompletableFuture<Long> second = uncached.countAsync("item", flagged(), () -> countFlagged(counts));
+        release.countDown();
+
+        assertEquals(Long.valueOf(20), PageQueryExecutor.join(first));
+        assertEquals(Long.valueOf(20), PageQueryExecutor.join(second));
+        assertEquals(1, counts.get());
+        assertEquals(1L, uncached.getStats().get("shared"));
+    }
+
+    @Test
+    void estimateUsesExplainRowsTimesFiltered() throws Exception {
+        DataSource mocked = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(mocked.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong("rows")).thenReturn(1000L);
+        when(resultSet.getDouble("filtered")).thenReturn(10.0);
+
+        Long estimated = new PageQueryExecutor(mocked, 1, 0, 100).estimate("item", flagged());
+
+        assertEquals(Long.valueOf(100), estimated);
+        verify(connection).prepareStatement("EXPLAIN SELECT * FROM item WHERE flag = ?");
+        verify(statement).setObject(1, 1);
+    }
+
+    @Test
+    void estimateWithoutConditionReadsTableRows() throws Exception {
+        DataSource mocked = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(mocked.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(12345L);
+
+        Long estimated = new PageQueryExecutor(mocked, 1, 0, 100).estimate("item", new LambdaQueryWrapper<>(Item.class));
+
+        assertEquals(Long.valueOf(12345), estimated);
+        verify(connection).prepareStatement("SELECT TABLE_ROWS FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?");
+        verify(statement).setObject(1, "item");
+    }
+
+    @Test
+    void exactPageCountsInParallel() {
+        PageRequest request = PageRequest.of(2, 8);
+
+        PageResult<Item> page = executor.page(flagged(), request, null, mapper::selectByWrapper, mapper::countByWrapper);
+
+        assertEquals(Long.valueOf(20), page.getTotal());
+        assertEquals(Integer.valueOf(3), page.getTotalPages());
+        assertEquals(Arrays.asList(11, 12, 13, 14, 16, 17, 18, 19), ids(page.getRecords()));
+        assertEquals(1L, executor.getStats().get("parallelCounts"));
+    }
+
+    @Test
+    void exactPageBeyondTotalSkipsSelect() {
+        // 第一次统计后总数已缓存，越界的页直接返回空列表，不查询当前页
+        executor.page(flagged(), PageRequest.of(1, 8), null, mapper::selectByWrapper, mapper::countByWrapper);
+        AtomicInteger selects = new AtomicInteger();
+
+        PageResult<Item> page = executor.page(flagged(), PageRequest.of(4, 8), null, wrapper -> {
+            selects.incrementAndGet();
+            return mapper.selectByWrapper(wrapper);
+        }, mapper::countByWrapper);
+
+        assertTrue(page.getRecords().isEmpty());
+        assertEquals(0, selects.get());
+    }
+
+    @Test
+    void hasNextPageSkipsCount() {
+        PageRequest request = PageRequest.ofHasNext(3, 8);
+        request.setSortOrder("desc");
+
+        PageResult<Item> page = executor.page(flagged(), request, null, mapper::selectByWrapper, wrapper -> {
+            throw new AssertionError("HAS_NEXT 不应统计总数");
+        });
+
+        assertNull(page.getTotal());
+        assertFalse(page.getHasNextPage());
+        assertEquals(Arrays.asList(4, 3, 2, 1), ids(page.getRecords()));
+    }
+
+    @Test
+    void estimatedPageFallsBackToExactCountWhenEstimateFails() {
+        // H2 的 EXPLAIN 没有 rows / filtered 列，估算失败时准确统计
+        PageRequest request = PageRequest.of(1, 8);
+        request.setCountMode(CountMode.ESTIMATED);
+
+        PageResult<Item> page = executor.page(flagged(), request, null, mapper::selectByWrapper, mapper::countByWrapper);
+
+        assertEquals(Long.valueOf(20), page.getTotal());
+        assertNull(page.getTotalEstimated());
+        assertEquals(8, page.getRecords().size());
+    }
+
+    @Test
+    void offsetPageRejectsSortFieldOutsideWhitelist() {
+        PageRequest request = PageRequest.of(1, 8);
+        request.setSortField("flag");
+
+        assertThrows(RuntimeException.class, () -> executor.page(flagged(), request, Collections.singletonList("id"),
+                mapper::selectByWrapper, mapper::countByWrapper));
+    }
+
+    @Test
+    void offsetPageSortsBySortFieldThenId() {
+        PageRequest request = PageRequest.of(1, 7);
+        request.setSortField("flag");
+
+        PageResult<Item> page = executor.page(new LambdaQueryWrapper<>(Item.class), request, null,
+                mapper::selectByWrapper, mapper::countByWrapper);
+
+        assertEquals(Arrays.asList(5, 10, 15, 20, 25, 1, 2), ids(page.getRecords()));
+    }
+
+    @Test
+    void cursorRequestUsesKeysetPaging() {
+        PageRequest request = PageRequest.ofCursor(null, 8);
+
+        PageResult<Item> first = executor.page(flagged(), request, null, mapper::selectByWrapper, wrapper -> {
+            throw new AssertionError("游标分页不应统计总数");
+        });
+        PageResult<Item> second = executor.page(flagged(), PageRequest.ofCursor(first.getNextCursor(), 8), null,
+                mapper::selectByWrapper, mapper::countByWrapper);
+
+        assertEquals(Arrays.asList(11, 12, 13, 14, 16, 17, 18, 19), ids(second.getRecords()));
+        assertTrue(second.hasNext());
+    }
+
+    private static LambdaQueryWrapper<Item> flagged() {
+        return new LambdaQueryWrapper<>(Item.class).eq("flag", 1);
+    }
+
+    private Long countFlagged(AtomicInteger counts) {
+        counts.incrementAndGet();
+        return jdbc.queryForObject("SELECT COUNT(*) FROM item WHERE flag = 1", Long.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Integer> ids(List<Item> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,31 @@
+package com.enterprisesystem.babysecure.config;
+
+import com.enterprisesystem.babycommon.datasource.DataSourceContextHolder;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 读写分离上下文作用域
+ * 每个请求是一个路由作用域：请求中写过主库后，后续读取走主库；
+ * 请求结束时清除主库粘滞等线程级路由标记，避免 Tomcat 线程复用时带到下一个请求
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DataSourceRoutingFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (DataSourceContextHolder.Scope scope = DataSourceContextHolder.openScope()) {
+            chain.doFilter(request, response);
+        }
+    }
+}
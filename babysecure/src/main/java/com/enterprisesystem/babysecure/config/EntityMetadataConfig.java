@@ -0,0 +1,21 @@
+package com.enterprisesystem.babysecure.config;
+
+import com.enterprisesystem.babycommon.query.EntityMetadataRegistry;
+import com.enterprisesystem.babysecure.model.entity.DepartmentEntity;
+import com.enterprisesystem.babysecure.model.entity.UserEntity;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 实体元数据配置
+ * 启动时预先解析实体的表名、主键和字段列表，避免第一次查询时才进行反射
+ */
+@Configuration
+public class EntityMetadataConfig {
+
+    @PostConstruct
+    public void registerEntities() {
+        EntityMetadataRegistry.register(UserEntity.class, DepartmentEntity.class);
+    }
+}
@@ -3,6 +3,8 @@ package com.enterprisesystem.babysecure.controller;
 import com.enterprisesystem.babycommon.annotation.ApiExceptionHandler;
 import com.enterprisesystem.babycommon.constant.ApiConstants;
 import com.enterprisesystem.babycommon.entity.APIResult;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
 import com.enterprisesystem.babysecure.model.dto.DepartmentDto;
 import com.enterprisesystem.babysecure.service.DepartmentService;
 import org.springframework.web.bind.annotation.*;
@@ -212,6 +214,34 @@ public class DepartmentController {
         return new APIResult<>(departments);
     }
 
+    /**
+     * 分页查询部门列表
+     *
+     * 完整路径：GET /api/v1/departments/page
+     *
+     * 部门数量多时使用游标分页：第一页传 cursorMode=true，之后把返回的 nextCursor 作为 cursor 参数传回，
+     * 翻到后面的页也不会变慢；排序字段可选 id、code、sortOrder
+     *
+     * @param parentId    父部门ID，可选
+     * @param status      部门状态，可选
+     * @param pageRequest 分页参数（page、pageSize、sortField、sortOrder、cursor、cursorMode、countMode）
+     * @return APIResult<PageResult<DepartmentDto>>
+     *
+     * 请求示例：
+     * GET http://localhost:8080/api/v1/departments/page?page=1&pageSize=20
+     * GET http://localhost:8080/api/v1/departments/page?page=3&pageSize=20&countMode=HAS_NEXT
+     * GET http://localhost:8080/api/v1/departments/page?cursorMode=true&pageSize=20&sortField=sortOrder
+     */
+    @GetMapping("/page")
+    @ApiExceptionHandler(apiId = 12)
+    public APIResult<PageResult<DepartmentDto>> pageDepartments(
+            @RequestParam(value = "parentId", required = false) Integer parentId,
+            @RequestParam(value = "status", required = false) Integer status,
+            PageRequest pageRequest) {
+        PageResult<DepartmentDto> page = departmentService.pageDepartments(parentId, status, pageRequest);
+        return new APIResult<>(page);
+    }
+
     /**
      * 查询部门树形结构
      *
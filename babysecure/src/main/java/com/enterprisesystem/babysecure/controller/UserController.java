@@ -3,12 +3,15 @@ package com.enterprisesystem.babysecure.controller;
 import com.enterprisesystem.babycommon.annotation.ApiExceptionHandler;
 import com.enterprisesystem.babycommon.constant.ApiConstants;
 import com.enterprisesystem.babycommon.entity.APIResult;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
 import com.enterprisesystem.babysecure.model.dto.UserDto;
 import com.enterprisesystem.babysecure.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
@@ -28,4 +31,23 @@ public class UserController {
     public APIResult<UserDto> addUsers(UserDto userDto){
         return new APIResult<>(userService.addUser(userDto));
     }
+
+    /**
+     * 分页查询用户列表（不含密码和大字段）
+     *
+     * 页码分页：GET /api/v1/users/page?page=1&pageSize=20&sortField=account（countMode=ESTIMATED / HAS_NEXT 时不精确统计总数）
+     * 游标分页：GET /api/v1/users/page?cursorMode=true&pageSize=20，之后把返回的 nextCursor 作为 cursor 参数传回
+     *
+     * @param account     账号前缀
+     * @param status      用户状态
+     * @param pageRequest 分页参数
+     * @return 分页结果
+     */
+    @GetMapping("/page")
+    @ApiExceptionHandler(apiId = 11)
+    public APIResult<PageResult<UserDto>> pageUsers(@RequestParam(value = "account", required = false) String account,
+                                                    @RequestParam(value = "status", required = false) Integer status,
+                                                    PageRequest pageRequest) {
+        return new APIResult<>(userService.pageUsers(account, status, pageRequest));
+    }
 }
\ No newline at end of file
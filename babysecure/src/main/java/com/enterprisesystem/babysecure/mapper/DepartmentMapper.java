@@ -1,5 +1,7 @@
 package com.enterprisesystem.babysecure.mapper;
 
+import com.enterprisesystem.babycommon.annotation.CachedQuery;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
 import com.enterprisesystem.babysecure.model.entity.DepartmentEntity;
 import org.apache.ibatis.annotations.*;
 import org.apache.ibatis.annotations.Param;
@@ -30,8 +32,11 @@ public interface DepartmentMapper {
      * - 不需要写 XML 配置文件
      * - SQL 直接写在注解中，简单直观
      *
+     * @CachedQuery：结果缓存 60 秒，department 表有任何写入后立即失效
+     *
      * @return 所有部门列表
      */
+    @CachedQuery
     @Select("SELECT * FROM department")
     List<DepartmentEntity> selectAll();
 
@@ -48,6 +53,22 @@ public interface DepartmentMapper {
     @Select("SELECT * FROM department WHERE id = #{id}")
     DepartmentEntity selectById(@Param("id") Integer id);
 
+    /**
+     * 根据 ID 列表批量查询部门
+     *
+     * 供 getDepartmentByIdAsync 合并请求后一次性查询，返回顺序与 ids 无关
+     *
+     * @param ids 部门ID列表
+     * @return 部门列表（不存在的 ID 不返回）
+     */
+    @Select("<script>" +
+            "SELECT * FROM department WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    List<DepartmentEntity> selectByIds(@Param("ids") List<Integer> ids);
+
     /**
      * 根据部门编码查询
      *
@@ -68,6 +89,17 @@ public interface DepartmentMapper {
     @Select("SELECT * FROM department WHERE parent_id = #{parentId} ORDER BY sort_order ASC")
     List<DepartmentEntity> selectByParentId(@Param("parentId") Integer parentId);
 
+    /**
+     * 使用 LambdaQueryWrapper 动态查询部门列表
+     *
+     * 应用场景：部门分页列表，条件、排序、游标和 LIMIT 都由 wrapper 生成
+     *
+     * @param wrapper Lambda 查询构造器
+     * @return 部门列表
+     */
+    @SelectProvider(type = DepartmentSqlProvider.class, method = "findByWrapper")
+    List<DepartmentEntity> selectByWrapper(@Param("wrapper") LambdaQueryWrapper<DepartmentEntity> wrapper);
+
     // ==================== 插入操作 ====================
 
     /**
@@ -90,6 +122,31 @@ public interface DepartmentMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(DepartmentEntity entity);
 
+    /**
+     * 批量插入部门（一条多行 INSERT）
+     *
+     * SQL 由 DepartmentSqlProvider 根据实体元数据生成：
+     * INSERT INTO department (code, name, parent_id, status, sort_order) VALUES (...), (...)
+     * 自增主键会回填到每个实体的 id 字段
+     *
+     * @param list 部门列表
+     * @return 影响的行数
+     */
+    @InsertProvider(type = DepartmentSqlProvider.class, method = "batchInsert")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int batchInsert(@Param("list") List<DepartmentEntity> list);
+
+    /**
+     * 批量插入或更新部门（INSERT ... ON DUPLICATE KEY UPDATE）
+     *
+     * id 为 null 的部门插入新记录，id 或 code 已存在的部门更新其余字段
+     *
+     * @param list 部门列表
+     * @return 影响的行数（插入的行计 1，更新的行计 2）
+     */
+    @InsertProvider(type = DepartmentSqlProvider.class, method = "batchUpsert")
+    int batchUpsert(@Param("list") List<DepartmentEntity> list);
+
     // ==================== 更新操作 ====================
 
     /**
@@ -111,6 +168,28 @@ public interface DepartmentMapper {
             "WHERE id = #{id}")
     int update(DepartmentEntity entity);
 
+    /**
+     * 批量更新部门（一条 UPDATE ... SET col = CASE id WHEN ... END）
+     *
+     * @param list 部门列表（必须包含 id）
+     * @return 影响的行数
+     */
+    @UpdateProvider(type = DepartmentSqlProvider.class, method = "batchUpdate")
+    int batchUpdate(@Param("list") List<DepartmentEntity> list);
+
+    /**
+     * 只更新指定字段（字段值为 null 时写入 NULL）
+     *
+     * 应用场景：配合 EntityChangeTracker 只写入读取后修改过的字段，不再重复写入没有变化的列；
+     * 修改字段相同的语句文本相同，批量执行时合并为一个 JDBC batch
+     *
+     * @param entity     部门实体对象（必须包含 id）
+     * @param properties 需要更新的属性名
+     * @return 影响的行数
+     */
+    @UpdateProvider(type = DepartmentSqlProvider.class, method = "updateColumnsById")
+    int updateColumnsById(@Param("entity") DepartmentEntity entity, @Param("properties") List<String> properties);
+
     /**
      * 选择性更新（只更新非空字段）
      *
@@ -182,6 +261,7 @@ public interface DepartmentMapper {
      *
      * @return 部门总数
      */
+    @CachedQuery
     @Select("SELECT COUNT(*) FROM department")
     Long count();
 
@@ -193,4 +273,13 @@ public interface DepartmentMapper {
      */
     @Select("SELECT COUNT(*) FROM department WHERE parent_id = #{parentId}")
     Long countByParentId(@Param("parentId") Integer parentId);
+
+    /**
+     * 使用 LambdaQueryWrapper 统计部门数量
+     *
+     * @param wrapper Lambda 查询构造器
+     * @return 部门数量
+     */
+    @SelectProvider(type = DepartmentSqlProvider.class, method = "countByWrapper")
+    Long countByWrapper(@Param("wrapper") LambdaQueryWrapper<DepartmentEntity> wrapper);
 }
@@ -0,0 +1,16 @@
+package com.enterprisesystem.babysecure.mapper;
+
+import com.enterprisesystem.babycommon.query.BaseSqlProvider;
+import com.enterprisesystem.babysecure.model.entity.DepartmentEntity;
+
+/**
+ * 部门表 SQL Provider
+ * 供 DepartmentMapper 的 @InsertProvider / @UpdateProvider 使用，根据实体元数据生成批量写入语句
+ * 表名取自 DepartmentEntity 上的 @TableName
+ */
+public class DepartmentSqlProvider extends BaseSqlProvider<DepartmentEntity> {
+
+    public DepartmentSqlProvider() {
+        super(DepartmentEntity.class);
+    }
+}
@@ -1,8 +1,12 @@
 package com.enterprisesystem.babysecure.mapper;
 
+import com.enterprisesystem.babycommon.annotation.CachedQuery;
 import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import com.enterprisesystem.babycommon.query.ShapeCachingLanguageDriver;
 import com.enterprisesystem.babysecure.model.entity.UserEntity;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.util.List;
 
@@ -31,6 +35,18 @@ public interface UserMapper {
     @Select("SELECT * FROM b_user")
     List<UserEntity> selectAll();
 
+    /**
+     * 流式查询所有用户
+     *
+     * 应用场景：导出全部用户，逐行读取结果集，不会把整张表读入内存
+     * 需要在事务中使用，推荐通过 StreamingQueryExecutor 调用；fetchSize 由 StreamingFetchSizeInterceptor 统一设置
+     *
+     * @return 用户游标
+     */
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY)
+    @Select("SELECT * FROM b_user")
+    Cursor<UserEntity> streamAll();
+
     /**
      * 根据 ID 查询用户
      *
@@ -51,6 +67,18 @@ public interface UserMapper {
     @Select("SELECT * FROM b_user WHERE account = #{account}")
     UserEntity selectByAccount(@Param("account") String account);
 
+    /**
+     * 根据账号查询登录认证需要的用户信息
+     *
+     * 应用场景：登录认证、Token 校验，只查询 UserProjections.AUTH_COLUMNS 中的列，
+     * 不读取头像、扩展信息等大字段
+     *
+     * @param account 账号
+     * @return 用户实体对象（只包含认证相关字段）
+     */
+    @Select("SELECT " + UserProjections.AUTH_COLUMNS + " FROM b_user WHERE account = #{account}")
+    UserEntity selectAuthByAccount(@Param("account") String account);
+
     /**
      * 根据邮箱查询用户
      *
@@ -109,12 +137,43 @@ public interface UserMapper {
      *        .orderByDesc(UserEntity::getId);
      * List<UserEntity> users = userMapper.selectByWrapper(wrapper);
      *
+     * SQL 由 UserSqlProvider 按结构指纹缓存生成，条件值以 #{wrapper.paramMap.pN} 预编译参数绑定；
+     * ShapeCachingLanguageDriver 会复用已解析的 SqlSource，重复结构的查询不再重新解析；
+     * 结果按 SQL + 条件值缓存 30 秒，b_user 表有任何写入后立即失效
+     *
      * @param wrapper Lambda 查询构造器
      * @return 用户列表
      */
-    @Select("SELECT * FROM b_user ${wrapper.sql}")
+    @CachedQuery(ttlSeconds = 30)
+    @Lang(ShapeCachingLanguageDriver.class)
+    @SelectProvider(type = UserSqlProvider.class, method = "findByWrapper")
     List<UserEntity> selectByWrapper(@Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
 
+    /**
+     * 使用 LambdaQueryWrapper 流式查询用户
+     *
+     * 应用场景：按条件导出大量用户
+     *
+     * @param wrapper Lambda 查询构造器
+     * @return 用户游标
+     */
+    @Lang(ShapeCachingLanguageDriver.class)
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY)
+    @SelectProvider(type = UserSqlProvider.class, method = "findByWrapper")
+    Cursor<UserEntity> streamByWrapper(@Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
+
+    /**
+     * 使用 LambdaQueryWrapper 查询用户ID
+     *
+     * 应用场景：分块删除 / 更新时按主键升序找出每一块的主键范围，只读主键列
+     *
+     * @param wrapper Lambda 查询构造器（包含 ORDER BY 和 LIMIT）
+     * @return 用户ID列表
+     */
+    @Lang(ShapeCachingLanguageDriver.class)
+    @SelectProvider(type = UserSqlProvider.class, method = "selectIdsByWrapper")
+    List<Integer> selectIdsByWrapper(@Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
+
     /**
      * 根据条件查询单个用户
      *
@@ -169,6 +228,27 @@ public interface UserMapper {
             "VALUES(#{id}, #{account}, #{name}, #{password}, #{originalPassword}, #{email}, #{telephone}, #{cStatus}, #{revision})")
     int insertBasic(UserEntity entity);
 
+    /**
+     * 批量插入用户（一条多行 INSERT）
+     *
+     * 应用场景：批量导入用户，SQL 由 UserSqlProvider 根据实体元数据生成，
+     * 调用方负责分批（BaseServiceImpl 默认每批 500 行），避免超过 max_allowed_packet
+     *
+     * @param list 用户列表（id 需要预先生成）
+     * @return 影响的行数
+     */
+    @InsertProvider(type = UserSqlProvider.class, method = "batchInsert")
+    int batchInsert(@Param("list") List<UserEntity> list);
+
+    /**
+     * 批量插入或更新用户（INSERT ... ON DUPLICATE KEY UPDATE）
+     *
+     * @param list 用户列表
+     * @return 影响的行数（插入的行计 1，更新的行计 2）
+     */
+    @InsertProvider(type = UserSqlProvider.class, method = "batchUpsert")
+    int batchUpsert(@Param("list") List<UserEntity> list);
+
     /**
      * 选择性插入用户（只插入非空字段）
      *
@@ -234,6 +314,28 @@ public interface UserMapper {
             "WHERE id = #{id}")
     int update(UserEntity entity);
 
+    /**
+     * 批量更新用户（一条 UPDATE ... SET col = CASE id WHEN ... END）
+     *
+     * @param list 用户列表（必须包含 id）
+     * @return 影响的行数
+     */
+    @UpdateProvider(type = UserSqlProvider.class, method = "batchUpdate")
+    int batchUpdate(@Param("list") List<UserEntity> list);
+
+    /**
+     * 只更新指定字段（字段值为 null 时写入 NULL）
+     *
+     * 应用场景：配合 EntityChangeTracker 只写入读取后修改过的字段，不再重复写入没有变化的列；
+     * 修改字段相同的语句文本相同，批量执行时合并为一个 JDBC batch
+     *
+     * @param entity     用户实体对象（必须包含 id）
+     * @param properties 需要更新的属性名
+     * @return 影响的行数
+     */
+    @UpdateProvider(type = UserSqlProvider.class, method = "updateColumnsById")
+    int updateColumnsById(@Param("entity") UserEntity entity, @Param("properties") List<String> properties);
+
     /**
      * 选择性更新用户（只更新非空字段）
      *
@@ -343,6 +445,7 @@ public interface UserMapper {
      *
      * 应用场景：防止并发修改冲突
      * 只有当数据库中的 revision 值与传入的 revision 值相等时才更新
+     * 会写入姓名、邮箱、手机号和状态四个字段，只修改部分字段时使用 updateColumnsWithVersion
      *
      * @param entity 用户实体对象（必须包含 id 和 revision）
      * @return 影响的行数（0 表示版本冲突，1 表示成功）
@@ -356,6 +459,33 @@ public interface UserMapper {
             "WHERE id = #{id} AND revision = #{revision}")
     int updateWithVersion(UserEntity entity);
 
+    /**
+     * 乐观锁更新指定字段（带版本号控制）
+     *
+     * 应用场景：修改用户资料，只写入本次修改过的字段，其他请求同时修改的字段（如账号状态）不会被读取时的旧值覆盖；
+     * SQL 由 UserSqlProvider 生成：UPDATE b_user SET ..., revision = revision + 1 WHERE id = ? AND revision = ?，
+     * 通过 OptimisticUpdateExecutor.executeChanged 执行
+     *
+     * @param entity     用户实体对象（必须包含 id 和 revision）
+     * @param properties 需要更新的属性名
+     * @return 影响的行数（0 表示版本冲突，1 表示成功）
+     */
+    @UpdateProvider(type = UserSqlProvider.class, method = "updateColumnsWithVersion")
+    int updateColumnsWithVersion(@Param("entity") UserEntity entity, @Param("properties") List<String> properties);
+
+    /**
+     * 使用 LambdaQueryWrapper 选择性更新用户（只更新 entity 中不为 null 的字段）
+     *
+     * 应用场景：批量禁用用户，由 ChunkedDmlExecutor 每次加上主键范围条件分块调用
+     *
+     * @param entity  更新值
+     * @param wrapper Lambda 查询构造器
+     * @return 影响的行数
+     */
+    @Lang(ShapeCachingLanguageDriver.class)
+    @UpdateProvider(type = UserSqlProvider.class, method = "updateSelectiveByWrapper")
+    int updateSelectiveByWrapper(@Param("entity") UserEntity entity, @Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
+
     // ==================== 删除操作 ====================
 
     /**
@@ -383,6 +513,18 @@ public interface UserMapper {
             "</script>")
     int deleteByIds(@Param("ids") List<Integer> ids);
 
+    /**
+     * 使用 LambdaQueryWrapper 删除用户
+     *
+     * 应用场景：清理注销用户等按条件删除大量行时，由 ChunkedDmlExecutor 每次加上主键范围条件分块调用
+     *
+     * @param wrapper Lambda 查询构造器
+     * @return 影响的行数
+     */
+    @Lang(ShapeCachingLanguageDriver.class)
+    @DeleteProvider(type = UserSqlProvider.class, method = "deleteByWrapper")
+    int deleteByWrapper(@Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
+
     // ==================== 统计查询 ====================
 
     /**
@@ -426,7 +568,8 @@ public interface UserMapper {
      * @param wrapper Lambda 查询构造器
      * @return 用户数量
      */
-    @Select("SELECT COUNT(*) FROM b_user ${wrapper.sql}")
+    @Lang(ShapeCachingLanguageDriver.class)
+    @SelectProvider(type = UserSqlProvider.class, method = "countByWrapper")
     Long countByWrapper(@Param("wrapper") LambdaQueryWrapper<UserEntity> wrapper);
 
     // ==================== 辅助查询方法 ====================
@@ -457,4 +600,13 @@ public interface UserMapper {
      */
     @Select("SELECT COUNT(*) > 0 FROM b_user WHERE email = #{email}")
     boolean existsByEmail(@Param("email") String email);
+
+    /**
+     * 检查手机号是否存在
+     *
+     * @param telephone 手机号
+     * @return true-已存在，false-不存在
+     */
+    @Select("SELECT COUNT(*) > 0 FROM b_user WHERE telephone = #{telephone}")
+    boolean existsByTelephone(@Param("telephone") String telephone);
 }
@@ -0,0 +1,45 @@
+package com.enterprisesystem.babysecure.mapper;
+
+import com.enterprisesystem.babycommon.query.Projection;
+import com.enterprisesystem.babysecure.model.entity.UserEntity;
+
+/**
+ * 用户表常用列投影
+ *
+ * b_user 中的 c_image、pwd_log、c_extend_info、c_signture_pwd_log 都是 TEXT 大字段，
+ * 列表页和登录校验都用不到，查询时通过投影只取需要的列：
+ * <pre>
+ * {@code
+ * wrapper.select(UserProjections.LIST).eq(UserEntity::getCStatus, 1);
+ * List<UserEntity> users = userMapper.selectByWrapper(wrapper);
+ * }
+ * </pre>
+ *
+ * 列名常量同时供 UserMapper 的 @Select 注解使用，未查询的字段在实体中为 null
+ */
+public final class UserProjections {
+
+    /**
+     * 列表页列（不含密码和大字段）
+     */
+    public static final String LIST_COLUMNS = "id, account, name, email, telephone, c_status, "
+            + "login_fail_count, pwd_valid_date, account_valid_date, revision";
+
+    /**
+     * 登录认证列（账号状态、密码、失败次数、有效期）
+     */
+    public static final String AUTH_COLUMNS = "id, account, name, password, c_status, "
+            + "login_fail_count, pwd_valid_date, account_valid_date, revision";
+
+    public static final Projection<UserEntity> LIST = Projection.of(UserEntity.class, LIST_COLUMNS);
+
+    public static final Projection<UserEntity> AUTH = Projection.of(UserEntity.class, AUTH_COLUMNS);
+
+    /**
+     * 登录认证列在实体缓存中的视图名（与整行分开缓存）
+     */
+    public static final String AUTH_VIEW = "auth";
+
+    private UserProjections() {
+    }
+}
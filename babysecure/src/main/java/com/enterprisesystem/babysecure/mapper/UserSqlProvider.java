@@ -0,0 +1,19 @@
+package com.enterprisesystem.babysecure.mapper;
+
+import com.enterprisesystem.babycommon.query.BaseSqlProvider;
+import com.enterprisesystem.babysecure.model.entity.UserEntity;
+
+/**
+ * 用户表 SQL Provider
+ * 供 UserMapper 的 @SelectProvider 使用，根据 LambdaQueryWrapper 生成 b_user 的查询语句；
+ * 同时供 @InsertProvider / @UpdateProvider 生成批量写入语句
+ * 表名取自 UserEntity 上的 @TableName
+ *
+ * MyBatis 通过无参构造函数实例化 Provider，因此需要为每个实体提供一个子类
+ */
+public class UserSqlProvider extends BaseSqlProvider<UserEntity> {
+
+    public UserSqlProvider() {
+        super(UserEntity.class);
+    }
+}
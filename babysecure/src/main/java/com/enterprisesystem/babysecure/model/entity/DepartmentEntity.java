@@ -1,5 +1,10 @@
 package com.enterprisesystem.babysecure.model.entity;
 
+import com.enterprisesystem.babycommon.annotation.CachedEntity;
+import com.enterprisesystem.babycommon.annotation.CompiledRowMapping;
+import com.enterprisesystem.babycommon.annotation.TableField;
+import com.enterprisesystem.babycommon.annotation.TableId;
+import com.enterprisesystem.babycommon.annotation.TableName;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -16,10 +21,17 @@ import lombok.AllArgsConstructor;
  * @Data：自动生成 getter/setter/toString/equals/hashCode
  * @NoArgsConstructor：生成无参构造函数（MyBatis 反射需要）
  * @AllArgsConstructor：生成全参构造函数
+ * @TableName / @TableId：声明表名和主键，供通用 SQL 生成使用
+ * @TableField：由数据库维护的时间字段不参与生成的批量 INSERT / UPDATE
+ * @CachedEntity：开启实体二级缓存，按主键和部门编码缓存，写入后自动失效
+ * @CompiledRowMapping：查询结果使用预先生成的行映射器，不经过 MyBatis 反射自动映射
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@TableName("department")
+@CachedEntity(uniqueKeys = {"code"})
+@CompiledRowMapping
 public class DepartmentEntity {
 
     // ==================== 主键 ====================
@@ -29,6 +41,7 @@ public class DepartmentEntity {
      * 数据库字段：id INT PRIMARY KEY AUTO_INCREMENT
      * 自增主键，插入数据时不需要指定值
      */
+    @TableId(autoIncrement = true)
     private Integer id;
 
     // ==================== 业务字段 ====================
@@ -74,11 +87,13 @@ public class DepartmentEntity {
      * 创建时间
      * 数据库字段：create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
      */
+    @TableField(insertable = false, updatable = false)
     private java.util.Date createTime;
 
     /**
      * 更新时间
      * 数据库字段：update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
      */
+    @TableField(insertable = false, updatable = false)
     private java.util.Date updateTime;
 }
\ No newline at end of file
@@ -1,5 +1,9 @@
 package com.enterprisesystem.babysecure.model.entity;
 
+import com.enterprisesystem.babycommon.annotation.CachedEntity;
+import com.enterprisesystem.babycommon.annotation.CompiledRowMapping;
+import com.enterprisesystem.babycommon.annotation.TableId;
+import com.enterprisesystem.babycommon.annotation.TableName;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,10 +20,16 @@ import lombok.NoArgsConstructor;
  * @Data：自动生成 getter/setter/toString/equals/hashCode
  * @NoArgsConstructor：生成无参构造函数（MyBatis 反射需要）
  * @AllArgsConstructor：生成全参构造函数
+ * @TableName / @TableId：声明表名和主键，供通用 SQL 生成使用
+ * @CachedEntity：开启实体二级缓存，按主键和账号缓存，写入后自动失效
+ * @CompiledRowMapping：查询结果使用预先生成的行映射器，不经过 MyBatis 反射自动映射
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@TableName("b_user")
+@CachedEntity(uniqueKeys = {"account"})
+@CompiledRowMapping
 public class UserEntity {
 
     // ==================== 主键 ====================
@@ -29,6 +39,7 @@ public class UserEntity {
      * 数据库字段：id INT(11) NOT NULL COMMENT '主键 id'
      * 注意：此表未使用 AUTO_INCREMENT，需手动生成ID
      */
+    @TableId
     private int id;
 
     // ==================== 基础信息 ====================
@@ -1,8 +1,11 @@
 package com.enterprisesystem.babysecure.service;
 
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
 import com.enterprisesystem.babysecure.model.dto.DepartmentDto;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 部门 Service 接口
@@ -82,6 +85,16 @@ public interface DepartmentService {
      */
     DepartmentDto getDepartmentById(Integer id);
 
+    /**
+     * 根据 ID 异步查询部门
+     *
+     * 渲染用户列表等需要逐行查询部门名称的场景使用：短时间内的多个请求合并为一次 IN 查询，相同 ID 只查询一次
+     *
+     * @param id 部门ID
+     * @return 部门对象 Future，不存在时结果为 null
+     */
+    CompletableFuture<DepartmentDto> getDepartmentByIdAsync(Integer id);
+
     /**
      * 根据部门编码查询
      *
@@ -116,6 +129,8 @@ public interface DepartmentService {
      *   }
      * ]
      *
+     * 结果缓存 1 分钟，部门增删改后清除；过期后先返回旧树并在后台重建，返回的树不要修改
+     *
      * @return 部门树形列表
      */
     List<DepartmentDto> getDepartmentTree();
@@ -128,6 +143,20 @@ public interface DepartmentService {
      */
     List<DepartmentDto> listDepartmentsByParentId(Integer parentId);
 
+    /**
+     * 分页查询部门列表
+     *
+     * 传入 cursor 或 cursorMode=true 时使用游标分页，按 (排序字段, id) 定位，翻页深度不影响查询耗时；
+     * 否则按页码分页，countMode 为 EXACT（默认，COUNT 与当前页并行并短时间缓存）、ESTIMATED（估算总数）或 HAS_NEXT（不统计总数）。
+     * 排序字段只能是 id、code、sortOrder（有索引的列），默认按 id 排序
+     *
+     * @param parentId    父部门ID，为 null 时不限制
+     * @param status      部门状态，为 null 时不限制
+     * @param pageRequest 分页请求
+     * @return 分页结果
+     */
+    PageResult<DepartmentDto> pageDepartments(Integer parentId, Integer status, PageRequest pageRequest);
+
     // ==================== 统计操作 ====================
 
     /**
@@ -1,7 +1,101 @@
 package com.enterprisesystem.babysecure.service;
 
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlOptions;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlResult;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
 import com.enterprisesystem.babysecure.model.dto.UserDto;
+import com.enterprisesystem.babysecure.model.entity.UserEntity;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserDto addUser(UserDto userDto);
+
+    /**
+     * 流式导出用户
+     *
+     * 逐行读取 b_user，每凑满 batchSize 个用户回调一次，内存中最多保留一个批次；
+     * 回调同步执行，写出速度慢时数据库读取自动放慢
+     *
+     * @param wrapper   查询条件，为 null 时导出全部用户
+     * @param batchSize 批次大小
+     * @param handler   每批用户的处理函数（如写入 Excel / CSV）
+     * @return 导出的用户数
+     */
+    long exportUsers(LambdaQueryWrapper<UserEntity> wrapper, int batchSize, Consumer<List<UserDto>> handler);
+
+    /**
+     * 分页查询用户列表（只查询 UserProjections.LIST 中的列，不含密码和大字段）
+     *
+     * 传入 cursor 或 cursorMode=true 时使用游标分页，按 (排序字段, id) 定位，翻页深度不影响查询耗时；
+     * 否则按页码分页，countMode 为 EXACT（默认，COUNT 与当前页并行并短时间缓存）、ESTIMATED（估算总数）或 HAS_NEXT（不统计总数）。
+     * 排序字段只能是 id、account（有索引的列），默认按 id 排序
+     *
+     * @param account     账号前缀，为空时不限制
+     * @param status      用户状态，为 null 时不限制
+     * @param pageRequest 分页请求
+     * @return 分页结果
+     */
+    PageResult<UserDto> pageUsers(String account, Integer status, PageRequest pageRequest);
+
+    /**
+     * 按账号查询用户（整行），优先读实体缓存
+     *
+     * @param account 账号
+     * @return 用户实体，不存在时返回 null
+     */
+    UserEntity getUserByAccount(String account);
+
+    /**
+     * 按账号查询认证信息（只包含 UserProjections.AUTH_COLUMNS 中的列），优先读实体缓存
+     *
+     * 登录和每次 Token 校验都会调用，账号不存在的结果也会短时间缓存
+     *
+     * @param account 账号
+     * @return 用户实体，不存在时返回 null
+     */
+    UserEntity getAuthUserByAccount(String account);
+
+    /**
+     * 查询用户资料（不含密码），优先读缓存
+     *
+     * 缓存 30 秒，过期后先返回旧资料并在后台刷新，同一个用户同时只有一个请求查询数据库；返回的对象不要修改
+     *
+     * @param id 用户ID
+     * @return 用户资料，不存在时返回 null
+     */
+    UserDto getUserProfile(Integer id);
+
+    /**
+     * 清除用户资料缓存，修改用户信息后调用
+     *
+     * @param id 用户ID
+     */
+    void evictUserProfile(Integer id);
+
+    /**
+     * 修改用户资料（姓名、邮箱、手机号，为 null 的字段不修改；账号状态不能通过资料修改）
+     *
+     * 使用乐观锁（revision）更新，与其他请求同时修改时自动重新读取并重试，重试次数用完抛出 OptimisticLockException
+     *
+     * @param id      用户ID
+     * @param changes 修改内容
+     * @return 修改后的用户资料
+     */
+    UserDto updateUserProfile(Integer id, UserDto changes);
+
+    /**
+     * 按条件批量禁用用户
+     *
+     * 按主键范围分块更新并逐块提交，每块只短暂锁定一部分用户，不会长时间阻塞登录失败次数等单行更新；
+     * 中途中断或取消时已提交的块保持禁用，返回结果中的 lastId 可作为 options.startAfter 继续执行
+     *
+     * @param wrapper 禁用条件
+     * @param options 分块选项
+     * @return 进度与结果
+     */
+    ChunkedDmlResult disableUsers(LambdaQueryWrapper<UserEntity> wrapper, ChunkedDmlOptions options);
 }
@@ -4,12 +4,31 @@ import com.enterprisesystem.babysecure.mapper.DepartmentMapper;
 import com.enterprisesystem.babysecure.model.dto.DepartmentDto;
 import com.enterprisesystem.babysecure.model.entity.DepartmentEntity;
 import com.enterprisesystem.babysecure.service.DepartmentService;
+import com.enterprisesystem.babycommon.cache.EntityCacheManager;
 import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
+import com.enterprisesystem.babycommon.loader.BatchLoader;
+import com.enterprisesystem.babycommon.loader.JacksonValueCodec;
+import com.enterprisesystem.babycommon.loader.RefreshingCache;
+import com.enterprisesystem.babycommon.loader.RefreshingCacheFactory;
+import com.enterprisesystem.babycommon.loader.RefreshingCacheOptions;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.mq.config.RabbitMQConfig;
+import com.enterprisesystem.babycommon.mq.outbox.OutboxPublisher;
+import com.enterprisesystem.babycommon.mybatis.EntityChangeTracker;
+import com.enterprisesystem.babycommon.mybatis.PageQueryExecutor;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +58,61 @@ public class DepartmentServiceImpl implements DepartmentService {
     @Resource
     private DepartmentMapper departmentMapper;
 
+    /**
+     * 实体缓存，未配置 Redis / 关闭缓存时为 null，直接查询数据库
+     */
+    @Autowired(required = false)
+    private EntityCacheManager entityCacheManager;
+
+    /**
+     * 合并 getDepartmentByIdAsync 请求的批量加载器
+     */
+    private final BatchLoader<Integer, DepartmentEntity> departmentLoader =
+            new BatchLoader<>(this::selectDepartmentsByIds, DepartmentEntity::getId);
+
+    /**
+     * 部门树只有一个 key
+     */
+    private static final String TREE_KEY = "all";
+
+    /**
+     * 分页列表允许的排序字段（都有索引，游标分页可以在索引上范围扫描）
+     */
+    private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "code", "sortOrder");
+
+    @Resource
+    private RefreshingCacheFactory refreshingCacheFactory;
+
+    /**
+     * 更新部门时只写入修改过的字段
+     */
+    @Resource
+    private EntityChangeTracker entityChangeTracker;
+
+    /**
+     * 分页查询：页码分页时 COUNT 与当前页并行执行并缓存，部门表写入后缓存的总数立即失效
+     */
+    @Resource
+    private PageQueryExecutor pageQueryExecutor;
+
+    /**
+     * 开启发件箱（babycommon.mq.outbox.enabled=true）时，部门变更消息与部门数据在同一事务中写入
+     */
+    @Autowired(required = false)
+    private OutboxPublisher outboxPublisher;
+
+    /**
+     * 部门树缓存：新鲜期 1 分钟，过期后 10 分钟内先返回旧树再后台重建，集群内同时只有一个节点查询数据库
+     */
+    private RefreshingCache<String, List<DepartmentDto>> departmentTreeCache;
+
+    @PostConstruct
+    public void initCaches() {
+        departmentTreeCache = refreshingCacheFactory.create("department-tree", key -> buildDepartmentTree(),
+                RefreshingCacheOptions.of(60_000, 600_000),
+                new JacksonValueCodec<>(new TypeReference<List<DepartmentDto>>() {}));
+    }
+
     // ==================== 工具方法 ====================
 
     /**
@@ -96,6 +170,7 @@ public class DepartmentServiceImpl implements DepartmentService {
      * 添加部门
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public DepartmentDto addDepartment(DepartmentDto departmentDto) {
         // 1. 校验部门编码是否已存在
         DepartmentEntity existEntity = departmentMapper.selectByCode(departmentDto.getCode());
@@ -127,8 +202,14 @@ public class DepartmentServiceImpl implements DepartmentService {
 
         // 6. 判断是否成功
         if (result > 0) {
+            departmentTreeCache.invalidate(TREE_KEY);
             // insert 后，entity.getId() 会自动获得数据库生成的 ID
-            return entityToDto(entity);
+            DepartmentDto created = entityToDto(entity);
+            // 7. 部门变更消息写入发件箱，随事务提交后由 OutboxRelay 发送
+            if (outboxPublisher != null) {
+                outboxPublisher.publish(RabbitMQConfig.ROUTING_KEY_DEPARTMENT_CHANGE, created);
+            }
+            return created;
         } else {
             throw new SystemRuntimeException(3,"添加部门失败");
         }
@@ -143,7 +224,7 @@ public class DepartmentServiceImpl implements DepartmentService {
         if (departmentDto.getId() == null) {
             throw new SystemRuntimeException(1,"部门ID不能为空");
         }
-        DepartmentEntity existEntity = departmentMapper.selectById(departmentDto.getId());
+        DepartmentEntity existEntity = entityChangeTracker.track(departmentMapper.selectById(departmentDto.getId()));
         if (existEntity == null) {
             throw new SystemRuntimeException(1,"部门不存在");
         }
@@ -156,15 +237,25 @@ public class DepartmentServiceImpl implements DepartmentService {
             }
         }
 
-        // 3. DTO 转换为 Entity
-        DepartmentEntity entity = dtoToEntity(departmentDto);
-
-        // 4. 更新数据库
-        int result = departmentMapper.update(entity);
+        // 3. 把修改内容写入读取到的记录
+        existEntity.setCode(departmentDto.getCode());
+        existEntity.setName(departmentDto.getName());
+        existEntity.setParentId(departmentDto.getParentId());
+        existEntity.setStatus(departmentDto.getStatus());
+        existEntity.setSortOrder(departmentDto.getSortOrder());
+
+        // 4. 只更新修改过的字段，没有修改时不访问数据库
+        List<String> changed = entityChangeTracker.getChangedProperties(existEntity);
+        if (changed.isEmpty()) {
+            return entityToDto(existEntity);
+        }
+        int result = departmentMapper.updateColumnsById(existEntity, changed);
 
         // 5. 判断是否成功
         if (result > 0) {
-            return entityToDto(entity);
+            entityChangeTracker.untrack(existEntity);
+            departmentTreeCache.invalidate(TREE_KEY);
+            return entityToDto(existEntity);
         } else {
             throw new SystemRuntimeException(1,"更新部门失败");
         }
@@ -192,6 +283,9 @@ public class DepartmentServiceImpl implements DepartmentService {
 
         // 3. 删除数据库记录
         int result = departmentMapper.deleteById(id);
+        if (result > 0) {
+            departmentTreeCache.invalidate(TREE_KEY);
+        }
 
         // 4. 返回是否成功
         return result > 0;
@@ -208,7 +302,11 @@ public class DepartmentServiceImpl implements DepartmentService {
 
         // TODO: 实际项目中应该检查每个部门是否有子部门或员工
         // 这里简化处理，直接批量删除
-        return departmentMapper.deleteByIds(ids);
+        int result = departmentMapper.deleteByIds(ids);
+        if (result > 0) {
+            departmentTreeCache.invalidate(TREE_KEY);
+        }
+        return result;
     }
 
     // ==================== 查询操作实现 ====================
@@ -218,16 +316,35 @@ public class DepartmentServiceImpl implements DepartmentService {
      */
     @Override
     public DepartmentDto getDepartmentById(Integer id) {
-        DepartmentEntity entity = departmentMapper.selectById(id);
+        DepartmentEntity entity = entityCacheManager == null
+                ? departmentMapper.selectById(id)
+                : entityCacheManager.getById(DepartmentEntity.class, id, () -> departmentMapper.selectById(id));
         return entityToDto(entity);
     }
 
+    /**
+     * 根据 ID 异步查询部门（合并请求）
+     */
+    @Override
+    public CompletableFuture<DepartmentDto> getDepartmentByIdAsync(Integer id) {
+        return departmentLoader.load(id).thenApply(this::entityToDto);
+    }
+
+    private List<DepartmentEntity> selectDepartmentsByIds(List<Integer> ids) {
+        return entityCacheManager == null
+                ? departmentMapper.selectByIds(ids)
+                : entityCacheManager.getByIds(DepartmentEntity.class, ids, departmentMapper::selectByIds);
+    }
+
     /**
      * 根据部门编码查询
      */
     @Override
     public DepartmentDto getDepartmentByCode(String code) {
-        DepartmentEntity entity = departmentMapper.selectByCode(code);
+        DepartmentEntity entity = entityCacheManager == null
+                ? departmentMapper.selectByCode(code)
+                : entityCacheManager.getByUniqueKey(DepartmentEntity.class, EntityCacheManager.FULL_VIEW, "code", code,
+                        () -> departmentMapper.selectByCode(code));
         return entityToDto(entity);
     }
 
@@ -243,12 +360,19 @@ public class DepartmentServiceImpl implements DepartmentService {
     }
 
     /**
-     * 查询部门树形结构
-     *
-     * 这是一个经典的递归算法，将平铺的列表转换为树形结构
+     * 查询部门树形结构（读缓存，返回的树不要修改）
      */
     @Override
     public List<DepartmentDto> getDepartmentTree() {
+        return departmentTreeCache.get(TREE_KEY);
+    }
+
+    /**
+     * 从数据库构建部门树
+     *
+     * 这是一个经典的递归算法，将平铺的列表转换为树形结构
+     */
+    private List<DepartmentDto> buildDepartmentTree() {
         // 1. 查询所有部门
         List<DepartmentEntity> allEntities = departmentMapper.selectAll();
         List<DepartmentDto> allDtos = allEntities.stream()
@@ -304,6 +428,20 @@ public class DepartmentServiceImpl implements DepartmentService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 分页查询部门列表
+     *
+     * 游标分页按 sortOrder 排序时，sort_order 为 NULL 的部门排在最前（升序）或最后（降序），由 CursorPager 单独查询
+     */
+    @Override
+    public PageResult<DepartmentDto> pageDepartments(Integer parentId, Integer status, PageRequest pageRequest) {
+        LambdaQueryWrapper<DepartmentEntity> wrapper = new LambdaQueryWrapper<>(DepartmentEntity.class)
+                .eq(DepartmentEntity::getParentId, parentId)
+                .eq(DepartmentEntity::getStatus, status);
+        return pageQueryExecutor.page(wrapper, pageRequest, SORTABLE_PROPERTIES, departmentMapper::selectByWrapper,
+                departmentMapper::countByWrapper).map(this::entityToDto);
+    }
+
     // ==================== 统计操作实现 ====================
 
     /**
@@ -1,7 +1,22 @@
 package com.enterprisesystem.babysecure.service.impl;
 
+import com.enterprisesystem.babycommon.cache.EntityCacheManager;
 import com.enterprisesystem.babycommon.helpers.SequenceProducerHelper;
+import com.enterprisesystem.babycommon.loader.JacksonValueCodec;
+import com.enterprisesystem.babycommon.loader.RefreshingCache;
+import com.enterprisesystem.babycommon.loader.RefreshingCacheFactory;
+import com.enterprisesystem.babycommon.loader.RefreshingCacheOptions;
+import com.enterprisesystem.babycommon.model.PageRequest;
+import com.enterprisesystem.babycommon.model.PageResult;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlExecutor;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlOptions;
+import com.enterprisesystem.babycommon.mybatis.ChunkedDmlResult;
+import com.enterprisesystem.babycommon.mybatis.OptimisticUpdateExecutor;
+import com.enterprisesystem.babycommon.mybatis.PageQueryExecutor;
+import com.enterprisesystem.babycommon.mybatis.StreamingQueryExecutor;
+import com.enterprisesystem.babycommon.query.LambdaQueryWrapper;
 import com.enterprisesystem.babysecure.mapper.UserMapper;
+import com.enterprisesystem.babysecure.mapper.UserProjections;
 import com.enterprisesystem.babysecure.model.dto.UserDto;
 import com.enterprisesystem.babysecure.model.entity.UserEntity;
 import com.enterprisesystem.babysecure.service.UserService;
@@ -9,10 +24,16 @@ import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
 import com.enterprisesystem.babycommon.utils.CommonObjectUtil;
 import com.enterprisesystem.babycommon.helpers.SHAHelper;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 用户 Service 实现类
@@ -23,6 +44,11 @@ import java.util.Date;
 @Service
 public class UserServiceImpl implements UserService {
 
+    /**
+     * 分页列表允许的排序字段（都有索引，游标分页可以在索引上范围扫描）
+     */
+    private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "account");
+
     /**
      * 注入 UserMapper
      * 使用 @Resource 注解，按名称注入
@@ -33,6 +59,42 @@ public class UserServiceImpl implements UserService {
     @Resource
     SequenceProducerHelper sequenceProducerHelper;
 
+    @Resource
+    private StreamingQueryExecutor streamingQueryExecutor;
+
+    /**
+     * 实体缓存，未配置 Redis / 关闭缓存时为 null，直接查询数据库
+     */
+    @Autowired(required = false)
+    private EntityCacheManager entityCacheManager;
+
+    @Resource
+    private RefreshingCacheFactory refreshingCacheFactory;
+
+    @Resource
+    private OptimisticUpdateExecutor optimisticUpdateExecutor;
+
+    @Resource
+    private ChunkedDmlExecutor chunkedDmlExecutor;
+
+    /**
+     * 分页查询：页码分页时 COUNT 与当前页并行执行并缓存，b_user 写入后缓存的总数立即失效
+     */
+    @Resource
+    private PageQueryExecutor pageQueryExecutor;
+
+    /**
+     * 用户资料缓存：新鲜期 30 秒，过期后 5 分钟内先返回旧资料再后台刷新
+     */
+    private RefreshingCache<Integer, UserDto> userProfileCache;
+
+    @PostConstruct
+    public void initCaches() {
+        RefreshingCacheOptions options = RefreshingCacheOptions.of(30_000, 300_000);
+        options.setMaxSize(10_000);
+        userProfileCache = refreshingCacheFactory.create("user-profile",
+                id -> entityToDto(userMapper.selectById(id)), options, new JacksonValueCodec<>(UserDto.class));
+    }
 
     /**
      * 添加用户
@@ -61,24 +123,21 @@ public class UserServiceImpl implements UserService {
 
         // ==================== 3. 唯一性校验 ====================
 
-        // 检查账号是否已存在
-        UserEntity existByAccount = userMapper.selectByAccount(userDto.getAccount());
-        if (existByAccount != null) {
+        // 检查账号是否已存在（只查询是否存在，不读取整行数据）
+        if (userMapper.existsByAccount(userDto.getAccount())) {
             throw new SystemRuntimeException(3,"账号【" + userDto.getAccount() + "】已存在");
         }
 
         // 如果提供了邮箱，检查邮箱是否已存在
         if (StringUtils.isNotBlank(userDto.getEmail())) {
-            UserEntity existByEmail = userMapper.selectByEmail(userDto.getEmail());
-            if (existByEmail != null) {
+            if (userMapper.existsByEmail(userDto.getEmail())) {
                 throw new SystemRuntimeException(4,"邮箱【" + userDto.getEmail() + "】已被使用");
             }
         }
 
         // 如果提供了手机号，检查手机号是否已存在
         if (StringUtils.isNotBlank(userDto.getTelephone())) {
-            UserEntity existByTelephone = userMapper.selectByTelephone(userDto.getTelephone());
-            if (existByTelephone != null) {
+            if (userMapper.existsByTelephone(userDto.getTelephone())) {
                 throw new SystemRuntimeException(5,"手机号【" + userDto.getTelephone() + "】已被使用");
             }
         }
@@ -156,6 +215,112 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    /**
+     * 流式导出用户
+     *
+     * @param wrapper   查询条件
+     * @param batchSize 批次大小
+     * @param handler   每批用户的处理函数
+     * @return 导出的用户数
+     */
+    @Override
+    public long exportUsers(LambdaQueryWrapper<UserEntity> wrapper, int batchSize, Consumer<List<UserDto>> handler) {
+        return streamingQueryExecutor.forEachBatch(
+                () -> wrapper == null ? userMapper.streamAll() : userMapper.streamByWrapper(wrapper),
+                batchSize,
+                entities -> {
+                    List<UserDto> dtos = new ArrayList<>(entities.size());
+                    for (UserEntity entity : entities) {
+                        dtos.add(entityToDto(entity));
+                    }
+                    handler.accept(dtos);
+                });
+    }
+
+    @Override
+    public PageResult<UserDto> pageUsers(String account, Integer status, PageRequest pageRequest) {
+        LambdaQueryWrapper<UserEntity> wrapper = new LambdaQueryWrapper<>(UserEntity.class)
+                .select(UserProjections.LIST)
+                .eq(UserEntity::getCStatus, status);
+        if (StringUtils.isNotBlank(account)) {
+            wrapper.likeRight(UserEntity::getAccount, account);
+        }
+
+        return pageQueryExecutor.page(wrapper, pageRequest, SORTABLE_PROPERTIES, userMapper::selectByWrapper,
+                userMapper::countByWrapper).map(this::entityToDto);
+    }
+
+    @Override
+    public UserEntity getUserByAccount(String account) {
+        if (entityCacheManager == null) {
+            return userMapper.selectByAccount(account);
+        }
+        return entityCacheManager.getByUniqueKey(UserEntity.class, EntityCacheManager.FULL_VIEW, "account", account,
+                () -> userMapper.selectByAccount(account));
+    }
+
+    @Override
+    public UserEntity getAuthUserByAccount(String account) {
+        if (entityCacheManager == null) {
+            return userMapper.selectAuthByAccount(account);
+        }
+        return entityCacheManager.getByUniqueKey(UserEntity.class, UserProjections.AUTH_VIEW, "account", account,
+                () -> userMapper.selectAuthByAccount(account));
+    }
+
+    @Override
+    public UserDto getUserProfile(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        return userProfileCache.get(id);
+    }
+
+    @Override
+    public void evictUserProfile(Integer id) {
+        if (id != null) {
+            userProfileCache.invalidate(id);
+        }
+    }
+
+    @Override
+    public UserDto updateUserProfile(Integer id, UserDto changes) {
+        if (id == null || changes == null) {
+            throw new SystemRuntimeException("用户ID和修改内容不能为空");
+        }
+        // 每次尝试都重新读取最新的 revision，UPDATE 只写入本次请求修改的字段，其他请求同时修改的字段不会丢失
+        UserEntity updated = optimisticUpdateExecutor.executeChanged("b_user", () -> userMapper.selectById(id), entity -> {
+            if (changes.getName() != null) {
+                entity.setName(changes.getName());
+            }
+            if (changes.getEmail() != null) {
+                entity.setEmail(changes.getEmail());
+            }
+            if (changes.getTelephone() != null) {
+                entity.setTelephone(changes.getTelephone());
+            }
+        }, userMapper::updateColumnsWithVersion);
+        evictUserProfile(id);
+        return entityToDto(updated);
+    }
+
+    @Override
+    public ChunkedDmlResult disableUsers(LambdaQueryWrapper<UserEntity> wrapper, ChunkedDmlOptions options) {
+        if (wrapper == null) {
+            throw new SystemRuntimeException("禁用条件不能为空");
+        }
+        UserEntity changes = new UserEntity();
+        changes.setCStatus(0);
+        // 已经禁用的用户不再重复更新，减少锁定的行数
+        LambdaQueryWrapper<UserEntity> condition = wrapper.copyWhere().ne(UserEntity::getCStatus, 0);
+        ChunkedDmlResult result = chunkedDmlExecutor.execute(UserEntity.class, "disable", condition,
+                userMapper::selectIdsByWrapper, chunk -> userMapper.updateSelectiveByWrapper(changes, chunk), options);
+        if (result.getRowsAffected() > 0) {
+            userProfileCache.invalidateAll();
+        }
+        return result;
+    }
+
     private Integer generateId() {
         return (int) sequenceProducerHelper.getUniqueSequence();
     }
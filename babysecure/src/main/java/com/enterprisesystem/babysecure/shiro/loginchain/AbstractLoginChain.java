@@ -3,7 +3,7 @@ package com.enterprisesystem.babysecure.shiro.loginchain;
 import com.alibaba.fastjson.JSONObject;
 import com.enterprisesystem.babycommon.context.ApplicationContextProvider;
 import com.enterprisesystem.babycommon.exception.SystemRuntimeException;
-import com.enterprisesystem.babysecure.mapper.UserMapper;
+import com.enterprisesystem.babysecure.service.UserService;
 import com.enterprisesystem.babysecure.model.entity.UserEntity;
 import com.enterprisesystem.babysecure.shiro.config.JwtRealm;
 import com.enterprisesystem.babysecure.shiro.entity.LoginErrorResult;
@@ -53,9 +53,9 @@ public abstract class AbstractLoginChain {
                 return null;
             }
 
-            // 3. 从 Spring 容器获取 UserMapper
-            UserMapper userMapper = ApplicationContextProvider.getBean(UserMapper.class);
-            user = userMapper.selectByAccount(account);
+            // 3. 从 Spring 容器获取 UserService（优先读实体缓存）
+            UserService userService = ApplicationContextProvider.getBean(UserService.class);
+            user = userService.getAuthUserByAccount(account);
             // 4. 根据账号查询用户
             jsonObject.put("user",user);
         }
@@ -1,6 +1,6 @@
 package com.enterprisesystem.babysecure.shiro.realm;
 
-import com.enterprisesystem.babysecure.mapper.UserMapper;
+import com.enterprisesystem.babysecure.service.UserService;
 import com.enterprisesystem.babysecure.model.entity.UserEntity;
 import com.enterprisesystem.babysecure.shiro.config.JwtToken;
 import org.apache.shiro.authc.*;
@@ -32,10 +32,10 @@ import javax.annotation.Resource;
 public class UserRealm extends AuthorizingRealm {
 
     /**
-     * 注入 UserMapper，用于查询用户信息
+     * 注入 UserService，用于查询用户信息（优先读实体缓存）
      */
     @Resource
-    private UserMapper userMapper;
+    private UserService userService;
 
     /**
      * 构造函数：明确指定此 Realm 只支持 JwtToken
@@ -150,7 +150,7 @@ public class UserRealm extends AuthorizingRealm {
 
         // ==================== 2. 查询用户信息 ====================
         // 根据账号查询用户
-        UserEntity user = userMapper.selectByAccount(account);
+        UserEntity user = userService.getAuthUserByAccount(account);
 
         // ==================== 3. 验证用户是否存在 ====================
         if (user == null) {
@@ -50,7 +50,10 @@ CREATE TABLE IF NOT EXISTS b_department (
       update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
 
       -- 【索引】为 parent_id 创建索引，提高查询子部门的性能
-      INDEX idx_parent_id (parent_id)
+      INDEX idx_parent_id (parent_id),
+
+      -- 【索引】按排序号游标分页时在 (sort_order, id) 上范围扫描（InnoDB 二级索引自带主键）
+      INDEX idx_sort_order (sort_order)
   ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='部门表';
 
 -- #  -- 插入测试数据
@@ -59,4 +62,31 @@ CREATE TABLE IF NOT EXISTS b_department (
 -- #  ('DEPT001', '技术部', 1, 1, 2),
 -- #  ('DEPT002', '市场部', 1, 1, 3),
 -- #  ('DEPT003', '前端组', 3, 1, 4),
--- #  ('DEPT004', '后端组', 3, 1, 5);
\ No newline at end of file
+-- #  ('DEPT004', '后端组', 3, 1, 5);
+
+-- 创建消息发件箱表（babycommon.mq.outbox.enabled=true 时使用，SKIP LOCKED 需要 MySQL 8.0+）
+CREATE TABLE IF NOT EXISTS mq_outbox (
+      -- 【主键】自增 ID，发送顺序
+      id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY COMMENT '消息ID',
+
+      -- 【投递目标】交换机和路由键
+      exchange VARCHAR(128) NOT NULL COMMENT '交换机',
+      routing_key VARCHAR(128) NOT NULL COMMENT '路由键',
+
+      -- 【消息】messageId 重发时不变，消费者据此去重
+      message_id VARCHAR(64) NOT NULL COMMENT '消息唯一标识',
+      content_type VARCHAR(64) NOT NULL COMMENT '内容类型',
+      payload_type VARCHAR(255) DEFAULT NULL COMMENT '消息体类名（JSON 消息）',
+      payload MEDIUMTEXT NOT NULL COMMENT '消息体',
+
+      -- 【发送状态】认领租约、重试退避都通过 available_at 控制
+      attempts INT NOT NULL DEFAULT 0 COMMENT '发送次数',
+      available_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '可发送时间',
+      published_time DATETIME(3) DEFAULT NULL COMMENT '发送成功时间（delete-published=false 时使用）',
+      failed_time DATETIME(3) DEFAULT NULL COMMENT '发送次数用完的时间（死信，置空后重新发送）',
+      last_error VARCHAR(512) DEFAULT NULL COMMENT '最近一次发送失败原因',
+      create_time DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '写入时间',
+
+      -- 【索引】按待发送和可发送时间认领
+      INDEX idx_pending (published_time, failed_time, available_at)
+  ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='消息发件箱';